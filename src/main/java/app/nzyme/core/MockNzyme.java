@@ -17,6 +17,7 @@
 
 package app.nzyme.core;
 
+import app.nzyme.core.cache.QueryResultCache;
 import app.nzyme.core.configuration.base.BaseConfiguration;
 import app.nzyme.core.context.ContextService;
 import app.nzyme.core.detection.alerts.DetectionAlertService;
@@ -29,6 +30,7 @@ import app.nzyme.core.events.EventEngine;
 import app.nzyme.core.events.EventEngineImpl;
 import app.nzyme.core.integrations.geoip.GeoIpService;
 import app.nzyme.core.monitoring.health.HealthMonitor;
+import app.nzyme.core.registry.RegistryCache;
 import app.nzyme.core.registry.RegistryChangeMonitorImpl;
 import app.nzyme.core.registry.RegistryImpl;
 import app.nzyme.core.rest.server.NzymeHttpServer;
@@ -97,8 +99,11 @@ public class MockNzyme implements NzymeNode {
     private final AuthenticationService authenticationService;
     private final GeoIpService geoIp;
     private final Registry registry;
+    private final RegistryCache registryCache;
     private final RegistryChangeMonitor registryChangeMonitor;
     private final EventEngine eventEngine;
+    private final TapManager tapManager;
+    private final QueryResultCache queryResultCache;
 
     public MockNzyme() {
         this(Integer.MAX_VALUE, TimeUnit.DAYS);
@@ -132,6 +137,7 @@ public class MockNzyme implements NzymeNode {
             throw new RuntimeException(e);
         }
 
+        this.registryCache = new RegistryCache(configuration.registrySecretCacheTtlSeconds());
         this.registry = new RegistryImpl(this, "core");
         this.registryChangeMonitor = new RegistryChangeMonitorImpl(this);
 
@@ -167,7 +173,7 @@ public class MockNzyme implements NzymeNode {
         ((PostgresTasksQueueImpl) this.tasksQueue).initialize(taskAndMessagePollInterval, taskAndMessagePollIntervalUnit);
 
         this.authenticationService = new AuthenticationService(this);
-
+        this.tapManager = new TapManager(this);
 
         this.database.useHandle(handle -> handle.execute("TRUNCATE sentry_ssids"));
 
@@ -175,6 +181,7 @@ public class MockNzyme implements NzymeNode {
 
         this.memoryRegistry = new MemoryRegistry();
         this.ouiManager = new OUIManager(this);
+        this.queryResultCache = new QueryResultCache(this);
         this.objectMapper = new ObjectMapper();
 
     }
@@ -246,6 +253,11 @@ public class MockNzyme implements NzymeNode {
         return null;
     }
 
+    @Override
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
     @Override
     public NodeConfiguration getConfiguration() {
         return configuration;
@@ -278,7 +290,7 @@ public class MockNzyme implements NzymeNode {
 
     @Override
     public TapManager getTapManager() {
-        return null;
+        return tapManager;
     }
 
     @Override
@@ -321,6 +333,11 @@ public class MockNzyme implements NzymeNode {
         return registryChangeMonitor;
     }
 
+    @Override
+    public RegistryCache getRegistryCache() {
+        return registryCache;
+    }
+
     @Override
     public DetectionAlertService getDetectionAlertService() {
         return null;
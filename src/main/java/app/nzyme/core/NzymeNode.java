@@ -17,6 +17,7 @@
 
 package app.nzyme.core;
 
+import app.nzyme.core.cache.QueryResultCache;
 import app.nzyme.core.configuration.base.BaseConfiguration;
 import app.nzyme.core.context.ContextService;
 import app.nzyme.core.detection.alerts.DetectionAlertService;
@@ -26,6 +27,7 @@ import app.nzyme.core.dot11.Dot11;
 import app.nzyme.core.events.EventEngine;
 import app.nzyme.core.integrations.geoip.GeoIpService;
 import app.nzyme.core.monitoring.health.HealthMonitor;
+import app.nzyme.core.registry.RegistryCache;
 import app.nzyme.core.rest.server.NzymeHttpServer;
 import app.nzyme.core.security.authentication.AuthenticationService;
 import app.nzyme.plugin.*;
@@ -64,6 +66,7 @@ public interface NzymeNode extends PluginEntryPoint, DatabaseProvider, NodeIdent
 
     GeoIpService getGeoIpService();
     ContextService getContextService();
+    QueryResultCache getQueryResultCache();
 
     NodeConfiguration getConfiguration();
     BaseConfiguration getBaseConfiguration();
@@ -94,6 +97,7 @@ public interface NzymeNode extends PluginEntryPoint, DatabaseProvider, NodeIdent
 
     Registry getDatabaseCoreRegistry();
     RegistryChangeMonitor getRegistryChangeMonitor();
+    RegistryCache getRegistryCache();
 
     DetectionAlertService getDetectionAlertService();
 
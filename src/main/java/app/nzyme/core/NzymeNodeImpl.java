@@ -18,6 +18,7 @@
 package app.nzyme.core;
 
 import app.nzyme.core.cache.CacheManager;
+import app.nzyme.core.cache.QueryResultCache;
 import app.nzyme.core.context.ContextService;
 import app.nzyme.core.detection.alerts.DetectionAlertService;
 import app.nzyme.core.distributed.ClusterManager;
@@ -33,6 +34,7 @@ import app.nzyme.core.integrations.geoip.GeoIpService;
 import app.nzyme.core.monitoring.health.HealthMonitor;
 import app.nzyme.core.periodicals.data.RetentionCleaner;
 import app.nzyme.core.periodicals.distributed.NodeUpdater;
+import app.nzyme.core.registry.RegistryCache;
 import app.nzyme.core.registry.RegistryChangeMonitorImpl;
 import app.nzyme.core.rest.server.NzymeHttpServer;
 import app.nzyme.core.security.authentication.AuthenticationService;
@@ -89,8 +91,9 @@ public class NzymeNodeImpl implements NzymeNode {
     private final DatabaseImpl database;
     private final AuthenticationService authenticationService;
 
+    private final RegistryCache registryCache;
     private final RegistryImpl registry;
-    private final RegistryChangeMonitor registryChangeMonitor;
+    private final RegistryChangeMonitorImpl registryChangeMonitor;
 
     private final NodeManager nodeManager;
     private final ClusterManager clusterManager;
@@ -100,11 +103,12 @@ public class NzymeNodeImpl implements NzymeNode {
     private final MemoryRegistry memoryRegistry;
     private final OUIManager ouiManager;
     private final TapManager tapManager;
-    private final MessageBus messageBus;
+    private final PostgresMessageBusImpl messageBus;
     private final TasksQueue tasksQueue;
 
     private final GeoIpService geoIpService;
     private final ContextService contextService;
+    private final QueryResultCache queryResultCache;
 
     private final Ethernet ethernet;
     private final Dot11 dot11;
@@ -134,6 +138,7 @@ public class NzymeNodeImpl implements NzymeNode {
         this.database = database;
         this.configuration = configuration;
 
+        this.registryCache = new RegistryCache(configuration.registrySecretCacheTtlSeconds());
         this.registry = new RegistryImpl(this, "core");
         this.registryChangeMonitor = new RegistryChangeMonitorImpl(this);
 
@@ -154,6 +159,7 @@ public class NzymeNodeImpl implements NzymeNode {
 
         this.geoIpService = new GeoIpService(this);
         this.contextService = new ContextService(this);
+        this.queryResultCache = new QueryResultCache(this);
 
         this.pluginRestResources = Lists.newArrayList();
         this.plugins = Lists.newArrayList();
@@ -194,6 +200,9 @@ public class NzymeNodeImpl implements NzymeNode {
         LOG.info("Initializing cluster manager.");
         this.clusterManager.initialize();
 
+        LOG.info("Initializing registry change monitor.");
+        this.registryChangeMonitor.initialize();
+
         LOG.info("Initializing message bus [{}].", this.messageBus.getClass().getCanonicalName());
         this.messageBus.initialize();
 
@@ -212,11 +221,17 @@ public class NzymeNodeImpl implements NzymeNode {
         LOG.info("Initializing authentication service.");
         this.authenticationService.initialize();
 
-        // Initial OUI fetch. Not in periodical because this needs to be blocking.
-        try {
-            this.ouiManager.fetchAndUpdate();
-        } catch (IOException e) {
-            LOG.error("Could not initialize OUIs.", e);
+        /*
+         * Initial OUI load. Uses the local copy if there is one and refreshes it in the background. Otherwise, the
+         * initial fetch is not in periodical because this needs to be blocking.
+         */
+        boolean localOuisLoaded = this.ouiManager.loadLocal();
+        if (!localOuisLoaded) {
+            try {
+                this.ouiManager.fetchAndUpdate();
+            } catch (IOException e) {
+                LOG.error("Could not initialize OUIs.", e);
+            }
         }
 
         // Metrics JMX reporter.
@@ -229,7 +244,7 @@ public class NzymeNodeImpl implements NzymeNode {
         // Periodicals. (TODO: Replace with scheduler service)
         PeriodicalManager periodicalManager = new PeriodicalManager();
         periodicalManager.scheduleAtFixedRate(new NodeUpdater(this), 0, 5, TimeUnit.SECONDS);
-        periodicalManager.scheduleAtFixedRate(new OUIUpdater(this), 12, 12, TimeUnit.HOURS);
+        periodicalManager.scheduleAtFixedRate(new OUIUpdater(this), localOuisLoaded ? 0 : 12, 12, TimeUnit.HOURS);
         periodicalManager.scheduleAtFixedRate(new RetentionCleaner(this), 0, 1, TimeUnit.HOURS);
         periodicalManager.scheduleAtFixedRate(new Dot11SignalTrackMonitor(this), 1, 1, TimeUnit.MINUTES);
         periodicalManager.scheduleAtFixedRate(new Dot11DiscoMonitor(this), 1, 1, TimeUnit.MINUTES);
@@ -275,6 +290,36 @@ public class NzymeNodeImpl implements NzymeNode {
             httpServer.shutdownNow();
         }
 
+        // Stop listening for cluster message notifications.
+        if (messageBus != null) {
+            LOG.info("Stopping message bus listener.");
+            messageBus.stopListener();
+        }
+
+        // Write remaining queued tap table reports and stop the ingest queue.
+        if (tablesService != null) {
+            LOG.info("Stopping tables ingest queue.");
+            tablesService.getIngestQueue().shutdown();
+        }
+
+        // Finish queued event actions and stop the event action workers.
+        if (eventEngine != null) {
+            LOG.info("Stopping event action dispatcher.");
+            eventEngine.shutdown();
+        }
+
+        // Write coalesced updates of active detection alerts.
+        if (detectionAlertService != null) {
+            LOG.info("Flushing detection alerts.");
+            detectionAlertService.flush();
+        }
+
+        // Write coalesced last activity of users.
+        if (authenticationService != null) {
+            LOG.info("Flushing user activity.");
+            authenticationService.flushUserActivity();
+        }
+
         LOG.info("Shutdown complete.");
     }
 
@@ -328,6 +373,11 @@ public class NzymeNodeImpl implements NzymeNode {
         return contextService;
     }
 
+    @Override
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
     @Override
     public EventEngine getEventEngine() {
         return eventEngine;
@@ -438,6 +488,11 @@ public class NzymeNodeImpl implements NzymeNode {
         return registryChangeMonitor;
     }
 
+    @Override
+    public RegistryCache getRegistryCache() {
+        return registryCache;
+    }
+
     @Override
     public DetectionAlertService getDetectionAlertService() {
         return detectionAlertService;
@@ -36,6 +36,31 @@ public class CacheManager {
                                     message.sender());
                             nzyme.getContextService().invalidateMacAddressCache();
                             break;
+                        case "dot11_monitoring":
+                            LOG.info("Invalidating 802.11 monitoring snapshots on request by node [{}].",
+                                    message.sender());
+                            nzyme.getDot11().invalidateMonitoringSnapshots();
+                            break;
+                        case "tap_secrets":
+                            LOG.info("Invalidating tap secret cache on request by node [{}].",
+                                    message.sender());
+                            nzyme.getAuthenticationService().invalidateTapSecretCache();
+                            break;
+                        case "auth_sessions":
+                            LOG.info("Invalidating session cache on request by node [{}].",
+                                    message.sender());
+                            nzyme.getAuthenticationService().invalidateSessionPrincipals();
+                            break;
+                        case "tap_scopes":
+                            LOG.info("Invalidating tap scope cache on request by node [{}].",
+                                    message.sender());
+                            nzyme.getTapManager().invalidateTapScopes();
+                            break;
+                        case "event_actions":
+                            LOG.info("Invalidating event action and subscription cache on request by node [{}].",
+                                    message.sender());
+                            nzyme.getEventEngine().invalidateCaches();
+                            break;
                         default:
                             LOG.error("Could not handle [{}] message: Unknown cache type.",
                                     MessageType.INVALIDATE_CACHE);
@@ -0,0 +1,117 @@
+package app.nzyme.core.cache;
+
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import jakarta.annotation.Nullable;
+import org.joda.time.DateTime;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Short-lived cache of aggregation results of expensive overview endpoints. Many users (or a wall display) looking at
+ * the same taps and time window share one query. Windows are aligned to the minute buckets the aggregations are built
+ * on, so all requests within the same minute produce the same key.
+ *
+ * Concurrent requests for a key that is currently loading wait for that load instead of running the query again.
+ * Cached values are shared between requests and must not be modified.
+ */
+public class QueryResultCache {
+
+    private static final int MAXIMUM_SIZE = 500;
+    private static final int TTL_SECONDS = 30;
+
+    private final Cache<QueryResultCacheKey, Object> cache;
+
+    private final Meter hits;
+    private final Meter misses;
+    private final Timer loadTimer;
+
+    public QueryResultCache(NzymeNode nzyme) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        this.hits = nzyme.getMetrics().meter(MetricNames.QUERY_RESULT_CACHE_HITS);
+        this.misses = nzyme.getMetrics().meter(MetricNames.QUERY_RESULT_CACHE_MISSES);
+        this.loadTimer = nzyme.getMetrics().timer(MetricNames.QUERY_RESULT_CACHE_LOAD_TIMING);
+
+        nzyme.getMetrics().register(MetricNames.QUERY_RESULT_CACHE_SIZE, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.size();
+            }
+        });
+    }
+
+    /**
+     * Returns the cached result for the passed endpoint, taps, time window, scope and additional parameters or
+     * loads and caches it.
+     *
+     * @param endpoint Unique name of the cached endpoint.
+     * @param taps The taps the result is built from. Order does not matter.
+     * @param windowMinutes Size of the time window, ending now.
+     * @param organizationId Organization of the user, if the result depends on it (for example because of context).
+     * @param tenantId Tenant of the user, if the result depends on it.
+     * @param parameters All other parameters the result depends on. May contain null values.
+     * @param loader Builds the result. Must not return null.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint,
+                     List<UUID> taps,
+                     int windowMinutes,
+                     @Nullable UUID organizationId,
+                     @Nullable UUID tenantId,
+                     List<Object> parameters,
+                     Supplier<T> loader) {
+        QueryResultCacheKey key = QueryResultCacheKey.create(
+                endpoint,
+                ImmutableSet.copyOf(taps),
+                windowMinutes,
+                DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0).getMillis(),
+                organizationId,
+                tenantId,
+                Collections.unmodifiableList(parameters)
+        );
+
+        boolean[] loaded = new boolean[1];
+        try {
+            T result = (T) cache.get(key, () -> {
+                loaded[0] = true;
+                try (Timer.Context ignored = loadTimer.time()) {
+                    return loader.get();
+                }
+            });
+
+            if (loaded[0]) {
+                misses.mark();
+            } else {
+                hits.mark();
+            }
+
+            return result;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException("Could not load query result of endpoint [" + endpoint + "].", e.getCause());
+        }
+    }
+
+    public static List<Object> parameters(Object... parameters) {
+        return Arrays.asList(parameters);
+    }
+
+}
@@ -0,0 +1,71 @@
+package app.nzyme.core.cache;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+@AutoValue
+public abstract class QueryResultCacheKey {
+
+    public abstract String endpoint();
+
+    public abstract ImmutableSet<UUID> taps();
+
+    public abstract int windowMinutes();
+
+    // End of the window, aligned to the start of the current minute bucket.
+    public abstract long windowEnd();
+
+    @Nullable
+    public abstract UUID organizationId();
+
+    @Nullable
+    public abstract UUID tenantId();
+
+    public abstract List<Object> parameters();
+
+    public static QueryResultCacheKey create(String endpoint,
+                                             ImmutableSet<UUID> taps,
+                                             int windowMinutes,
+                                             long windowEnd,
+                                             UUID organizationId,
+                                             UUID tenantId,
+                                             List<Object> parameters) {
+        return builder()
+                .endpoint(endpoint)
+                .taps(taps)
+                .windowMinutes(windowMinutes)
+                .windowEnd(windowEnd)
+                .organizationId(organizationId)
+                .tenantId(tenantId)
+                .parameters(parameters)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_QueryResultCacheKey.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder endpoint(String endpoint);
+
+        public abstract Builder taps(ImmutableSet<UUID> taps);
+
+        public abstract Builder windowMinutes(int windowMinutes);
+
+        public abstract Builder windowEnd(long windowEnd);
+
+        public abstract Builder organizationId(UUID organizationId);
+
+        public abstract Builder tenantId(UUID tenantId);
+
+        public abstract Builder parameters(List<Object> parameters);
+
+        public abstract QueryResultCacheKey build();
+    }
+
+}
@@ -25,6 +25,7 @@ public class ConfigurationKeys {
     public static final String CRYPTO_DIRECTORY = "crypto_directory";
     public static final String NTP_SERVER = "ntp_server";
     public static final String INTERFACES = "interfaces";
+    public static final String PERFORMANCE = "performance";
 
     public static final String NAME = "name";
     public static final String DATABASE_PATH = "database_path";
@@ -33,5 +34,11 @@ public class ConfigurationKeys {
     public static final String REST_LISTEN_URI = "rest_listen_uri";
     public static final String HTTP_EXTERNAL_URI = "http_external_uri";
     public static final String SLOW_QUERY_LOG_THRESHOLD = "slow_query_log_threshold";
+    public static final String TABLES_INGEST_QUEUE_DEPTH = "tables_ingest_queue_depth";
+    public static final String TABLES_INGEST_WORKERS = "tables_ingest_workers";
+    public static final String BULK_COPY_THRESHOLD = "bulk_copy_threshold";
+    public static final String TASKS_QUEUE_PARALLELISM = "tasks_queue_parallelism";
+    public static final String REGISTRY_SECRET_CACHE_TTL_SECONDS = "registry_secret_cache_ttl_seconds";
+    public static final String DISCO_MONITOR_WORKERS = "disco_monitor_workers";
 
 }
\ No newline at end of file
@@ -25,7 +25,14 @@ public abstract class NodeConfiguration {
 
     public abstract String ntpServer();
 
-    public static NodeConfiguration create(boolean versionchecksEnabled, boolean fetchOuis, String databasePath, URI restListenUri, URI httpExternalUri, String pluginDirectory, String cryptoDirectory, Optional<Integer> slowQueryLogThreshold, String ntpServer) {
+    public abstract int tablesIngestQueueDepth();
+    public abstract int tablesIngestWorkers();
+    public abstract int bulkCopyThreshold();
+    public abstract int tasksQueueParallelism();
+    public abstract int registrySecretCacheTtlSeconds();
+    public abstract int discoMonitorWorkers();
+
+    public static NodeConfiguration create(boolean versionchecksEnabled, boolean fetchOuis, String databasePath, URI restListenUri, URI httpExternalUri, String pluginDirectory, String cryptoDirectory, Optional<Integer> slowQueryLogThreshold, String ntpServer, int tablesIngestQueueDepth, int tablesIngestWorkers, int bulkCopyThreshold, int tasksQueueParallelism, int registrySecretCacheTtlSeconds, int discoMonitorWorkers) {
         return builder()
                 .versionchecksEnabled(versionchecksEnabled)
                 .fetchOuis(fetchOuis)
@@ -36,6 +43,12 @@ public abstract class NodeConfiguration {
                 .cryptoDirectory(cryptoDirectory)
                 .slowQueryLogThreshold(slowQueryLogThreshold)
                 .ntpServer(ntpServer)
+                .tablesIngestQueueDepth(tablesIngestQueueDepth)
+                .tablesIngestWorkers(tablesIngestWorkers)
+                .bulkCopyThreshold(bulkCopyThreshold)
+                .tasksQueueParallelism(tasksQueueParallelism)
+                .registrySecretCacheTtlSeconds(registrySecretCacheTtlSeconds)
+                .discoMonitorWorkers(discoMonitorWorkers)
                 .build();
     }
 
@@ -63,6 +76,18 @@ public abstract class NodeConfiguration {
 
         public abstract Builder ntpServer(String ntpServer);
 
+        public abstract Builder tablesIngestQueueDepth(int tablesIngestQueueDepth);
+
+        public abstract Builder tablesIngestWorkers(int tablesIngestWorkers);
+
+        public abstract Builder bulkCopyThreshold(int bulkCopyThreshold);
+
+        public abstract Builder tasksQueueParallelism(int tasksQueueParallelism);
+
+        public abstract Builder registrySecretCacheTtlSeconds(int registrySecretCacheTtlSeconds);
+
+        public abstract Builder discoMonitorWorkers(int discoMonitorWorkers);
+
         public abstract NodeConfiguration build();
     }
 }
\ No newline at end of file
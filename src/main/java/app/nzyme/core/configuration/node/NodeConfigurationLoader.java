@@ -34,9 +34,17 @@ public class NodeConfigurationLoader {
 
     private static final Logger LOG = LogManager.getLogger(NodeConfigurationLoader.class);
 
+    private static final int DEFAULT_TABLES_INGEST_QUEUE_DEPTH = 250;
+    private static final int DEFAULT_TABLES_INGEST_WORKERS = 4;
+    private static final int DEFAULT_BULK_COPY_THRESHOLD = 1000;
+    private static final int DEFAULT_TASKS_QUEUE_PARALLELISM = 2;
+    private static final int DEFAULT_REGISTRY_SECRET_CACHE_TTL_SECONDS = 300;
+    private static final int DEFAULT_DISCO_MONITOR_WORKERS = 4;
+
     private final Config root;
     private final Config general;
     private final Config interfaces;
+    private final Config performance;
 
     public NodeConfigurationLoader(File configFile, boolean skipValidation) throws InvalidConfigurationException, IncompleteConfigurationException, FileNotFoundException {
         if (!Files.isReadable(configFile.toPath())) {
@@ -52,6 +60,13 @@ public class NodeConfigurationLoader {
             throw new IncompleteConfigurationException("Incomplete configuration.", e);
         }
 
+        // Performance tuning is optional and falls back to defaults.
+        if (root.hasPath(ConfigurationKeys.PERFORMANCE)) {
+            this.performance = root.getConfig(ConfigurationKeys.PERFORMANCE);
+        } else {
+            this.performance = ConfigFactory.empty();
+        }
+
         if (!skipValidation) {
             validate();
         }
@@ -67,10 +82,64 @@ public class NodeConfigurationLoader {
                 parsePluginDirectory(),
                 parseCryptoDirectory(),
                 parseSlowQueryLogThreshold(),
-                parseNtpServer()
+                parseNtpServer(),
+                parseTablesIngestQueueDepth(),
+                parseTablesIngestWorkers(),
+                parseBulkCopyThreshold(),
+                parseTasksQueueParallelism(),
+                parseRegistrySecretCacheTtlSeconds(),
+                parseDiscoMonitorWorkers()
         );
     }
 
+    private int parseTablesIngestQueueDepth() {
+        if (performance.hasPath(ConfigurationKeys.TABLES_INGEST_QUEUE_DEPTH)) {
+            return performance.getInt(ConfigurationKeys.TABLES_INGEST_QUEUE_DEPTH);
+        }
+
+        return DEFAULT_TABLES_INGEST_QUEUE_DEPTH;
+    }
+
+    private int parseTablesIngestWorkers() {
+        if (performance.hasPath(ConfigurationKeys.TABLES_INGEST_WORKERS)) {
+            return performance.getInt(ConfigurationKeys.TABLES_INGEST_WORKERS);
+        }
+
+        return DEFAULT_TABLES_INGEST_WORKERS;
+    }
+
+    private int parseBulkCopyThreshold() {
+        if (performance.hasPath(ConfigurationKeys.BULK_COPY_THRESHOLD)) {
+            return performance.getInt(ConfigurationKeys.BULK_COPY_THRESHOLD);
+        }
+
+        return DEFAULT_BULK_COPY_THRESHOLD;
+    }
+
+    private int parseTasksQueueParallelism() {
+        if (performance.hasPath(ConfigurationKeys.TASKS_QUEUE_PARALLELISM)) {
+            return performance.getInt(ConfigurationKeys.TASKS_QUEUE_PARALLELISM);
+        }
+
+        return DEFAULT_TASKS_QUEUE_PARALLELISM;
+    }
+
+    private int parseRegistrySecretCacheTtlSeconds() {
+        if (performance.hasPath(ConfigurationKeys.REGISTRY_SECRET_CACHE_TTL_SECONDS)) {
+            return performance.getInt(ConfigurationKeys.REGISTRY_SECRET_CACHE_TTL_SECONDS);
+        }
+
+        return DEFAULT_REGISTRY_SECRET_CACHE_TTL_SECONDS;
+    }
+
+    private int parseDiscoMonitorWorkers() {
+        if (performance.hasPath(ConfigurationKeys.DISCO_MONITOR_WORKERS)) {
+            return performance.getInt(ConfigurationKeys.DISCO_MONITOR_WORKERS);
+        }
+
+        return DEFAULT_DISCO_MONITOR_WORKERS;
+    }
+
     private Optional<Integer> parseSlowQueryLogThreshold() {
         try {
             return Optional.of(general.getInt(ConfigurationKeys.SLOW_QUERY_LOG_THRESHOLD));
@@ -152,6 +221,31 @@ public class NodeConfigurationLoader {
             throw new InvalidConfigurationException("Crypto directory [" + parseCryptoDirectory() + "] is not writable.");
         }
 
+        // Performance settings are within sane limits.
+        if (parseTablesIngestQueueDepth() < 1) {
+            throw new InvalidConfigurationException("Parameter [performance." + ConfigurationKeys.TABLES_INGEST_QUEUE_DEPTH + "] must be at least 1.");
+        }
+
+        if (parseTablesIngestWorkers() < 1) {
+            throw new InvalidConfigurationException("Parameter [performance." + ConfigurationKeys.TABLES_INGEST_WORKERS + "] must be at least 1.");
+        }
+
+        if (parseBulkCopyThreshold() < 1) {
+            throw new InvalidConfigurationException("Parameter [performance." + ConfigurationKeys.BULK_COPY_THRESHOLD + "] must be at least 1.");
+        }
+
+        if (parseTasksQueueParallelism() < 1) {
+            throw new InvalidConfigurationException("Parameter [performance." + ConfigurationKeys.TASKS_QUEUE_PARALLELISM + "] must be at least 1.");
+        }
+
+        if (parseRegistrySecretCacheTtlSeconds() < 0) {
+            throw new InvalidConfigurationException("Parameter [performance." + ConfigurationKeys.REGISTRY_SECRET_CACHE_TTL_SECONDS + "] cannot be negative.");
+        }
+
+        if (parseDiscoMonitorWorkers() < 1) {
+            throw new InvalidConfigurationException("Parameter [performance." + ConfigurationKeys.DISCO_MONITOR_WORKERS + "] must be at least 1.");
+        }
+
         // REST listen URI can be parsed into a URI and is TLS.
         try {
             URI uri = parseRestListenUri();
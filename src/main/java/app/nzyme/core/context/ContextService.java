@@ -8,11 +8,16 @@ import com.codahale.metrics.Timer;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import jakarta.annotation.Nullable;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -104,6 +109,58 @@ public class ContextService {
         }
     }
 
+    /*
+     * Bulk version of findMacAddressContext() for list views. Cached entries are served from the cache and all
+     * remaining MAC addresses are loaded with a single query. MAC addresses without context are not included in the
+     * returned map.
+     */
+    public Map<String, MacAddressContextEntry> findMacAddressContexts(Collection<String> macs,
+                                                                      @Nullable UUID organizationId,
+                                                                      @Nullable UUID tenantId) {
+        Map<String, MacAddressContextEntry> result = Maps.newHashMap();
+        Set<String> misses = Sets.newHashSet();
+
+        for (String mac : macs) {
+            if (mac == null || result.containsKey(mac) || misses.contains(mac)) {
+                continue;
+            }
+
+            Optional<MacAddressContextEntry> cached = macAddressContextCache.getIfPresent(
+                    MacAddressContextCacheKey.create(mac, organizationId, tenantId)
+            );
+
+            if (cached == null) {
+                misses.add(mac);
+            } else {
+                cached.ifPresent(entry -> result.put(mac, entry));
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        Map<String, MacAddressContextEntry> loaded = Maps.newHashMap();
+        for (MacAddressContextEntry entry : findMacAddressContextsNoCache(misses, organizationId, tenantId)) {
+            // Only possible when looking at any data. Keep the first entry, like a single lookup would.
+            loaded.putIfAbsent(entry.macAddress(), entry);
+        }
+
+        for (String mac : misses) {
+            MacAddressContextEntry entry = loaded.get(mac);
+            macAddressContextCache.put(
+                    MacAddressContextCacheKey.create(mac, organizationId, tenantId),
+                    Optional.ofNullable(entry)
+            );
+
+            if (entry != null) {
+                result.put(mac, entry);
+            }
+        }
+
+        return result;
+    }
+
     private Optional<MacAddressContextEntry> findMacAddressContextNoCache(String mac,
                                                                           @Nullable UUID organizationId,
                                                                           @Nullable UUID tenantId) {
@@ -146,6 +203,50 @@ public class ContextService {
         }
     }
 
+    private List<MacAddressContextEntry> findMacAddressContextsNoCache(Collection<String> macs,
+                                                                       @Nullable UUID organizationId,
+                                                                       @Nullable UUID tenantId) {
+        String[] macArray = macs.toArray(new String[0]);
+
+        try(Timer.Context ignored = macLookupTimer.time()) {
+            if (organizationId != null && tenantId != null) {
+                // Tenant data.
+                return nzyme.getDatabase().withHandle(handle ->
+                        handle.createQuery("SELECT * FROM context_mac_addresses " +
+                                        "WHERE organization_id = :organization_id AND tenant_id = :tenant_id " +
+                                        "AND mac_address = ANY(:mac_addresses)")
+                                .bind("organization_id", organizationId)
+                                .bind("tenant_id", tenantId)
+                                .bind("mac_addresses", macArray)
+                                .mapTo(MacAddressContextEntry.class)
+                                .list()
+                );
+            }
+
+            if (organizationId != null) {
+                // Organization data.
+                return nzyme.getDatabase().withHandle(handle ->
+                        handle.createQuery("SELECT * FROM context_mac_addresses " +
+                                        "WHERE organization_id = :organization_id " +
+                                        "AND mac_address = ANY(:mac_addresses)")
+                                .bind("organization_id", organizationId)
+                                .bind("mac_addresses", macArray)
+                                .mapTo(MacAddressContextEntry.class)
+                                .list()
+                );
+            }
+
+            // Any data.
+            return nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT * FROM context_mac_addresses " +
+                                    "WHERE mac_address = ANY(:mac_addresses) ORDER BY id ASC")
+                            .bind("mac_addresses", macArray)
+                            .mapTo(MacAddressContextEntry.class)
+                            .list()
+            );
+        }
+    }
+
     public Optional<MacAddressContextEntry> findMacAddressContext(UUID uuid, UUID organizationId, UUID tenantId) {
         return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT * FROM context_mac_addresses " +
@@ -1,6 +1,7 @@
 package app.nzyme.core.crypto;
 
 import app.nzyme.core.crypto.database.TLSKeyAndCertificateEntry;
+import app.nzyme.core.crypto.pgp.ClusterPGPKeyMaterial;
 import app.nzyme.core.crypto.pgp.PGPKeyMessageBusReceiver;
 import app.nzyme.core.crypto.pgp.PGPKeyProviderTaskHandler;
 import app.nzyme.core.crypto.pgp.PGPKeys;
@@ -32,6 +33,7 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openpgp.*;
 import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
+import org.bouncycastle.openpgp.operator.PublicKeyDataDecryptorFactory;
 import org.bouncycastle.openpgp.operator.jcajce.*;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
@@ -39,6 +41,8 @@ import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.util.io.Streams;
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
 import java.io.*;
 import java.math.BigInteger;
 import java.nio.file.Paths;
@@ -49,6 +53,7 @@ import java.security.spec.InvalidKeySpecException;
 import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /*
@@ -107,6 +112,8 @@ public class Crypto {
 
     private PGPKeys nodeLocalPGPKeys = null;
 
+    private final AtomicReference<ClusterPGPKeyMaterial> clusterKeyMaterial = new AtomicReference<>();
+
     public Crypto(NzymeNode nzyme) {
         this.nzyme = nzyme;
 
@@ -193,6 +200,13 @@ public class Crypto {
             }
         }
 
+        // Load and parse keys once for all further cluster encryption and decryption.
+        try {
+            reloadClusterKeys();
+        } catch (CryptoOperationException e) {
+            throw new CryptoInitializationException("Could not load PGP keys.", e);
+        }
+
         // Load Keys. Build fingerprint.
         String keySignature;
         DateTime keyDate;
@@ -384,11 +398,20 @@ public class Crypto {
     }
 
     public byte[] encryptWithClusterKey(byte[] value) throws CryptoOperationException {
-        File publicKeyLocation = Paths.get(cryptoDirectoryConfig.toString(), PGP_PUBLIC_KEY_FILE_NAME).toFile();
+        return encrypt(value, getClusterKeyMaterial().getPublicKey());
+    }
+
+    /*
+     * Keyed, non-reversible digest of a value. The key is derived from the cluster PGP private key, which is the same
+     * on all nodes, so digests can be stored in the database and looked up by any node.
+     */
+    public String hmacWithClusterKey(byte[] value) throws CryptoOperationException {
         try {
-            return encrypt(value, readPublicKey(publicKeyLocation));
-        } catch (IOException | PGPException e) {
-            throw new CryptoOperationException("Cannot encrypt value.", e);
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(getClusterKeyMaterial().getHmacKey());
+            return BaseEncoding.base16().lowerCase().encode(mac.doFinal(value));
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new CryptoOperationException("Cannot calculate HMAC of value.", e);
         }
     }
 
@@ -424,16 +447,33 @@ public class Crypto {
     }
 
     public byte[] decryptWithClusterKey(byte[] value) throws CryptoOperationException {
-        File privateKeyLocation = Paths.get(cryptoDirectoryConfig.toString(), PGP_PRIVATE_KEY_FILE_NAME).toFile();
+        ClusterPGPKeyMaterial material = getClusterKeyMaterial();
+        return decrypt(value, material::getDecryptorFactory);
+    }
 
-        try(InputStream keyIn = new FileInputStream(privateKeyLocation)) {
-            return decrypt(value, keyIn);
-        } catch (CryptoOperationException | IOException e) {
+    public byte[] decrypt(byte[] value, InputStream keyInput) throws CryptoOperationException {
+        PGPSecretKeyRingCollection pgpSec;
+        try {
+            pgpSec = new PGPSecretKeyRingCollection(
+                    PGPUtil.getDecoderStream(keyInput), new JcaKeyFingerprintCalculator()
+            );
+        } catch (IOException | PGPException e) {
             throw new CryptoOperationException("Cannot decrypt value.", e);
         }
+
+        return decrypt(value, keyId -> {
+            PGPPrivateKey sKey = findSecretKey(pgpSec, keyId);
+            if (sKey == null) {
+                return null;
+            }
+
+            return new JcePublicKeyDataDecryptorFactoryBuilder()
+                    .setProvider("BC")
+                    .build(sKey);
+        });
     }
 
-    public byte[] decrypt(byte[] value, InputStream keyInput) throws CryptoOperationException {
+    private byte[] decrypt(byte[] value, DecryptorFactoryLookup decryptorLookup) throws CryptoOperationException {
         try(InputStream dataIn = PGPUtil.getDecoderStream(new ByteArrayInputStream(value))) {
             Timer.Context timer = decryptionTimer.time();
 
@@ -450,26 +490,19 @@ public class Crypto {
 
             // Find the secret key.
             Iterator<PGPEncryptedData> it = enc.getEncryptedDataObjects();
-            PGPPrivateKey sKey = null;
+            PublicKeyDataDecryptorFactory decryptorFactory = null;
             PGPPublicKeyEncryptedData pbe = null;
-            PGPSecretKeyRingCollection pgpSec = new PGPSecretKeyRingCollection(
-                    PGPUtil.getDecoderStream(keyInput), new JcaKeyFingerprintCalculator()
-            );
 
-            while (sKey == null && it.hasNext()) {
+            while (decryptorFactory == null && it.hasNext()) {
                 pbe = (PGPPublicKeyEncryptedData) it.next();
-                sKey = findSecretKey(pgpSec, pbe.getKeyID());
+                decryptorFactory = decryptorLookup.find(pbe.getKeyID());
             }
 
-            if (sKey == null) {
+            if (decryptorFactory == null) {
                 throw new IllegalArgumentException("Secret key for message not found.");
             }
 
-            InputStream clear = pbe.getDataStream(
-                    new JcePublicKeyDataDecryptorFactoryBuilder()
-                            .setProvider("BC")
-                            .build(sKey)
-            );
+            InputStream clear = pbe.getDataStream(decryptorFactory);
             JcaPGPObjectFactory plainFact = new JcaPGPObjectFactory(clear);
             Object message = plainFact.nextObject();
             clear.close();
@@ -839,6 +872,31 @@ public class Crypto {
         );
     }
 
+    /*
+     * Loads and parses the cluster PGP keys from disk and atomically replaces the keys used for all cluster
+     * encryption and decryption. Must be called whenever the key files change.
+     */
+    public void reloadClusterKeys() throws CryptoOperationException {
+        File privateKeyLocation = Paths.get(cryptoDirectoryConfig.toString(), PGP_PRIVATE_KEY_FILE_NAME).toFile();
+        File publicKeyLocation = Paths.get(cryptoDirectoryConfig.toString(), PGP_PUBLIC_KEY_FILE_NAME).toFile();
+
+        try {
+            clusterKeyMaterial.set(ClusterPGPKeyMaterial.load(privateKeyLocation, publicKeyLocation));
+        } catch (IOException | PGPException | NoSuchAlgorithmException e) {
+            throw new CryptoOperationException("Could not load cluster PGP keys.", e);
+        }
+    }
+
+    private ClusterPGPKeyMaterial getClusterKeyMaterial() throws CryptoOperationException {
+        ClusterPGPKeyMaterial material = clusterKeyMaterial.get();
+        if (material == null) {
+            reloadClusterKeys();
+            material = clusterKeyMaterial.get();
+        }
+
+        return material;
+    }
+
     public PGPKeys getNodeLocalPGPKeys() {
         return nodeLocalPGPKeys;
     }
@@ -1047,6 +1105,11 @@ public class Crypto {
         }
     }
 
+    private interface DecryptorFactoryLookup {
+        @Nullable
+        PublicKeyDataDecryptorFactory find(long keyId) throws PGPException;
+    }
+
     public static final class CryptoInitializationException extends Throwable {
         public CryptoInitializationException(String msg) {
             super(msg);
@@ -0,0 +1,98 @@
+package app.nzyme.core.crypto.pgp;
+
+import app.nzyme.core.crypto.Crypto;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.bouncycastle.openpgp.*;
+import org.bouncycastle.openpgp.operator.PublicKeyDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.jcajce.JcaKeyFingerprintCalculator;
+import org.bouncycastle.openpgp.operator.jcajce.JcePBESecretKeyDecryptorBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePublicKeyDataDecryptorFactoryBuilder;
+
+import javax.annotation.Nullable;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+
+/*
+ * Parsed cluster PGP keys. Reading and parsing the key rings and extracting the private keys is expensive, so this
+ * is done once when keys are loaded and not on every encryption or decryption.
+ */
+public final class ClusterPGPKeyMaterial {
+
+    private final PGPPublicKey publicKey;
+    private final Map<Long, PublicKeyDataDecryptorFactory> decryptorFactories;
+    private final SecretKeySpec hmacKey;
+
+    private ClusterPGPKeyMaterial(PGPPublicKey publicKey,
+                                  Map<Long, PublicKeyDataDecryptorFactory> decryptorFactories,
+                                  SecretKeySpec hmacKey) {
+        this.publicKey = publicKey;
+        this.decryptorFactories = decryptorFactories;
+        this.hmacKey = hmacKey;
+    }
+
+    public static ClusterPGPKeyMaterial load(File privateKeyFile, File publicKeyFile)
+            throws IOException, PGPException, NoSuchAlgorithmException {
+        byte[] privateKey = Files.toByteArray(privateKeyFile);
+        PGPPublicKey publicKey = Crypto.readPublicKey(publicKeyFile);
+
+        // Extract all private keys and build a decryptor for each.
+        ImmutableMap.Builder<Long, PublicKeyDataDecryptorFactory> decryptorFactories = ImmutableMap.builder();
+        try (InputStream keyIn = new ByteArrayInputStream(privateKey)) {
+            PGPSecretKeyRingCollection pgpSec = new PGPSecretKeyRingCollection(
+                    PGPUtil.getDecoderStream(keyIn), new JcaKeyFingerprintCalculator()
+            );
+
+            Iterator<PGPSecretKeyRing> rings = pgpSec.getKeyRings();
+            while (rings.hasNext()) {
+                Iterator<PGPSecretKey> keys = rings.next().getSecretKeys();
+                while (keys.hasNext()) {
+                    PGPSecretKey secretKey = keys.next();
+                    if (secretKey.isPrivateKeyEmpty()) {
+                        continue;
+                    }
+
+                    PGPPrivateKey extracted = secretKey.extractPrivateKey(
+                            new JcePBESecretKeyDecryptorBuilder()
+                                    .setProvider("BC")
+                                    .build("nzyme".toCharArray())
+                    );
+
+                    decryptorFactories.put(secretKey.getKeyID(), new JcePublicKeyDataDecryptorFactoryBuilder()
+                            .setProvider("BC")
+                            .build(extracted));
+                }
+            }
+        }
+
+        // Key for keyed digests, derived from the private key which is the same on all nodes.
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update("nzyme-cluster-hmac".getBytes(StandardCharsets.UTF_8));
+        digest.update(privateKey);
+        SecretKeySpec hmacKey = new SecretKeySpec(digest.digest(), "HmacSHA256");
+
+        return new ClusterPGPKeyMaterial(publicKey, decryptorFactories.build(), hmacKey);
+    }
+
+    public PGPPublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    @Nullable
+    public PublicKeyDataDecryptorFactory getDecryptorFactory(long keyId) {
+        return decryptorFactories.get(keyId);
+    }
+
+    public SecretKeySpec getHmacKey() {
+        return hmacKey;
+    }
+
+}
@@ -14,11 +14,13 @@ import app.nzyme.core.distributed.messaging.postgres.PostgresMessageEntryMapper;
 import app.nzyme.core.distributed.tasksqueue.postgres.PostgresTasksQueueEntryMapper;
 import app.nzyme.core.dot11.db.*;
 import app.nzyme.core.dot11.db.monitoring.*;
+import app.nzyme.core.dot11.monitoring.disco.db.DiscoMonitorBaselineEntryMapper;
 import app.nzyme.core.dot11.tracks.db.TrackDetectorConfigMapper;
 import app.nzyme.core.events.db.EventActionEntryMapper;
 import app.nzyme.core.events.db.EventEntryMapper;
 import app.nzyme.core.events.db.SubscriptionEntryMapper;
 import app.nzyme.core.monitoring.health.db.IndicatorStatusMapper;
+import app.nzyme.core.registry.RegistryChangeMapper;
 import app.nzyme.core.registry.RegistryEntryMapper;
 import app.nzyme.core.security.authentication.db.OrganizationEntryMapper;
 import app.nzyme.core.security.authentication.db.TapPermissionEntryMapper;
@@ -97,6 +99,7 @@ public class DatabaseImpl implements Database {
                 .registerRowMapper(new SessionEntryMapper())
                 .registerRowMapper(new SessionEntryWithUserDetailsMapper())
                 .registerRowMapper(new RegistryEntryMapper())
+                .registerRowMapper(new RegistryChangeMapper())
                 .registerRowMapper(new EventEntryMapper())
                 .registerRowMapper(new EventActionEntryMapper())
                 .registerRowMapper(new SubscriptionEntryMapper())
@@ -124,6 +127,8 @@ public class DatabaseImpl implements Database {
                 .registerRowMapper(new TrackDetectorConfigMapper())
                 .registerRowMapper(new CustomBanditDescriptionMapper())
                 .registerRowMapper(new DiscoHistogramEntryMapper())
+                .registerRowMapper(new DiscoActivityBucketMapper())
+                .registerRowMapper(new DiscoMonitorBaselineEntryMapper())
                 .registerRowMapper(new CustomBanditDescriptionMapper())
                 .registerRowMapper(new BSSIDFrameCountMapper())
                 .registerRowMapper(new BSSIDPairFrameCountMapper())
@@ -0,0 +1,85 @@
+package app.nzyme.core.database.bulk;
+
+import jakarta.annotation.Nullable;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.joda.time.DateTime;
+
+import java.sql.Types;
+import java.util.Collections;
+import java.util.UUID;
+
+public class BatchRowWriter implements BulkRowWriter {
+
+    private final PreparedBatch batch;
+
+    private int column = 0;
+    private long rows = 0;
+
+    public BatchRowWriter(Handle handle, String table, String... columns) {
+        this.batch = handle.prepareBatch("INSERT INTO " + table + "(" + String.join(", ", columns) + ") " +
+                "VALUES(" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")");
+    }
+
+    @Override
+    public BulkRowWriter value(long value) {
+        batch.bind(column++, value);
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(double value) {
+        batch.bind(column++, value);
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(@Nullable Long value) {
+        if (value == null) {
+            batch.bindNull(column++, Types.BIGINT);
+        } else {
+            batch.bind(column++, value);
+        }
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(@Nullable String value) {
+        batch.bind(column++, value);
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(@Nullable UUID value) {
+        batch.bind(column++, value);
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(@Nullable DateTime value) {
+        batch.bind(column++, value);
+        return this;
+    }
+
+    @Override
+    public void endRow() {
+        batch.add();
+        column = 0;
+        rows++;
+    }
+
+    @Override
+    public long finish() {
+        if (rows > 0) {
+            batch.execute();
+        }
+
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        batch.close();
+    }
+
+}
@@ -0,0 +1,35 @@
+package app.nzyme.core.database.bulk;
+
+import org.jdbi.v3.core.Handle;
+
+public class BulkLoader {
+
+    /**
+     * Opens a writer for the given table. Large amounts of rows are streamed using COPY, smaller amounts are
+     * written as a prepared batch because COPY has a higher fixed cost.
+     *
+     * @param handle Handle to write on. Must not be used for anything else until the writer is finished.
+     * @param copyThreshold Minimum number of rows to use COPY for.
+     * @param expectedRows Number of rows that will be written.
+     */
+    public static BulkRowWriter open(Handle handle,
+                                     int copyThreshold,
+                                     long expectedRows,
+                                     String table,
+                                     String... columns) {
+        if (expectedRows >= copyThreshold) {
+            return new CopyRowWriter(handle, table, columns);
+        } else {
+            return new BatchRowWriter(handle, table, columns);
+        }
+    }
+
+    public static final class BulkLoaderException extends RuntimeException {
+
+        public BulkLoaderException(String message, Throwable cause) {
+            super(message, cause);
+        }
+
+    }
+
+}
@@ -0,0 +1,32 @@
+package app.nzyme.core.database.bulk;
+
+import jakarta.annotation.Nullable;
+import org.joda.time.DateTime;
+
+import java.util.UUID;
+
+/**
+ * Writes rows column by column, in the order of the columns the writer was opened with. Call endRow() after the
+ * last column of every row and finish() once all rows have been written. Always close the writer, for example with
+ * try-with-resources, so that a write that failed halfway does not leave the connection in an unusable state.
+ */
+public interface BulkRowWriter extends AutoCloseable {
+
+    BulkRowWriter value(long value);
+    BulkRowWriter value(double value);
+    BulkRowWriter value(@Nullable Long value);
+    BulkRowWriter value(@Nullable String value);
+    BulkRowWriter value(@Nullable UUID value);
+    BulkRowWriter value(@Nullable DateTime value);
+
+    void endRow();
+
+    long finish();
+
+    /**
+     * Aborts the write if finish() has not completed. Rows that were not finished are discarded.
+     */
+    @Override
+    void close();
+
+}
@@ -0,0 +1,294 @@
+package app.nzyme.core.database.bulk;
+
+import jakarta.annotation.Nullable;
+import org.jdbi.v3.core.Handle;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Streams rows into a table using the PostgreSQL COPY protocol in text format. Values are encoded straight into a
+ * reusable byte buffer that is flushed to the server whenever it fills up.
+ *
+ * The connection of the handle is in COPY mode until finish() or close() is called. No other statements can be
+ * executed on the same handle in the meantime.
+ */
+public class CopyRowWriter implements BulkRowWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Longest possible encoding of a single value that is not a string. (UUID is 36 bytes)
+    private static final int MAX_FIXED_VALUE_LENGTH = 64;
+
+    private static final byte[] NULL = {'\\', 'N'};
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /*
+     * Timestamp columns are timestamptz. Always write UTC with an explicit offset. Without one, PostgreSQL reads the
+     * value in the session time zone, which may differ from the JVM time zone and is ambiguous during DST changes.
+     */
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormat
+            .forPattern("yyyy-MM-dd HH:mm:ss.SSS'+00'")
+            .withZoneUTC();
+
+    private final CopyIn copyIn;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+
+    private boolean firstColumn = true;
+    private long rows = 0;
+    private boolean finished = false;
+
+    // All rows of a report share a timestamp. Encode it only once.
+    private DateTime lastTimestamp = null;
+    private byte[] lastTimestampEncoded = null;
+
+    public CopyRowWriter(Handle handle, String table, String... columns) {
+        try {
+            this.copyIn = handle.getConnection().unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY " + table + "(" + String.join(", ", columns) + ") FROM STDIN");
+        } catch (SQLException e) {
+            throw new BulkLoader.BulkLoaderException("Could not start COPY into table [" + table + "].", e);
+        }
+    }
+
+    @Override
+    public BulkRowWriter value(long value) {
+        beginColumn(MAX_FIXED_VALUE_LENGTH);
+        writeLong(value);
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(double value) {
+        // Doubles are rare in bulk data. Not worth a custom encoder.
+        beginColumn(MAX_FIXED_VALUE_LENGTH);
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(@Nullable Long value) {
+        if (value == null) {
+            return writeNull();
+        }
+
+        return value(value.longValue());
+    }
+
+    @Override
+    public BulkRowWriter value(@Nullable String value) {
+        if (value == null) {
+            return writeNull();
+        }
+
+        beginColumn(0);
+        for (int i = 0; i < value.length(); i++) {
+            ensureCapacity(4);
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                switch (c) {
+                    case '\\':
+                        buffer[position++] = '\\';
+                        buffer[position++] = '\\';
+                        break;
+                    case '\t':
+                        buffer[position++] = '\\';
+                        buffer[position++] = 't';
+                        break;
+                    case '\n':
+                        buffer[position++] = '\\';
+                        buffer[position++] = 'n';
+                        break;
+                    case '\r':
+                        buffer[position++] = '\\';
+                        buffer[position++] = 'r';
+                        break;
+                    default:
+                        buffer[position++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate. Same replacement the JDK encoder would use.
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(@Nullable UUID value) {
+        if (value == null) {
+            return writeNull();
+        }
+
+        beginColumn(MAX_FIXED_VALUE_LENGTH);
+        writeHex(value.getMostSignificantBits() >>> 32, 8);
+        buffer[position++] = '-';
+        writeHex(value.getMostSignificantBits() >>> 16, 4);
+        buffer[position++] = '-';
+        writeHex(value.getMostSignificantBits(), 4);
+        buffer[position++] = '-';
+        writeHex(value.getLeastSignificantBits() >>> 48, 4);
+        buffer[position++] = '-';
+        writeHex(value.getLeastSignificantBits(), 12);
+        return this;
+    }
+
+    @Override
+    public BulkRowWriter value(@Nullable DateTime value) {
+        if (value == null) {
+            return writeNull();
+        }
+
+        if (!value.equals(lastTimestamp)) {
+            lastTimestamp = value;
+            lastTimestampEncoded = TIMESTAMP_FORMAT.print(value)
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+
+        beginColumn(lastTimestampEncoded.length);
+        System.arraycopy(lastTimestampEncoded, 0, buffer, position, lastTimestampEncoded.length);
+        position += lastTimestampEncoded.length;
+        return this;
+    }
+
+    @Override
+    public void endRow() {
+        ensureCapacity(1);
+        buffer[position++] = '\n';
+        firstColumn = true;
+        rows++;
+    }
+
+    @Override
+    public long finish() {
+        try {
+            flush();
+            copyIn.endCopy();
+            finished = true;
+        } catch (SQLException e) {
+            throw new BulkLoader.BulkLoaderException("Could not finish COPY.", e);
+        } finally {
+            if (!finished) {
+                cancel();
+            }
+        }
+
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        if (!finished) {
+            cancel();
+        }
+    }
+
+    private BulkRowWriter writeNull() {
+        beginColumn(NULL.length);
+        buffer[position++] = NULL[0];
+        buffer[position++] = NULL[1];
+        return this;
+    }
+
+    private void beginColumn(int reserve) {
+        ensureCapacity(reserve + 1);
+
+        if (!firstColumn) {
+            buffer[position++] = '\t';
+        }
+
+        firstColumn = false;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+
+        // Write digits backwards into place.
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+
+        position = end;
+    }
+
+    private void writeHex(long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[position + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+
+        position += digits;
+    }
+
+    private void writeAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (position + bytes > buffer.length) {
+            try {
+                flush();
+            } catch (SQLException e) {
+                throw new BulkLoader.BulkLoaderException("Could not write to COPY.", e);
+            }
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (position > 0) {
+            copyIn.writeToCopy(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void cancel() {
+        try {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        } catch (SQLException ignored) {
+            // Original exception, if any, is thrown by caller.
+        }
+    }
+
+}
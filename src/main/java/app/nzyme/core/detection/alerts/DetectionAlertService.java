@@ -10,14 +10,21 @@ import app.nzyme.core.events.types.DetectionEvent;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import jakarta.annotation.Nullable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.jdbi.v3.core.statement.Query;
 import org.joda.time.DateTime;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 public class DetectionAlertService {
@@ -26,10 +33,30 @@ public class DetectionAlertService {
 
     public static final int ACTIVE_THRESHOLD_MINUTES = 5;
 
+    // Repeated raises of an active alert are written to the database at most once per interval.
+    private static final int FLUSH_INTERVAL_SECONDS = 10;
+
     private final NzymeNode nzyme;
 
+    // Alerts that were recently raised on this node, by comparison checksum.
+    private final Map<String, ActiveAlert> activeAlerts = new ConcurrentHashMap<>();
+    private final Striped<Lock> checksumLocks = Striped.lock(64);
+
     public DetectionAlertService(NzymeNode nzyme) {
         this.nzyme = nzyme;
+
+        Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("detection-alerts-flusher-%d")
+                        .setDaemon(true)
+                        .build()
+        ).scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                LOG.error("Could not flush detection alerts.", e);
+            }
+        }, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     public int countAllDetectionTypes(@Nullable Subsystem subsystem) {
@@ -91,6 +118,38 @@ public class DetectionAlertService {
                 comparisonAttributes
         );
 
+        Lock lock = checksumLocks.get(comparisonChecksum);
+        lock.lock();
+        try {
+            DateTime now = DateTime.now();
+
+            /*
+             * An alert that is already active only needs its last seen time, attributes and timeline extended. That
+             * is coalesced in memory and written by the flusher. Everything else goes to the database right away.
+             */
+            ActiveAlert active = activeAlerts.get(comparisonChecksum);
+            if (active != null && active.isActive(now)) {
+                active.touch(now, attributes);
+                return;
+            }
+
+            ActiveAlert raised = raiseAlertInDatabase(organizationId, tenantId, dot11MonitoredNetworkId, tapId,
+                    detectionType, subsystem, details, attributes, comparisonChecksum);
+            activeAlerts.put(comparisonChecksum, raised);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ActiveAlert raiseAlertInDatabase(UUID organizationId,
+                                             UUID tenantId,
+                                             @Nullable UUID dot11MonitoredNetworkId,
+                                             @Nullable UUID tapId,
+                                             DetectionType detectionType,
+                                             Subsystem subsystem,
+                                             String details,
+                                             Map<String, String> attributes,
+                                             String comparisonChecksum) {
         Optional<DetectionAlertEntry> existingAlert = findAlertWithComparisonChecksum(comparisonChecksum);
         if (existingAlert.isPresent()) {
             // This alert has been raised in the past.
@@ -147,7 +206,7 @@ public class DetectionAlertService {
                 );
             }
 
-            return;
+            return new ActiveAlert(existingAlert.get().id(), existingAlert.get().uuid(), DateTime.now());
         }
 
         // New alert / not re-triggered.
@@ -192,8 +251,92 @@ public class DetectionAlertService {
                 organizationId,
                 tenantId
         );
+
+        return new ActiveAlert(alertId, alertUUID, DateTime.now());
     }
 
+    /**
+     * Writes last seen time, attributes and timeline of all alerts that were raised again since the last flush.
+     */
+    public void flush() {
+        DateTime now = DateTime.now();
+
+        for (Map.Entry<String, ActiveAlert> entry : activeAlerts.entrySet()) {
+            ActiveAlert alert = entry.getValue();
+
+            ActiveAlert.PendingUpdate update = alert.takePendingUpdate();
+            if (update == null) {
+                // Forget alerts that are no longer active. The next raise will go through the database again.
+                if (!alert.isActive(now)) {
+                    activeAlerts.remove(entry.getKey(), alert);
+                }
+
+                continue;
+            }
+
+            /*
+             * Like all other alert timestamps, last seen is written in database time and not in the time of this
+             * node. Only how long ago the alert was last raised comes from this node.
+             */
+            long ageMs = Math.max(0, now.getMillis() - update.lastSeen.getMillis());
+
+            int updated;
+            try {
+                updated = writePendingUpdate(alert, update, ageMs);
+            } catch (Exception e) {
+                // Keep the update so that the next flush writes it, unless the alert was raised again since.
+                LOG.error("Could not write coalesced update of detection alert [{}]. Retrying on next flush.",
+                        alert.uuid, e);
+                alert.restorePendingUpdate(update);
+                continue;
+            }
+
+            if (updated == 0) {
+                activeAlerts.remove(entry.getKey(), alert);
+            }
+        }
+    }
+
+    private int writePendingUpdate(ActiveAlert alert, ActiveAlert.PendingUpdate update, long ageMs) {
+        return nzyme.getDatabase().withHandle(h -> h.inTransaction(handle -> {
+            int rows = handle.createUpdate("UPDATE detection_alerts " +
+                            "SET last_seen = NOW() - :age_ms * INTERVAL '1 millisecond', " +
+                            "is_resolved = false WHERE id = :id")
+                    .bind("age_ms", ageMs)
+                    .bind("id", alert.id)
+                    .execute();
+
+            if (rows == 0) {
+                // Alert was deleted.
+                return 0;
+            }
+
+            PreparedBatch attributesBatch = handle.prepareBatch("UPDATE detection_alert_attributes " +
+                    "SET attribute_value = :attribute_value " +
+                    "WHERE detection_alert_id = :detection_alert_id AND attribute_key = :attribute_key");
+            for (Map.Entry<String, String> attribute : update.attributes.entrySet()) {
+                attributesBatch
+                        .bind("detection_alert_id", alert.id)
+                        .bind("attribute_key", attribute.getKey())
+                        .bind("attribute_value", attribute.getValue())
+                        .add();
+            }
+            if (attributesBatch.size() > 0) {
+                attributesBatch.execute();
+            }
+
+            // Extend the current timeline entry. See comment in raiseAlertInDatabase().
+            handle.createUpdate("UPDATE detection_alert_timeline " +
+                            "SET seen_to = NOW() - :age_ms * INTERVAL '1 millisecond' " +
+                            "WHERE id = (SELECT MAX(id) FROM detection_alert_timeline " +
+                            "WHERE detection_alert_id = :detection_alert_id)")
+                    .bind("age_ms", ageMs)
+                    .bind("detection_alert_id", alert.id)
+                    .execute();
+
+            return rows;
+        }));
+    }
 
     public List<DetectionAlertEntry> findAllAlerts(@Nullable UUID organizationId,
                                                    @Nullable UUID tenantId,
@@ -305,6 +448,8 @@ public class DetectionAlertService {
     }
 
     public void delete(UUID uuid) {
+        activeAlerts.values().removeIf(alert -> alert.uuid.equals(uuid));
+
         nzyme.getDatabase().useHandle(handle ->
                 handle.createUpdate("DELETE FROM detection_alerts WHERE uuid = :uuid")
                         .bind("uuid", uuid)
@@ -398,4 +543,62 @@ public class DetectionAlertService {
                 .toString();
     }
 
+    private static final class ActiveAlert {
+
+        private final long id;
+        private final UUID uuid;
+
+        private DateTime lastSeen;
+        private Map<String, String> pendingAttributes = null;
+
+        private ActiveAlert(long id, UUID uuid, DateTime lastSeen) {
+            this.id = id;
+            this.uuid = uuid;
+            this.lastSeen = lastSeen;
+        }
+
+        synchronized boolean isActive(DateTime now) {
+            return lastSeen.isAfter(now.minusMinutes(ACTIVE_THRESHOLD_MINUTES));
+        }
+
+        synchronized void touch(DateTime now, Map<String, String> attributes) {
+            this.lastSeen = now;
+            this.pendingAttributes = attributes;
+        }
+
+        @Nullable
+        synchronized PendingUpdate takePendingUpdate() {
+            if (pendingAttributes == null) {
+                return null;
+            }
+
+            PendingUpdate update = new PendingUpdate(lastSeen, pendingAttributes);
+            pendingAttributes = null;
+            return update;
+        }
+
+        /*
+         * Puts back an update that could not be written. A newer pending update already contains everything the
+         * failed one would have written.
+         */
+        synchronized void restorePendingUpdate(PendingUpdate update) {
+            if (pendingAttributes == null) {
+                pendingAttributes = update.attributes;
+            }
+        }
+
+        private static final class PendingUpdate {
+
+            private final DateTime lastSeen;
+            private final Map<String, String> attributes;
+
+            private PendingUpdate(DateTime lastSeen, Map<String, String> attributes) {
+                this.lastSeen = lastSeen;
+                this.attributes = attributes;
+            }
+
+        }
+
+    }
+
 }
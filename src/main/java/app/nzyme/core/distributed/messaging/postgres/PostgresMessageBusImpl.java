@@ -13,23 +13,45 @@ import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.joda.time.DateTime;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
 
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class PostgresMessageBusImpl implements MessageBus {
 
     private static final Logger LOG = LogManager.getLogger(PostgresMessageBusImpl.class);
 
+    // Postgres NOTIFY channel. The payload is the UUID of the receiving node.
+    private static final String NOTIFICATION_CHANNEL = "nzyme_message_bus";
+
+    // With notifications, polling is only a fallback for missed notifications.
+    private static final int FALLBACK_POLL_INTERVAL_SECONDS = 30;
+
+    private static final int LISTENER_TIMEOUT_MS = 10_000;
+    private static final int LISTENER_RECONNECT_DELAY_SECONDS = 5;
+
     private final NzymeNode nzyme;
     private final ObjectMapper om;
 
     private final Map<MessageType, List<MessageHandler>> messageHandlers;
 
+    private final ScheduledExecutorService poller;
+    private final AtomicBoolean pollRequested;
+
+    private volatile Thread listener;
+    private volatile Handle listenerHandle;
+
     private boolean initialized;
 
     public PostgresMessageBusImpl(NzymeNode nzyme) {
@@ -38,11 +60,21 @@ public class PostgresMessageBusImpl implements MessageBus {
 
         this.messageHandlers = Maps.newConcurrentMap();
 
+        this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("psql-bus-poller-%d")
+                .build()
+        );
+        this.pollRequested = new AtomicBoolean(false);
+
         this.om = new ObjectMapper()
                 .configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false)
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
+    /**
+     * Initializes the message bus with interval polling only and without notifications.
+     */
     public void initialize(int pollInterval, TimeUnit pollIntervalUnit) {
         // Find existing still ACK'd messages of this node and mark as failed. They were stuck/running at last shutdown.
         nzyme.getDatabase().withHandle(handle ->
@@ -54,11 +86,7 @@ public class PostgresMessageBusImpl implements MessageBus {
                         .execute()
         );
 
-        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
-                .setDaemon(true)
-                .setNameFormat("psql-bus-poller-%d")
-                .build()
-        ).scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, pollIntervalUnit);
+        poller.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, pollIntervalUnit);
 
         Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
                 .setDaemon(true)
@@ -70,17 +98,136 @@ public class PostgresMessageBusImpl implements MessageBus {
         this.initialized = true;
     }
 
+    /**
+     * Initializes the message bus with notifications. Messages are polled as soon as another node notifies this
+     * node about a new message. Interval polling remains as a fallback.
+     */
     @Override
     public void initialize() {
-        initialize(5, TimeUnit.SECONDS);
+        initialize(FALLBACK_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        startListener();
+    }
+
+    /**
+     * Starts a thread that listens for notifications about new messages for this node on a dedicated database
+     * connection and reconnects if that connection fails.
+     */
+    public void startListener() {
+        Thread listener = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("psql-bus-listener-%d")
+                .build()
+                .newThread(() -> {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        try {
+                            listen();
+                        } catch (Exception e) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                // Connection was closed by stopListener().
+                                return;
+                            }
+
+                            LOG.warn("Message bus notification listener failed. Reconnecting in <{}> seconds.",
+                                    LISTENER_RECONNECT_DELAY_SECONDS, e);
+                        }
+
+                        try {
+                            TimeUnit.SECONDS.sleep(LISTENER_RECONNECT_DELAY_SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+
+        this.listener = listener;
+        listener.start();
+    }
+
+    /**
+     * Stops the notification listener and closes its database connection. Interval polling is not affected.
+     */
+    public void stopListener() {
+        Thread listener = this.listener;
+        if (listener == null) {
+            return;
+        }
+
+        this.listener = null;
+        listener.interrupt();
+
+        // Closing the connection wakes up the listener if it is waiting for notifications.
+        Handle handle = this.listenerHandle;
+        if (handle != null) {
+            try {
+                handle.close();
+            } catch (Exception e) {
+                LOG.debug("Could not close message bus notification listener connection.", e);
+            }
+        }
+
+        try {
+            listener.join(TimeUnit.SECONDS.toMillis(LISTENER_RECONNECT_DELAY_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void listen() throws SQLException {
+        String localNodeId = nzyme.getNodeManager().getLocalNodeId().toString();
+
+        nzyme.getDatabase().useHandle(handle -> {
+            this.listenerHandle = handle;
+            try {
+                handle.execute("LISTEN " + NOTIFICATION_CHANNEL);
+                PGConnection connection = handle.getConnection().unwrap(PGConnection.class);
+
+                // Pick up messages that were sent while we were not listening.
+                requestPoll();
+
+                while (!Thread.currentThread().isInterrupted()) {
+                    PGNotification[] notifications = connection.getNotifications(LISTENER_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+
+                    for (PGNotification notification : notifications) {
+                        if (localNodeId.equals(notification.getParameter())) {
+                            requestPoll();
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                this.listenerHandle = null;
+            }
+        });
+    }
+
+    /*
+     * Schedules a poll on the poller thread. Requests that arrive before the poll starts are coalesced into it.
+     */
+    private void requestPoll() {
+        if (pollRequested.compareAndSet(false, true)) {
+            poller.execute(() -> {
+                pollRequested.set(false);
+                poll();
+            });
+        }
     }
 
     public void poll() {
         try {
+            // Claim and acknowledge all new messages of this node in one statement.
             List<PostgresMessageEntry> messages = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT * FROM message_bus_messages WHERE receiver_node_id = :local_node_id " +
-                                    "AND status = :status AND (cycle_limiter IS NULL OR cycle_limiter = :local_node_cycle) " +
-                                    "ORDER BY created_at ASC")
+                    handle.createQuery("WITH claimed AS (UPDATE message_bus_messages SET status = :acked, " +
+                                    "acknowledged_at = :acknowledged_at, acknowledged_by = :node_id " +
+                                    "WHERE receiver_node_id = :local_node_id AND status = :status " +
+                                    "AND (cycle_limiter IS NULL OR cycle_limiter = :local_node_cycle) " +
+                                    "RETURNING *) SELECT * FROM claimed ORDER BY created_at ASC, id ASC")
+                            .bind("acked", MessageStatus.ACK.name())
+                            .bind("acknowledged_at", DateTime.now())
+                            .bind("node_id", nzyme.getNodeInformation().id())
                             .bind("status", MessageStatus.NEW)
                             .bind("local_node_id", nzyme.getNodeManager().getLocalNodeId())
                             .bind("local_node_cycle", nzyme.getNodeManager().getLocalCycle())
@@ -88,14 +235,16 @@ public class PostgresMessageBusImpl implements MessageBus {
                             .list()
             );
 
+            if (messages.isEmpty()) {
+                return;
+            }
+
             LOG.debug("Polled <{}> messages from message bus.", messages.size());
 
+            List<ProcessedMessage> processed = Lists.newArrayList();
             for (PostgresMessageEntry message : messages) {
                 LOG.debug("Polled message from bus: [{}]", message);
 
-                // Acknowledge message.
-                ackMessage(message.id());
-
                 MessageType type;
                 try {
                     type = MessageType.valueOf(message.type());
@@ -107,44 +256,61 @@ public class PostgresMessageBusImpl implements MessageBus {
                 // Send to registered handlers.
                 if (messageHandlers.containsKey(type)) {
                     for (MessageHandler handler : messageHandlers.get(type)) {
-                        Map<String, Object> serializedParameters = this.om.readValue(
-                                message.parameters(),
-                                new TypeReference<HashMap<String,Object>>() {}
-                        );
-
-                        Stopwatch stopwatch = Stopwatch.createStarted();
-                        MessageProcessingResult opResult = handler.handle(ReceivedMessage.create(
-                                message.receiver(),
-                                message.sender(),
-                                type,
-                                serializedParameters,
-                                message.parameters(),
-                                message.cycleLimiter() != null
-                        ));
-                        long tookMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-                        if (tookMs == 0) {
-                            tookMs = 1;
-                        }
-
-                        if (opResult.equals(MessageProcessingResult.FAILURE)) {
-                            LOG.error("Could not handle cluster message <#{}> of type [{}]. Marking as failure.",
-                                    message.id(), message.type());
-                        }
-
-                        setMessageStatus(message.id(),
-                                opResult == MessageProcessingResult.SUCCESS
-                                        ? MessageStatus.PROCESSED_SUCCESS : MessageStatus.PROCESSED_FAILURE
-                        );
-
-                        setMessagePostProcessMetadata(message.id(), (int) tookMs);
+                        processed.add(process(message, type, handler));
                     }
                 }
             }
+
+            writeProcessedMessages(processed);
         } catch(Exception e) {
             LOG.error("Could not poll message bus.", e);
         }
     }
 
+    /*
+     * Runs a single handler. All messages of a poll run are already acknowledged, so a failing handler must never
+     * keep the remaining messages from being processed and written.
+     */
+    private ProcessedMessage process(PostgresMessageEntry message, MessageType type, MessageHandler handler) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        MessageStatus status;
+        try {
+            Map<String, Object> serializedParameters = this.om.readValue(
+                    message.parameters(),
+                    new TypeReference<HashMap<String,Object>>() {}
+            );
+
+            MessageProcessingResult opResult = handler.handle(ReceivedMessage.create(
+                    message.receiver(),
+                    message.sender(),
+                    type,
+                    serializedParameters,
+                    message.parameters(),
+                    message.cycleLimiter() != null
+            ));
+
+            if (opResult.equals(MessageProcessingResult.FAILURE)) {
+                LOG.error("Could not handle cluster message <#{}> of type [{}]. Marking as failure.",
+                        message.id(), message.type());
+            }
+
+            status = opResult == MessageProcessingResult.SUCCESS
+                    ? MessageStatus.PROCESSED_SUCCESS : MessageStatus.PROCESSED_FAILURE;
+        } catch (Exception e) {
+            LOG.error("Could not handle cluster message <#{}> of type [{}]. Marking as failure.",
+                    message.id(), message.type(), e);
+            status = MessageStatus.PROCESSED_FAILURE;
+        }
+
+        long tookMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        if (tookMs == 0) {
+            tookMs = 1;
+        }
+
+        return new ProcessedMessage(message.id(), status, (int) tookMs);
+    }
+
     @Override
     public void send(Message message) {
         if (!initialized) {
@@ -162,10 +328,13 @@ public class PostgresMessageBusImpl implements MessageBus {
 
         long currentCycleOfReceiver = nzyme.getNodeManager().getCycleOfNode(message.receiver());
 
+        // Insert the message and notify the receiver in the same statement.
         nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("INSERT INTO message_bus_messages(sender_node_id, receiver_node_id, type, " +
-                                "parameters, status, cycle_limiter, created_at) VALUES(:sender_node_id, " +
-                                ":receiver_node_id, :type, :parameters, :status, :cycle_limiter, :created_at)")
+                handle.createQuery("WITH message AS (INSERT INTO message_bus_messages(sender_node_id, " +
+                                "receiver_node_id, type, parameters, status, cycle_limiter, created_at) " +
+                                "VALUES(:sender_node_id, :receiver_node_id, :type, :parameters, :status, " +
+                                ":cycle_limiter, :created_at) RETURNING receiver_node_id) " +
+                                "SELECT pg_notify(:channel, receiver_node_id::text) FROM message")
                         .bind("sender_node_id", nzyme.getNodeInformation().id())
                         .bind("receiver_node_id", message.receiver())
                         .bind("type", message.type())
@@ -173,7 +342,9 @@ public class PostgresMessageBusImpl implements MessageBus {
                         .bind("status", MessageStatus.NEW)
                         .bind("cycle_limiter", currentCycleOfReceiver)
                         .bind("created_at", DateTime.now())
-                        .execute()
+                        .bind("channel", NOTIFICATION_CHANNEL)
+                        .mapTo(String.class)
+                        .list()
         );
     }
 
@@ -293,26 +464,37 @@ public class PostgresMessageBusImpl implements MessageBus {
         );
     }
 
-    private void ackMessage(long messageId) {
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE message_bus_messages SET status = :status, " +
-                                "acknowledged_at = :acknowledged_at, acknowledged_by = :node_id WHERE id = :id")
-                        .bind("status", MessageStatus.ACK.name())
-                        .bind("node_id", nzyme.getNodeInformation().id())
-                        .bind("id", messageId)
-                        .bind("acknowledged_at", DateTime.now())
-                        .execute()
-        );
-    }
+    /*
+     * Writes status and processing time of all messages of a poll run in one batch. A message with multiple handlers
+     * failed if any of the handlers failed and its processing time is the sum of all handlers.
+     */
+    private void writeProcessedMessages(List<ProcessedMessage> processed) {
+        if (processed.isEmpty()) {
+            return;
+        }
 
-    private void setMessagePostProcessMetadata(long id, int tookMs) {
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE message_bus_messages SET processing_time_ms = :took_ms " +
-                                "WHERE id = :id")
-                        .bind("took_ms", tookMs)
-                        .bind("id", id)
-                        .execute()
-        );
+        Map<Long, ProcessedMessage> byMessage = Maps.newLinkedHashMap();
+        for (ProcessedMessage p : processed) {
+            byMessage.merge(p.id, p, (a, b) -> new ProcessedMessage(
+                    a.id,
+                    a.status == MessageStatus.PROCESSED_FAILURE ? a.status : b.status,
+                    a.tookMs + b.tookMs
+            ));
+        }
+
+        nzyme.getDatabase().useHandle(handle -> {
+            PreparedBatch batch = handle.prepareBatch("UPDATE message_bus_messages SET status = :status, " +
+                    "processing_time_ms = :took_ms WHERE id = :id");
+
+            for (ProcessedMessage p : byMessage.values()) {
+                batch.bind("status", p.status.name())
+                        .bind("took_ms", p.tookMs)
+                        .bind("id", p.id)
+                        .add();
+            }
+
+            batch.execute();
+        });
     }
 
     private List<StoredMessage> entriesToStoredMessages(List<PostgresMessageEntry> failures) {
@@ -346,4 +528,18 @@ public class PostgresMessageBusImpl implements MessageBus {
         return result;
     }
 
+    private static final class ProcessedMessage {
+
+        private final long id;
+        private final MessageStatus status;
+        private final int tookMs;
+
+        private ProcessedMessage(long id, MessageStatus status, int tookMs) {
+            this.id = id;
+            this.status = status;
+            this.tookMs = tookMs;
+        }
+
+    }
+
 }
@@ -1,7 +1,10 @@
 package app.nzyme.core.distributed.tasksqueue.postgres;
 
 import app.nzyme.core.NzymeNode;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.distributed.tasksqueue.*;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -18,8 +21,13 @@ import org.joda.time.DateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PostgresTasksQueueImpl implements TasksQueue {
 
@@ -30,6 +38,15 @@ public class PostgresTasksQueueImpl implements TasksQueue {
 
     private final Map<TaskType, List<TaskHandler>> taskHandlers;
 
+    private final int parallelism;
+    private final Map<TaskType, ExecutorService> workers;
+    private final Map<TaskType, AtomicInteger> inFlight;
+    private final Object idleMonitor = new Object();
+    private final AtomicBoolean pollRequested;
+    private ScheduledExecutorService poller;
+
+    private final Timer lag;
+
     private boolean initialized;
 
     public PostgresTasksQueueImpl(NzymeNode nzyme) {
@@ -38,6 +55,13 @@ public class PostgresTasksQueueImpl implements TasksQueue {
 
         this.taskHandlers = Maps.newConcurrentMap();
 
+        this.parallelism = nzyme.getConfiguration().tasksQueueParallelism();
+        this.workers = Maps.newConcurrentMap();
+        this.inFlight = Maps.newConcurrentMap();
+        this.pollRequested = new AtomicBoolean(false);
+
+        this.lag = nzyme.getMetrics().timer(MetricNames.TASKS_QUEUE_LAG);
+
         this.om = new ObjectMapper()
                 .configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false)
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -59,11 +83,12 @@ public class PostgresTasksQueueImpl implements TasksQueue {
                         .execute()
         );
 
-        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
                 .setDaemon(true)
                 .setNameFormat("psql-tasks-poller-%d")
                 .build()
-        ).scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, pollIntervalUnit);
+        );
+        poller.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, pollIntervalUnit);
 
         Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
                 .setDaemon(true)
@@ -109,126 +134,221 @@ public class PostgresTasksQueueImpl implements TasksQueue {
         );
     }
 
+    /**
+     * Claims new tasks of all types this node has handlers for and hands them to the worker pool of their type.
+     * Returns immediately. At most the configured parallelism of tasks per type are claimed and running at the
+     * same time. Tasks that do not fit remain in the queue for the next poll or for other nodes.
+     */
     @Override
-    public void poll() {
-        try {
-            List<PostgresTasksQueueEntry> tasks = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("UPDATE tasks_queue SET status = 'ACK', previous_status = status, " +
-                                    "last_acked_at = :timestamp, acked_by = :own_node_id " +
-                                    "WHERE status IN ('NEW', 'NEW_RETRY') AND (allow_process_self = true " +
-                                    "OR (allow_process_self = false AND sender_node_id != :own_node_id)) RETURNING *")
-                            .bind("own_node_id", nzyme.getNodeInformation().id())
-                            .bind("timestamp", DateTime.now())
-                            .mapTo(PostgresTasksQueueEntry.class)
-                            .list()
-            );
-
-            if (tasks.isEmpty()) {
-                LOG.debug("No tasks polled.");
-                return;
+    public synchronized void poll() {
+        for (TaskType type : taskHandlers.keySet()) {
+            try {
+                pollType(type);
+            } catch(Exception e) {
+                LOG.error("Could not poll tasks queue for tasks of type [{}].", type, e);
             }
+        }
+    }
 
-            for (PostgresTasksQueueEntry task : tasks) {
-                LOG.debug("Polled task from bus: [{}]", task);
+    private void pollType(TaskType type) {
+        AtomicInteger running = inFlight.computeIfAbsent(type, t -> new AtomicInteger(0));
+        int capacity = parallelism - running.get();
+        if (capacity <= 0) {
+            LOG.debug("All workers for tasks of type [{}] are busy.", type);
+            return;
+        }
 
-                TaskType type;
-                try {
-                    type = TaskType.valueOf(task.type());
-                } catch (IllegalArgumentException e) {
-                    LOG.warn("Unsupported task type [{}]. Skipping.", task.type());
-                    continue;
-                }
+        /*
+         * Claim a bounded batch in one statement. SKIP LOCKED lets multiple nodes claim concurrently without
+         * blocking on or double-claiming the same rows.
+         */
+        DateTime now = DateTime.now();
+        List<PostgresTasksQueueEntry> tasks = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("UPDATE tasks_queue SET status = 'ACK', previous_status = status, " +
+                                "last_acked_at = :timestamp, acked_by = :own_node_id " +
+                                "WHERE id IN (SELECT id FROM tasks_queue WHERE status IN ('NEW', 'NEW_RETRY') " +
+                                "AND type = :type AND (allow_process_self = true " +
+                                "OR (allow_process_self = false AND sender_node_id != :own_node_id)) " +
+                                "ORDER BY created_at ASC LIMIT :limit FOR UPDATE SKIP LOCKED) RETURNING *")
+                        .bind("own_node_id", nzyme.getNodeInformation().id())
+                        .bind("timestamp", now)
+                        .bind("type", type.name())
+                        .bind("limit", capacity)
+                        .mapTo(PostgresTasksQueueEntry.class)
+                        .list()
+        );
 
-                TaskStatus previousStatus;
-                try {
-                    previousStatus = TaskStatus.valueOf(task.previousStatus());
-                } catch (IllegalArgumentException e) {
-                    LOG.warn("Unsupported task status [{}]. Skipping.", task.previousStatus());
-                    continue;
-                }
+        if (tasks.isEmpty()) {
+            LOG.debug("No tasks of type [{}] polled.", type);
+            return;
+        }
 
-                DateTime timestamp = DateTime.now();
+        // A full batch means there may be more waiting. Poll again as soon as a worker is free.
+        boolean backlogged = tasks.size() == capacity;
 
-                // Send to registered handlers.
-                if (taskHandlers.containsKey(type)) {
-                    for (TaskHandler handler : taskHandlers.get(type)) {
-                        if (previousStatus.equals(TaskStatus.NEW_RETRY)) {
-                            incrementRetryCount(task.id());
-                        }
+        ExecutorService executor = workers.computeIfAbsent(type, t -> Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("psql-tasks-worker-" + t.name().toLowerCase() + "-%d")
+                        .build()
+        ));
 
-                        Map<String, Object> serializedParameters = this.om.readValue(
-                                task.parameters(),
-                                new TypeReference<HashMap<String, Object>>() {
-                                }
-                        );
-
-                        Stopwatch stopwatch = Stopwatch.createStarted();
-                        TaskProcessingResult opResult = handler.handle(ReceivedTask.create(
-                                type,
-                                task.senderNodeId(),
-                                task.allowProcessSelf(),
-                                serializedParameters,
-                                task.parameters(),
-                                task.allowRetry()
-                        ));
-                        long tookMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-                        if (tookMs == 0) {
-                            tookMs = 1;
-                        }
-
-                        if (opResult.equals(TaskProcessingResult.FAILURE)) {
-                            LOG.error("Could not execute cluster task <#{}> of type [{}]. Marking as failure.",
-                                    task.id(), task.type());
-                        }
+        for (PostgresTasksQueueEntry task : tasks) {
+            LOG.debug("Polled task from bus: [{}]", task);
 
-                        setTaskStatus(task.id(),
-                                opResult == TaskProcessingResult.SUCCESS
-                                        ? TaskStatus.PROCESSED_SUCCESS : TaskStatus.PROCESSED_FAILURE
-                        );
+            lag.update(Math.max(0, now.getMillis() - task.createdAt().getMillis()), TimeUnit.MILLISECONDS);
 
-                        if (previousStatus.equals(TaskStatus.NEW)) {
-                            setTaskFirstProcessedAt(task.id(), timestamp);
+            running.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        process(type, task);
+                    } finally {
+                        taskFinished(running);
+                        if (backlogged) {
+                            requestPoll();
                         }
-                        setTaskPostProcessMetadata(task.id(), timestamp, (int) tookMs);
                     }
+                });
+            } catch (RejectedExecutionException e) {
+                taskFinished(running);
+                LOG.error("Could not schedule cluster task <#{}> of type [{}].", task.id(), task.type(), e);
+            }
+        }
+    }
+
+    private void taskFinished(AtomicInteger running) {
+        running.decrementAndGet();
+
+        synchronized (idleMonitor) {
+            idleMonitor.notifyAll();
+        }
+    }
+
+    /*
+     * Waits until all claimed tasks have been processed and their results have been written. Returns false if that
+     * did not happen within the timeout.
+     */
+    boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        synchronized (idleMonitor) {
+            while (!isIdle()) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
                 }
+
+                idleMonitor.wait(remainingMs);
             }
-        } catch(Exception e) {
-            LOG.error("Could not poll tasks queue.", e);
         }
+
+        return true;
     }
 
-    private void setTaskStatus(long taskId, TaskStatus status) {
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE tasks_queue SET status = :status WHERE id = :id")
-                        .bind("status", status.name())
-                        .bind("id", taskId)
-                        .execute()
-        );
+    private boolean isIdle() {
+        for (AtomicInteger running : inFlight.values()) {
+            if (running.get() > 0) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
-    private void incrementRetryCount(long taskId) {
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE tasks_queue SET retries = retries+1 WHERE id = :id")
-                        .bind("id", taskId)
-                        .execute()
-        );
+    private void process(TaskType type, PostgresTasksQueueEntry task) {
+        TaskStatus previousStatus;
+        try {
+            previousStatus = TaskStatus.valueOf(task.previousStatus());
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Unsupported task status [{}]. Skipping.", task.previousStatus());
+            return;
+        }
+
+        DateTime timestamp = DateTime.now();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        TaskStatus status = TaskStatus.PROCESSED_SUCCESS;
+
+        try {
+            // Send to registered handlers.
+            for (TaskHandler handler : taskHandlers.get(type)) {
+                Map<String, Object> serializedParameters = this.om.readValue(
+                        task.parameters(),
+                        new TypeReference<HashMap<String, Object>>() {
+                        }
+                );
+
+                TaskProcessingResult opResult = handler.handle(ReceivedTask.create(
+                        type,
+                        task.senderNodeId(),
+                        task.allowProcessSelf(),
+                        serializedParameters,
+                        task.parameters(),
+                        task.allowRetry()
+                ));
+
+                if (opResult.equals(TaskProcessingResult.FAILURE)) {
+                    LOG.error("Could not execute cluster task <#{}> of type [{}]. Marking as failure.",
+                            task.id(), task.type());
+                    status = TaskStatus.PROCESSED_FAILURE;
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Could not execute cluster task <#{}> of type [{}]. Marking as failure.",
+                    task.id(), task.type(), e);
+            status = TaskStatus.PROCESSED_FAILURE;
+        }
+
+        long tookMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        if (tookMs == 0) {
+            tookMs = 1;
+        }
+
+        nzyme.getMetrics()
+                .timer(MetricRegistry.name(MetricNames.TASKS_QUEUE_PROCESSING_TIMING, type.name()))
+                .update(tookMs, TimeUnit.MILLISECONDS);
+
+        try {
+            setTaskCompleted(task.id(), status, previousStatus, timestamp, (int) tookMs);
+        } catch (Exception e) {
+            LOG.error("Could not write result of cluster task <#{}>.", task.id(), e);
+        }
+    }
+
+    /*
+     * Schedules a poll on the poller thread. Requests that arrive before the poll starts are coalesced into it.
+     */
+    private void requestPoll() {
+        if (poller != null && pollRequested.compareAndSet(false, true)) {
+            poller.execute(() -> {
+                pollRequested.set(false);
+                poll();
+            });
+        }
     }
 
-    private void setTaskFirstProcessedAt(long taskId, DateTime timestamp) {
+    private void setTaskStatus(long taskId, TaskStatus status) {
         nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE tasks_queue SET first_processed_at = :first_processed_at WHERE id = :id")
-                        .bind("first_processed_at", timestamp)
+                handle.createUpdate("UPDATE tasks_queue SET status = :status WHERE id = :id")
+                        .bind("status", status.name())
                         .bind("id", taskId)
                         .execute()
         );
     }
 
-    private void setTaskPostProcessMetadata(long taskId, DateTime timestamp,  int processingTimeMs) {
+    private void setTaskCompleted(long taskId,
+                                  TaskStatus status,
+                                  TaskStatus previousStatus,
+                                  DateTime timestamp,
+                                  int processingTimeMs) {
         nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE tasks_queue SET last_processed_at = :last_processed_at, " +
-                                "processing_time_ms = :processing_time_ms, processed_by = :node_id WHERE id = :id")
-                        .bind("last_processed_at", timestamp)
+                handle.createUpdate("UPDATE tasks_queue SET status = :status, retries = retries + :retry_increment, " +
+                                "first_processed_at = COALESCE(first_processed_at, :timestamp), " +
+                                "last_processed_at = :timestamp, processing_time_ms = :processing_time_ms, " +
+                                "processed_by = :node_id WHERE id = :id")
+                        .bind("status", status.name())
+                        .bind("retry_increment", previousStatus == TaskStatus.NEW_RETRY ? 1 : 0)
+                        .bind("timestamp", timestamp)
                         .bind("processing_time_ms", processingTimeMs)
                         .bind("node_id", nzyme.getNodeInformation().id())
                         .bind("id", taskId)
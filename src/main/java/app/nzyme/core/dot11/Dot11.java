@@ -3,16 +3,28 @@ package app.nzyme.core.dot11;
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.context.db.MacAddressContextEntry;
 import app.nzyme.core.database.OrderDirection;
+import app.nzyme.core.dot11.bandits.BanditFingerprintIndex;
+import app.nzyme.core.dot11.bandits.Dot11BanditDescription;
+import app.nzyme.core.dot11.bandits.Dot11Bandits;
 import app.nzyme.core.dot11.db.*;
 import app.nzyme.core.dot11.db.monitoring.*;
+import app.nzyme.core.dot11.monitoring.disco.db.DiscoMonitorBaselineEntry;
 import app.nzyme.core.dot11.monitoring.disco.db.Dot11DiscoMonitorMethodConfiguration;
+import app.nzyme.core.dot11.rollups.RollupResolution;
 import app.nzyme.core.dot11.tracks.db.TrackDetectorConfig;
 import app.nzyme.core.rest.authentication.AuthenticatedUser;
 import app.nzyme.core.rest.resources.taps.reports.tables.dot11.Dot11SecurityInformationReport;
 import app.nzyme.core.rest.responses.dot11.Dot11MacAddressContextResponse;
 import app.nzyme.core.rest.responses.dot11.Dot11MacAddressResponse;
 import app.nzyme.core.rest.responses.dot11.clients.ConnectedBSSID;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshot;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshotCacheKey;
+import app.nzyme.core.tables.dot11.monitoring.PreLoadedMonitoredBSSID;
+import app.nzyme.core.tables.dot11.monitoring.PreLoadedMonitoredSSID;
+import app.nzyme.core.tables.dot11.monitoring.SimilarSSIDDetector;
 import app.nzyme.core.util.Tools;
+import app.nzyme.plugin.distributed.messaging.ClusterMessage;
+import app.nzyme.plugin.distributed.messaging.MessageType;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -21,14 +33,18 @@ import com.google.common.base.Strings;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.jdbi.v3.core.statement.Query;
 import org.joda.time.DateTime;
 
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Dot11 {
 
@@ -109,10 +125,135 @@ public class Dot11 {
                 }
             });
 
+    /*
+     * Snapshots are only rebuilt after monitored networks or bandits changed. The expiry is a safety net in case
+     * an invalidation message from another node is lost.
+     */
+    private final AtomicLong monitoringSnapshotVersion = new AtomicLong(0);
+    private final LoadingCache<Dot11MonitoringSnapshotCacheKey, Dot11MonitoringSnapshot> monitoringSnapshots = CacheBuilder.newBuilder()
+            .expireAfterWrite(30, TimeUnit.MINUTES)
+            .build(new CacheLoader<>() {
+                @Override
+                public Dot11MonitoringSnapshot load(Dot11MonitoringSnapshotCacheKey key) {
+                    return buildMonitoringSnapshot(key.organizationId(), key.tenantId());
+                }
+            });
+
     public Dot11(NzymeNode nzyme) {
         this.nzyme = nzyme;
     }
 
+    public Dot11MonitoringSnapshot getMonitoringSnapshot(@Nullable UUID organizationId, @Nullable UUID tenantId) {
+        Dot11MonitoringSnapshotCacheKey key = Dot11MonitoringSnapshotCacheKey.create(organizationId, tenantId);
+
+        try {
+            Dot11MonitoringSnapshot snapshot = monitoringSnapshots.get(key);
+
+            // A snapshot that was being built while an invalidation happened may have been cached. Build again.
+            if (snapshot.version() != monitoringSnapshotVersion.get()) {
+                monitoringSnapshots.invalidate(key);
+                snapshot = monitoringSnapshots.get(key);
+            }
+
+            return snapshot;
+        } catch(Exception e) {
+            throw new RuntimeException("Could not fetch 802.11 monitoring snapshot.", e);
+        }
+    }
+
+    public void invalidateMonitoringSnapshots() {
+        monitoringSnapshotVersion.incrementAndGet();
+        monitoringSnapshots.invalidateAll();
+    }
+
+    /**
+     * Invalidates the monitoring snapshots on this node right away and on all other nodes of the cluster using
+     * the message bus. Must be called after changing monitored networks or custom bandits.
+     */
+    public void invalidateMonitoringSnapshotsOfCluster() {
+        invalidateMonitoringSnapshots();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "dot11_monitoring"),
+                false
+        ));
+    }
+
+    private Dot11MonitoringSnapshot buildMonitoringSnapshot(@Nullable UUID organizationId, @Nullable UUID tenantId) {
+        long version = monitoringSnapshotVersion.get();
+
+        // Collect all enabled monitored SSIDs and their attributes.
+        Map<String, PreLoadedMonitoredSSID> monitoredSSIDs = Maps.newHashMap();
+        for (MonitoredSSID s : findAllMonitoredSSIDs(organizationId, tenantId)) {
+            if (!s.isEnabled()) {
+                continue;
+            }
+
+            Map<String, PreLoadedMonitoredBSSID> preLoadedBSSIDs = Maps.newHashMap();
+            for (MonitoredBSSID b : findMonitoredBSSIDsOfMonitoredNetwork(s.id())) {
+                List<String> fingerprints = Lists.newArrayList();
+                for (MonitoredFingerprint f : findMonitoredFingerprintsOfMonitoredBSSID(b.id())) {
+                    fingerprints.add(f.fingerprint());
+                }
+
+                preLoadedBSSIDs.put(b.bssid(), PreLoadedMonitoredBSSID.create(b.bssid(), ImmutableList.copyOf(fingerprints)));
+            }
+
+            List<Integer> preLoadedChannels = Lists.newArrayList();
+            for (MonitoredChannel c : findMonitoredChannelsOfMonitoredNetwork(s.id())) {
+                preLoadedChannels.add((int) c.frequency());
+            }
+
+            List<String> preLoadedSecuritySuites = Lists.newArrayList();
+            for (MonitoredSecuritySuite ss : findMonitoredSecuritySuitesOfMonitoredNetwork(s.id())) {
+                preLoadedSecuritySuites.add(ss.securitySuite());
+            }
+
+            List<String> preLoadedRestrictedSubstrings = Lists.newArrayList();
+            for (RestrictedSSIDSubstring rs : findAllRestrictedSSIDSubstrings(s.id())) {
+                preLoadedRestrictedSubstrings.add(rs.substring());
+            }
+
+            monitoredSSIDs.put(s.ssid(), PreLoadedMonitoredSSID.create(
+                    s.uuid(),
+                    s.ssid(),
+                    ImmutableMap.copyOf(preLoadedBSSIDs),
+                    ImmutableList.copyOf(preLoadedChannels),
+                    ImmutableList.copyOf(preLoadedSecuritySuites),
+                    ImmutableList.copyOf(preLoadedRestrictedSubstrings),
+                    s.enabledUnexpectedBSSID(),
+                    s.enabledUnexpectedChannel(),
+                    s.enabledUnexpectedSecuritySuites(),
+                    s.enabledUnexpectedFingerprint(),
+                    s.enabledUnexpectedSignalTracks(),
+                    s.enabledSimilarLookingSSID(),
+                    s.enabledSSIDSubstring(),
+                    s.detectionConfigSimilarLookingSSIDThreshold(),
+                    s.detectionConfigSSIDSubstring()
+            ));
+        }
+
+        // Built-in and custom bandits.
+        List<Dot11BanditDescription> bandits = Lists.newArrayList(Dot11Bandits.BUILT_IN);
+        for (CustomBanditDescription bandit : findAllCustomBandits(organizationId, tenantId, Integer.MAX_VALUE, 0)) {
+            bandits.add(Dot11BanditDescription.create(
+                    bandit.uuid().toString(),
+                    true,
+                    bandit.name(),
+                    bandit.description(),
+                    ImmutableList.copyOf(findFingerprintsOfCustomBandit(bandit.id()))
+            ));
+        }
+
+        return Dot11MonitoringSnapshot.create(
+                version,
+                ImmutableMap.copyOf(monitoredSSIDs),
+                new BanditFingerprintIndex(bandits),
+                new SimilarSSIDDetector(monitoredSSIDs.values())
+        );
+    }
+
     public Dot11MacAddressMetadata getMacAddressMetadata(String macAddress, List<UUID> taps) {
         try {
             return macAddressMetadata.get(Dot11MacAddressLookupCompositeKey.create(macAddress, taps));
@@ -199,19 +340,22 @@ public class Dot11 {
         );
     }
 
-    public List<Dot11AdvertisementHistogramEntry> getBSSIDAdvertisementHistogram(String bssid, int minutes, List<UUID> taps) {
+    public List<Dot11AdvertisementHistogramEntry> getBSSIDAdvertisementHistogram(String bssid,
+                                                                                 int minutes,
+                                                                                 RollupResolution resolution,
+                                                                                 List<UUID> taps) {
         if (taps.isEmpty()) {
             return Collections.emptyList();
         }
 
         return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT SUM(beacon_advertisements) AS beacons, " +
-                                "SUM(proberesp_advertisements) AS proberesponses, " +
-                                "DATE_TRUNC('minute', created_at) AS bucket FROM dot11_ssids " +
-                                "WHERE created_at > :cutoff AND tap_uuid IN (<taps>) " +
+                handle.createQuery("SELECT SUM(beacons) AS beacons, SUM(proberesponses) AS proberesponses, bucket " +
+                                "FROM dot11_advertisement_rollups " +
+                                "WHERE resolution = :resolution AND bucket >= :cutoff AND tap_uuid IN (<taps>) " +
                                 "AND bssid = :bssid " +
                                 "GROUP BY bucket ORDER BY bucket DESC")
-                        .bind("cutoff", DateTime.now().minusMinutes(minutes))
+                        .bind("resolution", resolution.getMinutes())
+                        .bind("cutoff", resolution.floor(DateTime.now().minusMinutes(minutes)))
                         .bindList("taps", taps)
                         .bind("bssid", bssid)
                         .mapTo(Dot11AdvertisementHistogramEntry.class)
@@ -225,13 +369,15 @@ public class Dot11 {
             return Collections.emptyList();
         }
 
+        RollupResolution resolution = RollupResolution.forRange(minutes);
+
         return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT c.frequency, sum(c.stats_frames) AS frames, sum(c.stats_bytes) AS bytes " +
-                                "FROM dot11_ssids AS s " +
-                                "LEFT JOIN dot11_channels c on s.id = c.ssid_id " +
-                                "WHERE created_at > :cutoff AND tap_uuid IN (<taps>) AND s.bssid = :bssid " +
-                                "GROUP BY c.frequency")
-                        .bind("cutoff", DateTime.now().minusMinutes(minutes))
+                handle.createQuery("SELECT frequency, SUM(frames) AS frames, SUM(bytes) AS bytes " +
+                                "FROM dot11_channel_rollups " +
+                                "WHERE resolution = :resolution AND bucket >= :cutoff AND tap_uuid IN (<taps>) " +
+                                "AND bssid = :bssid GROUP BY frequency")
+                        .bind("resolution", resolution.getMinutes())
+                        .bind("cutoff", resolution.floor(DateTime.now().minusMinutes(minutes)))
                         .bindList("taps", taps)
                         .bind("bssid", bssid)
                         .mapTo(ActiveChannel.class)
@@ -380,19 +526,23 @@ public class Dot11 {
         );
     }
 
-    public List<Dot11AdvertisementHistogramEntry> getSSIDAdvertisementHistogram(String bssid, String ssid, int minutes, List<UUID> taps) {
+    public List<Dot11AdvertisementHistogramEntry> getSSIDAdvertisementHistogram(String bssid,
+                                                                                String ssid,
+                                                                                int minutes,
+                                                                                RollupResolution resolution,
+                                                                                List<UUID> taps) {
         if (taps.isEmpty()) {
             return Collections.emptyList();
         }
 
         return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT SUM(beacon_advertisements) AS beacons, " +
-                                "SUM(proberesp_advertisements) AS proberesponses, " +
-                                "DATE_TRUNC('minute', created_at) AS bucket FROM dot11_ssids " +
-                                "WHERE created_at > :cutoff AND tap_uuid IN (<taps>) " +
+                handle.createQuery("SELECT SUM(beacons) AS beacons, SUM(proberesponses) AS proberesponses, bucket " +
+                                "FROM dot11_advertisement_rollups " +
+                                "WHERE resolution = :resolution AND bucket >= :cutoff AND tap_uuid IN (<taps>) " +
                                 "AND bssid = :bssid AND ssid = :ssid " +
                                 "GROUP BY bucket ORDER BY bucket DESC")
-                        .bind("cutoff", DateTime.now().minusMinutes(minutes))
+                        .bind("resolution", resolution.getMinutes())
+                        .bind("cutoff", resolution.floor(DateTime.now().minusMinutes(minutes)))
                         .bindList("taps", taps)
                         .bind("bssid", bssid)
                         .bind("ssid", ssid)
@@ -406,13 +556,15 @@ public class Dot11 {
             return Collections.emptyList();
         }
 
+        RollupResolution resolution = RollupResolution.forRange(minutes);
+
         return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT c.frequency, sum(c.stats_frames) AS frames, sum(c.stats_bytes) AS bytes " +
-                                "FROM dot11_ssids AS s " +
-                                "LEFT JOIN dot11_channels c on s.id = c.ssid_id " +
-                                "WHERE created_at > :cutoff AND tap_uuid IN (<taps>) AND s.bssid = :bssid " +
-                                "AND s.ssid = :ssid GROUP BY c.frequency")
-                        .bind("cutoff", DateTime.now().minusMinutes(minutes))
+                handle.createQuery("SELECT frequency, SUM(frames) AS frames, SUM(bytes) AS bytes " +
+                                "FROM dot11_channel_rollups " +
+                                "WHERE resolution = :resolution AND bucket >= :cutoff AND tap_uuid IN (<taps>) " +
+                                "AND bssid = :bssid AND ssid = :ssid GROUP BY frequency")
+                        .bind("resolution", resolution.getMinutes())
+                        .bind("cutoff", resolution.floor(DateTime.now().minusMinutes(minutes)))
                         .bindList("taps", taps)
                         .bind("bssid", bssid)
                         .bind("ssid", ssid)
@@ -1338,13 +1490,20 @@ public class Dot11 {
 
     public List<DiscoHistogramEntry> getDiscoHistogram(DiscoType discoType,
                                                        int minutes,
+                                                       RollupResolution resolution,
                                                        UUID tap,
                                                        @Nullable List<String> bssids) {
-        return getDiscoHistogram(discoType, minutes, List.of(tap), bssids);
+        return getDiscoHistogram(discoType, minutes, resolution, List.of(tap), bssids);
     }
 
+    /*
+     * Disconnection frames per bucket of the given resolution. Without a BSSID filter, only sent frames are counted,
+     * because every sent frame shows up again as a received frame. With a BSSID filter, frames sent and received by
+     * the BSSIDs are counted.
+     */
     public List<DiscoHistogramEntry> getDiscoHistogram(DiscoType discoType,
                                                        int minutes,
+                                                       RollupResolution resolution,
                                                        List<UUID> taps,
                                                        @Nullable List<String> bssids) {
         if (taps.isEmpty()) {
@@ -1355,118 +1514,88 @@ public class Dot11 {
             return Collections.emptyList();
         }
 
-        List<Integer> discoTypes = Lists.newArrayList();
-        switch (discoType) {
-            case DISCONNECTION:
-                discoTypes.add(DiscoType.DISASSOCIATION.getNumber());
-                discoTypes.add(DiscoType.DEAUTHENTICATION.getNumber());
-                break;
-            case DEAUTHENTICATION:
-                discoTypes.add(DiscoType.DEAUTHENTICATION.getNumber());
-                break;
-            case DISASSOCIATION:
-                discoTypes.add(DiscoType.DISASSOCIATION.getNumber());
-                break;
-        }
+        List<Integer> discoTypes = discoTypeNumbers(discoType);
 
-        List<DiscoHistogramEntry> senders;
         if (bssids != null) {
             // BSSID filter applied.
-            senders = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT SUM(senders.sent_frames) " +
-                                    "AS frame_count, DATE_TRUNC('minute', senders.created_at) AS bucket " +
-                                    "FROM dot11_disco_activity AS senders " +
-                                    "WHERE senders.disco_type IN (<disco_types>) " +
-                                    "AND senders.bssid IN (<bssids>) " +
-                                    "AND senders.created_at > :cutoff " +
-                                    "AND senders.tap_uuid IN (<taps>) " +
+            return nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT SUM(sent_frames + received_frames) AS frame_count, bucket " +
+                                    "FROM dot11_disco_rollups " +
+                                    "WHERE resolution = :resolution AND bucket >= :cutoff " +
+                                    "AND tap_uuid IN (<taps>) AND disco_type IN (<disco_types>) " +
+                                    "AND bssid IN (<bssids>) " +
                                     "GROUP BY bucket ORDER BY bucket DESC")
-                            .bind("cutoff", DateTime.now().minusMinutes(minutes))
+                            .bind("resolution", resolution.getMinutes())
+                            .bind("cutoff", resolution.floor(DateTime.now().minusMinutes(minutes)))
+                            .bindList("taps", taps)
                             .bindList("disco_types", discoTypes)
                             .bindList("bssids", bssids)
-                            .bindList("taps", taps)
                             .mapTo(DiscoHistogramEntry.class)
                             .list()
             );
         } else {
             // No BSSID filter.
-            senders = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT SUM(senders.sent_frames) " +
-                                    "AS frame_count, DATE_TRUNC('minute', senders.created_at) AS bucket " +
-                                    "FROM dot11_disco_activity AS senders " +
-                                    "WHERE senders.disco_type IN (<disco_types>) " +
-                                    "AND senders.created_at > :cutoff " +
-                                    "AND senders.tap_uuid IN (<taps>) " +
+            return nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT SUM(sent_frames) AS frame_count, bucket " +
+                                    "FROM dot11_disco_rollups " +
+                                    "WHERE resolution = :resolution AND bucket >= :cutoff " +
+                                    "AND tap_uuid IN (<taps>) AND disco_type IN (<disco_types>) " +
                                     "GROUP BY bucket ORDER BY bucket DESC")
-                            .bind("cutoff", DateTime.now().minusMinutes(minutes))
-                            .bindList("disco_types", discoTypes)
+                            .bind("resolution", resolution.getMinutes())
+                            .bind("cutoff", resolution.floor(DateTime.now().minusMinutes(minutes)))
                             .bindList("taps", taps)
-                            .mapTo(DiscoHistogramEntry.class)
-                            .list()
-            );
-        }
-
-        List<DiscoHistogramEntry> receivers;
-        if (bssids != null) {
-            // BSSID filter applied.
-            receivers = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT SUM(receivers.received_frames) " +
-                                    "AS frame_count, DATE_TRUNC('minute', senders.created_at) AS bucket " +
-                                    "FROM dot11_disco_activity_receivers AS receivers " +
-                                    "LEFT JOIN dot11_disco_activity AS senders " +
-                                    "ON receivers.disco_activity_id = senders.id " +
-                                    "WHERE senders.disco_type IN (<disco_types>) " +
-                                    "AND receivers.bssid IN (<bssids>) " +
-                                    "AND senders.created_at > :cutoff " +
-                                    "AND senders.tap_uuid IN (<taps>) " +
-                                    "GROUP BY bucket ORDER BY bucket DESC")
-                            .bind("cutoff", DateTime.now().minusMinutes(minutes))
                             .bindList("disco_types", discoTypes)
-                            .bindList("bssids", bssids)
-                            .bindList("taps", taps)
                             .mapTo(DiscoHistogramEntry.class)
                             .list()
             );
-        } else {
-            /*
-             * No BSSID filter. We don't care about receivers if there is no filter. It would lead to double-counting
-             * because each sent frame shows up again as a received frame. Just taking sent_frames is enough here.
-             */
-            receivers = Lists.newArrayList();
         }
+    }
 
-        Map<DateTime, DiscoHistogramEntry> sendersMap = Maps.newHashMap();
-        for (DiscoHistogramEntry h : senders) {
-            sendersMap.put(h.bucket(), h);
+    /*
+     * Disconnection activity of all BSSIDs seen by the given taps, per tap, BSSID and minute. Counts frames sent and
+     * received by each BSSID, matching what getDiscoHistogram() counts when filtering for BSSIDs. Used to build the
+     * histograms of many monitored networks with a single query.
+     */
+    public List<DiscoActivityBucket> findDiscoActivityBuckets(DiscoType discoType,
+                                                              DateTime since,
+                                                              List<UUID> taps) {
+        if (taps.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        if (bssids != null && !bssids.isEmpty()) {
-            if (!senders.isEmpty() && receivers.isEmpty()) {
-                return senders;
-            }
+        RollupResolution resolution = RollupResolution.ONE_MINUTE;
 
-            if (senders.isEmpty() && !receivers.isEmpty()) {
-                return receivers;
-            }
-
-            // Merge sender and receiver histograms.
-            List<DiscoHistogramEntry> result = Lists.newArrayList(senders);
-            for (DiscoHistogramEntry h : receivers) {
-                DiscoHistogramEntry senderEntry = sendersMap.get(h.bucket());
-                if (senderEntry == null) {
-                    // No sender entry.
-                    result.add(h);
-                } else {
-                    // Sender entry exists. Add receiver.
-                    result.add(DiscoHistogramEntry.create(h.bucket(), h.frameCount() + senderEntry.frameCount()));
-                }
-            }
+        return nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT tap_uuid, bssid, SUM(sent_frames + received_frames) AS frame_count, " +
+                                "bucket FROM dot11_disco_rollups " +
+                                "WHERE resolution = :resolution AND bucket >= :since " +
+                                "AND tap_uuid IN (<taps>) AND disco_type IN (<disco_types>) " +
+                                "GROUP BY tap_uuid, bssid, bucket")
+                        .bind("resolution", resolution.getMinutes())
+                        .bind("since", resolution.floor(since))
+                        .bindList("taps", taps)
+                        .bindList("disco_types", discoTypeNumbers(discoType))
+                        .mapTo(DiscoActivityBucket.class)
+                        .list()
+        );
+    }
 
-            return result;
-        } else {
-            // We only have senders.
-            return senders;
+    private static List<Integer> discoTypeNumbers(DiscoType discoType) {
+        List<Integer> discoTypes = Lists.newArrayList();
+        switch (discoType) {
+            case DISCONNECTION:
+                discoTypes.add(DiscoType.DISASSOCIATION.getNumber());
+                discoTypes.add(DiscoType.DEAUTHENTICATION.getNumber());
+                break;
+            case DEAUTHENTICATION:
+                discoTypes.add(DiscoType.DEAUTHENTICATION.getNumber());
+                break;
+            case DISASSOCIATION:
+                discoTypes.add(DiscoType.DISASSOCIATION.getNumber());
+                break;
         }
+
+        return discoTypes;
     }
 
     public List<Dot11MacFrameCount> getDiscoTopSenders(int minutes,
@@ -1776,12 +1905,71 @@ public class Dot11 {
                                                    long monitoredNetworkId) {
         nzyme.getDatabase().useHandle(handle ->
                 handle.createUpdate("UPDATE dot11_monitored_networks SET disco_monitor_type = :monitor_type, " +
-                                "disco_monitor_configuration = :configuration WHERE id = :id")
+                                "disco_monitor_configuration = :configuration, " +
+                                "disco_monitor_evaluated_until = NULL WHERE id = :id")
                         .bind("monitor_type", methodType)
                         .bind("configuration", configuration)
                         .bind("id", monitoredNetworkId)
                         .execute()
         );
+
+        // Baselines were built with the previous configuration.
+        nzyme.getDatabase().useHandle(handle ->
+                handle.createUpdate("DELETE FROM dot11_disco_monitor_baselines " +
+                                "WHERE monitored_network_id = :monitored_network_id")
+                        .bind("monitored_network_id", monitoredNetworkId)
+                        .execute()
+        );
+    }
+
+    public Map<UUID, String> findDiscoMonitorBaselines(long monitoredNetworkId) {
+        List<DiscoMonitorBaselineEntry> baselines = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT tap_uuid, state FROM dot11_disco_monitor_baselines " +
+                                "WHERE monitored_network_id = :monitored_network_id")
+                        .bind("monitored_network_id", monitoredNetworkId)
+                        .mapTo(DiscoMonitorBaselineEntry.class)
+                        .list()
+        );
+
+        Map<UUID, String> result = Maps.newHashMap();
+        for (DiscoMonitorBaselineEntry baseline : baselines) {
+            result.put(baseline.tapUuid(), baseline.state());
+        }
+
+        return result;
+    }
+
+    public void writeDiscoMonitorBaselines(long monitoredNetworkId, Map<UUID, String> baselines) {
+        if (baselines.isEmpty()) {
+            return;
+        }
+
+        nzyme.getDatabase().useHandle(handle -> {
+            PreparedBatch batch = handle.prepareBatch("INSERT INTO dot11_disco_monitor_baselines" +
+                    "(monitored_network_id, tap_uuid, state, updated_at) " +
+                    "VALUES(:monitored_network_id, :tap_uuid, :state, NOW()) " +
+                    "ON CONFLICT (monitored_network_id, tap_uuid) DO UPDATE SET " +
+                    "state = EXCLUDED.state, updated_at = EXCLUDED.updated_at");
+
+            for (Map.Entry<UUID, String> baseline : baselines.entrySet()) {
+                batch.bind("monitored_network_id", monitoredNetworkId)
+                        .bind("tap_uuid", baseline.getKey())
+                        .bind("state", baseline.getValue())
+                        .add();
+            }
+
+            batch.execute();
+        });
+    }
+
+    public void setDiscoMonitorEvaluatedUntil(long monitoredNetworkId, DateTime evaluatedUntil) {
+        nzyme.getDatabase().useHandle(handle ->
+                handle.createUpdate("UPDATE dot11_monitored_networks " +
+                                "SET disco_monitor_evaluated_until = :evaluated_until WHERE id = :id")
+                        .bind("evaluated_until", evaluatedUntil)
+                        .bind("id", monitoredNetworkId)
+                        .execute()
+        );
     }
 
     public List<String> findBSSIDsAdvertisingSSID(String ssid, List<UUID> taps) {
@@ -0,0 +1,43 @@
+package app.nzyme.core.dot11.bandits;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+import java.util.List;
+
+/**
+ * Immutable lookup of bandits by the fingerprints they are detected by. Bandits without fingerprints, like the
+ * Pwnagotchi, are not indexed. Build a new index when the bandits change instead of modifying an existing one.
+ */
+public class BanditFingerprintIndex {
+
+    private final ImmutableSetMultimap<String, Dot11BanditDescription> index;
+
+    public BanditFingerprintIndex(List<Dot11BanditDescription> bandits) {
+        ImmutableSetMultimap.Builder<String, Dot11BanditDescription> builder = ImmutableSetMultimap.builder();
+
+        for (Dot11BanditDescription bandit : bandits) {
+            if (bandit.fingerprints() == null) {
+                continue;
+            }
+
+            for (String fingerprint : bandit.fingerprints()) {
+                builder.put(fingerprint, bandit);
+            }
+        }
+
+        this.index = builder.build();
+    }
+
+    /**
+     * @return All bandits with the given fingerprint, in the order they were passed in. Empty if there are none.
+     */
+    public ImmutableSet<Dot11BanditDescription> findBandits(String fingerprint) {
+        return index.get(fingerprint);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+}
@@ -0,0 +1,42 @@
+package app.nzyme.core.dot11.db;
+
+import com.google.auto.value.AutoValue;
+import org.joda.time.DateTime;
+
+import java.util.UUID;
+
+@AutoValue
+public abstract class DiscoActivityBucket {
+
+    public abstract UUID tapUuid();
+    public abstract String bssid();
+    public abstract DateTime bucket();
+    public abstract long frameCount();
+
+    public static DiscoActivityBucket create(UUID tapUuid, String bssid, DateTime bucket, long frameCount) {
+        return builder()
+                .tapUuid(tapUuid)
+                .bssid(bssid)
+                .bucket(bucket)
+                .frameCount(frameCount)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_DiscoActivityBucket.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder tapUuid(UUID tapUuid);
+
+        public abstract Builder bssid(String bssid);
+
+        public abstract Builder bucket(DateTime bucket);
+
+        public abstract Builder frameCount(long frameCount);
+
+        public abstract DiscoActivityBucket build();
+    }
+
+}
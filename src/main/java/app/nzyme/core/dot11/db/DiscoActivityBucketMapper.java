@@ -0,0 +1,23 @@
+package app.nzyme.core.dot11.db;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.joda.time.DateTime;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+public class DiscoActivityBucketMapper implements RowMapper<DiscoActivityBucket> {
+
+    @Override
+    public DiscoActivityBucket map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return DiscoActivityBucket.create(
+                UUID.fromString(rs.getString("tap_uuid")),
+                rs.getString("bssid"),
+                new DateTime(rs.getTimestamp("bucket")),
+                rs.getLong("frame_count")
+        );
+    }
+
+}
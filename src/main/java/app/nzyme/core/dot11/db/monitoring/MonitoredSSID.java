@@ -25,13 +25,15 @@ public abstract class MonitoredSSID {
     public abstract String discoMonitorType();
     public abstract String discoMonitorConfiguration();
     @Nullable
+    public abstract DateTime discoMonitorEvaluatedUntil();
+    @Nullable
     public abstract Integer detectionConfigSimilarLookingSSIDThreshold();
     @Nullable
     public abstract String detectionConfigSSIDSubstring();
     public abstract DateTime createdAt();
     public abstract DateTime updatedAt();
 
-    public static MonitoredSSID create(long id, UUID uuid, boolean isEnabled, String ssid, UUID organizationId, UUID tenantId, boolean enabledUnexpectedBSSID, boolean enabledUnexpectedChannel, boolean enabledUnexpectedSecuritySuites, boolean enabledUnexpectedFingerprint, boolean enabledUnexpectedSignalTracks, boolean enabledSimilarLookingSSID, boolean enabledSSIDSubstring, String discoMonitorType, String discoMonitorConfiguration, Integer detectionConfigSimilarLookingSSIDThreshold, String detectionConfigSSIDSubstring, DateTime createdAt, DateTime updatedAt) {
+    public static MonitoredSSID create(long id, UUID uuid, boolean isEnabled, String ssid, UUID organizationId, UUID tenantId, boolean enabledUnexpectedBSSID, boolean enabledUnexpectedChannel, boolean enabledUnexpectedSecuritySuites, boolean enabledUnexpectedFingerprint, boolean enabledUnexpectedSignalTracks, boolean enabledSimilarLookingSSID, boolean enabledSSIDSubstring, String discoMonitorType, String discoMonitorConfiguration, DateTime discoMonitorEvaluatedUntil, Integer detectionConfigSimilarLookingSSIDThreshold, String detectionConfigSSIDSubstring, DateTime createdAt, DateTime updatedAt) {
         return builder()
                 .id(id)
                 .uuid(uuid)
@@ -48,6 +50,7 @@ public abstract class MonitoredSSID {
                 .enabledSSIDSubstring(enabledSSIDSubstring)
                 .discoMonitorType(discoMonitorType)
                 .discoMonitorConfiguration(discoMonitorConfiguration)
+                .discoMonitorEvaluatedUntil(discoMonitorEvaluatedUntil)
                 .detectionConfigSimilarLookingSSIDThreshold(detectionConfigSimilarLookingSSIDThreshold)
                 .detectionConfigSSIDSubstring(detectionConfigSSIDSubstring)
                 .createdAt(createdAt)
@@ -91,6 +94,8 @@ public abstract class MonitoredSSID {
 
         public abstract Builder discoMonitorConfiguration(String discoMonitorConfiguration);
 
+        public abstract Builder discoMonitorEvaluatedUntil(DateTime discoMonitorEvaluatedUntil);
+
         public abstract Builder detectionConfigSimilarLookingSSIDThreshold(Integer detectionConfigSimilarLookingSSIDThreshold);
 
         public abstract Builder detectionConfigSSIDSubstring(String detectionConfigSSIDSubstring);
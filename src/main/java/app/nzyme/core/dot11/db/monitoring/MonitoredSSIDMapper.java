@@ -30,6 +30,8 @@ public class MonitoredSSIDMapper implements RowMapper<MonitoredSSID> {
                 rs.getBoolean("enabled_ssid_substring"),
                 rs.getString("disco_monitor_type"),
                 rs.getString("disco_monitor_configuration"),
+                rs.getTimestamp("disco_monitor_evaluated_until") == null ? null
+                        : new DateTime(rs.getTimestamp("disco_monitor_evaluated_until")),
                 rs.getInt("dconf_similar_looking_ssid_threshold"),
                 rs.getString("dconf_ssid_substring_value"),
                 new DateTime(rs.getTimestamp("created_at")),
@@ -3,106 +3,291 @@ package app.nzyme.core.dot11.monitoring.disco;
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.Subsystem;
 import app.nzyme.core.detection.alerts.DetectionType;
+import app.nzyme.core.dot11.Dot11;
+import app.nzyme.core.dot11.db.DiscoActivityBucket;
+import app.nzyme.core.dot11.db.DiscoHistogramEntry;
+import app.nzyme.core.dot11.db.monitoring.MonitoredBSSID;
 import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
 import app.nzyme.core.dot11.monitoring.disco.monitormethods.DiscoMonitorFactory;
 import app.nzyme.core.dot11.monitoring.disco.monitormethods.DiscoMonitorMethodType;
+import app.nzyme.core.dot11.monitoring.disco.monitormethods.Dot11DiscoMonitorMethod;
 import app.nzyme.core.periodicals.Periodical;
 import app.nzyme.core.security.authentication.db.OrganizationEntry;
 import app.nzyme.core.security.authentication.db.TenantEntry;
 import app.nzyme.core.taps.Tap;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Dot11DiscoMonitor extends Periodical {
 
     private static final Logger LOG = LogManager.getLogger(Dot11DiscoMonitor.class);
 
+    // How far back to look on the first run or after the monitor method of a network changed.
+    private static final int INITIAL_WINDOW_MINUTES = 24*60;
+
+    // Taps report with a delay. Only evaluate buckets that are at least this old and therefore complete.
+    private static final int SETTLE_MINUTES = 2;
+
     private final NzymeNode nzyme;
     private final ObjectMapper om;
+    private final ExecutorService executor;
+
+    private final Timer runTimer;
+    private final Timer networkTimer;
 
     public Dot11DiscoMonitor(NzymeNode nzyme) {
         this.nzyme = nzyme;
         this.om = new ObjectMapper()
                 .registerModule(new JodaModule());
+
+        this.executor = Executors.newFixedThreadPool(nzyme.getConfiguration().discoMonitorWorkers(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("dot11-disco-monitor-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+
+        this.runTimer = nzyme.getMetrics().timer(MetricNames.DOT11_DISCO_MONITOR_RUN_TIMING);
+        this.networkTimer = nzyme.getMetrics().timer(MetricNames.DOT11_DISCO_MONITOR_NETWORK_TIMING);
     }
 
     @Override
     protected void execute() {
-        for (OrganizationEntry org : nzyme.getAuthenticationService().findAllOrganizations()) {
-            Optional<List<TenantEntry>> tenants = nzyme.getAuthenticationService()
-                    .findAllTenantsOfOrganization(org.uuid());
+        try (Timer.Context ignored = runTimer.time()) {
+            DateTime evaluateUntil = DateTime.now()
+                    .withSecondOfMinute(0)
+                    .withMillisOfSecond(0)
+                    .minusMinutes(SETTLE_MINUTES);
+
+            List<CompletableFuture<Void>> futures = Lists.newArrayList();
+            for (OrganizationEntry org : nzyme.getAuthenticationService().findAllOrganizations()) {
+                Optional<List<TenantEntry>> tenants = nzyme.getAuthenticationService()
+                        .findAllTenantsOfOrganization(org.uuid());
+
+                if (tenants.isEmpty()) {
+                    continue;
+                }
+
+                for (TenantEntry tenant : tenants.get()) {
+                    futures.addAll(monitorTenant(org, tenant, evaluateUntil));
+                }
+            }
+
+            // Wait for all networks, so runs of this periodical never overlap.
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+    }
+
+    private List<CompletableFuture<Void>> monitorTenant(OrganizationEntry org,
+                                                        TenantEntry tenant,
+                                                        DateTime evaluateUntil) {
+        List<MonitoredNetworkMethod> networks = Lists.newArrayList();
+        DateTime since = evaluateUntil;
+        for (MonitoredSSID monitoredNetwork : nzyme.getDot11().findAllMonitoredSSIDs(org.uuid(), tenant.uuid())) {
+            if (monitoredNetwork.discoMonitorType() == null) {
+                continue;
+            }
 
-            if (tenants.isEmpty()) {
+            DiscoMonitorMethodType method;
+            try {
+                method = DiscoMonitorMethodType.valueOf(monitoredNetwork.discoMonitorType());
+            } catch(IllegalArgumentException e) {
+                LOG.error("Unknown 802.11 disconnection monitor method [{}] for monitored network " +
+                                "[{}]. Skipping.", monitoredNetwork.discoMonitorType(), monitoredNetwork.uuid());
                 continue;
             }
 
-            for (TenantEntry tenant : tenants.get()) {
-                for (MonitoredSSID monitoredNetwork : nzyme.getDot11().findAllMonitoredSSIDs(org.uuid(), tenant.uuid())) {
-                    if (monitoredNetwork.discoMonitorType() == null) {
-                        continue;
-                    }
-
-                    DiscoMonitorMethodType method;
-                    try {
-                        method = DiscoMonitorMethodType.valueOf(monitoredNetwork.discoMonitorType());
-                    } catch(IllegalArgumentException e) {
-                        LOG.error("Unknown 802.11 disconnection monitor method [{}] for monitored network " +
-                                        "[{}]. Skipping.", monitoredNetwork.discoMonitorType(), monitoredNetwork.uuid());
-                        continue;
-                    }
-
-                    List<Tap> tenantTaps = nzyme.getTapManager()
-                            .findAllTapsOfTenant(monitoredNetwork.organizationId(), monitoredNetwork.tenantId());
-
-                    Map<Tap, List<DiscoMonitorAnomaly>> anomalies = DiscoMonitorFactory
-                            .build(nzyme, method, monitoredNetwork)
-                            .execute(tenantTaps);
-
-                    // Trigger alerts.
-                    for (Map.Entry<Tap, List<DiscoMonitorAnomaly>> anomaly : anomalies.entrySet()) {
-                        Tap tap = anomaly.getKey();
-
-                        String anomaliesAttribute;
-                        try {
-                            anomaliesAttribute = this.om.writeValueAsString(anomaly.getValue());
-                        } catch(Exception e) {
-                            throw new RuntimeException("Could not build anomalies alert parameter.", e);
-                        }
-
-                        Map<String, String> attributes = Maps.newHashMap();
-                        attributes.put("anomalies", anomaliesAttribute);
-                        attributes.put("tap_id", tap.uuid().toString());
-                        attributes.put("tap_name", tap.name());
-
-                        nzyme.getDetectionAlertService().raiseAlert(
-                                org.uuid(),
-                                tenant.uuid(),
-                                monitoredNetwork.uuid(),
-                                anomaly.getKey().uuid(),
-                                DetectionType.DOT11_MONITOR_DISCO_ANOMALIES,
-                                Subsystem.DOT11,
-                                "Detected disconnection activity anomalies for monitored " +
-                                        "network \"" + monitoredNetwork.ssid() + "\" (Tap: \"" + tap.name() + "\")",
-                                attributes,
-                                new String[]{"tap_id"},
-                                null
-                        );
-                    }
+            DateTime evaluatedUntil = monitoredNetwork.discoMonitorEvaluatedUntil();
+            if (evaluatedUntil == null) {
+                evaluatedUntil = evaluateUntil.minusMinutes(INITIAL_WINDOW_MINUTES);
+            }
+
+            if (!evaluatedUntil.isBefore(evaluateUntil)) {
+                // No new buckets.
+                continue;
+            }
+
+            Dot11DiscoMonitorMethod monitorMethod;
+            try {
+                monitorMethod = DiscoMonitorFactory.build(nzyme, method, monitoredNetwork);
+            } catch(Exception e) {
+                LOG.error("Could not build 802.11 disconnection monitor method for monitored network [{}]. " +
+                        "Skipping.", monitoredNetwork.uuid(), e);
+                continue;
+            }
+
+            networks.add(new MonitoredNetworkMethod(monitoredNetwork, monitorMethod, evaluatedUntil));
+
+            DateTime networkSince = evaluatedUntil.minusMinutes(monitorMethod.getHistoryMinutes());
+            if (networkSince.isBefore(since)) {
+                since = networkSince;
+            }
+        }
+
+        if (networks.isEmpty()) {
+            return Lists.newArrayList();
+        }
+
+        // One activity query for all monitored networks of this tenant.
+        DateTime activitySince = since;
+        CompletableFuture<TenantDiscoActivity> activity = CompletableFuture.supplyAsync(() -> {
+            List<Tap> taps = nzyme.getTapManager().findAllTapsOfTenant(org.uuid(), tenant.uuid());
+            List<UUID> tapUuids = Lists.newArrayList();
+            for (Tap tap : taps) {
+                tapUuids.add(tap.uuid());
+            }
+
+            return new TenantDiscoActivity(
+                    taps,
+                    nzyme.getDot11().findDiscoActivityBuckets(Dot11.DiscoType.DISCONNECTION, activitySince, tapUuids)
+            );
+        }, executor);
+
+        List<CompletableFuture<Void>> futures = Lists.newArrayList();
+        for (MonitoredNetworkMethod network : networks) {
+            futures.add(activity
+                    .thenAcceptAsync(a -> monitorNetwork(org, tenant, network, a, evaluateUntil), executor)
+                    .exceptionally(e -> {
+                        LOG.error("Could not run 802.11 disconnection monitor for monitored network [{}].",
+                                network.monitoredNetwork.uuid(), e);
+                        return null;
+                    }));
+        }
+
+        return futures;
+    }
+
+    private void monitorNetwork(OrganizationEntry org,
+                                TenantEntry tenant,
+                                MonitoredNetworkMethod network,
+                                TenantDiscoActivity activity,
+                                DateTime evaluateUntil) {
+        try (Timer.Context ignored = networkTimer.time()) {
+            MonitoredSSID monitoredNetwork = network.monitoredNetwork;
+
+            Set<String> bssids = Sets.newHashSet();
+            for (MonitoredBSSID monitoredBSSID : nzyme.getDot11()
+                    .findMonitoredBSSIDsOfMonitoredNetwork(monitoredNetwork.id())) {
+                bssids.add(monitoredBSSID.bssid());
+            }
+
+            // Sum up activity of all monitored BSSIDs, per tap and bucket.
+            DateTime historySince = network.evaluatedUntil.minusMinutes(network.method.getHistoryMinutes());
+            Map<UUID, Map<DateTime, Long>> buckets = Maps.newHashMap();
+            for (DiscoActivityBucket bucket : activity.buckets) {
+                if (!bssids.contains(bucket.bssid())
+                        || !bucket.bucket().isAfter(historySince)
+                        || bucket.bucket().isAfter(evaluateUntil)) {
+                    continue;
                 }
+
+                buckets.computeIfAbsent(bucket.tapUuid(), k -> Maps.newHashMap())
+                        .merge(bucket.bucket(), bucket.frameCount(), Long::sum);
             }
+
+            Map<Tap, List<DiscoHistogramEntry>> histograms = Maps.newHashMap();
+            for (Tap tap : activity.taps) {
+                List<DiscoHistogramEntry> histogram = Lists.newArrayList();
+                for (Map.Entry<DateTime, Long> bucket : buckets.getOrDefault(tap.uuid(), Map.of()).entrySet()) {
+                    histogram.add(DiscoHistogramEntry.create(bucket.getKey(), bucket.getValue()));
+                }
+                histogram.sort(Comparator.comparing(DiscoHistogramEntry::bucket).reversed());
+
+                histograms.put(tap, histogram);
+            }
+
+            Map<Tap, List<DiscoMonitorAnomaly>> anomalies = network.method
+                    .evaluate(histograms, network.evaluatedUntil, evaluateUntil);
+            for (Map.Entry<Tap, List<DiscoMonitorAnomaly>> anomaly : anomalies.entrySet()) {
+                raiseAlert(org, tenant, monitoredNetwork, anomaly.getKey(), anomaly.getValue());
+            }
+
+            nzyme.getDot11().setDiscoMonitorEvaluatedUntil(monitoredNetwork.id(), evaluateUntil);
         }
     }
 
+    private void raiseAlert(OrganizationEntry org,
+                            TenantEntry tenant,
+                            MonitoredSSID monitoredNetwork,
+                            Tap tap,
+                            List<DiscoMonitorAnomaly> anomalies) {
+        String anomaliesAttribute;
+        try {
+            anomaliesAttribute = this.om.writeValueAsString(anomalies);
+        } catch(Exception e) {
+            throw new RuntimeException("Could not build anomalies alert parameter.", e);
+        }
+
+        Map<String, String> attributes = Maps.newHashMap();
+        attributes.put("anomalies", anomaliesAttribute);
+        attributes.put("tap_id", tap.uuid().toString());
+        attributes.put("tap_name", tap.name());
+
+        nzyme.getDetectionAlertService().raiseAlert(
+                org.uuid(),
+                tenant.uuid(),
+                monitoredNetwork.uuid(),
+                tap.uuid(),
+                DetectionType.DOT11_MONITOR_DISCO_ANOMALIES,
+                Subsystem.DOT11,
+                "Detected disconnection activity anomalies for monitored " +
+                        "network \"" + monitoredNetwork.ssid() + "\" (Tap: \"" + tap.name() + "\")",
+                attributes,
+                new String[]{"tap_id"},
+                null
+        );
+    }
+
     @Override
     public String getName() {
         return "802.11 Disco Monitor";
     }
 
+    private static final class MonitoredNetworkMethod {
+
+        private final MonitoredSSID monitoredNetwork;
+        private final Dot11DiscoMonitorMethod method;
+        private final DateTime evaluatedUntil;
+
+        private MonitoredNetworkMethod(MonitoredSSID monitoredNetwork,
+                                       Dot11DiscoMonitorMethod method,
+                                       DateTime evaluatedUntil) {
+            this.monitoredNetwork = monitoredNetwork;
+            this.method = method;
+            this.evaluatedUntil = evaluatedUntil;
+        }
+
+    }
+
+    private static final class TenantDiscoActivity {
+
+        private final List<Tap> taps;
+        private final List<DiscoActivityBucket> buckets;
+
+        private TenantDiscoActivity(List<Tap> taps, List<DiscoActivityBucket> buckets) {
+            this.taps = taps;
+            this.buckets = buckets;
+        }
+
+    }
+
 }
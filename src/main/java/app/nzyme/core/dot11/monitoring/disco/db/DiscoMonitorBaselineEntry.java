@@ -0,0 +1,33 @@
+package app.nzyme.core.dot11.monitoring.disco.db;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.UUID;
+
+@AutoValue
+public abstract class DiscoMonitorBaselineEntry {
+
+    public abstract UUID tapUuid();
+    public abstract String state();
+
+    public static DiscoMonitorBaselineEntry create(UUID tapUuid, String state) {
+        return builder()
+                .tapUuid(tapUuid)
+                .state(state)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_DiscoMonitorBaselineEntry.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder tapUuid(UUID tapUuid);
+
+        public abstract Builder state(String state);
+
+        public abstract DiscoMonitorBaselineEntry build();
+    }
+
+}
@@ -0,0 +1,20 @@
+package app.nzyme.core.dot11.monitoring.disco.db;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+public class DiscoMonitorBaselineEntryMapper implements RowMapper<DiscoMonitorBaselineEntry> {
+
+    @Override
+    public DiscoMonitorBaselineEntry map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return DiscoMonitorBaselineEntry.create(
+                UUID.fromString(rs.getString("tap_uuid")),
+                rs.getString("state")
+        );
+    }
+
+}
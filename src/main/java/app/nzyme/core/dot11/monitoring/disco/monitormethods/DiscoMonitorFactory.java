@@ -4,6 +4,7 @@ import app.nzyme.core.NzymeNode;
 import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
 import app.nzyme.core.dot11.monitoring.disco.monitormethods.manualthreshold.ManualThresholdDiscoMonitor;
 import app.nzyme.core.dot11.monitoring.disco.monitormethods.noop.NoOpDiscoMonitor;
+import app.nzyme.core.dot11.monitoring.disco.monitormethods.statisticalbaseline.StatisticalBaselineDiscoMonitor;
 
 import javax.annotation.Nullable;
 import java.util.Map;
@@ -25,6 +26,8 @@ public class DiscoMonitorFactory {
                 return new NoOpDiscoMonitor(nzyme, monitoredNetwork, customConfig);
             case STATIC_THRESHOLD:
                 return new ManualThresholdDiscoMonitor(nzyme, monitoredNetwork, customConfig);
+            case STATISTICAL_BASELINE:
+                return new StatisticalBaselineDiscoMonitor(nzyme, monitoredNetwork, customConfig);
             default:
                 throw new RuntimeException("Unknown Disco Monitor method of type [" + method.name() + "].");
         }
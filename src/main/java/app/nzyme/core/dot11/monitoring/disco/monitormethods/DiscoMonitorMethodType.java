@@ -2,6 +2,6 @@ package app.nzyme.core.dot11.monitoring.disco.monitormethods;
 
 public enum DiscoMonitorMethodType {
 
-    NOOP, STATIC_THRESHOLD
+    NOOP, STATIC_THRESHOLD, STATISTICAL_BASELINE
 
 }
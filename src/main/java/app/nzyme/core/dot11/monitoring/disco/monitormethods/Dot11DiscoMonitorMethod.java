@@ -6,9 +6,11 @@ import app.nzyme.core.dot11.db.DiscoHistogramEntry;
 import app.nzyme.core.dot11.db.monitoring.MonitoredBSSID;
 import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
 import app.nzyme.core.dot11.monitoring.disco.DiscoMonitorAnomaly;
+import app.nzyme.core.dot11.rollups.RollupResolution;
 import app.nzyme.core.taps.Tap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
 
 import javax.annotation.Nullable;
 import java.util.List;
@@ -55,12 +57,47 @@ public abstract class Dot11DiscoMonitorMethod {
                 nzyme.getDot11().getDiscoHistogram(
                     Dot11.DiscoType.DISCONNECTION,
                     24*60,
+                    RollupResolution.ONE_MINUTE,
                     tap.uuid(),
                     bssidList
                 )
         );
     }
 
+    /*
+     * Evaluates the per-tap histograms of the buckets after the given timestamp, up to and including the given end
+     * bucket. Histograms may reach further back (see getHistoryMinutes()), but only anomalies in new buckets are
+     * returned. Used by the periodical monitor. Stateful methods override this to update their state incrementally.
+     */
+    public Map<Tap, List<DiscoMonitorAnomaly>> evaluate(Map<Tap, List<DiscoHistogramEntry>> histograms,
+                                                        DateTime after,
+                                                        DateTime until) {
+        Map<Tap, List<DiscoMonitorAnomaly>> anomalies = Maps.newHashMap();
+
+        for (Map.Entry<Tap, List<DiscoHistogramEntry>> histogram : histograms.entrySet()) {
+            List<DiscoMonitorAnomaly> tapAnomalies = Lists.newArrayList();
+            for (DiscoMonitorAnomaly anomaly : calculate(histogram.getValue())) {
+                if (anomaly.timestamp().isAfter(after)) {
+                    tapAnomalies.add(anomaly);
+                }
+            }
+
+            if (!tapAnomalies.isEmpty()) {
+                anomalies.put(histogram.getKey(), tapAnomalies);
+            }
+        }
+
+        return anomalies;
+    }
+
+    /*
+     * Minutes of history before the first new bucket that calculate() needs to see. Methods that compare buckets
+     * to previous activity must override this.
+     */
+    public int getHistoryMinutes() {
+        return 0;
+    }
+
     protected abstract List<DiscoMonitorAnomaly> calculate(List<DiscoHistogramEntry> histogram);
 
 }
@@ -0,0 +1,104 @@
+package app.nzyme.core.dot11.monitoring.disco.monitormethods.statisticalbaseline;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.annotation.Nullable;
+
+/*
+ * Streaming baseline of disconnection frames per minute. Keeps an exponentially weighted moving average and
+ * variance, and a quantile estimate over a rolling window. The window is approximated with two P-square estimators:
+ * the current one and the one of the previous window, which is used for estimates once it is complete. All state
+ * is constant in size and updated one bucket at a time.
+ */
+public final class DiscoBaseline {
+
+    // Smoothing factor of roughly a one-day span with one bucket per minute.
+    private static final double ALPHA = 2.0 / (24*60 + 1);
+
+    private static final long QUANTILE_WINDOW = 24*60;
+
+    private long samples;
+    private double mean;
+    private double variance;
+
+    private P2QuantileEstimator currentQuantile;
+
+    @Nullable
+    private P2QuantileEstimator previousQuantile;
+
+    public DiscoBaseline(double quantile) {
+        this(0, 0, 0, new P2QuantileEstimator(quantile), null);
+    }
+
+    @JsonCreator
+    public DiscoBaseline(@JsonProperty("samples") long samples,
+                         @JsonProperty("mean") double mean,
+                         @JsonProperty("variance") double variance,
+                         @JsonProperty("current_quantile") P2QuantileEstimator currentQuantile,
+                         @JsonProperty("previous_quantile") @Nullable P2QuantileEstimator previousQuantile) {
+        this.samples = samples;
+        this.mean = mean;
+        this.variance = variance;
+        this.currentQuantile = currentQuantile;
+        this.previousQuantile = previousQuantile;
+    }
+
+    public void update(double value) {
+        samples++;
+
+        // Plain average until there are enough samples for the moving average to be meaningful.
+        double alpha = Math.max(ALPHA, 1.0 / samples);
+        double delta = value - mean;
+        mean += alpha * delta;
+        variance = (1 - alpha) * (variance + alpha * delta * delta);
+
+        currentQuantile.add(value);
+        if (currentQuantile.getCount() >= QUANTILE_WINDOW) {
+            previousQuantile = currentQuantile;
+            currentQuantile = new P2QuantileEstimator(currentQuantile.getP());
+        }
+    }
+
+    @JsonIgnore
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    @JsonIgnore
+    public double getQuantile() {
+        if (previousQuantile != null) {
+            return previousQuantile.estimate();
+        }
+
+        return currentQuantile.estimate();
+    }
+
+    @JsonProperty("samples")
+    public long getSamples() {
+        return samples;
+    }
+
+    @JsonProperty("mean")
+    public double getMean() {
+        return mean;
+    }
+
+    @JsonProperty("variance")
+    public double getVariance() {
+        return variance;
+    }
+
+    @JsonProperty("current_quantile")
+    public P2QuantileEstimator getCurrentQuantile() {
+        return currentQuantile;
+    }
+
+    @Nullable
+    @JsonProperty("previous_quantile")
+    public P2QuantileEstimator getPreviousQuantile() {
+        return previousQuantile;
+    }
+
+}
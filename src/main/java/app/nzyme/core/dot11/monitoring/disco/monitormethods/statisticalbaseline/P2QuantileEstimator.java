@@ -0,0 +1,147 @@
+package app.nzyme.core.dot11.monitoring.disco.monitormethods.statisticalbaseline;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Arrays;
+
+/*
+ * Streaming quantile estimate using the P-square algorithm (Jain and Chlamtac, 1985). Keeps five markers and
+ * therefore constant state no matter how many observations are added.
+ */
+public final class P2QuantileEstimator {
+
+    private final double p;
+    private long count;
+    private final double[] heights;
+    private final int[] positions;
+    private final double[] desired;
+    private final double[] increments;
+
+    public P2QuantileEstimator(double p) {
+        this(p, 0, new double[5], new int[]{1, 2, 3, 4, 5}, new double[]{1, 1 + 2*p, 1 + 4*p, 3 + 2*p, 5});
+    }
+
+    @JsonCreator
+    public P2QuantileEstimator(@JsonProperty("p") double p,
+                               @JsonProperty("count") long count,
+                               @JsonProperty("heights") double[] heights,
+                               @JsonProperty("positions") int[] positions,
+                               @JsonProperty("desired") double[] desired) {
+        this.p = p;
+        this.count = count;
+        this.heights = heights;
+        this.positions = positions;
+        this.desired = desired;
+        this.increments = new double[]{0, p/2, p, (1 + p)/2, 1};
+    }
+
+    public void add(double x) {
+        if (count < 5) {
+            heights[(int) count] = x;
+            count++;
+
+            if (count == 5) {
+                Arrays.sort(heights);
+            }
+
+            return;
+        }
+
+        count++;
+
+        // Find the cell of the new observation and adjust extreme markers.
+        int k;
+        if (x < heights[0]) {
+            heights[0] = x;
+            k = 0;
+        } else if (x >= heights[4]) {
+            heights[4] = x;
+            k = 3;
+        } else {
+            k = 0;
+            while (k < 3 && x >= heights[k + 1]) {
+                k++;
+            }
+        }
+
+        for (int i = k + 1; i < 5; i++) {
+            positions[i]++;
+        }
+        for (int i = 0; i < 5; i++) {
+            desired[i] += increments[i];
+        }
+
+        // Adjust heights of the middle markers if necessary.
+        for (int i = 1; i < 4; i++) {
+            double d = desired[i] - positions[i];
+            if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int sign = d > 0 ? 1 : -1;
+
+                double candidate = parabolic(i, sign);
+                if (heights[i - 1] < candidate && candidate < heights[i + 1]) {
+                    heights[i] = candidate;
+                } else {
+                    heights[i] = linear(i, sign);
+                }
+
+                positions[i] += sign;
+            }
+        }
+    }
+
+    public double estimate() {
+        if (count == 0) {
+            return 0;
+        }
+
+        if (count < 5) {
+            double[] observed = Arrays.copyOf(heights, (int) count);
+            Arrays.sort(observed);
+            return observed[(int) Math.min(count - 1, Math.round((count - 1) * p))];
+        }
+
+        return heights[2];
+    }
+
+    private double parabolic(int i, int d) {
+        double n = positions[i];
+        double nPrev = positions[i - 1];
+        double nNext = positions[i + 1];
+
+        return heights[i] + d / (nNext - nPrev) * (
+                (n - nPrev + d) * (heights[i + 1] - heights[i]) / (nNext - n)
+                        + (nNext - n - d) * (heights[i] - heights[i - 1]) / (n - nPrev)
+        );
+    }
+
+    private double linear(int i, int d) {
+        return heights[i] + d * (heights[i + d] - heights[i]) / (positions[i + d] - positions[i]);
+    }
+
+    @JsonProperty("p")
+    public double getP() {
+        return p;
+    }
+
+    @JsonProperty("count")
+    public long getCount() {
+        return count;
+    }
+
+    @JsonProperty("heights")
+    public double[] getHeights() {
+        return heights;
+    }
+
+    @JsonProperty("positions")
+    public int[] getPositions() {
+        return positions;
+    }
+
+    @JsonProperty("desired")
+    public double[] getDesired() {
+        return desired;
+    }
+
+}
@@ -0,0 +1,45 @@
+package app.nzyme.core.dot11.monitoring.disco.monitormethods.statisticalbaseline;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+@AutoValue
+public abstract class StatisticalBaselineConfiguration {
+
+    @JsonProperty("deviation")
+    public abstract double deviation();
+
+    @JsonProperty("quantile")
+    public abstract double quantile();
+
+    @JsonProperty("minimum_frames")
+    public abstract int minimumFrames();
+
+    @JsonCreator
+    public static StatisticalBaselineConfiguration create(@JsonProperty("deviation") double deviation,
+                                                          @JsonProperty("quantile") double quantile,
+                                                          @JsonProperty("minimum_frames") int minimumFrames) {
+        return builder()
+                .deviation(deviation)
+                .quantile(quantile)
+                .minimumFrames(minimumFrames)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_StatisticalBaselineConfiguration.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder deviation(double deviation);
+
+        public abstract Builder quantile(double quantile);
+
+        public abstract Builder minimumFrames(int minimumFrames);
+
+        public abstract StatisticalBaselineConfiguration build();
+    }
+
+}
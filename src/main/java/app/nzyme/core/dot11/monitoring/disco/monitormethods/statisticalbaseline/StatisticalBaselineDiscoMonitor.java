@@ -0,0 +1,163 @@
+package app.nzyme.core.dot11.monitoring.disco.monitormethods.statisticalbaseline;
+
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.dot11.db.DiscoHistogramEntry;
+import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
+import app.nzyme.core.dot11.monitoring.disco.DiscoMonitorAnomaly;
+import app.nzyme.core.dot11.monitoring.disco.monitormethods.Dot11DiscoMonitorMethod;
+import app.nzyme.core.taps.Tap;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Compares every bucket to a streaming baseline of previous buckets of the same tap and monitored network. The
+ * baseline is persisted and updated with new buckets only, so every run only looks at the buckets since the last one.
+ */
+public class StatisticalBaselineDiscoMonitor extends Dot11DiscoMonitorMethod {
+
+    private static final Logger LOG = LogManager.getLogger(StatisticalBaselineDiscoMonitor.class);
+
+    // Number of buckets the baseline has to be built from before we report anomalies.
+    private static final int WARMUP_BUCKETS = 60;
+
+    private final StatisticalBaselineConfiguration config;
+    private final ObjectMapper om;
+
+    public StatisticalBaselineDiscoMonitor(NzymeNode nzyme,
+                                           MonitoredSSID monitoredNetwork,
+                                           @Nullable Map<String, Object> customConfig) {
+        super(nzyme, monitoredNetwork, customConfig);
+
+        this.om = new ObjectMapper();
+
+        try {
+            if (customConfig == null) {
+                this.config = om.readValue(
+                        monitoredNetwork.discoMonitorConfiguration(),
+                        StatisticalBaselineConfiguration.class
+                );
+            } else {
+                this.config = om.convertValue(customConfig, StatisticalBaselineConfiguration.class);
+            }
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not parse configuration for monitored network " +
+                    "[" + monitoredNetwork.uuid() + "].");
+        }
+    }
+
+    @Override
+    public Map<Tap, List<DiscoMonitorAnomaly>> evaluate(Map<Tap, List<DiscoHistogramEntry>> histograms,
+                                                        DateTime after,
+                                                        DateTime until) {
+        Map<UUID, String> states = nzyme.getDot11().findDiscoMonitorBaselines(monitoredNetwork.id());
+
+        Map<Tap, List<DiscoMonitorAnomaly>> anomalies = Maps.newHashMap();
+        Map<UUID, String> updatedStates = Maps.newHashMap();
+        for (Map.Entry<Tap, List<DiscoHistogramEntry>> histogram : histograms.entrySet()) {
+            Tap tap = histogram.getKey();
+
+            DiscoBaseline baseline = null;
+            String state = states.get(tap.uuid());
+            if (state != null) {
+                try {
+                    baseline = om.readValue(state, DiscoBaseline.class);
+                } catch (JsonProcessingException e) {
+                    LOG.warn("Could not read disconnection baseline of monitored network [{}] and tap [{}]. " +
+                            "Starting new baseline.", monitoredNetwork.uuid(), tap.uuid(), e);
+                }
+            }
+
+            if (baseline == null) {
+                baseline = new DiscoBaseline(config.quantile());
+            }
+
+            List<DiscoMonitorAnomaly> tapAnomalies = run(
+                    baseline, histogram.getValue(), after.plusMinutes(1), until
+            );
+
+            if (!tapAnomalies.isEmpty()) {
+                anomalies.put(tap, tapAnomalies);
+            }
+
+            try {
+                updatedStates.put(tap.uuid(), om.writeValueAsString(baseline));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Could not serialize disconnection baseline.", e);
+            }
+        }
+
+        nzyme.getDot11().writeDiscoMonitorBaselines(monitoredNetwork.id(), updatedStates);
+
+        return anomalies;
+    }
+
+    /*
+     * Stateless calculation, used for simulations. Builds a new baseline over the whole histogram.
+     */
+    @Override
+    protected List<DiscoMonitorAnomaly> calculate(List<DiscoHistogramEntry> histogram) {
+        if (histogram.isEmpty()) {
+            return Lists.newArrayList();
+        }
+
+        DateTime first = null;
+        DateTime last = null;
+        for (DiscoHistogramEntry entry : histogram) {
+            if (first == null || entry.bucket().isBefore(first)) {
+                first = entry.bucket();
+            }
+            if (last == null || entry.bucket().isAfter(last)) {
+                last = entry.bucket();
+            }
+        }
+
+        return run(new DiscoBaseline(config.quantile()), histogram, first, last);
+    }
+
+    /*
+     * Walks all buckets from the first to the last one, including minutes without any activity, which are part of
+     * the baseline, too. Every bucket is compared to the baseline before it is added to it.
+     */
+    private List<DiscoMonitorAnomaly> run(DiscoBaseline baseline,
+                                          List<DiscoHistogramEntry> histogram,
+                                          DateTime from,
+                                          DateTime to) {
+        Map<Long, Long> frames = Maps.newHashMap();
+        for (DiscoHistogramEntry entry : histogram) {
+            frames.put(entry.bucket().getMillis(), entry.frameCount());
+        }
+
+        List<DiscoMonitorAnomaly> anomalies = Lists.newArrayList();
+        for (DateTime bucket = from; !bucket.isAfter(to); bucket = bucket.plusMinutes(1)) {
+            long frameCount = frames.getOrDefault(bucket.getMillis(), 0L);
+
+            if (isAnomaly(baseline, frameCount)) {
+                anomalies.add(DiscoMonitorAnomaly.create(bucket, frameCount));
+            }
+
+            baseline.update(frameCount);
+        }
+
+        return anomalies;
+    }
+
+    private boolean isAnomaly(DiscoBaseline baseline, long frameCount) {
+        if (baseline.getSamples() < WARMUP_BUCKETS || frameCount < config.minimumFrames()) {
+            return false;
+        }
+
+        return frameCount > baseline.getMean() + config.deviation() * baseline.getStandardDeviation()
+                && frameCount > baseline.getQuantile();
+    }
+
+}
@@ -0,0 +1,48 @@
+package app.nzyme.core.dot11.rollups;
+
+import org.joda.time.DateTime;
+
+/*
+ * Bucket sizes of the dot11_*_rollups tables. Every report is added to all resolutions, and queries pick the
+ * coarsest one that still returns enough buckets for the requested time range.
+ */
+public enum RollupResolution {
+
+    ONE_MINUTE(1),
+    TEN_MINUTES(10),
+    ONE_HOUR(60);
+
+    // Minimum number of buckets a query should return before we fall back to a finer resolution.
+    private static final int MINIMUM_BUCKETS = 100;
+
+    private final int minutes;
+
+    RollupResolution(int minutes) {
+        this.minutes = minutes;
+    }
+
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /*
+     * Buckets are aligned to the epoch, not to the local time zone, so the same report always ends up in the
+     * same bucket no matter which node writes it.
+     */
+    public DateTime floor(DateTime timestamp) {
+        long millis = minutes * 60_000L;
+        return new DateTime((timestamp.getMillis() / millis) * millis);
+    }
+
+    public static RollupResolution forRange(int rangeMinutes) {
+        RollupResolution result = ONE_MINUTE;
+        for (RollupResolution resolution : values()) {
+            if (rangeMinutes / resolution.minutes >= MINIMUM_BUCKETS) {
+                result = resolution;
+            }
+        }
+
+        return result;
+    }
+
+}
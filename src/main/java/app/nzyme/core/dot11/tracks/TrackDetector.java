@@ -4,38 +4,42 @@ import app.nzyme.core.dot11.db.ChannelHistogramEntry;
 import app.nzyme.core.dot11.tracks.db.TrackDetectorConfig;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import org.joda.time.DateTime;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 
 public class TrackDetector {
 
     public static final TrackDetectorConfig DEFAULT_CONFIG = TrackDetectorConfig.create(
             20, 9, 8);
 
-    public List<Track> detect(List<List<Long>> zValues, List<DateTime> yValues, TrackDetectorConfig config) {
+    // Signal strength of the first and after the last column of the signal matrix.
+    public static final int MIN_SIGNAL = -100;
+    public static final int MAX_SIGNAL = 0;
+
+    public static final int SIGNAL_COLUMNS = MAX_SIGNAL - MIN_SIGNAL;
+
+    public List<Track> detect(List<long[]> zValues, List<DateTime> yValues, TrackDetectorConfig config) {
         /*
          * For each Y measurement (time), look at each X measurement and start a track if Y for the
          * coordinates are > FRAME_THRESHOLD. Keep the track active until coordinates Y is < FRAME_THRESHOLD
          * for more than GAP_THRESHOLD times.
+         *
+         * Partial tracks are collected into a flat array of (centerline, row, min signal, max signal).
          */
-
-        int yIdx = 0;
-
-        Map<Integer, List<PartialTrack>> partialTracks = Maps.newHashMap();
-        for (List<Long> line : zValues) {
-            DateTime y = yValues.get(yIdx);
-            int x = -100;
+        PartialTracks partialTracks = new PartialTracks();
+        int row = 0;
+        for (long[] line : zValues) {
             int trackLength = 0;
             int gapLength = 0;
             int trackStart = -1;
 
-            for (Long z : line) {
-                if (z > config.frameThreshold() && x != -100) {
+            // The first column (MIN_SIGNAL) is the catch-all bucket of very weak signals and never starts a track.
+            for (int col = 1; col < line.length; col++) {
+                int x = MIN_SIGNAL + col;
+
+                if (line[col] > config.frameThreshold()) {
                     // Signal.
                     if (trackLength == 0) {
                         // New track identified.
@@ -44,133 +48,114 @@ public class TrackDetector {
 
                     // Existing track continued.
                     trackLength++;
-                } else {
-                    // We are in a signal gap or at end of signal strength spectrum.
-                    if (trackLength > 0) {
-                        // We are on a track.
-                        gapLength++;
-
-                        if (gapLength >= config.gapThreshold() || x == 0) {
-                            PartialTrack partialTrack = PartialTrack.create(y, trackStart, x-config.gapThreshold()+2);
-
-                            if (!partialTracks.containsKey(partialTrack.averageSignal())) {
-                                partialTracks.put(partialTrack.averageSignal(), Lists.newArrayList());
-                            }
-                            partialTracks.get(partialTrack.averageSignal()).add(partialTrack);
-
-                            // Friendship with track ended.
-                            trackLength = 0;
-                            gapLength = 0;
-                        }
-                    }
-                }
-
-                // Line has been processed.
-                x++;
-            }
+                } else if (trackLength > 0) {
+                    // We are in a signal gap on a track.
+                    gapLength++;
 
-            yIdx++;
-        }
+                    if (gapLength >= config.gapThreshold()) {
+                        partialTracks.add(row, trackStart, x-config.gapThreshold()+2);
 
-        /*
-         * Take all partial tracks, by center line (center line is the average signal strength) and try to
-         * feed them into buckets using the SIGNAL_CENTER_LINE_JITTER: Aggregate all center lines that fit
-         * within the SIGNAL_CENTERLINE_JITTER on the lower and higher side of the signal into a general
-         * track.
-         */
-        Map<Integer, List<PartialTrack>> centerlineAveragedTracks = Maps.newHashMap();
-        for (Map.Entry<Integer, List<PartialTrack>> partialTrack : partialTracks.entrySet()) {
-            int partialCenterline = partialTrack.getKey();
-
-            // Find a possibly existing centerline track that we can add this partial track to.
-            Optional<Integer> matchingCenterline = Optional.empty();
-            for (Integer existingCenterline : centerlineAveragedTracks.keySet()) {
-                if (partialCenterline >= existingCenterline-config.signalCenterlineJitter() && partialCenterline <= existingCenterline+ config.signalCenterlineJitter()) {
-                    matchingCenterline = Optional.of(existingCenterline);
+                        // Friendship with track ended.
+                        trackLength = 0;
+                        gapLength = 0;
+                    }
                 }
             }
 
-            if (matchingCenterline.isPresent()) {
-                centerlineAveragedTracks.get(matchingCenterline.get()).addAll(partialTrack.getValue());
-            } else {
-                centerlineAveragedTracks.put(partialCenterline, partialTrack.getValue());
-            }
-
+            row++;
         }
 
         /*
+         * Walk all partial tracks sorted by center line (center line is the average signal strength) and merge
+         * every center line that is within SIGNAL_CENTERLINE_JITTER of the lowest center line of the current
+         * general track into it.
+         *
          * Determine maximum and minimum values of aggregated averaged centerlined tracks, including first and
          * last appearance. These summaries can be used by the frontend to draw boxes on the Y (date) and X
          * (max/signal) axis of a waterfall histogram.
          */
+        long[] sorted = partialTracks.sortedByCenterline();
+
         ImmutableList.Builder<Track> tracks = new ImmutableList.Builder<>();
-        for (Map.Entry<Integer, List<PartialTrack>> aggregated : centerlineAveragedTracks.entrySet()) {
-            PartialTrack first = aggregated.getValue().get(0);
+        int i = 0;
+        while (i < sorted.length) {
+            int first = (int) sorted[i];
+            int centerline = partialTracks.centerline(first);
 
-            DateTime start = first.timestamp();
-            DateTime end = first.timestamp();
-            int minSignal = first.minSignal();
-            int maxSignal = first.maxSignal();
+            DateTime start = yValues.get(partialTracks.row(first));
+            DateTime end = start;
+            int minSignal = partialTracks.minSignal(first);
+            int maxSignal = partialTracks.maxSignal(first);
 
             // Find track specifications.
-            for (PartialTrack track : aggregated.getValue()) {
-                if (track.timestamp().isBefore(start)) {
-                    start = track.timestamp();
+            for (; i < sorted.length; i++) {
+                int idx = (int) sorted[i];
+                if (partialTracks.centerline(idx) > centerline + config.signalCenterlineJitter()) {
+                    break;
                 }
 
-                if (track.timestamp().isAfter(end)) {
-                    end = track.timestamp();
+                DateTime timestamp = yValues.get(partialTracks.row(idx));
+                if (timestamp.isBefore(start)) {
+                    start = timestamp;
                 }
 
-                if (track.minSignal() < minSignal) {
-                    minSignal = track.minSignal();
+                if (timestamp.isAfter(end)) {
+                    end = timestamp;
                 }
 
-                if (track.maxSignal() > maxSignal) {
-                    maxSignal = track.maxSignal();
-                }
+                minSignal = Math.min(minSignal, partialTracks.minSignal(idx));
+                maxSignal = Math.max(maxSignal, partialTracks.maxSignal(idx));
             }
 
             // Add the final track.
-            tracks.add(Track.create(start, end, aggregated.getKey(), minSignal, maxSignal));
+            tracks.add(Track.create(start, end, centerline, minSignal, maxSignal));
         }
 
         return tracks.build();
     }
 
+    /*
+     * Builds a dense time x signal strength matrix of frame counts. Rows are ordered by time, ascending, and
+     * have one column per signal strength from MIN_SIGNAL (inclusive) to MAX_SIGNAL (exclusive).
+     */
     public static TrackDetectorHeatmapData toChartAxisMaps(List<ChannelHistogramEntry> signals) {
-        Map<DateTime, Map<Integer, Long>> aggregated = Maps.newTreeMap();
-        for (ChannelHistogramEntry signal : signals) {
-            if (!aggregated.containsKey(signal.bucket())) {
-                aggregated.put(signal.bucket(), Maps.newHashMap());
-            }
-
-            aggregated.get(signal.bucket()).put(signal.signalStrength(), signal.frameCount());
+        long[] buckets = new long[signals.size()];
+        for (int i = 0; i < signals.size(); i++) {
+            buckets[i] = signals.get(i).bucket().getMillis();
         }
+        Arrays.sort(buckets);
 
-        List<List<Long>> z = Lists.newArrayList();
-        List<DateTime> y = Lists.newArrayList();
+        int rows = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            if (i == 0 || buckets[i] != buckets[i-1]) {
+                buckets[rows++] = buckets[i];
+            }
+        }
 
-        for (Map.Entry<DateTime, Map<Integer, Long>> entry : aggregated.entrySet()) {
-            List<Long> bucketSignals = Lists.newArrayList();
-            for(int cnt = -100; cnt < 0; cnt++) {
-                bucketSignals.add(entry.getValue().getOrDefault(cnt, 0L));
+        long[][] z = new long[rows][SIGNAL_COLUMNS];
+        DateTime[] y = new DateTime[rows];
+        for (ChannelHistogramEntry signal : signals) {
+            int row = Arrays.binarySearch(buckets, 0, rows, signal.bucket().getMillis());
+            if (y[row] == null) {
+                y[row] = signal.bucket();
             }
 
-            z.add(bucketSignals);
-            y.add(entry.getKey());
+            int col = signal.signalStrength() - MIN_SIGNAL;
+            if (col >= 0 && col < SIGNAL_COLUMNS) {
+                z[row][col] = signal.frameCount();
+            }
         }
 
-        return TrackDetectorHeatmapData.create(z, y);
+        return TrackDetectorHeatmapData.create(Arrays.asList(z), Arrays.asList(y));
     }
 
     @AutoValue
     public static abstract class TrackDetectorHeatmapData {
 
-        public abstract List<List<Long>> z();
+        public abstract List<long[]> z();
         public abstract List<DateTime> y();
 
-        public static TrackDetectorHeatmapData create(List<List<Long>> z, List<DateTime> y) {
+        public static TrackDetectorHeatmapData create(List<long[]> z, List<DateTime> y) {
             return builder()
                     .z(z)
                     .y(y)
@@ -183,7 +168,7 @@ public class TrackDetector {
 
         @AutoValue.Builder
         public abstract static class Builder {
-            public abstract Builder z(List<List<Long>> z);
+            public abstract Builder z(List<long[]> z);
 
             public abstract Builder y(List<DateTime> y);
 
@@ -191,4 +176,59 @@ public class TrackDetector {
         }
     }
 
+    /*
+     * Growable flat storage of partial tracks. A partial track is a contiguous signal on a single row.
+     */
+    private static final class PartialTracks {
+
+        private static final int STRIDE = 4;
+
+        private int[] values = new int[16*STRIDE];
+        private int size = 0;
+
+        void add(int row, int minSignal, int maxSignal) {
+            if ((size+1)*STRIDE > values.length) {
+                values = Arrays.copyOf(values, values.length*2);
+            }
+
+            int offset = size*STRIDE;
+            values[offset] = (minSignal+maxSignal)/2;
+            values[offset+1] = row;
+            values[offset+2] = minSignal;
+            values[offset+3] = maxSignal;
+            size++;
+        }
+
+        int centerline(int idx) {
+            return values[idx*STRIDE];
+        }
+
+        int row(int idx) {
+            return values[idx*STRIDE+1];
+        }
+
+        int minSignal(int idx) {
+            return values[idx*STRIDE+2];
+        }
+
+        int maxSignal(int idx) {
+            return values[idx*STRIDE+3];
+        }
+
+        /*
+         * Indices of all partial tracks, ordered by centerline. The centerline is packed into the upper half of
+         * each value so a primitive sort is enough. The lower half holds the index.
+         */
+        long[] sortedByCenterline() {
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = ((long) centerline(i) << 32) | i;
+            }
+            Arrays.sort(sorted);
+
+            return sorted;
+        }
+
+    }
+
 }
@@ -0,0 +1,197 @@
+package app.nzyme.core.events;
+
+import app.nzyme.core.events.actions.ActionExecutionResult;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Executes event actions (like sending an email) on a small, bounded worker pool so that slow external systems never
+ * block the code that raised the event. Failed executions are retried with exponential backoff. Executions that
+ * still fail after the last attempt, or that do not fit into the queue, are dead-lettered: logged and counted.
+ *
+ * On shutdown, queued executions are drained for a limited time. Executions that wait for a retry or are still
+ * queued after that are dead-lettered as well.
+ */
+public class EventActionDispatcher {
+
+    private static final Logger LOG = LogManager.getLogger(EventActionDispatcher.class);
+
+    private static final int WORKERS = 2;
+    private static final int QUEUE_CAPACITY = 500;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF_MS = 5_000;
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryScheduler;
+    private final AtomicInteger pendingRetries;
+
+    private volatile boolean running = true;
+
+    private final Timer executionTimer;
+    private final Meter retries;
+    private final Meter deadLettered;
+
+    public EventActionDispatcher(MetricRegistry metrics) {
+        this(metrics, WORKERS, QUEUE_CAPACITY, MAX_ATTEMPTS, INITIAL_BACKOFF_MS);
+    }
+
+    EventActionDispatcher(MetricRegistry metrics,
+                          int workers,
+                          int queueCapacity,
+                          int maxAttempts,
+                          long initialBackoffMs) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("event-action-worker-%d")
+                        .build());
+
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("event-action-retry-scheduler-%d")
+                .build());
+        this.pendingRetries = new AtomicInteger(0);
+
+        this.executionTimer = metrics.timer(MetricNames.EVENT_ACTIONS_EXECUTION_TIMING);
+        this.retries = metrics.meter(MetricNames.EVENT_ACTIONS_RETRIES);
+        this.deadLettered = metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED);
+
+        metrics.register(MetricNames.EVENT_ACTIONS_QUEUE_DEPTH, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getQueueDepth();
+            }
+        });
+    }
+
+    /**
+     * Queues an action execution and returns immediately.
+     *
+     * @param description Describes the action and event in log messages.
+     * @param execution Executes the action. Throwing counts as a failure.
+     */
+    public void dispatch(String description, Callable<ActionExecutionResult> execution) {
+        submit(description, execution, 1);
+    }
+
+    /**
+     * Stops accepting executions, drops executions that wait for a retry and waits for queued executions to finish.
+     * Failed executions are not retried during shutdown.
+     */
+    public void shutdown() {
+        shutdown(DRAIN_TIMEOUT_MS);
+    }
+
+    void shutdown(long drainTimeoutMs) {
+        running = false;
+
+        int droppedRetries = retryScheduler.shutdownNow().size();
+        pendingRetries.addAndGet(-droppedRetries);
+        if (droppedRetries > 0) {
+            deadLettered.mark(droppedRetries);
+            LOG.warn("Dropping <{}> event actions waiting for a retry.", droppedRetries);
+        }
+
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+                int dropped = workers.shutdownNow().size();
+                deadLettered.mark(dropped);
+                LOG.warn("Could not drain event action queue within <{}ms>. Dropping <{}> queued event actions.",
+                        drainTimeoutMs, dropped);
+            }
+        } catch (InterruptedException e) {
+            int dropped = workers.shutdownNow().size();
+            deadLettered.mark(dropped);
+            LOG.warn("Interrupted while draining event action queue. Dropping <{}> queued event actions.", dropped);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executions waiting for a worker or for their next attempt.
+     */
+    public int getQueueDepth() {
+        return workers.getQueue().size() + pendingRetries.get();
+    }
+
+    private void submit(String description, Callable<ActionExecutionResult> execution, int attempt) {
+        try {
+            workers.execute(() -> execute(description, execution, attempt));
+        } catch (RejectedExecutionException e) {
+            deadLetter(description, attempt, running ? "Queue is full." : "Shutting down.");
+        }
+    }
+
+    private void execute(String description, Callable<ActionExecutionResult> execution, int attempt) {
+        ActionExecutionResult result;
+        Timer.Context timer = executionTimer.time();
+        try {
+            result = execution.call();
+        } catch (Exception e) {
+            LOG.warn("Could not execute event action [{}] (attempt {}/{}).", description, attempt, maxAttempts, e);
+            result = ActionExecutionResult.FAILURE;
+        } finally {
+            timer.stop();
+        }
+
+        if (result == ActionExecutionResult.SUCCESS) {
+            return;
+        }
+
+        if (attempt >= maxAttempts) {
+            deadLetter(description, attempt, "All attempts failed.");
+            return;
+        }
+
+        if (!running) {
+            deadLetter(description, attempt, "Shutting down.");
+            return;
+        }
+
+        long backoffMs = initialBackoffMs << (attempt - 1);
+        LOG.info("Event action [{}] failed. Retrying in <{}ms>.", description, backoffMs);
+
+        retries.mark();
+        pendingRetries.incrementAndGet();
+        try {
+            retryScheduler.schedule(() -> {
+                pendingRetries.decrementAndGet();
+                submit(description, execution, attempt + 1);
+            }, backoffMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shut down since the check above.
+            pendingRetries.decrementAndGet();
+            deadLetter(description, attempt, "Shutting down.");
+        }
+    }
+
+    private void deadLetter(String description, int attempt, String reason) {
+        deadLettered.mark();
+        LOG.error("Dropping event action [{}] at attempt <{}>: {}", description, attempt, reason);
+    }
+
+}
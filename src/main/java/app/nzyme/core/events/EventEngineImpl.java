@@ -2,28 +2,74 @@ package app.nzyme.core.events;
 
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.detection.alerts.DetectionType;
+import app.nzyme.core.events.actions.Action;
+import app.nzyme.core.events.actions.ActionExecutionResult;
 import app.nzyme.core.events.actions.EventActionFactory;
 import app.nzyme.core.events.db.EventActionEntry;
 import app.nzyme.core.events.db.EventEntry;
 import app.nzyme.core.events.db.SubscriptionEntry;
 import app.nzyme.core.events.types.*;
+import app.nzyme.core.integrations.smtp.SMTPConfigurationRegistryKeys;
+import app.nzyme.plugin.distributed.messaging.ClusterMessage;
+import app.nzyme.plugin.distributed.messaging.MessageType;
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class EventEngineImpl implements EventEngine {
 
     private static final Logger LOG = LogManager.getLogger(EventEngineImpl.class);
 
+    private static final int SUBSCRIPTION_CACHE_TTL_MINUTES = 5;
+    private static final int ACTION_CACHE_TTL_MINUTES = 15;
+
     private final NzymeNode nzyme;
 
+    private final EventActionDispatcher dispatcher;
+
+    // Action IDs subscribed to an event. Invalidated on subscription changes.
+    private final Cache<SubscriptionCacheKey, List<UUID>> subscriptions;
+
+    // Built, reusable actions. Invalidated on action changes and on changes of the SMTP configuration.
+    private final Cache<UUID, Optional<Action>> actions;
+
     public EventEngineImpl(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.dispatcher = new EventActionDispatcher(nzyme.getMetrics());
+
+        this.subscriptions = CacheBuilder.newBuilder()
+                .expireAfterWrite(SUBSCRIPTION_CACHE_TTL_MINUTES, TimeUnit.MINUTES)
+                .build();
+        this.actions = CacheBuilder.newBuilder()
+                .expireAfterWrite(ACTION_CACHE_TTL_MINUTES, TimeUnit.MINUTES)
+                .build();
+
+        // Email actions read the SMTP configuration when they are built.
+        for (String key : List.of(
+                SMTPConfigurationRegistryKeys.TRANSPORT_STRATEGY.key(),
+                SMTPConfigurationRegistryKeys.HOST.key(),
+                SMTPConfigurationRegistryKeys.PORT.key(),
+                SMTPConfigurationRegistryKeys.USERNAME.key(),
+                SMTPConfigurationRegistryKeys.PASSWORD.key(),
+                SMTPConfigurationRegistryKeys.FROM_ADDRESS.key(),
+                SMTPConfigurationRegistryKeys.WEB_INTERFACE_URL.key())) {
+            nzyme.getRegistryChangeMonitor().onChange("core", key, actions::invalidateAll);
+        }
     }
 
     @Override
@@ -42,48 +88,49 @@ public class EventEngineImpl implements EventEngine {
         );
 
         // Find all subscribers of event.
-        List<UUID> actionIds;
-        if (organizationId == null && tenantId == null) {
-            // Superadmin System Event.
-            actionIds = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT action_id FROM event_subscriptions " +
-                                    "WHERE event_type = :event_type AND reference = :reference " +
-                                    "AND organization_id IS NULL")
-                            .bind("event_type", EventType.SYSTEM)
-                            .bind("reference", event.type())
-                            .mapTo(UUID.class)
-                            .list()
-            );
-        } else {
-            // Organization System Event.
-            actionIds = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT action_id FROM event_subscriptions " +
-                                    "WHERE event_type = :event_type AND reference = :reference " +
-                                    "AND organization_id = :organization_id")
-                            .bind("organization_id", organizationId)
-                            .bind("event_type", EventType.SYSTEM)
-                            .bind("reference", event.type())
-                            .mapTo(UUID.class)
-                            .list()
-            );
-        }
+        boolean superadmin = organizationId == null && tenantId == null;
+        List<UUID> actionIds = findSubscribedActionIds(SubscriptionCacheKey.create(
+                EventType.SYSTEM.name(), event.type().name(), organizationId, superadmin
+        ), () -> {
+            if (superadmin) {
+                // Superadmin System Event.
+                return nzyme.getDatabase().withHandle(handle ->
+                        handle.createQuery("SELECT action_id FROM event_subscriptions " +
+                                        "WHERE event_type = :event_type AND reference = :reference " +
+                                        "AND organization_id IS NULL")
+                                .bind("event_type", EventType.SYSTEM)
+                                .bind("reference", event.type())
+                                .mapTo(UUID.class)
+                                .list()
+                );
+            } else {
+                // Organization System Event.
+                return nzyme.getDatabase().withHandle(handle ->
+                        handle.createQuery("SELECT action_id FROM event_subscriptions " +
+                                        "WHERE event_type = :event_type AND reference = :reference " +
+                                        "AND organization_id = :organization_id")
+                                .bind("organization_id", organizationId)
+                                .bind("event_type", EventType.SYSTEM)
+                                .bind("reference", event.type())
+                                .mapTo(UUID.class)
+                                .list()
+                );
+            }
+        });
 
         // Process.
         for (UUID actionId : actionIds) {
-            Optional<EventActionEntry> ea = findEventAction(actionId);
+            dispatcher.dispatch(actionId + " for event " + event.type(), () -> {
+                Optional<Action> action = findAction(actionId);
 
-            if (ea.isEmpty()) {
-                LOG.warn("Event action [{}] referenced by event [{}] not found.", actionId, event.type());
-                continue;
-            }
+                if (action.isEmpty()) {
+                    // Nothing to retry.
+                    LOG.warn("Event action [{}] referenced by event [{}] not found.", actionId, event.type());
+                    return ActionExecutionResult.SUCCESS;
+                }
 
-            try {
-                EventActionFactory.build(nzyme, ea.get())
-                        .execute(event);
-            } catch (Exception e) {
-                LOG.error("Could not execute event action [{}/{}] referenced by event [{}]",
-                        ea.get().actionType(), ea.get().uuid(), event.type(), e);
-            }
+                return action.get().execute(event);
+            });
         }
 
     }
@@ -104,7 +151,9 @@ public class EventEngineImpl implements EventEngine {
         );
 
         // Find all subscribers of event.
-        List<UUID> actionIds = nzyme.getDatabase().withHandle(handle ->
+        List<UUID> actionIds = findSubscribedActionIds(SubscriptionCacheKey.create(
+                EventType.DETECTION.name(), event.detectionType().name(), organizationId, false
+        ), () -> nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT action_id FROM event_subscriptions " +
                                 "WHERE event_type = :event_type " +
                                 "AND (reference = :reference OR reference = '*') " +
@@ -114,25 +163,73 @@ public class EventEngineImpl implements EventEngine {
                         .bind("organization_id", organizationId)
                         .mapTo(UUID.class)
                         .list()
-        );
+        ));
 
         // Process.
         for (UUID actionId : actionIds) {
+            dispatcher.dispatch(actionId + " for detection event " + event.detectionType() + "/" + event.alertId(),
+                    () -> {
+                        Optional<Action> action = findAction(actionId);
+
+                        if (action.isEmpty()) {
+                            // Nothing to retry.
+                            LOG.warn("Event action [{}] referenced by detection event [{}/{}] not found.",
+                                    actionId, event.detectionType(), event.alertId());
+                            return ActionExecutionResult.SUCCESS;
+                        }
+
+                        return action.get().execute(event);
+                    });
+        }
+    }
+
+    private List<UUID> findSubscribedActionIds(SubscriptionCacheKey key, Callable<List<UUID>> loader) {
+        try {
+            return subscriptions.get(key, () -> ImmutableList.copyOf(loader.call()));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException("Could not load event subscriptions.", e.getCause());
+        }
+    }
+
+    private Optional<Action> findAction(UUID actionId) throws ExecutionException {
+        return actions.get(actionId, () -> {
             Optional<EventActionEntry> ea = findEventAction(actionId);
 
             if (ea.isEmpty()) {
-                LOG.warn("Event action [{}] referenced by detection event [{}/{}] not found.",
-                        actionId, event.detectionType(), event.alertId());
-                continue;
+                return Optional.empty();
             }
 
-            try {
-                EventActionFactory.build(nzyme, ea.get()).execute(event);
-            } catch (Exception e) {
-                LOG.error("Could not execute event action [{}/{}] referenced by detection event [{}/{}]",
-                        ea.get().actionType(), ea.get().uuid(), event.detectionType(), event.alertId(), e);
-            }
-        }
+            return Optional.of(EventActionFactory.build(nzyme, ea.get()));
+        });
+    }
+
+    /*
+     * Stops accepting event actions and waits for queued ones to finish.
+     */
+    @Override
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Override
+    public void invalidateCaches() {
+        subscriptions.invalidateAll();
+        actions.invalidateAll();
+    }
+
+    /*
+     * Invalidates cached subscriptions and actions on this node and on all other nodes of the cluster. Must be
+     * called after changing actions or subscriptions.
+     */
+    public void invalidateCachesOfCluster() {
+        invalidateCaches();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "event_actions"),
+                false
+        ));
     }
 
     public long countAllEventsOfAllOrganizations() {
@@ -269,6 +366,8 @@ public class EventEngineImpl implements EventEngine {
                         .bind("configuration", configuration)
                         .execute()
         );
+
+        invalidateCachesOfCluster();
     }
 
     public void deleteEventAction(UUID actionId) {
@@ -277,6 +376,8 @@ public class EventEngineImpl implements EventEngine {
                         .bind("action_id", actionId)
                         .execute()
         );
+
+        invalidateCachesOfCluster();
     }
 
     public void subscribeActionToEvent(@Nullable UUID organizationId, EventType eventType, String reference, UUID actionId) {
@@ -290,6 +391,8 @@ public class EventEngineImpl implements EventEngine {
                         .bind("action_id", actionId)
                         .execute()
         );
+
+        invalidateCachesOfCluster();
     }
 
     public void unsubscribeActionFromEvent(UUID subscriptionId) {
@@ -298,6 +401,8 @@ public class EventEngineImpl implements EventEngine {
                         .bind("uuid", subscriptionId)
                         .execute()
         );
+
+        invalidateCachesOfCluster();
     }
 
     public Optional<UUID> findActionOfSubscription(UUID subscriptionId) {
@@ -379,4 +484,49 @@ public class EventEngineImpl implements EventEngine {
         return result;
     }
 
+    @AutoValue
+    public static abstract class SubscriptionCacheKey {
+
+        public abstract String eventType();
+        public abstract String reference();
+
+        @Nullable
+        public abstract UUID organizationId();
+
+        /*
+         * Superadmin events have neither organization nor tenant. Events with a tenant but no organization are not
+         * superadmin events, even though their organization ID is null as well.
+         */
+        public abstract boolean superadmin();
+
+        public static SubscriptionCacheKey create(String eventType,
+                                                  String reference,
+                                                  UUID organizationId,
+                                                  boolean superadmin) {
+            return builder()
+                    .eventType(eventType)
+                    .reference(reference)
+                    .organizationId(organizationId)
+                    .superadmin(superadmin)
+                    .build();
+        }
+
+        public static Builder builder() {
+            return new AutoValue_EventEngineImpl_SubscriptionCacheKey.Builder();
+        }
+
+        @AutoValue.Builder
+        public abstract static class Builder {
+            public abstract Builder eventType(String eventType);
+
+            public abstract Builder reference(String reference);
+
+            public abstract Builder organizationId(UUID organizationId);
+
+            public abstract Builder superadmin(boolean superadmin);
+
+            public abstract SubscriptionCacheKey build();
+        }
+    }
+
 }
@@ -20,11 +20,10 @@ package app.nzyme.core.ouis;
 import app.nzyme.core.NzymeNode;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
-import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import app.nzyme.core.util.MetricNames;
+import com.google.common.io.Resources;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -33,19 +32,35 @@ import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class OUIManager {
 
     private static final Logger LOG = LogManager.getLogger(OUIManager.class);
 
-    private static final String OUI_SOURCE = "http://standards-oui.ieee.org/oui/oui.txt";
-    private static final Pattern LINE_REGEX = Pattern.compile("^(.+)\\b.+\\(base 16\\)(.+)$");
+    /*
+     * IEEE registries. MA-L (24 bit) is required, MA-M (28 bit) and MA-S (36 bit) assignments are optional and
+     * skipped if they cannot be fetched. The file names are used for the local copies, too.
+     */
+    private static final String MAL_SOURCE = "http://standards-oui.ieee.org/oui/oui.txt";
+    private static final String MAM_SOURCE = "http://standards-oui.ieee.org/oui28/mam.txt";
+    private static final String MAS_SOURCE = "http://standards-oui.ieee.org/oui36/oui36.txt";
 
-    private ImmutableMap<String, String> ouis;
+    private static final String MAL_FILE = "oui.txt";
+    private static final String MAM_FILE = "mam.txt";
+    private static final String MAS_FILE = "oui36.txt";
+
+    // Optional registry files shipped with a distribution package.
+    private static final String BUNDLED_RESOURCE_PATH = "ouis/";
+
+    private volatile OUITable ouis;
 
     private final NzymeNode nzyme;
 
@@ -54,36 +69,91 @@ public class OUIManager {
     public OUIManager(NzymeNode nzyme) {
         this.nzyme = nzyme;
 
-        this.ouis = ImmutableMap.<String, String>builder().build();
+        this.ouis = OUITable.EMPTY;
         this.lookupTimer = nzyme.getMetrics().timer(MetricRegistry.name(MetricNames.OUI_LOOKUP_TIMING));
     }
 
     @Nullable
     public String lookupMac(String bssid) {
-        if (this.ouis == null || this.ouis.isEmpty()) {
-            LOG.debug("Internal OUI table is NULL or empty.");
-            return null;
-        }
+        // Hot path. Does not allocate and is therefore not timed, either.
+        return ouis.lookup(bssid);
+    }
 
-        if (bssid == null || bssid.isEmpty()) {
-            LOG.debug("Passed OUI is null or empty.");
-            return null;
+    /*
+     * Resolves the OUIs of many MAC addresses in one pass. MAC addresses without a known OUI are not included in
+     * the returned map.
+     */
+    public Map<String, String> lookupMacs(Collection<String> macs) {
+        Map<String, String> result = Maps.newHashMap();
+
+        OUITable table = this.ouis;
+        if (table.isEmpty()) {
+            LOG.debug("Internal OUI table is empty.");
+            return result;
         }
 
         Timer.Context timer = lookupTimer.time();
-        String result = ouis.get(bssid.toUpperCase().substring(0, 8).replace(":", ""));
+        for (String mac : macs) {
+            if (mac == null || result.containsKey(mac)) {
+                continue;
+            }
+
+            String oui = table.lookup(mac);
+            if (oui != null) {
+                result.put(mac, oui);
+            }
+        }
         timer.stop();
 
         return result;
     }
 
+    /**
+     * Loads the OUI registries from the local copies in the data directory or, if there are none, from the
+     * registry files bundled with the distribution package. Does not require network access.
+     *
+     * @return true if a registry was loaded
+     */
+    public boolean loadLocal() {
+        if (!nzyme.getConfiguration().fetchOuis()) {
+            return false;
+        }
+
+        Stopwatch parsingTime = Stopwatch.createStarted();
+        try {
+            String mal = readLocal(MAL_FILE);
+            if (mal == null) {
+                LOG.info("No local copy of OUI registry found.");
+                return false;
+            }
+
+            OUITable.Builder builder = new OUITable.Builder().addRegistry(mal);
+            for (String file : new String[]{MAM_FILE, MAS_FILE}) {
+                String registry = readLocal(file);
+                if (registry != null) {
+                    builder.addRegistry(registry);
+                }
+            }
+
+            this.ouis = builder.build();
+        } catch (Exception e) {
+            LOG.warn("Could not load local copy of OUI registry.", e);
+            return false;
+        }
+
+        LOG.info("Loaded <{}> OUIs from local registry in <{}ms>.",
+                this.ouis.size(), parsingTime.elapsed(TimeUnit.MILLISECONDS));
+
+        return true;
+    }
+
     public void fetchAndUpdate() throws IOException {
         if (!nzyme.getConfiguration().fetchOuis()) {
             LOG.info("Fetching OUIs has been disabled in nzyme configuration. Not fetching.");
             return;
         }
 
-        LOG.info("Fetching and updating list of OUIs from [{}]. This might take a moment.", OUI_SOURCE);
+        LOG.info("Fetching and updating list of OUIs from [{}]. This might take a moment.", MAL_SOURCE);
 
         OkHttpClient c = new OkHttpClient.Builder()
                 .connectTimeout(60, TimeUnit.SECONDS)
@@ -93,46 +163,113 @@ public class OUIManager {
                 .build();
 
         Stopwatch downloadTime = Stopwatch.createStarted();
-        Response response = c.newCall(new Request.Builder()
-                .addHeader("User-Agent", "nzyme")
-                .get()
-                .url(OUI_SOURCE)
-                .build())
-                .execute();
+        String mal = download(c, MAL_SOURCE);
+        String mam = downloadOptional(c, "MA-M", MAM_SOURCE);
+        String mas = downloadOptional(c, "MA-S", MAS_SOURCE);
         downloadTime.stop();
 
-        if (!response.isSuccessful()) {
-            throw new RuntimeException("Expected HTTP 200 but got HTTP " + response.code());
-        }
-
-        if (response.body() == null) {
-            throw new RuntimeException("Empty response.");
-        }
-
         Stopwatch parsingTime = Stopwatch.createStarted();
-        Map<String, String> map = Maps.newHashMap();
+        OUITable table;
         try {
-            for (String line : Splitter.on("\n").trimResults().omitEmptyStrings().split(response.body().string())) {
-                if (line.contains("(base 16)")) {
-                    Matcher m = LINE_REGEX.matcher(line);
-                    if (m.find()) {
-                        map.put(m.group(1).trim(), m.group(2).trim());
-                    }
-                }
+            OUITable.Builder builder = new OUITable.Builder().addRegistry(mal);
+            if (mam != null) {
+                builder.addRegistry(mam);
+            }
+            if (mas != null) {
+                builder.addRegistry(mas);
             }
+            table = builder.build();
             parsingTime.stop();
         } catch(Exception e) {
             throw new RuntimeException("OUI parsing error.", e);
-        } finally {
-            response.body().close();
         }
 
-        this.ouis = ImmutableMap.copyOf(map);
+        if (table.isEmpty()) {
+            throw new RuntimeException("Fetched OUI registry is empty.");
+        }
+
+        this.ouis = table;
+
+        // Keep local copies so the next startup does not have to wait for the download.
+        writeLocal(MAL_FILE, mal);
+        if (mam != null) {
+            writeLocal(MAM_FILE, mam);
+        }
+        if (mas != null) {
+            writeLocal(MAS_FILE, mas);
+        }
 
-        LOG.info("Done! Now <{}> OUIs in memory. Download time <{}ms>, parsing time <{}s>.",
+        LOG.info("Done! Now <{}> OUIs in memory. Download time <{}ms>, parsing time <{}ms>.",
                 this.ouis.size(),
                 downloadTime.elapsed(TimeUnit.MILLISECONDS),
-                parsingTime.elapsed(TimeUnit.SECONDS));
+                parsingTime.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    /*
+     * The MA-M and MA-S registries are small and optional. A failed download of one of them does not affect the
+     * other or the MA-L assignments.
+     */
+    @Nullable
+    private String downloadOptional(OkHttpClient c, String registryName, String url) {
+        try {
+            return download(c, url);
+        } catch (Exception e) {
+            LOG.warn("Could not fetch {} OUI registry from [{}]. Not using {} assignments.",
+                    registryName, url, registryName, e);
+            return null;
+        }
+    }
+
+    private String download(OkHttpClient c, String url) throws IOException {
+        try (Response response = c.newCall(new Request.Builder()
+                .addHeader("User-Agent", "nzyme")
+                .get()
+                .url(url)
+                .build())
+                .execute()) {
+            if (!response.isSuccessful()) {
+                throw new RuntimeException("Expected HTTP 200 but got HTTP " + response.code());
+            }
+
+            if (response.body() == null) {
+                throw new RuntimeException("Empty response.");
+            }
+
+            return response.body().string();
+        }
+    }
+
+    @Nullable
+    private String readLocal(String fileName) throws IOException {
+        Path local = localRegistryFile(fileName);
+        if (Files.exists(local)) {
+            return Files.readString(local, StandardCharsets.UTF_8);
+        }
+
+        URL bundled = OUIManager.class.getClassLoader().getResource(BUNDLED_RESOURCE_PATH + fileName);
+        if (bundled != null) {
+            return Resources.toString(bundled, StandardCharsets.UTF_8);
+        }
+
+        return null;
+    }
+
+    private void writeLocal(String fileName, String registry) {
+        Path local = localRegistryFile(fileName);
+        try {
+            Files.createDirectories(local.getParent());
+
+            // Write to a temporary file first so that a crash never leaves a partial registry behind.
+            Path tmp = local.resolveSibling(fileName + ".tmp");
+            Files.writeString(tmp, registry, StandardCharsets.UTF_8);
+            Files.move(tmp, local, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Could not write local copy of OUI registry to [{}].", local.toAbsolutePath(), e);
+        }
+    }
+
+    private Path localRegistryFile(String fileName) {
+        return Path.of(nzyme.getDataDirectory().toString(), "ouis", fileName);
     }
 
 }
@@ -0,0 +1,346 @@
+/*
+ * This file is part of nzyme.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+
+package app.nzyme.core.ouis;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Immutable OUI lookup table. MA-L (24 bit) assignments are kept in an open addressing map of int prefixes and
+ * MA-M (28 bit) and MA-S (36 bit) assignments in a small nibble trie below their 24 bit prefix. Vendor names are
+ * interned, and lookups parse the MAC address in place without allocating.
+ */
+public final class OUITable {
+
+    private static final int FREE = -1;
+    private static final int NONE = -1;
+
+    public static final OUITable EMPTY = new Builder().build();
+
+    // MA-L prefix -> index in vendors.
+    private final int[] prefixKeys;
+    private final int[] prefixVendors;
+
+    // Prefix with MA-M/MA-S assignments -> trie root node.
+    private final int[] subKeys;
+    private final int[] subRoots;
+
+    // Trie nodes. 16 children per node, NONE if there is no child.
+    private final int[] trieChildren;
+    private final int[] trieVendors;
+
+    private final String[] vendors;
+
+    private final int size;
+
+    private OUITable(int[] prefixKeys,
+                     int[] prefixVendors,
+                     int[] subKeys,
+                     int[] subRoots,
+                     int[] trieChildren,
+                     int[] trieVendors,
+                     String[] vendors,
+                     int size) {
+        this.prefixKeys = prefixKeys;
+        this.prefixVendors = prefixVendors;
+        this.subKeys = subKeys;
+        this.subRoots = subRoots;
+        this.trieChildren = trieChildren;
+        this.trieVendors = trieVendors;
+        this.vendors = vendors;
+        this.size = size;
+    }
+
+    /**
+     * Looks up the vendor of a MAC address. Accepts upper or lower case hex digits, separated by colons, dashes or
+     * dots, or not separated at all.
+     *
+     * @param mac The MAC address.
+     * @return The vendor or null if the MAC address is invalid or no vendor is known.
+     */
+    @Nullable
+    public String lookup(@Nullable CharSequence mac) {
+        if (mac == null || size == 0) {
+            return null;
+        }
+
+        // Parse the first 9 nibbles. 6 for the MA-L prefix and up to 3 more for MA-M/MA-S.
+        int prefix = 0;
+        int extra = 0;
+        int nibbles = 0;
+        for (int i = 0; i < mac.length() && nibbles < 9; i++) {
+            char c = mac.charAt(i);
+            if (c == ':' || c == '-' || c == '.') {
+                continue;
+            }
+
+            int nibble = Character.digit(c, 16);
+            if (nibble < 0) {
+                return null;
+            }
+
+            if (nibbles < 6) {
+                prefix = (prefix << 4) | nibble;
+            } else {
+                extra = (extra << 4) | nibble;
+            }
+            nibbles++;
+        }
+
+        if (nibbles < 6) {
+            return null;
+        }
+
+        // Longest match first.
+        int root = get(subKeys, subRoots, prefix);
+        if (root != NONE) {
+            int extraNibbles = nibbles - 6;
+            int node = root;
+            int vendor = NONE;
+            for (int i = extraNibbles - 1; i >= 0; i--) {
+                node = trieChildren[node * 16 + ((extra >>> (i * 4)) & 0xF)];
+                if (node == NONE) {
+                    break;
+                }
+
+                if (trieVendors[node] != NONE) {
+                    vendor = trieVendors[node];
+                }
+            }
+
+            if (vendor != NONE) {
+                return vendors[vendor];
+            }
+        }
+
+        int vendor = get(prefixKeys, prefixVendors, prefix);
+        return vendor == NONE ? null : vendors[vendor];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static int get(int[] keys, int[] values, int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int k = keys[slot];
+            if (k == key) {
+                return values[slot];
+            }
+
+            if (k == FREE) {
+                return NONE;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public static class Builder {
+
+        private final Map<Integer, Integer> prefixes = Maps.newHashMap();
+        private final Map<Integer, Integer> subRoots = Maps.newHashMap();
+        private final Map<String, Integer> vendorIndex = Maps.newHashMap();
+
+        private int[] trieChildren = new int[16 * 64];
+        private int[] trieVendors = new int[64];
+        private int trieNodes = 0;
+
+        private int size = 0;
+
+        /**
+         * Adds all assignments of an IEEE registry text file. Works for the MA-L (oui.txt), MA-M (mam.txt) and
+         * MA-S (oui36.txt) formats.
+         */
+        public Builder addRegistry(String registry) {
+            int lastPrefix = NONE;
+            for (String line : Splitter.on('\n').trimResults().omitEmptyStrings().split(registry)) {
+                int hexPos = line.indexOf("(hex)");
+                if (hexPos > 0) {
+                    lastPrefix = parseHex(line.substring(0, hexPos).trim().replace("-", ""), 6);
+                    continue;
+                }
+
+                int base16Pos = line.indexOf("(base 16)");
+                if (base16Pos <= 0) {
+                    continue;
+                }
+
+                String assignment = line.substring(0, base16Pos).trim();
+                String vendor = line.substring(base16Pos + "(base 16)".length()).trim();
+
+                List<String> range = Splitter.on('-').trimResults().splitToList(assignment);
+                if (range.size() == 1) {
+                    // MA-L.
+                    int prefix = parseHex(assignment, 6);
+                    if (prefix != NONE) {
+                        addPrefix(prefix, vendor);
+                    }
+                } else if (range.size() == 2 && lastPrefix != NONE) {
+                    // MA-M or MA-S. The range covers the lower 24 bits and the fixed part is the common prefix.
+                    String from = range.get(0);
+                    String to = range.get(1);
+                    int common = 0;
+                    while (common < from.length() && common < to.length()
+                            && from.charAt(common) == to.charAt(common)) {
+                        common++;
+                    }
+
+                    if (common > 0 && common <= 3 && parseHex(from, from.length()) != NONE) {
+                        addSubAssignment(lastPrefix, from.substring(0, common), vendor);
+                    }
+                }
+            }
+
+            return this;
+        }
+
+        public Builder addPrefix(int prefix, String vendor) {
+            if (prefixes.put(prefix, intern(vendor)) == null) {
+                size++;
+            }
+
+            return this;
+        }
+
+        public Builder addSubAssignment(int prefix, String nibbles, String vendor) {
+            Integer root = subRoots.get(prefix);
+            if (root == null) {
+                root = newNode();
+                subRoots.put(prefix, root);
+            }
+
+            int node = root;
+            for (int i = 0; i < nibbles.length(); i++) {
+                int nibble = Character.digit(nibbles.charAt(i), 16);
+                int child = trieChildren[node * 16 + nibble];
+                if (child == NONE) {
+                    child = newNode();
+                    trieChildren[node * 16 + nibble] = child;
+                }
+                node = child;
+            }
+
+            if (trieVendors[node] == NONE) {
+                size++;
+            }
+            trieVendors[node] = intern(vendor);
+
+            return this;
+        }
+
+        public OUITable build() {
+            int[][] prefixTable = compile(prefixes);
+            int[][] subTable = compile(subRoots);
+
+            String[] vendors = new String[vendorIndex.size()];
+            for (Map.Entry<String, Integer> vendor : vendorIndex.entrySet()) {
+                vendors[vendor.getValue()] = vendor.getKey();
+            }
+
+            return new OUITable(
+                    prefixTable[0],
+                    prefixTable[1],
+                    subTable[0],
+                    subTable[1],
+                    Arrays.copyOf(trieChildren, trieNodes * 16),
+                    Arrays.copyOf(trieVendors, trieNodes),
+                    vendors,
+                    size
+            );
+        }
+
+        private int intern(String vendor) {
+            Integer index = vendorIndex.get(vendor);
+            if (index == null) {
+                index = vendorIndex.size();
+                vendorIndex.put(vendor, index);
+            }
+
+            return index;
+        }
+
+        private int newNode() {
+            if (trieNodes == trieVendors.length) {
+                trieVendors = Arrays.copyOf(trieVendors, trieVendors.length * 2);
+                trieChildren = Arrays.copyOf(trieChildren, trieChildren.length * 2);
+            }
+
+            Arrays.fill(trieChildren, trieNodes * 16, trieNodes * 16 + 16, NONE);
+            trieVendors[trieNodes] = NONE;
+
+            return trieNodes++;
+        }
+
+        // Keeps the load factor at or below 0.5.
+        private static int[][] compile(Map<Integer, Integer> map) {
+            int capacity = Integer.highestOneBit(Math.max(map.size(), 1) * 2) * 2;
+            int[] keys = new int[capacity];
+            int[] values = new int[capacity];
+            Arrays.fill(keys, FREE);
+
+            int mask = capacity - 1;
+            for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+                int slot = hash(entry.getKey()) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+
+                keys[slot] = entry.getKey();
+                values[slot] = entry.getValue();
+            }
+
+            return new int[][]{keys, values};
+        }
+
+        private static int parseHex(String s, int length) {
+            if (s.length() != length) {
+                return NONE;
+            }
+
+            int result = 0;
+            for (int i = 0; i < length; i++) {
+                int nibble = Character.digit(s.charAt(i), 16);
+                if (nibble < 0) {
+                    return NONE;
+                }
+                result = (result << 4) | nibble;
+            }
+
+            return result;
+        }
+
+    }
+
+}
@@ -38,6 +38,18 @@ public class RetentionCleaner extends Periodical {
                         .execute()
         );
 
+        nzyme.getDatabase().useHandle(handle ->
+                handle.createUpdate("DELETE FROM dot11_advertisement_rollups WHERE bucket < :cutoff")
+                        .bind("cutoff", dot11CutOff)
+                        .execute()
+        );
+
+        nzyme.getDatabase().useHandle(handle ->
+                handle.createUpdate("DELETE FROM dot11_channel_rollups WHERE bucket < :cutoff")
+                        .bind("cutoff", dot11CutOff)
+                        .execute()
+        );
+
         nzyme.getDatabase().useHandle(handle ->
                 handle.createUpdate("DELETE FROM dot11_clients WHERE created_at < :cutoff")
                         .bind("cutoff", dot11CutOff)
@@ -49,6 +61,12 @@ public class RetentionCleaner extends Periodical {
                         .bind("cutoff", dot11CutOff)
                         .execute()
         );
+
+        nzyme.getDatabase().useHandle(handle ->
+                handle.createUpdate("DELETE FROM dot11_disco_rollups WHERE bucket < :cutoff")
+                        .bind("cutoff", dot11CutOff)
+                        .execute()
+        );
     }
 
     @Override
@@ -0,0 +1,100 @@
+package app.nzyme.core.registry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Node-wide cache of registry values of all namespaces, keyed by namespaced key. Shared by all RegistryImpl instances.
+ *
+ * Plain values are written through on local writes and stay cached until the registry change monitor reports a
+ * change of their key. Decrypted values are never written to disk and additionally expire after the configured TTL.
+ * They are not written through, so only values that can be decrypted with the current key are ever cached.
+ *
+ * Invalidating a key while its value is being loaded does not stop the load from storing what it read before the
+ * change. Every cached value therefore remembers the generation of its key at the time the load started, and values
+ * of an older generation than the current one are dropped and loaded again.
+ */
+public class RegistryCache {
+
+    private static final int MAXIMUM_SIZE = 10_000;
+
+    private final Cache<String, CachedValue> values;
+    private final Cache<String, CachedValue> decryptedValues;
+
+    // Incremented on every invalidation of a key. Keys that were never invalidated are at generation 0.
+    private final ConcurrentMap<String, Long> generations;
+
+    public RegistryCache(int secretTtlSeconds) {
+        this.values = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .build();
+
+        this.decryptedValues = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .expireAfterWrite(secretTtlSeconds, TimeUnit.SECONDS)
+                .build();
+
+        this.generations = new ConcurrentHashMap<>();
+    }
+
+    public Optional<String> getValue(String key, Callable<Optional<String>> loader) throws ExecutionException {
+        return get(values, key, loader);
+    }
+
+    public void putValue(String key, Optional<String> value) {
+        values.put(key, new CachedValue(value, generation(key)));
+    }
+
+    public Optional<String> getDecryptedValue(String key, Callable<Optional<String>> loader) throws ExecutionException {
+        return get(decryptedValues, key, loader);
+    }
+
+    public void invalidate(String key) {
+        generations.merge(key, 1L, Long::sum);
+
+        values.invalidate(key);
+        decryptedValues.invalidate(key);
+    }
+
+    private Optional<String> get(Cache<String, CachedValue> cache,
+                                 String key,
+                                 Callable<Optional<String>> loader) throws ExecutionException {
+        while (true) {
+            CachedValue cached = cache.get(key, () -> {
+                long generation = generation(key);
+                return new CachedValue(loader.call(), generation);
+            });
+
+            if (cached.generation == generation(key)) {
+                return cached.value;
+            }
+
+            // The key was invalidated after this value was loaded or while it was being loaded.
+            cache.asMap().remove(key, cached);
+        }
+    }
+
+    private long generation(String key) {
+        return generations.getOrDefault(key, 0L);
+    }
+
+    private static final class CachedValue {
+
+        private final Optional<String> value;
+        private final long generation;
+
+        private CachedValue(Optional<String> value, long generation) {
+            this.value = value;
+            this.generation = generation;
+        }
+
+    }
+
+}
@@ -0,0 +1,30 @@
+package app.nzyme.core.registry;
+
+import com.google.auto.value.AutoValue;
+
+@AutoValue
+public abstract class RegistryChange {
+
+    public abstract long id();
+    public abstract String key();
+
+    public static RegistryChange create(long id, String key) {
+        return builder()
+                .id(id)
+                .key(key)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_RegistryChange.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder id(long id);
+
+        public abstract Builder key(String key);
+
+        public abstract RegistryChange build();
+    }
+}
@@ -0,0 +1,19 @@
+package app.nzyme.core.registry;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class RegistryChangeMapper implements RowMapper<RegistryChange> {
+
+    @Override
+    public RegistryChange map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return RegistryChange.create(
+                rs.getLong("id"),
+                rs.getString("key")
+        );
+    }
+
+}
@@ -3,73 +3,219 @@ package app.nzyme.core.registry;
 import app.nzyme.core.NzymeNode;
 import app.nzyme.plugin.RegistryChangeMonitor;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/*
+ * Registry writes log the changed key to the registry_changes table and send a notification. This monitor reads
+ * all changes after the last change it has seen (cursor) and notifies subscribers of the changed keys. It reads the
+ * changes immediately when notified and regularly as a fallback.
+ *
+ * A rare full comparison of all registry values catches changes that were missed anyway, for example because of
+ * writes that did not go through the registry.
+ */
 public class RegistryChangeMonitorImpl implements RegistryChangeMonitor {
 
     private static final Logger LOG = LogManager.getLogger(RegistryChangeMonitorImpl.class);
 
+    // Postgres NOTIFY channel. The payload is the changed key.
+    static final String NOTIFICATION_CHANNEL = "nzyme_registry_changes";
+
+    private static final int CHANGES_POLL_INTERVAL_SECONDS = 5;
+    private static final int CONSISTENCY_SWEEP_INTERVAL_MINUTES = 15;
+    private static final int CHANGES_RETENTION_HOURS = 24;
+
+    private static final int LISTENER_TIMEOUT_MS = 10_000;
+    private static final int LISTENER_RECONNECT_DELAY_SECONDS = 5;
+
     private final NzymeNode nzyme;
 
     private final Map<String, Runnable> subscribers;
 
+    // All state below is only accessed from the processor thread.
+    private final ScheduledExecutorService processor;
+    private final AtomicBoolean processingRequested;
+
+    private Long cursor = null;
     private Map<String, String> snapshot = null;
 
     public RegistryChangeMonitorImpl(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.subscribers = Maps.newConcurrentMap();
+        this.processingRequested = new AtomicBoolean(false);
 
-        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
-                        .setNameFormat("registry-change-processor-%d")
-                        .build())
-                .scheduleAtFixedRate(this::processChanges, 0, 5, TimeUnit.SECONDS);
+        this.processor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("registry-change-processor-%d")
+                .build());
 
-        this.subscribers = Maps.newHashMap();
+        processor.scheduleWithFixedDelay(this::processChanges,
+                0, CHANGES_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        processor.scheduleWithFixedDelay(this::sweep,
+                CONSISTENCY_SWEEP_INTERVAL_MINUTES, CONSISTENCY_SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
     }
 
-    private void processChanges() {
-        if (snapshot == null) {
-            // First run. Fill image.
-            snapshot = takeSnapshot();
+    /**
+     * Starts a thread that listens for change notifications on a dedicated database connection, making changes
+     * of other nodes visible immediately. Without it, changes are picked up with the regular fallback poll.
+     */
+    public void initialize() {
+        Thread listener = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("registry-change-listener-%d")
+                .build()
+                .newThread(() -> {
+                    while (true) {
+                        try {
+                            listen();
+                        } catch (Exception e) {
+                            LOG.warn("Registry change listener failed. Reconnecting in <{}> seconds.",
+                                    LISTENER_RECONNECT_DELAY_SECONDS, e);
+                        }
+
+                        try {
+                            TimeUnit.SECONDS.sleep(LISTENER_RECONNECT_DELAY_SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+
+        listener.start();
+    }
+
+    private void listen() throws SQLException {
+        nzyme.getDatabase().useHandle(handle -> {
+            handle.execute("LISTEN " + NOTIFICATION_CHANNEL);
+            PGConnection connection = handle.getConnection().unwrap(PGConnection.class);
+
+            // Pick up changes that happened while we were not listening.
+            requestProcessing();
+
+            while (!Thread.currentThread().isInterrupted()) {
+                PGNotification[] notifications = connection.getNotifications(LISTENER_TIMEOUT_MS);
+                if (notifications != null && notifications.length > 0) {
+                    requestProcessing();
+                }
+            }
+        });
+    }
 
-            // Exit. (No changes on first run)
-            return;
+    /*
+     * Schedules processing on the processor thread. Requests that arrive before processing starts are coalesced.
+     */
+    private void requestProcessing() {
+        if (processingRequested.compareAndSet(false, true)) {
+            processor.execute(() -> {
+                processingRequested.set(false);
+                processChanges();
+            });
         }
+    }
 
-        Map<String, String> previous = Maps.newHashMap(this.snapshot);
+    private void processChanges() {
+        try {
+            if (cursor == null) {
+                // First run. Start after the latest change and fill image. (No changes on first run)
+                cursor = nzyme.getDatabase().withHandle(handle ->
+                        handle.createQuery("SELECT COALESCE(MAX(id), 0) FROM registry_changes")
+                                .mapTo(Long.class)
+                                .one()
+                );
+                snapshot = takeSnapshot();
 
-        // Create new snapshot. Do this immediately to avoid missing changes that happen during processing.
-        this.snapshot = takeSnapshot();
+                return;
+            }
+
+            List<RegistryChange> changes = nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT id, key FROM registry_changes WHERE id > :cursor ORDER BY id ASC")
+                            .bind("cursor", cursor)
+                            .mapTo(RegistryChange.class)
+                            .list()
+            );
+
+            if (changes.isEmpty()) {
+                return;
+            }
 
-        Map<String, String> current = takeSnapshot();
+            cursor = changes.get(changes.size() - 1).id();
 
-        for (Map.Entry<String, String> entry : current.entrySet()) {
-            if (!previous.containsKey(entry.getKey())) {
-                // New entry.
-                LOG.info("Registry key [{}] now has a value. Notifying subscribers.", entry.getKey());
-                notifyChange(entry.getKey());
-            } else {
-                // Existing entry. Compare.
+            Set<String> keys = Sets.newLinkedHashSet();
+            for (RegistryChange change : changes) {
+                keys.add(change.key());
+            }
+
+            // Keep the image of the consistency sweep current so it does not report these changes again.
+            Map<String, String> current = takeSnapshot(keys);
+            for (String key : keys) {
+                if (current.containsKey(key)) {
+                    snapshot.put(key, current.get(key));
+                } else {
+                    snapshot.remove(key);
+                }
+
+                nzyme.getRegistryCache().invalidate(key);
+
+                LOG.info("Registry key [{}] has changed. Notifying subscribers.", key);
+                notifyChange(key);
+            }
+        } catch (Exception e) {
+            LOG.error("Could not process registry changes.", e);
+        }
+    }
+
+    private void sweep() {
+        try {
+            if (snapshot == null) {
+                return;
+            }
+
+            Map<String, String> previous = this.snapshot;
+            Map<String, String> current = takeSnapshot();
+            this.snapshot = current;
+
+            for (Map.Entry<String, String> entry : current.entrySet()) {
                 if (!entry.getValue().equals(previous.get(entry.getKey()))) {
-                    // Value changed.
-                    LOG.info("Registry key [{}] has a new value. Notifying subscribers.", entry.getKey());
+                    // New or changed value.
+                    nzyme.getRegistryCache().invalidate(entry.getKey());
+
+                    LOG.info("Registry key [{}] has a new value that was not announced. Notifying subscribers.",
+                            entry.getKey());
                     notifyChange(entry.getKey());
                 }
             }
-        }
 
-        for (Map.Entry<String, String> entry : previous.entrySet()) {
-            // Did a value disappear?
-            if (!current.containsKey(entry.getKey())) {
-                LOG.info("Registry key [{}] has disappeared. Notifying subscribers.", entry.getKey());
-                notifyChange(entry.getKey());
+            for (String key : previous.keySet()) {
+                // Did a value disappear?
+                if (!current.containsKey(key)) {
+                    nzyme.getRegistryCache().invalidate(key);
+
+                    LOG.info("Registry key [{}] has disappeared without announcement. Notifying subscribers.", key);
+                    notifyChange(key);
+                }
             }
+
+            nzyme.getDatabase().useHandle(handle ->
+                    handle.createUpdate("DELETE FROM registry_changes WHERE changed_at < :cutoff")
+                            .bind("cutoff", DateTime.now().minusHours(CHANGES_RETENTION_HOURS))
+                            .execute()
+            );
+        } catch (Exception e) {
+            LOG.error("Could not run registry consistency sweep.", e);
         }
     }
 
@@ -101,6 +247,28 @@ public class RegistryChangeMonitorImpl implements RegistryChangeMonitor {
                         .list()
         );
 
+        return toMap(entries, encryptedEntries);
+    }
+
+    private Map<String, String> takeSnapshot(Set<String> keys) {
+        List<RegistryEntry> entries = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT key, value FROM registry WHERE key IN (<keys>)")
+                        .bindList("keys", keys)
+                        .mapTo(RegistryEntry.class)
+                        .list()
+        );
+
+        List<RegistryEntry> encryptedEntries = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT key, value FROM registry_encrypted WHERE key IN (<keys>)")
+                        .bindList("keys", keys)
+                        .mapTo(RegistryEntry.class)
+                        .list()
+        );
+
+        return toMap(entries, encryptedEntries);
+    }
+
+    private static Map<String, String> toMap(List<RegistryEntry> entries, List<RegistryEntry> encryptedEntries) {
         Map<String, String> result = Maps.newHashMap();
 
         for (RegistryEntry entry : entries) {
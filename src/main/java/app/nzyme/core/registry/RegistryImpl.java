@@ -3,14 +3,18 @@ package app.nzyme.core.registry;
 import app.nzyme.plugin.Registry;
 import app.nzyme.plugin.RegistryCryptoException;
 import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
 import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.crypto.Crypto;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
 
 import javax.annotation.Nullable;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 
 public class RegistryImpl implements Registry {
 
@@ -27,38 +31,63 @@ public class RegistryImpl implements Registry {
 
     @Override
     public Optional<String> getValue(String key) {
-        LOG.debug("Getting value for [{}] from registry.", buildNamespacedKey(namespace, key));
+        String namespacedKey = buildNamespacedKey(namespace, key);
+
+        try {
+            return nzyme.getRegistryCache().getValue(namespacedKey, () -> loadValue(namespacedKey));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException("Could not read registry value for key [" + namespacedKey + "].", e.getCause());
+        }
+    }
+
+    @Override
+    public Optional<String> getEncryptedValue(String key) throws RegistryCryptoException {
+        String namespacedKey = buildNamespacedKey(namespace, key);
+
+        try {
+            return nzyme.getRegistryCache().getDecryptedValue(namespacedKey, () -> {
+                Optional<String> encrypted = loadEncryptedValue(namespacedKey);
+
+                if (encrypted.isEmpty()) {
+                    return Optional.empty();
+                } else {
+                    try {
+                        return Optional.of(
+                                new String(nzyme.getCrypto().decryptWithClusterKey(
+                                        BaseEncoding.base64().decode(encrypted.get())
+                                ), Charsets.UTF_8)
+                        );
+                    } catch (Crypto.CryptoOperationException e) {
+                        throw new RegistryCryptoException("Could not decrypt registry value for key [" + key + "]", e);
+                    }
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), RegistryCryptoException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException("Could not read registry value for key [" + namespacedKey + "].", e.getCause());
+        }
+    }
+
+    private Optional<String> loadValue(String namespacedKey) {
+        LOG.debug("Getting value for [{}] from registry.", namespacedKey);
         return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT value FROM registry WHERE key = :key")
-                        .bind("key", buildNamespacedKey(namespace, key))
+                        .bind("key", namespacedKey)
                         .mapTo(String.class)
                         .findOne()
         );
     }
 
-    @Override
-    public Optional<String> getEncryptedValue(String key) throws RegistryCryptoException {
-        LOG.debug("Getting encrypted value for [{}] from registry.", buildNamespacedKey(namespace, key));
-        Optional<String> encrypted = nzyme.getDatabase().withHandle(handle ->
+    private Optional<String> loadEncryptedValue(String namespacedKey) {
+        LOG.debug("Getting encrypted value for [{}] from registry.", namespacedKey);
+        return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT value FROM registry_encrypted WHERE key = :key")
-                        .bind("key", buildNamespacedKey(namespace, key))
+                        .bind("key", namespacedKey)
                         .mapTo(String.class)
                         .findOne()
         );
-
-        if (encrypted.isEmpty()) {
-            return Optional.empty();
-        } else {
-            try {
-                return Optional.of(
-                        new String(nzyme.getCrypto().decryptWithClusterKey(
-                                BaseEncoding.base64().decode(encrypted.get())
-                        ), Charsets.UTF_8)
-                );
-            } catch (Crypto.CryptoOperationException e) {
-                throw new RegistryCryptoException("Could not decrypt registry value for key [" + key + "]", e);
-            }
-        }
     }
 
     @Override
@@ -77,7 +106,8 @@ public class RegistryImpl implements Registry {
     public void setValue(String key, String value) {
         setValuePreflightChecks(key, value);
 
-        if (getValue(key).isPresent()) {
+        // Always check the database. A cached value may not reflect a recent change of another node yet.
+        if (loadValue(buildNamespacedKey(namespace, key)).isPresent()) {
             // Update existing entry.
             LOG.debug("Updating existing value for key [{}] in registry.", buildNamespacedKey(namespace, key));
 
@@ -98,6 +128,9 @@ public class RegistryImpl implements Registry {
                             .execute()
             );
         }
+
+        nzyme.getRegistryCache().putValue(buildNamespacedKey(namespace, key), Optional.of(value));
+        recordChange(buildNamespacedKey(namespace, key));
     }
 
     @Override
@@ -116,7 +149,7 @@ public class RegistryImpl implements Registry {
             throw new RegistryCryptoException("Could not encrypt registry value for key [" + key + "]", e);
         }
 
-        if (getEncryptedValue(key).isPresent()) {
+        if (loadEncryptedValue(buildNamespacedKey(namespace, key)).isPresent()) {
             // Update existing entry.
             LOG.debug("Updating existing encrypted value for key [{}] in registry.", buildNamespacedKey(namespace, key));
 
@@ -140,6 +173,9 @@ public class RegistryImpl implements Registry {
                             .execute()
             );
         }
+
+        nzyme.getRegistryCache().invalidate(buildNamespacedKey(namespace, key));
+        recordChange(buildNamespacedKey(namespace, key));
     }
 
     @Override
@@ -150,6 +186,26 @@ public class RegistryImpl implements Registry {
                         .bind("key", buildNamespacedKey(namespace, key))
                         .execute()
         );
+
+        nzyme.getRegistryCache().putValue(buildNamespacedKey(namespace, key), Optional.empty());
+        recordChange(buildNamespacedKey(namespace, key));
+    }
+
+    /*
+     * Logs the change of a key and notifies all nodes about it in the same statement. The change monitors of all
+     * nodes consume the log to notify their subscribers.
+     */
+    private void recordChange(String namespacedKey) {
+        nzyme.getDatabase().useHandle(handle ->
+                handle.createQuery("WITH change AS (INSERT INTO registry_changes(key, changed_at) " +
+                                "VALUES(:key, :changed_at) RETURNING key) " +
+                                "SELECT pg_notify(:channel, key) FROM change")
+                        .bind("key", namespacedKey)
+                        .bind("changed_at", DateTime.now())
+                        .bind("channel", RegistryChangeMonitorImpl.NOTIFICATION_CHANNEL)
+                        .mapTo(String.class)
+                        .list()
+        );
     }
 
     private void setValuePreflightChecks(String key, String value) {
@@ -19,6 +19,7 @@ package app.nzyme.core.rest.authentication;
 
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.security.authentication.db.UserEntry;
+import app.nzyme.core.security.sessions.SessionPrincipal;
 import app.nzyme.core.security.sessions.db.SessionEntry;
 import app.nzyme.plugin.rest.security.PermissionLevel;
 import app.nzyme.plugin.rest.security.RESTSecured;
@@ -39,11 +40,11 @@ import org.glassfish.grizzly.http.server.Request;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
-import java.net.InetAddress;
 import java.security.Principal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RESTSecured(PermissionLevel.ANY)
 @Provider
@@ -120,36 +121,31 @@ public class RESTAuthenticationFilter implements ContainerRequestFilter {
             String sessionId = authorizationHeader.substring(AUTHENTICATION_SCHEME.length()).trim();
 
             // Check if session exists.
-            Optional<SessionEntry> session = nzyme.getAuthenticationService().findSessionWithPassedMFABySessionId(sessionId);
-            if (session.isEmpty()) {
+            Optional<SessionPrincipal> principal = nzyme.getAuthenticationService().findSessionPrincipal(sessionId);
+            if (principal.isEmpty()) {
                 abortWithUnauthorized(requestContext);
                 return;
             }
 
-            Optional<UserEntry> user = nzyme.getAuthenticationService().findUserById(session.get().userId());
-
-            if (user.isEmpty()) {
-                LOG.error("Session referenced user that doesn't exist. Aborting.");
-                abortWithUnauthorized(requestContext);
-                return;
-            }
+            SessionEntry session = principal.get().session();
+            UserEntry user = principal.get().user();
 
             // Check if we have the permissions required by resource.
             switch (resourcePermissionLevel) {
                 case SUPERADMINISTRATOR:
-                    if (!user.get().isSuperAdmin()) {
+                    if (!user.isSuperAdmin()) {
                         LOG.warn("User <{}> requested resource [/{}] which requires super administrator permissions " +
                                         "but is not super administrator.",
-                                user.get().email(), requestContext.getUriInfo().getPath());
+                                user.email(), requestContext.getUriInfo().getPath());
                         abortWithUnauthorized(requestContext);
                         return;
                     }
                     break;
                 case ORGADMINISTRATOR:
-                    if (!user.get().isSuperAdmin() && !user.get().isOrganizationAdmin()) {
+                    if (!user.isSuperAdmin() && !user.isOrganizationAdmin()) {
                         LOG.warn("User <{}> requested resource [/{}] which requires organization administrator permissions " +
                                         "but is not organization administrator.",
-                                user.get().email(), requestContext.getUriInfo().getPath());
+                                user.email(), requestContext.getUriInfo().getPath());
                         abortWithUnauthorized(requestContext);
                         return;
                     }
@@ -160,12 +156,12 @@ public class RESTAuthenticationFilter implements ContainerRequestFilter {
             }
 
             // Check if we also need a feature permission.
-            if (requiredFeaturePermissions.isPresent() && !user.get().isOrganizationAdmin() && !user.get().isSuperAdmin()) {
-                List<String> userPermissions = nzyme.getAuthenticationService().findPermissionsOfUser(user.get().uuid());
+            if (requiredFeaturePermissions.isPresent() && !user.isOrganizationAdmin() && !user.isSuperAdmin()) {
+                Set<String> userPermissions = principal.get().featurePermissions();
                 for (String requiredPermission : requiredFeaturePermissions.get()) {
                     if(!userPermissions.contains(requiredPermission)) {
                         LOG.warn("User <{}> requested resource [/{}] which requires missing feature permission [{}].",
-                                user.get().email(), requestContext.getUriInfo().getPath(), requiredPermission);
+                                user.email(), requestContext.getUriInfo().getPath(), requiredPermission);
                         abortWithUnauthorized(requestContext);
                         return;
                     }
@@ -173,12 +169,7 @@ public class RESTAuthenticationFilter implements ContainerRequestFilter {
             }
 
             // Authenticated. Set last activity information.
-            nzyme.getAuthenticationService().updateLastUserActivity(
-                    user.get().uuid(),
-                    remoteIp,
-                    nzyme.getGeoIpService().lookup(InetAddress.getByName(remoteIp))
-                            .orElse(null)
-            );
+            nzyme.getAuthenticationService().recordUserActivity(user.uuid(), remoteIp);
 
             // Set new security context for later use in resources.
             final SecurityContext currentSecurityContext = requestContext.getSecurityContext();
@@ -186,17 +177,16 @@ public class RESTAuthenticationFilter implements ContainerRequestFilter {
 
                 @Override
                 public Principal getUserPrincipal() {
-                    UserEntry u = user.get();
                     return new AuthenticatedUser(
-                            u.uuid(),
-                            session.get().sessionId(),
-                            u.email(),
-                            session.get().createdAt(),
-                            u.organizationId(),
-                            u.tenantId(),
-                            u.isOrganizationAdmin(),
-                            u.isSuperAdmin(),
-                            u.accessAllTenantTaps()
+                            user.uuid(),
+                            session.sessionId(),
+                            user.email(),
+                            session.createdAt(),
+                            user.organizationId(),
+                            user.tenantId(),
+                            user.isOrganizationAdmin(),
+                            user.isSuperAdmin(),
+                            user.accessAllTenantTaps()
                     );
                 }
 
@@ -2,6 +2,8 @@ package app.nzyme.core.rest.interceptors;
 
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.util.MetricNames;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.UriInfo;
@@ -10,8 +12,6 @@ import jakarta.ws.rs.ext.ReaderInterceptorContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 public class TapTableSizeInterceptor implements ReaderInterceptor {
@@ -29,22 +29,29 @@ public class TapTableSizeInterceptor implements ReaderInterceptor {
 
     @Override
     public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException, WebApplicationException {
-        if (uriInfo.getPath().equals("api/taps/tables") || uriInfo.getPath().equals("api/taps/tables/")) {
-            // We do not want to consume the InputStream because we need it later in the resource of course. Copy it.
-            ByteArrayOutputStream cloner = new ByteArrayOutputStream();
-            context.getInputStream().transferTo(cloner);
+        if (!uriInfo.getPath().equals("api/taps/tables") && !uriInfo.getPath().equals("api/taps/tables/")) {
+            return context.proceed();
+        }
 
-            int size = cloner.toByteArray().length;
-            LOG.debug("Tap table report size: {}", size);
+        /*
+         * Count the bytes while the resource reads the report instead of copying it. This runs after the GZIP
+         * decoder, so compressed reports are counted with their uncompressed size.
+         */
+        CountingInputStream counter = new CountingInputStream(context.getInputStream());
+        context.setInputStream(counter);
 
-            nzyme.getMetrics().histogram(MetricNames.TAP_TABLE_REQUEST_SIZES).update(size);
-            nzyme.getNodeManager().recordTapReportSize(size);
+        Object result = context.proceed();
 
-            // Stick another clone right back into the request context.
-            context.setInputStream(new ByteArrayInputStream(cloner.toByteArray()));
-        }
+        // The parser may stop before the end of the stream. Count whatever it left behind, like trailing newlines.
+        ByteStreams.exhaust(counter);
+
+        long size = counter.getCount();
+        LOG.debug("Tap table report size: {}", size);
+
+        nzyme.getMetrics().histogram(MetricNames.TAP_TABLE_REQUEST_SIZES).update(size);
+        nzyme.getNodeManager().recordTapReportSize(size);
 
-        return context.proceed();
+        return result;
     }
 
 }
@@ -6,6 +6,7 @@ import app.nzyme.core.database.OrderDirection;
 import app.nzyme.core.dot11.Dot11;
 import app.nzyme.core.dot11.Dot11RegistryKeys;
 import app.nzyme.core.dot11.db.*;
+import app.nzyme.core.dot11.rollups.RollupResolution;
 import app.nzyme.core.rest.TapDataHandlingResource;
 import app.nzyme.core.rest.authentication.AuthenticatedUser;
 import app.nzyme.core.rest.responses.dot11.Dot11MacAddressContextResponse;
@@ -16,6 +17,7 @@ import app.nzyme.plugin.rest.security.RESTSecured;
 import com.google.common.collect.Lists;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import jakarta.inject.Inject;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.ws.rs.*;
@@ -28,6 +30,7 @@ import org.joda.time.DateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Path("/api/dot11/clients")
@@ -102,139 +105,72 @@ public class Dot11ClientsResource extends TapDataHandlingResource {
 
         // Connected clients.
         long connectedCount = nzyme.getDot11().countBSSIDClients(minutes, tapUuids);
-        List<ConnectedClientDetailsResponse> connectedClients = Lists.newArrayList();
         List<String> macAddressesOfAllConnectedClients = nzyme.getDot11()
                 .findMacAddressesOfAllBSSIDClients(minutes, tapUuids);
-
-        for (ConnectedClientDetails client : nzyme.getDot11().findBSSIDClients(
+        List<ConnectedClientDetails> connectedClientDetails = nzyme.getDot11().findBSSIDClients(
                 minutes, tapUuids, connectedLimit, connectedOffset,
-                Dot11.ClientOrderColumn.LAST_SEEN, OrderDirection.DESC)) {
-            Optional<MacAddressContextEntry> clientContext = nzyme.getContextService().findMacAddressContext(
-                    client.clientMac(),
-                    authenticatedUser.getOrganizationId(),
-                    authenticatedUser.getTenantId()
-            );
-
-            List<ConnectedBSSID> bssidHistory = Lists.newArrayList();
-            for (String bssid : nzyme.getDot11()
-                    .findBSSIDsClientWasConnectedTo(client.clientMac(), tapUuids)) {
-                Optional<MacAddressContextEntry> bssidContext = nzyme.getContextService().findMacAddressContext(
-                        bssid,
-                        authenticatedUser.getOrganizationId(),
-                        authenticatedUser.getTenantId()
-                );
+                Dot11.ClientOrderColumn.LAST_SEEN, OrderDirection.DESC);
+
+        // Disconnected clients.
+        long disconnectedCount = nzyme.getDot11().countClients(minutes, tapUuids);
+        List<DisconnectedClientDetails> disconnectedClientDetails = nzyme.getDot11().findClients(
+                minutes, tapUuids, macAddressesOfAllConnectedClients, disconnectedLimit, disconnectedOffset,
+                Dot11.ClientOrderColumn.LAST_SEEN, OrderDirection.DESC);
+
+        // Collect BSSID history of all clients first, so we can enrich all MAC addresses at once.
+        Set<String> macAddresses = Sets.newHashSet();
+        Map<String, List<String>> bssidHistories = Maps.newHashMap();
+        for (ConnectedClientDetails client : connectedClientDetails) {
+            macAddresses.add(client.clientMac());
+            macAddresses.add(client.bssid());
+            bssidHistories.computeIfAbsent(client.clientMac(),
+                    mac -> nzyme.getDot11().findBSSIDsClientWasConnectedTo(mac, tapUuids));
+        }
+        for (DisconnectedClientDetails client : disconnectedClientDetails) {
+            macAddresses.add(client.clientMac());
+            bssidHistories.computeIfAbsent(client.clientMac(),
+                    mac -> nzyme.getDot11().findBSSIDsClientWasConnectedTo(mac, tapUuids));
+        }
+
+        Map<String, List<String>> advertisedSSIDs = Maps.newHashMap();
+        for (List<String> history : bssidHistories.values()) {
+            for (String bssid : history) {
+                macAddresses.add(bssid);
 
                 // Find all SSIDs this BSSID advertised.
-                List<String> advertisedSSIDs = nzyme.getDot11().findSSIDsAdvertisedByBSSID(
-                        bssid, tapUuids);
-
-                bssidHistory.add(ConnectedBSSID.create(
-                        Dot11MacAddressResponse.create(
-                                bssid,
-                                nzyme.getOUIManager().lookupMac(bssid),
-                                bssidContext.map(macAddressContextEntry ->
-                                                Dot11MacAddressContextResponse.create(
-                                                        macAddressContextEntry.name(),
-                                                        macAddressContextEntry.description()
-                                                ))
-                                        .orElse(null)
-                        ),
-                        advertisedSSIDs
-                ));
+                advertisedSSIDs.computeIfAbsent(bssid,
+                        b -> nzyme.getDot11().findSSIDsAdvertisedByBSSID(b, tapUuids));
             }
+        }
+
+        Map<String, MacAddressContextEntry> contexts = nzyme.getContextService().findMacAddressContexts(
+                macAddresses,
+                authenticatedUser.getOrganizationId(),
+                authenticatedUser.getTenantId()
+        );
+        Map<String, String> ouis = nzyme.getOUIManager().lookupMacs(macAddresses);
 
+        List<ConnectedClientDetailsResponse> connectedClients = Lists.newArrayList();
+        for (ConnectedClientDetails client : connectedClientDetails) {
             List<String> probeRequests = nzyme.getDot11()
                     .findProbeRequestsOfClient(client.clientMac(), tapUuids);
 
-            Optional<MacAddressContextEntry> clientBssidContext = nzyme.getContextService().findMacAddressContext(
-                    client.bssid(),
-                    authenticatedUser.getOrganizationId(),
-                    authenticatedUser.getTenantId()
-            );
-
             connectedClients.add(ConnectedClientDetailsResponse.create(
-                    Dot11MacAddressResponse.create(
-                            client.clientMac(),
-                            nzyme.getOUIManager().lookupMac(client.clientMac()),
-                            clientContext.map(macAddressContextEntry ->
-                                            Dot11MacAddressContextResponse.create(
-                                                    macAddressContextEntry.name(),
-                                                    macAddressContextEntry.description()
-                                            ))
-                                    .orElse(null)
-                    ),
+                    buildMacAddressResponse(client.clientMac(), ouis, contexts),
                     client.lastSeen(),
-                    Dot11MacAddressResponse.create(
-                            client.bssid(),
-                            nzyme.getOUIManager().lookupMac(client.bssid()),
-                            clientBssidContext.map(macAddressContextEntry ->
-                                            Dot11MacAddressContextResponse.create(
-                                                    macAddressContextEntry.name(),
-                                                    macAddressContextEntry.description()
-                                            ))
-                                    .orElse(null)
-                    ),
+                    buildMacAddressResponse(client.bssid(), ouis, contexts),
                     probeRequests,
-                    bssidHistory
+                    buildBSSIDHistory(bssidHistories.get(client.clientMac()), advertisedSSIDs, ouis, contexts)
             ));
         }
 
-        // Disconnected clients.
-        long disconnectedCount = nzyme.getDot11().countClients(minutes, tapUuids);
         List<DisconnectedClientDetailsResponse> disconnectedClients = Lists.newArrayList();
-
-        for (DisconnectedClientDetails client : nzyme.getDot11().findClients(
-                minutes, tapUuids, macAddressesOfAllConnectedClients, disconnectedLimit, disconnectedOffset,
-                Dot11.ClientOrderColumn.LAST_SEEN, OrderDirection.DESC)) {
-            Optional<MacAddressContextEntry> clientContext = nzyme.getContextService().findMacAddressContext(
-                    client.clientMac(),
-                    authenticatedUser.getOrganizationId(),
-                    authenticatedUser.getTenantId()
-            );
-
-            List<ConnectedBSSID> bssidHistory = Lists.newArrayList();
-
-            for (String bssid : nzyme.getDot11()
-                    .findBSSIDsClientWasConnectedTo(client.clientMac(), tapUuids)) {
-                Optional<MacAddressContextEntry> bssidContext = nzyme.getContextService().findMacAddressContext(
-                        bssid,
-                        authenticatedUser.getOrganizationId(),
-                        authenticatedUser.getTenantId()
-                );
-
-                // Find all SSIDs this BSSID advertised.
-                List<String> advertisedSSIDs = nzyme.getDot11().findSSIDsAdvertisedByBSSID(
-                        bssid, tapUuids);
-
-                bssidHistory.add(ConnectedBSSID.create(
-                        Dot11MacAddressResponse.create(
-                                bssid,
-                                nzyme.getOUIManager().lookupMac(bssid),
-                                bssidContext.map(macAddressContextEntry ->
-                                                Dot11MacAddressContextResponse.create(
-                                                        macAddressContextEntry.name(),
-                                                        macAddressContextEntry.description()
-                                                ))
-                                        .orElse(null)
-                        ),
-                        advertisedSSIDs
-                ));
-            }
-
+        for (DisconnectedClientDetails client : disconnectedClientDetails) {
             disconnectedClients.add(DisconnectedClientDetailsResponse.create(
-                    Dot11MacAddressResponse.create(
-                            client.clientMac(),
-                            nzyme.getOUIManager().lookupMac(client.clientMac()),
-                            clientContext.map(macAddressContextEntry ->
-                                            Dot11MacAddressContextResponse.create(
-                                                    macAddressContextEntry.name(),
-                                                    macAddressContextEntry.description()
-                                            ))
-                                    .orElse(null)
-                    ),
+                    buildMacAddressResponse(client.clientMac(), ouis, contexts),
                     client.lastSeen(),
                     client.probeRequests(),
-                    bssidHistory
+                    buildBSSIDHistory(bssidHistories.get(client.clientMac()), advertisedSSIDs, ouis, contexts)
             ));
         }
 
@@ -265,6 +201,7 @@ public class Dot11ClientsResource extends TapDataHandlingResource {
         List<DiscoHistogramEntry> discos = nzyme.getDot11().getDiscoHistogram(
                 Dot11.DiscoType.DISCONNECTION,
                 24 * 60,
+                RollupResolution.ONE_MINUTE,
                 tapUuids,
                 List.of(c.mac())
         );
@@ -355,4 +292,34 @@ public class Dot11ClientsResource extends TapDataHandlingResource {
         )).build();
     }
 
+    private List<ConnectedBSSID> buildBSSIDHistory(List<String> bssids,
+                                                   Map<String, List<String>> advertisedSSIDs,
+                                                   Map<String, String> ouis,
+                                                   Map<String, MacAddressContextEntry> contexts) {
+        List<ConnectedBSSID> history = Lists.newArrayList();
+        for (String bssid : bssids) {
+            history.add(ConnectedBSSID.create(
+                    buildMacAddressResponse(bssid, ouis, contexts),
+                    advertisedSSIDs.get(bssid)
+            ));
+        }
+
+        return history;
+    }
+
+    private Dot11MacAddressResponse buildMacAddressResponse(String mac,
+                                                            Map<String, String> ouis,
+                                                            Map<String, MacAddressContextEntry> contexts) {
+        MacAddressContextEntry context = contexts.get(mac);
+
+        return Dot11MacAddressResponse.create(
+                mac,
+                ouis.get(mac),
+                context == null ? null : Dot11MacAddressContextResponse.create(
+                        context.name(),
+                        context.description()
+                )
+        );
+    }
+
 }
@@ -1,6 +1,7 @@
 package app.nzyme.core.rest.resources.dot11;
 
 import app.nzyme.core.NzymeNode;
+import app.nzyme.core.cache.QueryResultCache;
 import app.nzyme.core.context.db.MacAddressContextEntry;
 import app.nzyme.core.dot11.Dot11;
 import app.nzyme.core.dot11.db.Dot11MacFrameCount;
@@ -11,6 +12,7 @@ import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
 import app.nzyme.core.dot11.monitoring.disco.db.Dot11DiscoMonitorMethodConfiguration;
 import app.nzyme.core.dot11.monitoring.disco.monitormethods.DiscoMonitorFactory;
 import app.nzyme.core.dot11.monitoring.disco.monitormethods.DiscoMonitorMethodType;
+import app.nzyme.core.dot11.rollups.RollupResolution;
 import app.nzyme.core.rest.TapDataHandlingResource;
 import app.nzyme.core.rest.authentication.AuthenticatedUser;
 import app.nzyme.core.rest.requests.SimulateDiscoDetectionConfigRequest;
@@ -105,23 +107,18 @@ public class Dot11DiscoResource extends TapDataHandlingResource {
                     .collect(Collectors.toList());
         }
 
-        Map<DateTime, DiscoHistogramEntry> histogram = Maps.newHashMap();
-        for (DiscoHistogramEntry h : nzyme.getDot11().getDiscoHistogram(discoType, minutes, tapUuids, selectedBssids)) {
-            histogram.put(h.bucket(), h);
-        }
-
-        Map<DateTime, DiscoHistogramValueResponse> response = Maps.newTreeMap();
-        for (int x = minutes; x != 0; x--) {
-            DateTime bucket = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0).minusMinutes(x);
-            DiscoHistogramEntry entry = histogram.get(bucket);
-            if (entry == null) {
-                response.put(bucket, DiscoHistogramValueResponse.create(bucket, 0));
-            } else {
-                response.put(bucket, DiscoHistogramValueResponse.create(entry.bucket(), entry.frameCount()));
-            }
-        }
+        List<String> histogramBssids = selectedBssids;
+        Map<DateTime, DiscoHistogramValueResponse> histogram = nzyme.getQueryResultCache().get(
+                "dot11.disco.histogram",
+                tapUuids,
+                minutes,
+                null,
+                null,
+                QueryResultCache.parameters(discoType, histogramBssids),
+                () -> buildHistogram(discoType, minutes, tapUuids, histogramBssids)
+        );
 
-        return Response.ok(response).build();
+        return Response.ok(histogram).build();
     }
 
     @GET
@@ -176,12 +173,161 @@ public class Dot11DiscoResource extends TapDataHandlingResource {
             selectedBssids = Splitter.on(",").splitToList(bssidsParam);
         }
 
+        List<String> listBssids = selectedBssids;
+        Object list = nzyme.getQueryResultCache().get(
+                "dot11.disco.lists",
+                tapUuids,
+                minutes,
+                authenticatedUser.getOrganizationId(),
+                authenticatedUser.getTenantId(),
+                QueryResultCache.parameters(listType, listBssids, limit, offset),
+                () -> buildList(authenticatedUser, listType, minutes, tapUuids, listBssids, limit, offset)
+        );
+
+        return Response.ok(list).build();
+    }
+
+
+    @GET
+    @Path("/config/detection")
+    @RESTSecured(value = PermissionLevel.ANY, featurePermissions = { "dot11_monitoring_manage" })
+    public Response getDetectionConfig(@Context SecurityContext sc,
+                                       @QueryParam("monitored_network_id") @NotNull UUID monitoredNetworkId) {
+        AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
+
+        Optional<MonitoredSSID> monitoredNetwork = nzyme.getDot11().findMonitoredSSID(monitoredNetworkId);
+
+        if (monitoredNetwork.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        if (!passedMonitoredNetworkAccessible(authenticatedUser, monitoredNetwork.get())){
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        Dot11DiscoMonitorMethodConfiguration config = nzyme.getDot11().getDiscoMonitorMethodConfiguration(
+                monitoredNetwork.get().id());
+
+        return Response.ok(DiscoMonitorMethodConfigurationResponse.create(config.type(), config.configuration()))
+                .build();
+    }
+
+    @PUT
+    @Path("/config/detection")
+    @RESTSecured(value = PermissionLevel.ANY, featurePermissions = { "dot11_monitoring_manage" })
+    public Response setDetectionConfig(@Context SecurityContext sc,
+                                       @Valid UpdateDiscoDetectionConfigRequest req) {
+        AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
+
+        Optional<MonitoredSSID> monitoredNetwork = nzyme.getDot11().findMonitoredSSID(req.monitoredNetworkId());
+
+        if (monitoredNetwork.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        if (!passedMonitoredNetworkAccessible(authenticatedUser, monitoredNetwork.get())){
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        String configurationJson;
+        try {
+            ObjectMapper om = new ObjectMapper();
+            configurationJson = om.writeValueAsString(req.configuration());
+        } catch(Exception e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        nzyme.getDot11().setDiscoMonitorMethodConfiguration(
+                req.methodType(), configurationJson, monitoredNetwork.get().id()
+        );
+
+        return Response.ok().build();
+    }
+
+    @POST
+    @Path("/config/detection/simulate")
+    @RESTSecured(value = PermissionLevel.ANY, featurePermissions = { "dot11_monitoring_manage" })
+    public Response simulateDetectionConfig(@Context SecurityContext sc,
+                                            @Valid SimulateDiscoDetectionConfigRequest req) {
+        AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
+
+        Optional<MonitoredSSID> monitoredNetwork = nzyme.getDot11().findMonitoredSSID(req.monitoredNetworkId());
+
+        if (monitoredNetwork.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        if (!passedMonitoredNetworkAccessible(authenticatedUser, monitoredNetwork.get())) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        Optional<Tap> tap = nzyme.getTapManager().findTap(req.tapId());
+        if (tap.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        if (!nzyme.getTapManager().allTapUUIDsAccessibleByUser(authenticatedUser).contains(tap.get().uuid())) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        DiscoMonitorMethodType type;
+        try {
+            type = DiscoMonitorMethodType.valueOf(req.methodType());
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        List<Dot11DiscoMonitorAnomalyDetailsResponse> anomalies = DiscoMonitorFactory
+                .build(nzyme, type, monitoredNetwork.get(), req.configuration())
+                .execute(tap.get())
+                .stream()
+                .map(a -> Dot11DiscoMonitorAnomalyDetailsResponse.create(a.timestamp(), a.frameCount()))
+                .collect(Collectors.toList());
+
+        return Response.ok(Dot11DiscoMonitorAnomalyListResponse.create(anomalies.size(), anomalies)).build();
+    }
+
+    private Map<DateTime, DiscoHistogramValueResponse> buildHistogram(Dot11.DiscoType discoType,
+                                                                      int minutes,
+                                                                      List<UUID> tapUuids,
+                                                                      @Nullable List<String> bssids) {
+        RollupResolution resolution = RollupResolution.forRange(minutes);
+
+        Map<DateTime, DiscoHistogramEntry> histogram = Maps.newHashMap();
+        for (DiscoHistogramEntry h : nzyme.getDot11()
+                .getDiscoHistogram(discoType, minutes, resolution, tapUuids, bssids)) {
+            histogram.put(h.bucket(), h);
+        }
+
+        Map<DateTime, DiscoHistogramValueResponse> response = Maps.newTreeMap();
+        DateTime now = DateTime.now();
+        for (DateTime bucket = resolution.floor(now.minusMinutes(minutes));
+             bucket.isBefore(resolution.floor(now));
+             bucket = bucket.plusMinutes(resolution.getMinutes())) {
+            DiscoHistogramEntry entry = histogram.get(bucket);
+            if (entry == null) {
+                response.put(bucket, DiscoHistogramValueResponse.create(bucket, 0));
+            } else {
+                response.put(bucket, DiscoHistogramValueResponse.create(entry.bucket(), entry.frameCount()));
+            }
+        }
+
+        return response;
+    }
+
+    private Object buildList(AuthenticatedUser authenticatedUser,
+                             ListType listType,
+                             int minutes,
+                             List<UUID> tapUuids,
+                             @Nullable List<String> bssids,
+                             int limit,
+                             int offset) {
         long total;
         switch (listType) {
             case SENDERS:
                 List<TwoColumnTableHistogramValueResponse> sendersValues = Lists.newArrayList();
-                total = nzyme.getDot11().countDiscoTopSenders(minutes, tapUuids, selectedBssids);
-                for (Dot11MacFrameCount s : nzyme.getDot11().getDiscoTopSenders(minutes, limit, offset, tapUuids, selectedBssids)) {
+                total = nzyme.getDot11().countDiscoTopSenders(minutes, tapUuids, bssids);
+                for (Dot11MacFrameCount s : nzyme.getDot11().getDiscoTopSenders(minutes, limit, offset, tapUuids, bssids)) {
                     Optional<MacAddressContextEntry> macContext = nzyme.getContextService().findMacAddressContext(
                             s.mac(),
                             authenticatedUser.getOrganizationId(),
@@ -213,11 +359,11 @@ public class Dot11DiscoResource extends TapDataHandlingResource {
                             )
                     ));
                 }
-                return Response.ok(TwoColumnTableHistogramResponse.create(total, sendersValues)).build();
+                return TwoColumnTableHistogramResponse.create(total, sendersValues);
             case RECEIVERS:
                 List<TwoColumnTableHistogramValueResponse> receiversValues = Lists.newArrayList();
-                total = nzyme.getDot11().countDiscoTopReceivers(minutes, tapUuids, selectedBssids);
-                for (Dot11MacFrameCount s : nzyme.getDot11().getDiscoTopReceivers(minutes, limit, offset, tapUuids, selectedBssids)) {
+                total = nzyme.getDot11().countDiscoTopReceivers(minutes, tapUuids, bssids);
+                for (Dot11MacFrameCount s : nzyme.getDot11().getDiscoTopReceivers(minutes, limit, offset, tapUuids, bssids)) {
                     Optional<MacAddressContextEntry> macContext = nzyme.getContextService().findMacAddressContext(
                             s.mac(),
                             authenticatedUser.getOrganizationId(),
@@ -249,11 +395,11 @@ public class Dot11DiscoResource extends TapDataHandlingResource {
                             )
                     ));
                 }
-                return Response.ok(TwoColumnTableHistogramResponse.create(total, receiversValues)).build();
+                return TwoColumnTableHistogramResponse.create(total, receiversValues);
             case PAIRS:
                 List<ThreeColumnTableHistogramValueResponse> pairsValues = Lists.newArrayList();
-                total = nzyme.getDot11().countDiscoTopPairs(minutes, tapUuids, selectedBssids);
-                for (BSSIDPairFrameCount s : nzyme.getDot11().getDiscoTopPairs(minutes, limit, offset, tapUuids, selectedBssids)) {
+                total = nzyme.getDot11().countDiscoTopPairs(minutes, tapUuids, bssids);
+                for (BSSIDPairFrameCount s : nzyme.getDot11().getDiscoTopPairs(minutes, limit, offset, tapUuids, bssids)) {
                     Optional<MacAddressContextEntry> senderMacContext = nzyme.getContextService().findMacAddressContext(
                             s.sender(),
                             authenticatedUser.getOrganizationId(),
@@ -310,110 +456,10 @@ public class Dot11DiscoResource extends TapDataHandlingResource {
                     ));
                 }
 
-                return Response.ok(ThreeColumnTableHistogramResponse.create(total, pairsValues)).build();
+                return ThreeColumnTableHistogramResponse.create(total, pairsValues);
             default:
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-        }
-    }
-
-
-    @GET
-    @Path("/config/detection")
-    @RESTSecured(value = PermissionLevel.ANY, featurePermissions = { "dot11_monitoring_manage" })
-    public Response getDetectionConfig(@Context SecurityContext sc,
-                                       @QueryParam("monitored_network_id") @NotNull UUID monitoredNetworkId) {
-        AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
-
-        Optional<MonitoredSSID> monitoredNetwork = nzyme.getDot11().findMonitoredSSID(monitoredNetworkId);
-
-        if (monitoredNetwork.isEmpty()) {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        }
-
-        if (!passedMonitoredNetworkAccessible(authenticatedUser, monitoredNetwork.get())){
-            return Response.status(Response.Status.NOT_FOUND).build();
-        }
-
-        Dot11DiscoMonitorMethodConfiguration config = nzyme.getDot11().getDiscoMonitorMethodConfiguration(
-                monitoredNetwork.get().id());
-
-        return Response.ok(DiscoMonitorMethodConfigurationResponse.create(config.type(), config.configuration()))
-                .build();
-    }
-
-    @PUT
-    @Path("/config/detection")
-    @RESTSecured(value = PermissionLevel.ANY, featurePermissions = { "dot11_monitoring_manage" })
-    public Response setDetectionConfig(@Context SecurityContext sc,
-                                       @Valid UpdateDiscoDetectionConfigRequest req) {
-        AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
-
-        Optional<MonitoredSSID> monitoredNetwork = nzyme.getDot11().findMonitoredSSID(req.monitoredNetworkId());
-
-        if (monitoredNetwork.isEmpty()) {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        }
-
-        if (!passedMonitoredNetworkAccessible(authenticatedUser, monitoredNetwork.get())){
-            return Response.status(Response.Status.NOT_FOUND).build();
-        }
-
-        String configurationJson;
-        try {
-            ObjectMapper om = new ObjectMapper();
-            configurationJson = om.writeValueAsString(req.configuration());
-        } catch(Exception e) {
-            return Response.status(Response.Status.BAD_REQUEST).build();
-        }
-
-        nzyme.getDot11().setDiscoMonitorMethodConfiguration(
-                req.methodType(), configurationJson, monitoredNetwork.get().id()
-        );
-
-        return Response.ok().build();
-    }
-
-    @POST
-    @Path("/config/detection/simulate")
-    @RESTSecured(value = PermissionLevel.ANY, featurePermissions = { "dot11_monitoring_manage" })
-    public Response simulateDetectionConfig(@Context SecurityContext sc,
-                                            @Valid SimulateDiscoDetectionConfigRequest req) {
-        AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
-
-        Optional<MonitoredSSID> monitoredNetwork = nzyme.getDot11().findMonitoredSSID(req.monitoredNetworkId());
-
-        if (monitoredNetwork.isEmpty()) {
-            return Response.status(Response.Status.NOT_FOUND).build();
+                throw new IllegalArgumentException("Unknown list type [" + listType + "].");
         }
-
-        if (!passedMonitoredNetworkAccessible(authenticatedUser, monitoredNetwork.get())) {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        }
-
-        Optional<Tap> tap = nzyme.getTapManager().findTap(req.tapId());
-        if (tap.isEmpty()) {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        }
-
-        if (!nzyme.getTapManager().allTapUUIDsAccessibleByUser(authenticatedUser).contains(tap.get().uuid())) {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        }
-
-        DiscoMonitorMethodType type;
-        try {
-            type = DiscoMonitorMethodType.valueOf(req.methodType());
-        } catch (IllegalArgumentException e) {
-            return Response.status(Response.Status.BAD_REQUEST).build();
-        }
-
-        List<Dot11DiscoMonitorAnomalyDetailsResponse> anomalies = DiscoMonitorFactory
-                .build(nzyme, type, monitoredNetwork.get(), req.configuration())
-                .execute(tap.get())
-                .stream()
-                .map(a -> Dot11DiscoMonitorAnomalyDetailsResponse.create(a.timestamp(), a.frameCount()))
-                .collect(Collectors.toList());
-
-        return Response.ok(Dot11DiscoMonitorAnomalyListResponse.create(anomalies.size(), anomalies)).build();
     }
 
 }
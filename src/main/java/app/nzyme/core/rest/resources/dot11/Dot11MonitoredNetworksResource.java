@@ -339,6 +339,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
                 req.tenantId()
         );
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -362,6 +364,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().deleteMonitoredSSID(ssid.id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -400,6 +404,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -431,6 +437,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -476,6 +484,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -508,6 +518,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -545,6 +557,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -570,6 +584,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -608,6 +624,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -633,6 +651,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -656,6 +676,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -679,6 +701,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -712,6 +736,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -880,6 +906,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
             }
         }
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok(Response.Status.CREATED).build();
     }
 
@@ -940,6 +968,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().setSimilarSSIDMonitorConfiguration(ssid.get().id(), (int) req.threshold());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
@@ -963,6 +993,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().createRestrictedSSIDSubstring(ssid.get().id(), req.substring());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -986,6 +1018,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().deleteRestrictedSSIDSubstring(ssid.get().id(), substringUuid);
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsOfCluster();
+
         return Response.ok().build();
     }
 
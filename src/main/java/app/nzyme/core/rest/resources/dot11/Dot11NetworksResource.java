@@ -1,10 +1,12 @@
 package app.nzyme.core.rest.resources.dot11;
 
 import app.nzyme.core.NzymeNode;
+import app.nzyme.core.cache.QueryResultCache;
 import app.nzyme.core.context.db.MacAddressContextEntry;
 import app.nzyme.core.dot11.Dot11;
 import app.nzyme.core.dot11.Dot11RegistryKeys;
 import app.nzyme.core.dot11.db.*;
+import app.nzyme.core.dot11.rollups.RollupResolution;
 import app.nzyme.core.dot11.tracks.Track;
 import app.nzyme.core.dot11.tracks.TrackDetector;
 import app.nzyme.core.dot11.tracks.db.TrackDetectorConfig;
@@ -61,39 +63,17 @@ public class Dot11NetworksResource extends TapDataHandlingResource {
         AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
         List<UUID> tapUuids = parseAndValidateTapIds(authenticatedUser, nzyme, taps);
 
-        List<BSSIDSummaryDetailsResponse> bssids = Lists.newArrayList();
-
-        for (BSSIDSummary bssid : nzyme.getDot11().findBSSIDs(minutes, tapUuids)) {
-            Optional<MacAddressContextEntry> bssidContext = nzyme.getContextService().findMacAddressContext(
-                    bssid.bssid(),
-                    authenticatedUser.getOrganizationId(),
-                    authenticatedUser.getTenantId()
-            );
-
-            bssids.add(BSSIDSummaryDetailsResponse.create(
-                    Dot11MacAddressResponse.create(
-                            bssid.bssid(),
-                            nzyme.getOUIManager().lookupMac(bssid.bssid()),
-                            bssidContext.map(macAddressContextEntry ->
-                                    Dot11MacAddressContextResponse.create(
-                                            macAddressContextEntry.name(),
-                                            macAddressContextEntry.description()
-                                    ))
-                                    .orElse(null)
-                    ),
-                    bssid.securityProtocols(),
-                    bssid.signalStrengthAverage(),
-                    bssid.firstSeen(),
-                    bssid.lastSeen(),
-                    bssid.clientCount(),
-                    bssid.fingerprints(),
-                    bssid.ssids(),
-                    bssid.hiddenSSIDFrames() > 0,
-                    bssid.infrastructureTypes()
-            ));
-        }
+        BSSIDListResponse response = nzyme.getQueryResultCache().get(
+                "dot11.networks.bssids",
+                tapUuids,
+                minutes,
+                authenticatedUser.getOrganizationId(),
+                authenticatedUser.getTenantId(),
+                QueryResultCache.parameters(),
+                () -> buildBSSIDList(authenticatedUser, minutes, tapUuids)
+        );
 
-        return Response.ok(BSSIDListResponse.create(bssids)).build();
+        return Response.ok(response).build();
     }
 
     @GET
@@ -188,15 +168,19 @@ public class Dot11NetworksResource extends TapDataHandlingResource {
         AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
         List<UUID> tapUuids = parseAndValidateTapIds(authenticatedUser, nzyme, taps);
 
+        RollupResolution resolution = RollupResolution.forRange(minutes);
+
         Map<DateTime, Dot11AdvertisementHistogramEntry> histogram = Maps.newHashMap();
         for (Dot11AdvertisementHistogramEntry entry : nzyme.getDot11()
-                .getBSSIDAdvertisementHistogram(bssid, minutes, tapUuids)) {
+                .getBSSIDAdvertisementHistogram(bssid, minutes, resolution, tapUuids)) {
             histogram.put(entry.bucket(), entry);
         }
 
         Map<DateTime, AdvertisementHistogramValueResponse> response = Maps.newTreeMap();
-        for (int x = minutes; x != 0; x--) {
-            DateTime bucket = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0).minusMinutes(x);
+        DateTime now = DateTime.now();
+        for (DateTime bucket = resolution.floor(now.minusMinutes(minutes));
+             bucket.isBefore(resolution.floor(now));
+             bucket = bucket.plusMinutes(resolution.getMinutes())) {
             Dot11AdvertisementHistogramEntry entry = histogram.get(bucket);
             if (entry == null) {
                 response.put(bucket,
@@ -307,32 +291,17 @@ public class Dot11NetworksResource extends TapDataHandlingResource {
         AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
         List<UUID> tapUuids = parseAndValidateTapIds(authenticatedUser, nzyme, taps);
 
-        Map<DateTime, BSSIDAndSSIDCountHistogramEntry> histogram = Maps.newHashMap();
-        for (BSSIDAndSSIDCountHistogramEntry h : nzyme.getDot11().getBSSIDAndSSIDCountHistogram(minutes, tapUuids)) {
-            histogram.put(h.bucket(), h);
-        }
-
-        Map<DateTime, BSSIDAndSSIDHistogramValueResponse> response = Maps.newTreeMap();
-        for (int x = minutes; x != 0; x--) {
-            DateTime bucket = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0).minusMinutes(x);
-            BSSIDAndSSIDCountHistogramEntry entry = histogram.get(bucket);
-            if (entry == null) {
-                response.put(bucket,
-                        BSSIDAndSSIDHistogramValueResponse.create(bucket, 0, 0)
-                );
-            } else {
-                response.put(
-                        bucket,
-                        BSSIDAndSSIDHistogramValueResponse.create(
-                                entry.bucket(),
-                                entry.bssidCount(),
-                                entry.ssidCount()
-                        )
-                );
-            }
-        }
+        BSSIDAndSSIDHistogramResponse histogram = nzyme.getQueryResultCache().get(
+                "dot11.networks.bssids.histogram",
+                tapUuids,
+                minutes,
+                null,
+                null,
+                QueryResultCache.parameters(),
+                () -> buildBSSIDAndSSIDHistogram(minutes, tapUuids)
+        );
 
-        return Response.ok(BSSIDAndSSIDHistogramResponse.create(response)).build();
+        return Response.ok(histogram).build();
     }
 
     @GET
@@ -444,15 +413,19 @@ public class Dot11NetworksResource extends TapDataHandlingResource {
         AuthenticatedUser authenticatedUser = getAuthenticatedUser(sc);
         List<UUID> tapUuids = parseAndValidateTapIds(authenticatedUser, nzyme, taps);
 
+        RollupResolution resolution = RollupResolution.forRange(minutes);
+
         Map<DateTime, Dot11AdvertisementHistogramEntry> histogram = Maps.newHashMap();
         for (Dot11AdvertisementHistogramEntry entry : nzyme.getDot11()
-                .getSSIDAdvertisementHistogram(bssid, ssid, minutes, tapUuids)) {
+                .getSSIDAdvertisementHistogram(bssid, ssid, minutes, resolution, tapUuids)) {
             histogram.put(entry.bucket(), entry);
         }
 
         Map<DateTime, AdvertisementHistogramValueResponse> response = Maps.newTreeMap();
-        for (int x = minutes; x != 0; x--) {
-            DateTime bucket = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0).minusMinutes(x);
+        DateTime now = DateTime.now();
+        for (DateTime bucket = resolution.floor(now.minusMinutes(minutes));
+             bucket.isBefore(resolution.floor(now));
+             bucket = bucket.plusMinutes(resolution.getMinutes())) {
             Dot11AdvertisementHistogramEntry entry = histogram.get(bucket);
             if (entry == null) {
                 response.put(bucket,
@@ -594,4 +567,77 @@ public class Dot11NetworksResource extends TapDataHandlingResource {
 
         return Response.ok(nzyme.getDot11().findAllSSIDNames(tapUuids)).build();
     }
+
+    private BSSIDListResponse buildBSSIDList(AuthenticatedUser authenticatedUser, int minutes, List<UUID> tapUuids) {
+        List<BSSIDSummary> summaries = nzyme.getDot11().findBSSIDs(minutes, tapUuids);
+
+        // Enrich all BSSIDs at once instead of looking up context and OUI row by row.
+        List<String> bssidAddresses = Lists.newArrayListWithCapacity(summaries.size());
+        for (BSSIDSummary bssid : summaries) {
+            bssidAddresses.add(bssid.bssid());
+        }
+        Map<String, MacAddressContextEntry> contexts = nzyme.getContextService().findMacAddressContexts(
+                bssidAddresses,
+                authenticatedUser.getOrganizationId(),
+                authenticatedUser.getTenantId()
+        );
+        Map<String, String> ouis = nzyme.getOUIManager().lookupMacs(bssidAddresses);
+
+        List<BSSIDSummaryDetailsResponse> bssids = Lists.newArrayList();
+        for (BSSIDSummary bssid : summaries) {
+            MacAddressContextEntry bssidContext = contexts.get(bssid.bssid());
+
+            bssids.add(BSSIDSummaryDetailsResponse.create(
+                    Dot11MacAddressResponse.create(
+                            bssid.bssid(),
+                            ouis.get(bssid.bssid()),
+                            bssidContext == null ? null : Dot11MacAddressContextResponse.create(
+                                    bssidContext.name(),
+                                    bssidContext.description()
+                            )
+                    ),
+                    bssid.securityProtocols(),
+                    bssid.signalStrengthAverage(),
+                    bssid.firstSeen(),
+                    bssid.lastSeen(),
+                    bssid.clientCount(),
+                    bssid.fingerprints(),
+                    bssid.ssids(),
+                    bssid.hiddenSSIDFrames() > 0,
+                    bssid.infrastructureTypes()
+            ));
+        }
+
+        return BSSIDListResponse.create(bssids);
+    }
+
+    private BSSIDAndSSIDHistogramResponse buildBSSIDAndSSIDHistogram(int minutes, List<UUID> tapUuids) {
+        Map<DateTime, BSSIDAndSSIDCountHistogramEntry> histogram = Maps.newHashMap();
+        for (BSSIDAndSSIDCountHistogramEntry h : nzyme.getDot11().getBSSIDAndSSIDCountHistogram(minutes, tapUuids)) {
+            histogram.put(h.bucket(), h);
+        }
+
+        Map<DateTime, BSSIDAndSSIDHistogramValueResponse> response = Maps.newTreeMap();
+        for (int x = minutes; x != 0; x--) {
+            DateTime bucket = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0).minusMinutes(x);
+            BSSIDAndSSIDCountHistogramEntry entry = histogram.get(bucket);
+            if (entry == null) {
+                response.put(bucket,
+                        BSSIDAndSSIDHistogramValueResponse.create(bucket, 0, 0)
+                );
+            } else {
+                response.put(
+                        bucket,
+                        BSSIDAndSSIDHistogramValueResponse.create(
+                                entry.bucket(),
+                                entry.bssidCount(),
+                                entry.ssidCount()
+                        )
+                );
+            }
+        }
+
+        return BSSIDAndSSIDHistogramResponse.create(response);
+    }
+
 }
@@ -1,6 +1,7 @@
 package app.nzyme.core.rest.resources.ethernet;
 
 import app.nzyme.core.NzymeNode;
+import app.nzyme.core.cache.QueryResultCache;
 import app.nzyme.core.rest.TapDataHandlingResource;
 import app.nzyme.plugin.rest.security.PermissionLevel;
 import com.google.common.collect.Lists;
@@ -47,6 +48,20 @@ public class DNSResource extends TapDataHandlingResource {
 
         List<UUID> taps = parseAndValidateTapIds(getAuthenticatedUser(sc), nzyme, tapIds);
 
+        DNSStatisticsResponse statistics = nzyme.getQueryResultCache().get(
+                "ethernet.dns.statistics",
+                taps,
+                hours*60,
+                null,
+                null,
+                QueryResultCache.parameters(),
+                () -> buildStatistics(hours, taps)
+        );
+
+        return Response.ok(statistics).build();
+    }
+
+    private DNSStatisticsResponse buildStatistics(int hours, List<UUID> taps) {
         List<DNSStatisticsBucket> statistics = nzyme.getEthernet().dns().getStatistics(hours, taps);
 
         Map<DateTime, DNSStatisticsBucketResponse> buckets = Maps.newHashMap();
@@ -68,17 +83,15 @@ public class DNSResource extends TapDataHandlingResource {
             pairSummary.add(DNSPairSummaryResponse.create(ps.server(), ps.requestCount(), ps.clientCount()));
         }
 
-        return Response.ok(
-                DNSStatisticsResponse.create(
-                        buckets,
-                        DNSTrafficSummaryResponse.create(
-                                trafficSummary.totalPackets(),
-                                trafficSummary.totalTrafficBytes(),
-                                trafficSummary.totalNxdomains()
-                        ),
-                        pairSummary
-                )
-        ).build();
+        return DNSStatisticsResponse.create(
+                buckets,
+                DNSTrafficSummaryResponse.create(
+                        trafficSummary.totalPackets(),
+                        trafficSummary.totalTrafficBytes(),
+                        trafficSummary.totalNxdomains()
+                ),
+                pairSummary
+        );
     }
 
 }
@@ -41,6 +41,8 @@ public class TablesResource {
 
     private static final Logger LOG = LogManager.getLogger(StatusResource.class);
 
+    private static final int RETRY_AFTER_SECONDS = 10;
+
     @Inject
     private NzymeNode nzyme;
 
@@ -50,11 +52,18 @@ public class TablesResource {
 
         LOG.debug("Received table report from [{}]: {}", tapId, report);
 
-        // DNS.
-        nzyme.getTablesService().dns().handleReport(tapId, report.timestamp(), report.dns());
-
-        // 802.11
-        nzyme.getTablesService().dot11().handleReport(tapId, report.timestamp(), report.dot11());
+        // Tables are written asynchronously by the ingest queue workers.
+        switch (nzyme.getTablesService().getIngestQueue().offer(tapId, report)) {
+            case QUEUE_FULL:
+                LOG.warn("Tables ingest queue is full. Rejecting table report from [{}].", tapId);
+                return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                        .header("Retry-After", RETRY_AFTER_SECONDS)
+                        .build();
+            case NOT_RUNNING:
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                        .header("Retry-After", RETRY_AFTER_SECONDS)
+                        .build();
+        }
 
         // Submit to Retro if service is present. TODO move to tap UUIDs instead of names.
         /*if (nzyme.retroService().isPresent()) {
@@ -72,7 +81,7 @@ public class TablesResource {
             );
         }*/
 
-        return Response.status(Response.Status.CREATED).build();
+        return Response.status(Response.Status.ACCEPTED).build();
     }
 
 }
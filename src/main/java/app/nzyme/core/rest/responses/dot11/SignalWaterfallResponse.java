@@ -10,7 +10,7 @@ import java.util.List;
 public abstract class SignalWaterfallResponse {
 
     @JsonProperty("z")
-    public abstract List<List<Long>> z();
+    public abstract List<long[]> z();
 
     @JsonProperty("x")
     public abstract List<Integer> x();
@@ -24,7 +24,7 @@ public abstract class SignalWaterfallResponse {
     @JsonProperty("detector_configuration")
     public abstract SignalWaterfallConfigurationResponse detectorConfiguration();
 
-    public static SignalWaterfallResponse create(List<List<Long>> z, List<Integer> x, List<DateTime> y, List<SignalWaterfallTrackResponse> tracks, SignalWaterfallConfigurationResponse detectorConfiguration) {
+    public static SignalWaterfallResponse create(List<long[]> z, List<Integer> x, List<DateTime> y, List<SignalWaterfallTrackResponse> tracks, SignalWaterfallConfigurationResponse detectorConfiguration) {
         return builder()
                 .z(z)
                 .x(x)
@@ -40,7 +40,7 @@ public abstract class SignalWaterfallResponse {
 
     @AutoValue.Builder
     public abstract static class Builder {
-        public abstract Builder z(List<List<Long>> z);
+        public abstract Builder z(List<long[]> z);
 
         public abstract Builder x(List<Integer> x);
 
@@ -7,11 +7,18 @@ import app.nzyme.core.security.authentication.db.OrganizationEntry;
 import app.nzyme.core.security.authentication.db.TapPermissionEntry;
 import app.nzyme.core.security.authentication.db.TenantEntry;
 import app.nzyme.core.security.authentication.db.UserEntry;
+import app.nzyme.core.security.sessions.SessionPrincipal;
 import app.nzyme.core.security.sessions.db.SessionEntry;
 import app.nzyme.core.security.sessions.db.SessionEntryWithUserDetails;
+import app.nzyme.plugin.distributed.messaging.ClusterMessage;
+import app.nzyme.plugin.distributed.messaging.MessageType;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.io.BaseEncoding;
 
@@ -21,10 +28,13 @@ import org.apache.logging.log4j.Logger;
 import org.joda.time.DateTime;
 
 import javax.annotation.Nullable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
@@ -34,18 +44,45 @@ public class AuthenticationService {
 
     public final NzymeNode nzyme;
 
+    // Taps that recently authenticated, by HMAC digest of their secret.
+    private final Cache<String, TapPermissionEntry> tapsBySecretDigest;
+
+    // Recently authenticated sessions with passed MFA, by session ID.
+    private final Cache<String, SessionPrincipal> sessionPrincipals;
+
+    // Last user activity, collected per request and written to the database periodically.
+    private final Map<UUID, PendingUserActivity> pendingUserActivity;
+
     public AuthenticationService(NzymeNode nzyme) {
         this.nzyme = nzyme;
+
+        this.tapsBySecretDigest = CacheBuilder.newBuilder()
+                .expireAfterWrite(5, TimeUnit.MINUTES)
+                .build();
+
+        this.sessionPrincipals = CacheBuilder.newBuilder()
+                .expireAfterWrite(30, TimeUnit.SECONDS)
+                .build();
+
+        this.pendingUserActivity = new ConcurrentHashMap<>();
     }
 
     public void initialize() {
         seedDatabase();
+        backfillTapSecretDigests();
 
         Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder()
                         .setNameFormat("session-cleaner-%d")
                         .build()
         ).scheduleAtFixedRate(this::runSessionCleaning, 0, 30, TimeUnit.SECONDS);
+
+        Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("user-activity-flusher-%d")
+                        .setDaemon(true)
+                        .build()
+        ).scheduleAtFixedRate(this::flushUserActivity, 10, 10, TimeUnit.SECONDS);
     }
 
     private void seedDatabase() {
@@ -126,6 +163,8 @@ public class AuthenticationService {
                         .bind("user_id", userId)
                         .execute()
         );
+
+        invalidateSessionPrincipalsOfCluster();
     }
 
     public OrganizationEntry createOrganization(String name, String description) {
@@ -311,6 +350,8 @@ public class AuthenticationService {
                         .bind("user_id", userId)
                         .execute()
         );
+
+        invalidateSessionPrincipalsOfCluster();
     }
 
     public TenantEntry createTenant(UUID organizationId,
@@ -486,6 +527,9 @@ public class AuthenticationService {
                         .bind("user_id", userId)
                         .execute()
         );
+
+        invalidateSessionPrincipalsOfCluster();
+        nzyme.getTapManager().invalidateTapScopesOfCluster();
     }
 
     public void setUserTapPermissions(UUID userId, List<UUID> newPermissions) {
@@ -504,6 +548,9 @@ public class AuthenticationService {
                             .execute()
             );
         }
+
+        invalidateSessionPrincipalsOfCluster();
+        nzyme.getTapManager().invalidateTapScopesOfCluster();
     }
 
     public void setUserPermissions(UUID userId, List<String> permissions) {
@@ -522,6 +569,8 @@ public class AuthenticationService {
                             .execute()
             );
         }
+
+        invalidateSessionPrincipalsOfCluster();
     }
 
     public UserEntry createUserOfTenant(UUID organizationId,
@@ -557,6 +606,8 @@ public class AuthenticationService {
                         .bind("user_id", userId)
                         .execute()
         );
+
+        invalidateSessionPrincipalsOfCluster();
     }
 
     public void editUserPassword(UUID userId, PasswordHasher.GeneratedHashAndSalt password) {
@@ -579,6 +630,8 @@ public class AuthenticationService {
                         .bind("user_id", userId)
                         .execute()
         );
+
+        invalidateSessionPrincipalsOfCluster();
     }
 
     public void resetMFAOfUser(UUID userId) {
@@ -799,6 +852,56 @@ public class AuthenticationService {
         );
     }
 
+    /*
+     * Returns the session, user and feature permissions of a session with passed MFA. Served from a short-lived
+     * cache because this is called for every authenticated REST request. Only successful lookups are cached.
+     */
+    public Optional<SessionPrincipal> findSessionPrincipal(String sessionId) {
+        SessionPrincipal cached = sessionPrincipals.getIfPresent(sessionId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<SessionEntry> session = findSessionWithPassedMFABySessionId(sessionId);
+        if (session.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<UserEntry> user = findUserById(session.get().userId());
+        if (user.isEmpty()) {
+            LOG.error("Session referenced user that doesn't exist.");
+            return Optional.empty();
+        }
+
+        SessionPrincipal principal = SessionPrincipal.create(
+                session.get(),
+                user.get(),
+                ImmutableSet.copyOf(findPermissionsOfUser(user.get().uuid()))
+        );
+
+        sessionPrincipals.put(sessionId, principal);
+
+        return Optional.of(principal);
+    }
+
+    public void invalidateSessionPrincipals() {
+        sessionPrincipals.invalidateAll();
+    }
+
+    /*
+     * Invalidates cached sessions on this node and on all other nodes of the cluster. Must be called after deleting
+     * sessions or changing users or their permissions.
+     */
+    public void invalidateSessionPrincipalsOfCluster() {
+        invalidateSessionPrincipals();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "auth_sessions"),
+                false
+        ));
+    }
+
     public void markSessionAsMFAValid(String sessionId) {
         nzyme.getDatabase().useHandle(handle ->
                 handle.createUpdate("UPDATE auth_sessions SET mfa_valid = true, mfa_requested_at = NULL " +
@@ -814,6 +917,8 @@ public class AuthenticationService {
                         .bind("id", id)
                         .execute()
         );
+
+        invalidateSessionPrincipalsOfCluster();
     }
 
     public long countAllSessions() {
@@ -848,14 +953,22 @@ public class AuthenticationService {
     }
 
     public void updateLastUserActivity(UUID userId, String remoteIp, @Nullable GeoIpLookupResult remoteIpGeo) {
+        updateLastUserActivity(userId, remoteIp, remoteIpGeo, DateTime.now());
+    }
+
+    private void updateLastUserActivity(UUID userId,
+                                        String remoteIp,
+                                        @Nullable GeoIpLookupResult remoteIpGeo,
+                                        DateTime timestamp) {
         String countryCode = remoteIpGeo != null && remoteIpGeo.geo() != null ? remoteIpGeo.geo().countryCode() : null;
         String city = remoteIpGeo != null && remoteIpGeo.geo() != null ? remoteIpGeo.geo().city() : null;
         String asnName = remoteIpGeo != null && remoteIpGeo.asn() != null ? remoteIpGeo.asn().name() : null;;
 
         nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE auth_users SET last_activity = NOW(), last_remote_ip = :remote_ip, " +
-                                "last_geo_country = :country_code, last_geo_city = :city, last_geo_asn = :asn " +
-                                "WHERE uuid = :user_id")
+                handle.createUpdate("UPDATE auth_users SET last_activity = :last_activity, " +
+                                "last_remote_ip = :remote_ip, last_geo_country = :country_code, last_geo_city = :city, " +
+                                "last_geo_asn = :asn WHERE uuid = :user_id")
+                        .bind("last_activity", timestamp)
                         .bind("remote_ip", remoteIp)
                         .bind("country_code", countryCode)
                         .bind("city", city)
@@ -865,30 +978,67 @@ public class AuthenticationService {
         );
     }
 
+    /*
+     * Records activity of a user. Only the latest activity of each user is kept and written to the database by
+     * flushUserActivity(), instead of updating the user on every request.
+     */
+    public void recordUserActivity(UUID userId, String remoteIp) {
+        pendingUserActivity.put(userId, new PendingUserActivity(remoteIp, DateTime.now()));
+    }
+
+    public void flushUserActivity() {
+        try {
+            for (UUID userId : Lists.newArrayList(pendingUserActivity.keySet())) {
+                PendingUserActivity activity = pendingUserActivity.remove(userId);
+                if (activity == null) {
+                    continue;
+                }
+
+                GeoIpLookupResult geo = null;
+                try {
+                    if (!Strings.isNullOrEmpty(activity.remoteIp)) {
+                        geo = nzyme.getGeoIpService().lookup(InetAddress.getByName(activity.remoteIp)).orElse(null);
+                    }
+                } catch (UnknownHostException e) {
+                    LOG.debug("Could not look up remote IP [{}] of user activity.", activity.remoteIp, e);
+                }
+
+                updateLastUserActivity(userId, activity.remoteIp, geo, activity.timestamp);
+            }
+        } catch (Exception e) {
+            LOG.error("Could not flush user activity.", e);
+        }
+    }
+
     public void deleteAllSessionsOfUser(UUID userId) {
         nzyme.getDatabase().useHandle(handle ->
                 handle.createUpdate("DELETE FROM auth_sessions WHERE user_id = :user_id")
                         .bind("user_id", userId)
                         .execute()
         );
+
+        invalidateSessionPrincipalsOfCluster();
     }
 
     public TapPermissionEntry createTap(UUID organizationId, UUID tenantId, String secret, String name, String description) {
         String encryptedSecret;
+        String secretDigest;
         try {
             encryptedSecret = BaseEncoding.base64().encode(nzyme.getCrypto().encryptWithClusterKey(secret.getBytes()));
+            secretDigest = nzyme.getCrypto().hmacWithClusterKey(secret.getBytes());
         } catch (Crypto.CryptoOperationException e) {
             throw new RuntimeException("Could not encrypt tap secret.", e);
         }
 
-        return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("INSERT INTO taps(uuid, organization_id, tenant_id, secret, name, " +
+        TapPermissionEntry tap = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("INSERT INTO taps(uuid, organization_id, tenant_id, secret, secret_digest, name, " +
                                 "description, deleted, created_at, updated_at) VALUES(:uuid, :organization_id, :tenant_id, " +
-                                ":secret, :name, :description, false, :created_at, :updated_at) RETURNING *")
+                                ":secret, :secret_digest, :name, :description, false, :created_at, :updated_at) RETURNING *")
                         .bind("uuid", UUID.randomUUID())
                         .bind("organization_id", organizationId)
                         .bind("tenant_id", tenantId)
                         .bind("secret", encryptedSecret)
+                        .bind("secret_digest", secretDigest)
                         .bind("name", name)
                         .bind("description", description)
                         .bind("created_at", DateTime.now())
@@ -896,6 +1046,10 @@ public class AuthenticationService {
                         .mapTo(TapPermissionEntry.class)
                         .one()
         );
+
+        nzyme.getTapManager().invalidateTapScopesOfCluster();
+
+        return tap;
     }
 
     public List<TapPermissionEntry> findAllTapsOfTenant(UUID organizationId, UUID tenantId) {
@@ -933,34 +1087,87 @@ public class AuthenticationService {
 
     public Optional<TapPermissionEntry> findTapBySecret(String secret) {
         /*
-         * We have to pull all taps here and then loop over them because the secret is encrypted, and we can't use
-         * a SELECT WHERE with a non-deterministic encryption like PGP.
+         * The secret is encrypted with non-deterministic PGP, so we look taps up by a keyed HMAC digest of the
+         * secret instead. Taps that authenticated recently are served from memory.
          */
+        String digest;
+        try {
+            digest = nzyme.getCrypto().hmacWithClusterKey(secret.getBytes());
+        } catch (Crypto.CryptoOperationException e) {
+            throw new RuntimeException("Could not calculate tap secret digest.", e);
+        }
+
+        TapPermissionEntry cached = tapsBySecretDigest.getIfPresent(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<TapPermissionEntry> tap = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT uuid, organization_id, tenant_id, name, description, secret, " +
+                                "created_at, updated_at, last_report FROM taps WHERE secret_digest = :secret_digest")
+                        .bind("secret_digest", digest)
+                        .mapTo(TapPermissionEntry.class)
+                        .findFirst()
+        );
+
+        tap.ifPresent(t -> tapsBySecretDigest.put(digest, t));
+
+        return tap;
+    }
+
+    public void invalidateTapSecretCache() {
+        tapsBySecretDigest.invalidateAll();
+    }
 
+    /*
+     * Invalidates the tap secret cache on this node and on all other nodes of the cluster. Must be called after
+     * changing or deleting a tap.
+     */
+    public void invalidateTapSecretCacheOfCluster() {
+        invalidateTapSecretCache();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "tap_secrets"),
+                false
+        ));
+    }
+
+    /*
+     * Taps created before secret digests existed only have their encrypted secret. Decrypt those once and
+     * store the digest so they can be looked up like all other taps.
+     */
+    private void backfillTapSecretDigests() {
         List<TapPermissionEntry> taps = nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT uuid, organization_id, tenant_id, name, description, secret, " +
-                                "created_at, updated_at, last_report FROM taps")
+                                "created_at, updated_at, last_report FROM taps WHERE secret_digest IS NULL")
                         .mapTo(TapPermissionEntry.class)
                         .list()
         );
 
         for (TapPermissionEntry tap : taps) {
             try {
-                String decryptedSecret = new String(
-                        nzyme.getCrypto().decryptWithClusterKey(
-                                BaseEncoding.base64().decode(tap.secret())
-                        )
+                byte[] decryptedSecret = nzyme.getCrypto().decryptWithClusterKey(
+                        BaseEncoding.base64().decode(tap.secret())
                 );
 
-                if (secret.equals(decryptedSecret)) {
-                    return Optional.of(tap);
-                }
+                String digest = nzyme.getCrypto().hmacWithClusterKey(decryptedSecret);
+
+                nzyme.getDatabase().useHandle(handle ->
+                        handle.createUpdate("UPDATE taps SET secret_digest = :secret_digest WHERE uuid = :uuid")
+                                .bind("secret_digest", digest)
+                                .bind("uuid", tap.uuid())
+                                .execute()
+                );
             } catch (Crypto.CryptoOperationException e) {
-                throw new RuntimeException("Could not decrypt tap key.", e);
+                LOG.error("Could not calculate secret digest of tap [{}]. Tap will not be able to authenticate.",
+                        tap.uuid(), e);
             }
         }
 
-        return Optional.empty();
+        if (!taps.isEmpty()) {
+            LOG.info("Calculated secret digests of <{}> taps.", taps.size());
+        }
     }
 
     public void deleteTap(UUID organizationId, UUID tenantId, UUID tapId) {
@@ -978,6 +1185,9 @@ public class AuthenticationService {
                         .bind("uuid", tapId)
                         .execute()
         );
+
+        invalidateTapSecretCacheOfCluster();
+        nzyme.getTapManager().invalidateTapScopesOfCluster();
     }
 
     public void editTap(UUID organizationId, UUID tenantId, UUID tapId, String name, String description) {
@@ -990,25 +1200,34 @@ public class AuthenticationService {
                         .bind("tenant_id", tenantId)
                         .bind("uuid", tapId)
                         .execute()
-        );    }
+        );
+
+        invalidateTapSecretCacheOfCluster();
+    }
 
     public void cycleTapSecret(UUID organizationId, UUID tenantId, UUID tapId, String newSecret) {
         String encryptedSecret;
+        String secretDigest;
         try {
             encryptedSecret = BaseEncoding.base64().encode(nzyme.getCrypto().encryptWithClusterKey(newSecret.getBytes()));
+            secretDigest = nzyme.getCrypto().hmacWithClusterKey(newSecret.getBytes());
         } catch (Crypto.CryptoOperationException e) {
             throw new RuntimeException("Could not encrypt tap secret.", e);
         }
 
         nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE taps SET secret = :secret, updated_at = NOW() " +
-                                "WHERE organization_id = :organization_id AND tenant_id = :tenant_id AND uuid = :uuid")
+                handle.createUpdate("UPDATE taps SET secret = :secret, secret_digest = :secret_digest, " +
+                                "updated_at = NOW() WHERE organization_id = :organization_id " +
+                                "AND tenant_id = :tenant_id AND uuid = :uuid")
                         .bind("secret", encryptedSecret)
+                        .bind("secret_digest", secretDigest)
                         .bind("organization_id", organizationId)
                         .bind("tenant_id", tenantId)
                         .bind("uuid", tapId)
                         .execute()
         );
+
+        invalidateTapSecretCacheOfCluster();
     }
 
     private void runSessionCleaning() {
@@ -1089,6 +1308,8 @@ public class AuthenticationService {
                                 .bindList("user_ids", sessionsToClean)
                                 .execute()
                 );
+
+                invalidateSessionPrincipalsOfCluster();
             } catch(Exception e) {
                 LOG.error("Could not delete sessions marked for deletion.", e);
             }
@@ -1099,4 +1320,16 @@ public class AuthenticationService {
         return countTapsOfTenant(t) == 0 && countUsersOfTenant(t) == 0;
     }
 
+    private static final class PendingUserActivity {
+
+        private final String remoteIp;
+        private final DateTime timestamp;
+
+        private PendingUserActivity(String remoteIp, DateTime timestamp) {
+            this.remoteIp = remoteIp;
+            this.timestamp = timestamp;
+        }
+
+    }
+
 }
@@ -0,0 +1,38 @@
+package app.nzyme.core.security.sessions;
+
+import app.nzyme.core.security.authentication.db.UserEntry;
+import app.nzyme.core.security.sessions.db.SessionEntry;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+
+@AutoValue
+public abstract class SessionPrincipal {
+
+    public abstract SessionEntry session();
+    public abstract UserEntry user();
+    public abstract ImmutableSet<String> featurePermissions();
+
+    public static SessionPrincipal create(SessionEntry session, UserEntry user, ImmutableSet<String> featurePermissions) {
+        return builder()
+                .session(session)
+                .user(user)
+                .featurePermissions(featurePermissions)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_SessionPrincipal.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder session(SessionEntry session);
+
+        public abstract Builder user(UserEntry user);
+
+        public abstract Builder featurePermissions(ImmutableSet<String> featurePermissions);
+
+        public abstract SessionPrincipal build();
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * This file is part of nzyme.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+
+package app.nzyme.core.tables;
+
+import app.nzyme.core.rest.resources.taps.reports.tables.TablesReport;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-process queue that decouples tap table report ingestion from the HTTP worker threads. Reports are
+ * queued per tap and drained round-robin so that a single busy tap cannot starve the others. Reports of the same tap
+ * are processed one after another and never concurrently, because they write to the same aggregated rows.
+ */
+public class TablesIngestQueue {
+
+    private static final Logger LOG = LogManager.getLogger(TablesIngestQueue.class);
+
+    private static final int DRAIN_TIMEOUT_SECONDS = 10;
+
+    public enum Admission {
+        ACCEPTED, QUEUE_FULL, NOT_RUNNING
+    }
+
+    private final TablesService tablesService;
+    private final int maximumDepth;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // Guarded by lock.
+    private final Map<UUID, ArrayDeque<QueuedReport>> queues;
+    private final ArrayDeque<UUID> readyTaps;
+    private final Set<UUID> tapsInProgress;
+    private int depth = 0;
+
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    private final Timer waitTimer;
+    private final Timer processingTimer;
+    private final Meter droppedReports;
+
+    public TablesIngestQueue(TablesService tablesService, int maximumDepth, int workerCount) {
+        this.tablesService = tablesService;
+        this.maximumDepth = maximumDepth;
+        this.queues = Maps.newHashMap();
+        this.readyTaps = new ArrayDeque<>();
+        this.tapsInProgress = Sets.newHashSet();
+
+        this.waitTimer = tablesService.getNzyme().getMetrics().timer(MetricNames.TABLES_INGEST_QUEUE_WAIT_TIMING);
+        this.processingTimer = tablesService.getNzyme().getMetrics().timer(MetricNames.TABLES_INGEST_PROCESSING_TIMING);
+        this.droppedReports = tablesService.getNzyme().getMetrics().meter(MetricNames.TABLES_INGEST_QUEUE_DROPPED);
+        tablesService.getNzyme().getMetrics().register(MetricNames.TABLES_INGEST_QUEUE_DEPTH, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getDepth();
+            }
+        });
+
+        this.workers = Executors.newFixedThreadPool(workerCount,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("tables-ingest-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::work);
+        }
+    }
+
+    public Admission offer(UUID tapUuid, TablesReport report) {
+        lock.lock();
+        try {
+            if (!running) {
+                droppedReports.mark();
+                return Admission.NOT_RUNNING;
+            }
+
+            if (depth >= maximumDepth) {
+                droppedReports.mark();
+                return Admission.QUEUE_FULL;
+            }
+
+            ArrayDeque<QueuedReport> tapQueue = queues.computeIfAbsent(tapUuid, k -> new ArrayDeque<>());
+            if (tapQueue.isEmpty() && !tapsInProgress.contains(tapUuid)) {
+                readyTaps.addLast(tapUuid);
+            }
+
+            tapQueue.addLast(new QueuedReport(tapUuid, report, System.nanoTime()));
+            depth++;
+            notEmpty.signal();
+
+            return Admission.ACCEPTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getDepth() {
+        lock.lock();
+        try {
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting reports and gives the workers a bounded amount of time to write the reports that are already
+     * queued. Reports that are still queued after that are dropped.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                int dropped = clear();
+                LOG.warn("Could not drain tables ingest queue within <{}> seconds. Dropping <{}> queued reports.",
+                        DRAIN_TIMEOUT_SECONDS, dropped);
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            int dropped = clear();
+            LOG.warn("Interrupted while draining tables ingest queue. Dropping <{}> queued reports.", dropped);
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int clear() {
+        lock.lock();
+        try {
+            int dropped = depth;
+            queues.clear();
+            readyTaps.clear();
+            depth = 0;
+            droppedReports.mark(dropped);
+
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Returns null once the queue is shut down and all remaining reports have been taken. The tap of a returned
+     * report is not handed out again until complete() has been called for it.
+     */
+    private QueuedReport take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (readyTaps.isEmpty()) {
+                if (!running && depth == 0) {
+                    return null;
+                }
+
+                notEmpty.await();
+            }
+
+            // Take one report of the next tap in line. The tap moves to the back once the report is processed.
+            UUID tapUuid = readyTaps.pollFirst();
+            ArrayDeque<QueuedReport> tapQueue = queues.get(tapUuid);
+            QueuedReport report = tapQueue.pollFirst();
+            depth--;
+
+            if (tapQueue.isEmpty()) {
+                queues.remove(tapUuid);
+            }
+
+            tapsInProgress.add(tapUuid);
+
+            return report;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(UUID tapUuid) {
+        lock.lock();
+        try {
+            tapsInProgress.remove(tapUuid);
+
+            ArrayDeque<QueuedReport> tapQueue = queues.get(tapUuid);
+            if (tapQueue != null && !tapQueue.isEmpty()) {
+                readyTaps.addLast(tapUuid);
+                notEmpty.signal();
+            } else if (!running && depth == 0) {
+                // Wake up idle workers so they can exit.
+                notEmpty.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            QueuedReport queued;
+            try {
+                queued = take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (queued == null) {
+                return;
+            }
+
+            waitTimer.update(System.nanoTime() - queued.queuedAt(), TimeUnit.NANOSECONDS);
+
+            try (Timer.Context ignored = processingTimer.time()) {
+                TablesReport report = queued.report();
+
+                // DNS.
+                tablesService.dns().handleReport(queued.tapUuid(), report.timestamp(), report.dns());
+
+                // 802.11
+                tablesService.dot11().handleReport(queued.tapUuid(), report.timestamp(), report.dot11());
+            } catch (Exception e) {
+                LOG.error("Could not process table report of tap [{}].", queued.tapUuid(), e);
+            } finally {
+                complete(queued.tapUuid());
+            }
+        }
+    }
+
+    private static final class QueuedReport {
+
+        private final UUID tapUuid;
+        private final TablesReport report;
+        private final long queuedAt;
+
+        QueuedReport(UUID tapUuid, TablesReport report, long queuedAt) {
+            this.tapUuid = tapUuid;
+            this.report = report;
+            this.queuedAt = queuedAt;
+        }
+
+        UUID tapUuid() {
+            return tapUuid;
+        }
+
+        TablesReport report() {
+            return report;
+        }
+
+        long queuedAt() {
+            return queuedAt;
+        }
+
+    }
+
+}
@@ -37,6 +37,8 @@ public class TablesService {
 
     private final Map<String, DataTable> tables;
 
+    private final TablesIngestQueue ingestQueue;
+
     public TablesService(NzymeNode nzyme) {
         this.nzyme = nzyme;
 
@@ -45,6 +47,12 @@ public class TablesService {
                 .put("dot11", new Dot11Table(this))
                 .build();
 
+        this.ingestQueue = new TablesIngestQueue(
+                this,
+                nzyme.getConfiguration().tablesIngestQueueDepth(),
+                nzyme.getConfiguration().tablesIngestWorkers()
+        );
+
         Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder()
                         .setNameFormat("tables-cleaner-%d")
@@ -69,6 +77,10 @@ public class TablesService {
         return (Dot11Table) tables.get("dot11");
     }
 
+    public TablesIngestQueue getIngestQueue() {
+        return ingestQueue;
+    }
+
     public NzymeNode getNzyme() {
         return nzyme;
     }
@@ -17,13 +17,17 @@
 
 package app.nzyme.core.tables.dns;
 
+import app.nzyme.core.database.bulk.BulkLoader;
+import app.nzyme.core.database.bulk.BulkRowWriter;
 import app.nzyme.core.rest.resources.taps.reports.tables.DNSIPStatisticsReport;
 import app.nzyme.core.rest.resources.taps.reports.tables.DNSNxDomainLogReport;
 import app.nzyme.core.rest.resources.taps.reports.tables.DNSTablesReport;
 import app.nzyme.core.tables.DataTable;
 import app.nzyme.core.tables.TablesService;
+import org.jdbi.v3.core.Handle;
 import org.joda.time.DateTime;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -35,102 +39,93 @@ public class DNSTable implements DataTable {
         this.tablesService = tablesService;
     }
 
-    private void registerStatistics(UUID tapUuid,
-                                    String ip,
-                                    Long requestCount,
-                                    Long requestBytes,
-                                    Long responseCount,
-                                    Long responseBytes,
-                                    Long nxdomainCount,
-                                    DateTime timestamp) {
-
-        tablesService.getNzyme().getDatabase().useHandle(handle ->
-                handle.createUpdate("INSERT INTO dns_statistics(tap_uuid, ip, request_count, request_bytes, " +
-                            "response_count, response_bytes, nxdomain_count, created_at) VALUES(:tap_uuid, :ip, :request_count, " +
-                            ":request_bytes, :response_count, :response_bytes, :nxdomain_count, :created_at)")
-                        .bind("tap_uuid", tapUuid)
-                        .bind("ip", ip)
-                        .bind("request_count", requestCount)
-                        .bind("request_bytes", requestBytes)
-                        .bind("response_count", responseCount)
-                        .bind("response_bytes", responseBytes)
-                        .bind("nxdomain_count", nxdomainCount)
-                        .bind("created_at", timestamp)
-                        .execute()
-        );
-
-    }
+    public void handleReport(UUID tapUuid, DateTime timestamp, DNSTablesReport report) {
+        int bulkCopyThreshold = tablesService.getNzyme().getConfiguration().bulkCopyThreshold();
 
-    private void registerNxdomainLog(UUID tapUuid,
-                                    String ip,
-                                    String server,
-                                    String queryValue,
-                                    String dataType,
-                                    DateTime timestamp) {
-        tablesService.getNzyme().getDatabase().useHandle(handle ->
-                handle.createUpdate("INSERT INTO dns_nxdomains_log(tap_uuid, ip, server, query_value, data_type, " +
-                                "created_at) VALUES(:tap_uuid, :ip, :server, :query_value, :data_type, :created_at)")
-                        .bind("tap_uuid", tapUuid)
-                        .bind("ip", ip)
-                        .bind("server", server)
-                        .bind("query_value", queryValue)
-                        .bind("data_type", dataType)
-                        .bind("created_at", timestamp)
-                        .execute()
-        );
+        tablesService.getNzyme().getDatabase().useHandle(handle -> handle.useTransaction(tx -> {
+            writeStatistics(tx, bulkCopyThreshold, tapUuid, timestamp, report.ips());
+            writeNxdomainLog(tx, bulkCopyThreshold, tapUuid, timestamp, report.nxdomains());
+            writePairs(tx, bulkCopyThreshold, tapUuid, timestamp, report.pairs());
+        }));
     }
 
-    private void registerPair(UUID tapUuid, String ip, String server, long count, DateTime timestamp) {
-        tablesService.getNzyme().getDatabase().useHandle(handle ->
-                handle.createUpdate("INSERT INTO dns_pairs(tap_uuid, ip, server, count, created_at) " +
-                                "VALUES(:tap_uuid, :ip, :server, :count, :timestamp)")
-                        .bind("tap_uuid", tapUuid)
-                        .bind("ip", ip)
-                        .bind("server", server)
-                        .bind("count", count)
-                        .bind("timestamp", timestamp)
-                        .execute()
-        );
-    }
+    private void writeStatistics(Handle handle,
+                                 int bulkCopyThreshold,
+                                 UUID tapUuid,
+                                 DateTime timestamp,
+                                 Map<String, DNSIPStatisticsReport> ips) {
+        try (BulkRowWriter writer = BulkLoader.open(handle, bulkCopyThreshold, ips.size(), "dns_statistics",
+                "tap_uuid", "ip", "request_count", "request_bytes", "response_count", "response_bytes",
+                "nxdomain_count", "created_at")) {
+            for (Map.Entry<String, DNSIPStatisticsReport> x : ips.entrySet()) {
+                DNSIPStatisticsReport stats = x.getValue();
+
+                writer.value(tapUuid)
+                        .value(x.getKey())
+                        .value(stats.requestCount())
+                        .value(stats.requestBytes())
+                        .value(stats.responseCount())
+                        .value(stats.responseBytes())
+                        .value(stats.nxDomainCount())
+                        .value(timestamp)
+                        .endRow();
+            }
 
-    public void handleReport(UUID tapUuid, DateTime timestamp, DNSTablesReport report) {
-        for (Map.Entry<String, DNSIPStatisticsReport> x : report.ips().entrySet()) {
-            DNSIPStatisticsReport stats = x.getValue();
-
-            registerStatistics(
-                    tapUuid,
-                    x.getKey(),
-                    stats.requestCount(),
-                    stats.requestBytes(),
-                    stats.responseCount(),
-                    stats.responseBytes(),
-                    stats.nxDomainCount(),
-                    timestamp
-            );
+            writer.finish();
         }
+    }
 
-        for (DNSNxDomainLogReport nxdomain : report.nxdomains()) {
-            if (nxdomain.dataType().equals("PTR")) {
-                // We are not interested in reverse lookup NXDOMAINs.
-                continue;
+    private void writeNxdomainLog(Handle handle,
+                                  int bulkCopyThreshold,
+                                  UUID tapUuid,
+                                  DateTime timestamp,
+                                  List<DNSNxDomainLogReport> nxdomains) {
+        try (BulkRowWriter writer = BulkLoader.open(handle, bulkCopyThreshold, nxdomains.size(), "dns_nxdomains_log",
+                "tap_uuid", "ip", "server", "query_value", "data_type", "created_at")) {
+            for (DNSNxDomainLogReport nxdomain : nxdomains) {
+                if (nxdomain.dataType().equals("PTR")) {
+                    // We are not interested in reverse lookup NXDOMAINs.
+                    continue;
+                }
+
+                writer.value(tapUuid)
+                        .value(nxdomain.ip())
+                        .value(nxdomain.server())
+                        .value(nxdomain.queryValue())
+                        .value(nxdomain.dataType())
+                        .value(timestamp)
+                        .endRow();
             }
 
-            registerNxdomainLog(
-                    tapUuid,
-                    nxdomain.ip(),
-                    nxdomain.server(),
-                    nxdomain.queryValue(),
-                    nxdomain.dataType(),
-                    timestamp
-            );
+            writer.finish();
         }
+    }
 
-        for (Map.Entry<String, Map<String, Long>> pair : report.pairs().entrySet()) {
-            for (Map.Entry<String, Long> server : pair.getValue().entrySet()) {
-                registerPair(tapUuid, pair.getKey(), server.getKey(), server.getValue(), timestamp);
-            }
+    private void writePairs(Handle handle,
+                            int bulkCopyThreshold,
+                            UUID tapUuid,
+                            DateTime timestamp,
+                            Map<String, Map<String, Long>> pairs) {
+        long rows = 0;
+        for (Map<String, Long> servers : pairs.values()) {
+            rows += servers.size();
         }
 
+        try (BulkRowWriter writer = BulkLoader.open(handle, bulkCopyThreshold, rows, "dns_pairs",
+                "tap_uuid", "ip", "server", "count", "created_at")) {
+            for (Map.Entry<String, Map<String, Long>> pair : pairs.entrySet()) {
+                for (Map.Entry<String, Long> server : pair.getValue().entrySet()) {
+                    writer.value(tapUuid)
+                            .value(pair.getKey())
+                            .value(server.getKey())
+                            .value(server.getValue())
+                            .value(timestamp)
+                            .endRow();
+                }
+            }
+
+            writer.finish();
+        }
     }
 
     @Override
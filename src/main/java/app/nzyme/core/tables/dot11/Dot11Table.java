@@ -2,26 +2,34 @@ package app.nzyme.core.tables.dot11;
 
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.Subsystem;
+import app.nzyme.core.database.bulk.BulkLoader;
+import app.nzyme.core.database.bulk.BulkRowWriter;
 import app.nzyme.core.detection.alerts.DetectionType;
 import app.nzyme.core.dot11.Dot11;
-import app.nzyme.core.dot11.db.monitoring.*;
+import app.nzyme.core.dot11.bandits.BanditFingerprintIndex;
 import app.nzyme.core.dot11.bandits.Dot11BanditDescription;
 import app.nzyme.core.dot11.bandits.Dot11Bandits;
+import app.nzyme.core.dot11.rollups.RollupResolution;
 import app.nzyme.core.rest.resources.taps.reports.tables.dot11.*;
 import app.nzyme.core.tables.DataTable;
 import app.nzyme.core.tables.TablesService;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshot;
 import app.nzyme.core.tables.dot11.monitoring.PreLoadedMonitoredBSSID;
 import app.nzyme.core.tables.dot11.monitoring.PreLoadedMonitoredSSID;
+import app.nzyme.core.tables.dot11.monitoring.RestrictedSubstringMatch;
+import app.nzyme.core.tables.dot11.monitoring.SimilarSSIDDetector;
+import app.nzyme.core.tables.dot11.monitoring.SimilarSSIDMatch;
 import app.nzyme.core.taps.Tap;
+import app.nzyme.core.util.Tools;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Joiner;
-import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import info.debatty.java.stringsimilarity.JaroWinkler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.joda.time.DateTime;
 
 import java.util.*;
@@ -46,352 +54,555 @@ public class Dot11Table implements DataTable {
             return;
         }
 
-        writeBSSIDs(tap.get(), timestamp, report.bssids(), tap.get().organizationId(), tap.get().tenantId());
-        writeClients(tap.get(), timestamp, report.clients());
-        writeDisco(tap.get(), timestamp, report.disco());
-
+        /*
+         * The whole report is written in one transaction and any failed statement rolls back all of it. Entries
+         * the database would reject are skipped here, so that they don't take the rest of the report with them.
+         */
+        Map<String, Dot11BSSIDReport> bssids = validBSSIDs(tap.get(), report.bssids());
+        Map<String, Dot11ClientReport> clients = validClients(tap.get(), report.clients());
+
+        // Write the whole report in one transaction, using one batch per table.
+        tablesService.getNzyme().getDatabase().useHandle(handle -> handle.useTransaction(tx -> {
+            writeBSSIDs(tx, tap.get(), timestamp, bssids);
+            writeClients(tx, tap.get(), timestamp, clients);
+            writeDisco(tx, tap.get(), timestamp, report.disco());
+        }));
+
+        monitorBSSIDs(tap.get(), bssids, tap.get().organizationId(), tap.get().tenantId());
         handleAlerts(tap.get(), report.alerts());
     }
 
-    private void writeClients(Tap tap, DateTime timestamp, Map<String, Dot11ClientReport> clients) {
-        for (Map.Entry<String, Dot11ClientReport> entry : clients.entrySet()) {
-            String clientMac = entry.getKey();
-            Dot11ClientReport report = entry.getValue();
+    private static Map<String, Dot11BSSIDReport> validBSSIDs(Tap tap, Map<String, Dot11BSSIDReport> bssids) {
+        Map<String, Dot11BSSIDReport> result = Maps.newHashMapWithExpectedSize(bssids.size());
 
-            long clientDatabaseId = tablesService.getNzyme().getDatabase().withHandle(handle ->
-                    handle.createQuery("INSERT INTO dot11_clients(tap_uuid, client_mac, wildcard_probe_requests, " +
-                                    "created_at) VALUES(:tap_uuid, :client_mac, :wildcard_probe_requests, " +
-                                    ":created_at) RETURNING id")
-                            .bind("tap_uuid", tap.uuid())
-                            .bind("client_mac", clientMac)
-                            .bind("wildcard_probe_requests", report.wildcardProbeRequests())
-                            .bind("created_at", timestamp)
-                            .mapTo(Long.class)
-                            .one()
-            );
-
-            for (Map.Entry<String, Long> pr : report.probeRequestSSIDs().entrySet()) {
-                tablesService.getNzyme().getDatabase().withHandle(handle ->
-                        handle.createUpdate("INSERT INTO dot11_client_probereq_ssids(client_id, ssid, frame_count, " +
-                                        "tap_uuid) VALUES(:client_id, :ssid, :frame_count, :tap_uuid)")
-                                .bind("client_id", clientDatabaseId)
-                                .bind("ssid", pr.getKey())
-                                .bind("frame_count", pr.getValue())
-                                .bind("tap_uuid", tap.uuid())
-                                .execute()
-                );
+        for (Map.Entry<String, Dot11BSSIDReport> entry : bssids.entrySet()) {
+            if (!Tools.isValidMacAddress(entry.getKey())) {
+                LOG.warn("Skipping invalid BSSID [{}] in report of tap [{}].", entry.getKey(), tap.uuid());
+                continue;
+            }
+
+            Dot11BSSIDReport report = entry.getValue();
+
+            Map<String, Dot11AdvertisedNetworkReport> ssids = Maps.newHashMap();
+            for (Map.Entry<String, Dot11AdvertisedNetworkReport> ssid : report.advertisedNetworks().entrySet()) {
+                if (isValidSSID(ssid.getKey())) {
+                    ssids.put(ssid.getKey(), ssid.getValue());
+                } else {
+                    LOG.warn("Skipping invalid SSID [{}] of BSSID [{}] in report of tap [{}].",
+                            ssid.getKey(), entry.getKey(), tap.uuid());
+                }
+            }
+
+            Map<String, Dot11ClientStatisticsReport> bssidClients = Maps.newHashMap();
+            for (Map.Entry<String, Dot11ClientStatisticsReport> client : report.clients().entrySet()) {
+                if (Tools.isValidMacAddress(client.getKey())) {
+                    bssidClients.put(client.getKey(), client.getValue());
+                } else {
+                    LOG.warn("Skipping invalid client [{}] of BSSID [{}] in report of tap [{}].",
+                            client.getKey(), entry.getKey(), tap.uuid());
+                }
+            }
+
+            if (ssids.size() == report.advertisedNetworks().size() && bssidClients.size() == report.clients().size()) {
+                result.put(entry.getKey(), report);
+            } else {
+                result.put(entry.getKey(), Dot11BSSIDReport.create(ssids, bssidClients, report.hiddenSSIDFrames(),
+                        report.signalStrength(), report.fingerprints()));
             }
         }
+
+        return result;
     }
 
-    public void writeBSSIDs(Tap tap, DateTime timestamp,
-                            Map<String, Dot11BSSIDReport> bssids,
-                            UUID organizationId,
-                            UUID tenantId) {
-        // Collect all monitored SSIDs and their attributes.
-        Map<String, PreLoadedMonitoredSSID> monitoredSSIDs = Maps.newHashMap();
-        List<String> monitoredSSIDNames = Lists.newArrayList();
-        NzymeNode nzyme = tablesService.getNzyme();;
-        for (MonitoredSSID s : nzyme.getDot11().findAllMonitoredSSIDs(tap.organizationId(), tap.tenantId())) {
-            if (!s.isEnabled()) {
+    private static Map<String, Dot11ClientReport> validClients(Tap tap, Map<String, Dot11ClientReport> clients) {
+        Map<String, Dot11ClientReport> result = Maps.newHashMapWithExpectedSize(clients.size());
+
+        for (Map.Entry<String, Dot11ClientReport> entry : clients.entrySet()) {
+            if (!Tools.isValidMacAddress(entry.getKey())) {
+                LOG.warn("Skipping invalid client [{}] in report of tap [{}].", entry.getKey(), tap.uuid());
                 continue;
             }
 
-            monitoredSSIDNames.add(s.ssid());
+            Dot11ClientReport report = entry.getValue();
 
-            Map<String, PreLoadedMonitoredBSSID> preLoadedBSSIDs = Maps.newHashMap();
-            for (MonitoredBSSID b : nzyme.getDot11().findMonitoredBSSIDsOfMonitoredNetwork(s.id())) {
-                List<String> fingerprints = Lists.newArrayList();
-                for (MonitoredFingerprint f : nzyme.getDot11().findMonitoredFingerprintsOfMonitoredBSSID(b.id())) {
-                    fingerprints.add(f.fingerprint());
+            Map<String, Long> probeRequestSSIDs = Maps.newHashMap();
+            for (Map.Entry<String, Long> ssid : report.probeRequestSSIDs().entrySet()) {
+                if (isValidSSID(ssid.getKey())) {
+                    probeRequestSSIDs.put(ssid.getKey(), ssid.getValue());
+                } else {
+                    LOG.warn("Skipping invalid probe request SSID [{}] of client [{}] in report of tap [{}].",
+                            ssid.getKey(), entry.getKey(), tap.uuid());
                 }
-
-                preLoadedBSSIDs.put(b.bssid(), PreLoadedMonitoredBSSID.create(b.bssid(), fingerprints));
             }
 
-            List<Integer> preLoadedChannels = Lists.newArrayList();
-            for (MonitoredChannel c : nzyme.getDot11().findMonitoredChannelsOfMonitoredNetwork(s.id())) {
-                preLoadedChannels.add((int) c.frequency());
+            if (probeRequestSSIDs.size() == report.probeRequestSSIDs().size()) {
+                result.put(entry.getKey(), report);
+            } else {
+                result.put(entry.getKey(),
+                        Dot11ClientReport.create(probeRequestSSIDs, report.wildcardProbeRequests()));
             }
+        }
 
-            List<String> preLoadedSecuritySuites = Lists.newArrayList();
-            for (MonitoredSecuritySuite ss : nzyme.getDot11().findMonitoredSecuritySuitesOfMonitoredNetwork(s.id())) {
-                preLoadedSecuritySuites.add(ss.securitySuite());
-            }
+        return result;
+    }
+
+    /*
+     * SSIDs are stored as varchar(32) and Postgres rejects NUL characters in text.
+     */
+    private static boolean isValidSSID(String ssid) {
+        return ssid != null && ssid.codePointCount(0, ssid.length()) <= 32 && ssid.indexOf('\u0000') == -1;
+    }
 
-            monitoredSSIDs.put(s.ssid(), PreLoadedMonitoredSSID.create(
-                    s.uuid(),
-                    s.ssid(),
-                    preLoadedBSSIDs,
-                    preLoadedChannels,
-                    preLoadedSecuritySuites,
-                    s.enabledUnexpectedBSSID(),
-                    s.enabledUnexpectedChannel(),
-                    s.enabledUnexpectedSecuritySuites(),
-                    s.enabledUnexpectedFingerprint(),
-                    s.enabledUnexpectedSignalTracks(),
-                    s.enabledSimilarLookingSSID(),
-                    s.enabledSSIDSubstring(),
-                    s.detectionConfigSimilarLookingSSIDThreshold(),
-                    s.detectionConfigSSIDSubstring()
-            ));
+    private void writeClients(Handle handle, Tap tap, DateTime timestamp, Map<String, Dot11ClientReport> clients) {
+        List<Dot11ClientReport> clientReports = Lists.newArrayList();
+        PreparedBatch clientsBatch = handle.prepareBatch("INSERT INTO dot11_clients(tap_uuid, client_mac, " +
+                "wildcard_probe_requests, created_at) VALUES(:tap_uuid, :client_mac, :wildcard_probe_requests, " +
+                ":created_at)");
+
+        for (Map.Entry<String, Dot11ClientReport> entry : clients.entrySet()) {
+            clientReports.add(entry.getValue());
+            clientsBatch
+                    .bind("tap_uuid", tap.uuid())
+                    .bind("client_mac", entry.getKey())
+                    .bind("wildcard_probe_requests", entry.getValue().wildcardProbeRequests())
+                    .bind("created_at", timestamp)
+                    .add();
         }
 
-        // Load all bandits.
-        List<Dot11BanditDescription> bandits = Lists.newArrayList(Dot11Bandits.BUILT_IN);
-        for (CustomBanditDescription bandit : nzyme.getDot11()
-                .findAllCustomBandits(organizationId, tenantId, Integer.MAX_VALUE, 0)) {
-            List<String> fingerprints = nzyme.getDot11().findFingerprintsOfCustomBandit(bandit.id());
-
-            bandits.add(Dot11BanditDescription.create(
-                    bandit.uuid().toString(),
-                    true,
-                    bandit.name(),
-                    bandit.description(),
-                    fingerprints
-            ));
+        List<Long> clientDatabaseIds = executeReturningIds(clientsBatch);
+
+        PreparedBatch probeRequestsBatch = handle.prepareBatch("INSERT INTO dot11_client_probereq_ssids(" +
+                "client_id, ssid, frame_count, tap_uuid) VALUES(:client_id, :ssid, :frame_count, :tap_uuid)");
+
+        for (int i = 0; i < clientReports.size(); i++) {
+            long clientDatabaseId = clientDatabaseIds.get(i);
+            for (Map.Entry<String, Long> pr : clientReports.get(i).probeRequestSSIDs().entrySet()) {
+                probeRequestsBatch
+                        .bind("client_id", clientDatabaseId)
+                        .bind("ssid", pr.getKey())
+                        .bind("frame_count", pr.getValue())
+                        .bind("tap_uuid", tap.uuid())
+                        .add();
+            }
         }
 
-        JaroWinkler jaroWinkler = new JaroWinkler();
+        execute(probeRequestsBatch);
+    }
 
-        for (Map.Entry<String, Dot11BSSIDReport> entry : bssids.entrySet()) {
-            String bssid = entry.getKey();
+    private void writeBSSIDs(Handle handle, Tap tap, DateTime timestamp, Map<String, Dot11BSSIDReport> bssids) {
+        List<Map.Entry<String, Dot11BSSIDReport>> bssidReports = Lists.newArrayList(bssids.entrySet());
+
+        PreparedBatch bssidsBatch = handle.prepareBatch("INSERT INTO dot11_bssids(tap_uuid, bssid, oui, " +
+                "signal_strength_average, signal_strength_max, signal_strength_min, hidden_ssid_frames, " +
+                "created_at) VALUES(:tap_uuid, :bssid, NULL, :signal_strength_average, :signal_strength_max, " +
+                ":signal_strength_min, :hidden_ssid_frames, :created_at)");
+
+        for (Map.Entry<String, Dot11BSSIDReport> entry : bssidReports) {
             Dot11BSSIDReport report = entry.getValue();
+            bssidsBatch
+                    .bind("tap_uuid", tap.uuid())
+                    .bind("bssid", entry.getKey())
+                    .bind("signal_strength_average", report.signalStrength().average())
+                    .bind("signal_strength_max", report.signalStrength().max())
+                    .bind("signal_strength_min", report.signalStrength().min())
+                    .bind("hidden_ssid_frames", report.hiddenSSIDFrames())
+                    .bind("created_at", timestamp)
+                    .add();
+        }
 
-            long bssidDatabaseId = tablesService.getNzyme().getDatabase().withHandle(handle ->
-                    handle.createQuery("INSERT INTO dot11_bssids(tap_uuid, bssid, oui, " +
-                                    "signal_strength_average, signal_strength_max, signal_strength_min, " +
-                                    "hidden_ssid_frames, created_at) VALUES(:tap_uuid, :bssid, NULL, " +
-                                    ":signal_strength_average, :signal_strength_max, :signal_strength_min, " +
-                                    ":hidden_ssid_frames, :created_at) RETURNING id")
-                            .bind("tap_uuid", tap.uuid())
-                            .bind("bssid", bssid)
-                            .bind("signal_strength_average", report.signalStrength().average())
-                            .bind("signal_strength_max", report.signalStrength().max())
-                            .bind("signal_strength_min", report.signalStrength().min())
-                            .bind("hidden_ssid_frames", report.hiddenSSIDFrames())
-                            .bind("created_at", timestamp)
-                            .mapTo(Long.class)
-                            .one()
-            );
+        List<Long> bssidDatabaseIds = executeReturningIds(bssidsBatch);
+
+        PreparedBatch bssidFingerprintsBatch = handle.prepareBatch("INSERT INTO dot11_fingerprints(fingerprint, " +
+                "bssid_id) VALUES(:fingerprint, :bssid_id)");
+        PreparedBatch ssidsBatch = handle.prepareBatch("INSERT INTO dot11_ssids(bssid_id, tap_uuid, ssid, bssid, " +
+                "security_protocol, security_suites, is_wps, signal_strength_average, signal_strength_max, " +
+                "signal_strength_min, beacon_advertisements, proberesp_advertisements, created_at) " +
+                "VALUES(:bssid_id, :tap_uuid, :ssid, :bssid, :security_protocol, :security_suites, :is_wps, " +
+                ":signal_strength_average, :signal_strength_max, :signal_strength_min, :beacon_advertisements, " +
+                ":proberesp_advertisements, :created_at)");
+
+        List<Dot11AdvertisedNetworkReport> ssidReports = Lists.newArrayList();
+
+        for (int i = 0; i < bssidReports.size(); i++) {
+            String bssid = bssidReports.get(i).getKey();
+            Dot11BSSIDReport report = bssidReports.get(i).getValue();
+            long bssidDatabaseId = bssidDatabaseIds.get(i);
 
             // BSSID Fingerprints.
             for (String fingerprint : report.fingerprints()) {
-                tablesService.getNzyme().getDatabase().useHandle(handle ->
-                        handle.createUpdate("INSERT INTO dot11_fingerprints(fingerprint, bssid_id) " +
-                                        "VALUES(:fingerprint, :bssid_id)")
-                                .bind("fingerprint", fingerprint)
-                                .bind("bssid_id", bssidDatabaseId)
-                                .execute()
-                );
+                bssidFingerprintsBatch
+                        .bind("fingerprint", fingerprint)
+                        .bind("bssid_id", bssidDatabaseId)
+                        .add();
+            }
 
-                // Is this a known bandit fingerprint?
-                for (Dot11BanditDescription bandit : bandits) {
-                    if (bandit.fingerprints() != null && bandit.fingerprints().contains(fingerprint)) {
-                        Map<String, String> attributes = Maps.newHashMap();
-                        attributes.put("fingerprint", fingerprint);
-                        attributes.put("bssid", bssid);
-                        attributes.put("tap_uuid", tap.uuid().toString());
-                        attributes.put("bandit_name", bandit.name());
-                        attributes.put("bandit_description", bandit.description());
-                        attributes.put("bandit_is_custom", String.valueOf(bandit.isCustom()));
-
-                        tablesService.getNzyme().getDetectionAlertService().raiseAlert(
-                                tap.organizationId(),
-                                tap.tenantId(),
-                                null,
-                                tap.uuid(),
-                                DetectionType.DOT11_BANDIT_CONTACT,
-                                Subsystem.DOT11,
-                                "Bandit \"" + bandit.name() + "\" advertising BSSID \"" + bssid + "\" " +
-                                        "detected in range.",
-                                attributes,
-                                new String[]{"bssid", "fingerprint", "bandit_is_custom"},
-                                report.signalStrength().average()
-                        );
-                    }
+            // SSIDs.
+            for (Map.Entry<String, Dot11AdvertisedNetworkReport> ssidEntry : report.advertisedNetworks().entrySet()) {
+                Dot11AdvertisedNetworkReport ssidReport = ssidEntry.getValue();
+
+                List<String> securityProtocols = Lists.newArrayList();
+                Map<String, String> suiteMap = Maps.newHashMap();
+                for (Dot11SecurityInformationReport sec : ssidReport.security()) {
+                    securityProtocols.addAll(sec.protocols());
+
+                    suiteMap.put("group_cipher", sec.suites().groupCipher());
+                    suiteMap.put("pairwise_ciphers",
+                            Joiner.on(",").join(sec.suites().pairwiseCiphers()));
+                    suiteMap.put("key_management_modes",
+                            Joiner.on(",").join(sec.suites().keyManagementModes()));
                 }
-            }
 
-            // BSSID Clients.
-            for (Map.Entry<String, Dot11ClientStatisticsReport> client : report.clients().entrySet()) {
-                String mac = client.getKey();
-                Dot11ClientStatisticsReport stats = client.getValue();
-
-                if (!bssid.equals(mac)) { // Don't record BSSID itself.
-                    tablesService.getNzyme().getDatabase().useHandle(handle ->
-                            handle.createUpdate("INSERT INTO dot11_bssid_clients(bssid_id, client_mac, tx_frames, " +
-                                            "tx_bytes, rx_frames, rx_bytes) VALUES(:bssid_id, :client_mac, " +
-                                            ":tx_frames, :tx_bytes, :rx_frames, :rx_bytes)")
-                                    .bind("bssid_id", bssidDatabaseId)
-                                    .bind("client_mac", mac)
-                                    .bind("tx_frames", stats.txFrames())
-                                    .bind("tx_bytes", stats.txBytes())
-                                    .bind("rx_frames", stats.rxFrames())
-                                    .bind("rx_bytes", stats.rxBytes())
-                                    .execute()
-                    );
+                String securitySuites;
+                try {
+                    securitySuites = this.om.writeValueAsString(suiteMap);
+                } catch (JsonProcessingException e) {
+                    throw new RuntimeException(e);
                 }
+
+                ssidReports.add(ssidReport);
+                ssidsBatch
+                        .bind("bssid_id", bssidDatabaseId)
+                        .bind("tap_uuid", tap.uuid())
+                        .bind("ssid", ssidEntry.getKey())
+                        .bind("bssid", bssid)
+                        .bind("security_protocol", Joiner.on("/").join(securityProtocols))
+                        .bind("security_suites", securitySuites)
+                        .bind("is_wps", ssidReport.wps())
+                        .bind("signal_strength_average", ssidReport.signalStrength().average())
+                        .bind("signal_strength_max", ssidReport.signalStrength().max())
+                        .bind("signal_strength_min", ssidReport.signalStrength().min())
+                        .bind("beacon_advertisements", ssidReport.beaconAdvertisements())
+                        .bind("proberesp_advertisements", ssidReport.probeResponseAdvertisements())
+                        .bind("created_at", timestamp)
+                        .add();
             }
+        }
 
-            for (Map.Entry<String, Dot11AdvertisedNetworkReport> ssidEntry : report.advertisedNetworks().entrySet()) {
-                try {
-                    String ssid = ssidEntry.getKey();
-                    Dot11AdvertisedNetworkReport ssidReport = ssidEntry.getValue();
+        execute(bssidFingerprintsBatch);
+        writeBSSIDClients(handle, bssidReports, bssidDatabaseIds);
 
-                    List<String> securityProtocols = Lists.newArrayList();
-                    Map<String, String> suiteMap = Maps.newHashMap();
-                    for (Dot11SecurityInformationReport sec : ssidReport.security()) {
-                        securityProtocols.addAll(sec.protocols());
+        List<Long> ssidDatabaseIds = executeReturningIds(ssidsBatch);
 
-                        suiteMap.put("group_cipher", sec.suites().groupCipher());
-                        suiteMap.put("pairwise_ciphers",
-                                Joiner.on(",").join(sec.suites().pairwiseCiphers()));
-                        suiteMap.put("key_management_modes",
-                                Joiner.on(",").join(sec.suites().keyManagementModes()));
-                    }
+        PreparedBatch ssidFingerprintsBatch = handle.prepareBatch("INSERT INTO dot11_fingerprints(fingerprint, " +
+                "ssid_id) VALUES(:fingerprint, :ssid_id)");
+        PreparedBatch ratesBatch = handle.prepareBatch("INSERT INTO dot11_rates(rate, ssid_id) " +
+                "VALUES(:rate, :ssid_id)");
+        PreparedBatch infrastructureTypesBatch = handle.prepareBatch("INSERT INTO " +
+                "dot11_infrastructure_types(infrastructure_type, ssid_id) VALUES(:infrastructure_type, :ssid_id)");
 
-                    String securitySuites;
-                    try {
-                        securitySuites = this.om.writeValueAsString(suiteMap);
-                    } catch (JsonProcessingException e) {
-                        throw new RuntimeException(e);
-                    }
+        for (int i = 0; i < ssidReports.size(); i++) {
+            Dot11AdvertisedNetworkReport ssidReport = ssidReports.get(i);
+            long ssidDatabaseId = ssidDatabaseIds.get(i);
 
-                    Long ssidDatabaseId = tablesService.getNzyme().getDatabase().withHandle(handle ->
-                            handle.createQuery("INSERT INTO dot11_ssids(bssid_id, tap_uuid, ssid, bssid, " +
-                                            "security_protocol, security_suites, is_wps, signal_strength_average, " +
-                                            "signal_strength_max, signal_strength_min, beacon_advertisements, " +
-                                            "proberesp_advertisements, created_at) VALUES(:bssid_id, :tap_uuid, " +
-                                            ":ssid, :bssid, :security_protocol, :security_suites, :is_wps, " +
-                                            ":signal_strength_average, :signal_strength_max, :signal_strength_min, " +
-                                            ":beacon_advertisements, :proberesp_advertisements, :created_at) " +
-                                            "RETURNING *")
-                                    .bind("bssid_id", bssidDatabaseId)
-                                    .bind("tap_uuid", tap.uuid())
-                                    .bind("ssid", ssid)
-                                    .bind("bssid", bssid)
-                                    .bind("security_protocol", Joiner.on("/").join(securityProtocols))
-                                    .bind("security_suites", securitySuites)
-                                    .bind("is_wps", ssidReport.wps())
-                                    .bind("signal_strength_average", ssidReport.signalStrength().average())
-                                    .bind("signal_strength_max", ssidReport.signalStrength().max())
-                                    .bind("signal_strength_min", ssidReport.signalStrength().min())
-                                    .bind("beacon_advertisements", ssidReport.beaconAdvertisements())
-                                    .bind("proberesp_advertisements", ssidReport.probeResponseAdvertisements())
-                                    .bind("created_at", timestamp)
-                                    .mapTo(Long.class)
-                                    .one()
-                    );
+            // SSID Fingerprints.
+            for (String fingerprint : ssidReport.fingerprints()) {
+                ssidFingerprintsBatch
+                        .bind("fingerprint", fingerprint)
+                        .bind("ssid_id", ssidDatabaseId)
+                        .add();
+            }
 
-                    // SSID Fingerprints.
-                    for (String fingerprint : ssidReport.fingerprints()) {
-                        tablesService.getNzyme().getDatabase().useHandle(handle ->
-                                handle.createUpdate("INSERT INTO dot11_fingerprints(fingerprint, ssid_id) " +
-                                                "VALUES(:fingerprint, :ssid_id)")
-                                        .bind("fingerprint", fingerprint)
-                                        .bind("ssid_id", ssidDatabaseId)
-                                        .execute()
-                        );
-                    }
+            // SSID Rates.
+            for (Float rate : ssidReport.rates()) {
+                ratesBatch
+                        .bind("rate", rate)
+                        .bind("ssid_id", ssidDatabaseId)
+                        .add();
+            }
 
-                    // SSID Rates.
-                    for (Float rate : ssidReport.rates()) {
-                        tablesService.getNzyme().getDatabase().useHandle(handle ->
-                                handle.createUpdate("INSERT INTO dot11_rates(rate, ssid_id) " +
-                                                "VALUES(:rate, :ssid_id)")
-                                        .bind("rate", rate)
-                                        .bind("ssid_id", ssidDatabaseId)
-                                        .execute()
-                        );
-                    }
+            // Infrastructure Types.
+            for (String infrastructureType : ssidReport.infrastructureTypes()) {
+                infrastructureTypesBatch
+                        .bind("infrastructure_type", infrastructureType.toLowerCase())
+                        .bind("ssid_id", ssidDatabaseId)
+                        .add();
+            }
+        }
 
-                    // Channel Statistics.
-                    for (Map.Entry<Long, Map<String, Dot11ChannelStatisticsReport>> cs : ssidReport.channelStatistics().entrySet()) {
-                        long frequency = cs.getKey();
-                        for (Map.Entry<String, Dot11ChannelStatisticsReport> ft : cs.getValue().entrySet()) {
-                            String frameType = ft.getKey();
-                            Dot11ChannelStatisticsReport stats = ft.getValue();
-
-                            tablesService.getNzyme().getDatabase().useHandle(handle ->
-                                    handle.createUpdate("INSERT INTO dot11_channels(ssid_id, frequency, " +
-                                                    "frame_type, stats_bytes, stats_frames) VALUES(:ssid_id, " +
-                                                    ":frequency, :frame_type, :stats_bytes, :stats_frames)")
-                                            .bind("ssid_id", ssidDatabaseId)
-                                            .bind("frequency", frequency)
-                                            .bind("frame_type", frameType.toLowerCase())
-                                            .bind("stats_bytes", stats.bytes())
-                                            .bind("stats_frames", stats.frames())
-                                            .execute()
-                            );
+        execute(ssidFingerprintsBatch);
+        execute(ratesBatch);
+        execute(infrastructureTypesBatch);
+
+        writeRollups(handle, tap, timestamp, bssidReports);
+
+        writeChannels(handle, ssidReports, ssidDatabaseIds);
+        writeChannelHistograms(handle, ssidReports, ssidDatabaseIds);
+    }
+
+    /*
+     * Adds the advertisement and channel statistics of a report to the pre-aggregated rollup tables, at every
+     * resolution. Histogram queries read from these instead of scanning the raw dot11_ssids and dot11_channels rows.
+     *
+     * Rows are written sorted by their conflict key. Rollup rows are per tap and TablesIngestQueue never writes two
+     * reports of the same tap at the same time, but another node of the cluster can ingest a report of the same tap
+     * concurrently. Locking the rows in a fixed order keeps those two transactions from deadlocking each other.
+     */
+    private void writeRollups(Handle handle, Tap tap, DateTime timestamp, List<Map.Entry<String, Dot11BSSIDReport>> bssidReports) {
+        PreparedBatch advertisementsBatch = handle.prepareBatch("INSERT INTO dot11_advertisement_rollups(" +
+                "resolution, bucket, tap_uuid, bssid, ssid, beacons, proberesponses) VALUES(:resolution, :bucket, " +
+                ":tap_uuid, :bssid, :ssid, :beacons, :proberesponses) " +
+                "ON CONFLICT (resolution, bucket, tap_uuid, bssid, ssid) DO UPDATE SET " +
+                "beacons = dot11_advertisement_rollups.beacons + EXCLUDED.beacons, " +
+                "proberesponses = dot11_advertisement_rollups.proberesponses + EXCLUDED.proberesponses");
+        PreparedBatch channelsBatch = handle.prepareBatch("INSERT INTO dot11_channel_rollups(" +
+                "resolution, bucket, tap_uuid, bssid, ssid, frequency, frames, bytes) VALUES(:resolution, :bucket, " +
+                ":tap_uuid, :bssid, :ssid, :frequency, :frames, :bytes) " +
+                "ON CONFLICT (resolution, bucket, tap_uuid, bssid, ssid, frequency) DO UPDATE SET " +
+                "frames = dot11_channel_rollups.frames + EXCLUDED.frames, " +
+                "bytes = dot11_channel_rollups.bytes + EXCLUDED.bytes");
+
+        List<Map.Entry<String, Dot11BSSIDReport>> sortedBssids = Lists.newArrayList(bssidReports);
+        sortedBssids.sort(Map.Entry.comparingByKey());
+
+        for (RollupResolution resolution : RollupResolution.values()) {
+            DateTime bucket = resolution.floor(timestamp);
+
+            for (Map.Entry<String, Dot11BSSIDReport> bssid : sortedBssids) {
+                for (Map.Entry<String, Dot11AdvertisedNetworkReport> ssid
+                        : Maps.newTreeMap(bssid.getValue().advertisedNetworks()).entrySet()) {
+                    Dot11AdvertisedNetworkReport ssidReport = ssid.getValue();
+
+                    advertisementsBatch
+                            .bind("resolution", resolution.getMinutes())
+                            .bind("bucket", bucket)
+                            .bind("tap_uuid", tap.uuid())
+                            .bind("bssid", bssid.getKey())
+                            .bind("ssid", ssid.getKey())
+                            .bind("beacons", ssidReport.beaconAdvertisements())
+                            .bind("proberesponses", ssidReport.probeResponseAdvertisements())
+                            .add();
+
+                    // Channel rollups are not split by frame type.
+                    for (Map.Entry<Long, Map<String, Dot11ChannelStatisticsReport>> cs
+                            : Maps.newTreeMap(ssidReport.channelStatistics()).entrySet()) {
+                        long frames = 0;
+                        long bytes = 0;
+                        for (Dot11ChannelStatisticsReport stats : cs.getValue().values()) {
+                            frames += stats.frames();
+                            bytes += stats.bytes();
                         }
+
+                        channelsBatch
+                                .bind("resolution", resolution.getMinutes())
+                                .bind("bucket", bucket)
+                                .bind("tap_uuid", tap.uuid())
+                                .bind("bssid", bssid.getKey())
+                                .bind("ssid", ssid.getKey())
+                                .bind("frequency", cs.getKey())
+                                .bind("frames", frames)
+                                .bind("bytes", bytes)
+                                .add();
                     }
+                }
+            }
+        }
 
-                    // Write channel signal histogram.
-                    for (Map.Entry<Long, Map<Long, Long>> channel : ssidReport.signalHistogram().entrySet()) {
-                        long frequency = channel.getKey();
-                        for (Map.Entry<Long, Long> histo : channel.getValue().entrySet()) {
-                            tablesService.getNzyme().getDatabase().useHandle(handle ->
-                                    handle.createUpdate("INSERT INTO dot11_channel_histograms(ssid_id, frequency, " +
-                                                    "signal_strength, frame_count) VALUES(:ssid_id, :frequency, " +
-                                                    ":signal_strength, :frame_count)")
-                                            .bind("ssid_id", ssidDatabaseId)
-                                            .bind("frequency", frequency)
-                                            .bind("signal_strength", histo.getKey())
-                                            .bind("frame_count", histo.getValue())
-                                            .execute()
-                            );
-                        }
+        execute(advertisementsBatch);
+        execute(channelsBatch);
+    }
+
+    /*
+     * The following tables are the widest of a report and are written using BulkLoader, which switches to COPY
+     * for large reports. A COPY occupies the handle until it is finished, so these must not be interleaved with
+     * the execution of other statements.
+     */
+
+    private void writeBSSIDClients(Handle handle,
+                                   List<Map.Entry<String, Dot11BSSIDReport>> bssidReports,
+                                   List<Long> bssidDatabaseIds) {
+        long rows = 0;
+        for (Map.Entry<String, Dot11BSSIDReport> entry : bssidReports) {
+            rows += entry.getValue().clients().size();
+        }
+
+        try (BulkRowWriter writer = BulkLoader.open(handle, bulkCopyThreshold(), rows, "dot11_bssid_clients",
+                "bssid_id", "client_mac", "tx_frames", "tx_bytes", "rx_frames", "rx_bytes")) {
+            for (int i = 0; i < bssidReports.size(); i++) {
+                String bssid = bssidReports.get(i).getKey();
+                long bssidDatabaseId = bssidDatabaseIds.get(i);
+
+                for (Map.Entry<String, Dot11ClientStatisticsReport> client : bssidReports.get(i).getValue().clients().entrySet()) {
+                    String mac = client.getKey();
+                    Dot11ClientStatisticsReport stats = client.getValue();
+
+                    if (!bssid.equals(mac)) { // Don't record BSSID itself.
+                        writer.value(bssidDatabaseId)
+                                .value(mac)
+                                .value(stats.txFrames())
+                                .value(stats.txBytes())
+                                .value(stats.rxFrames())
+                                .value(stats.rxBytes())
+                                .endRow();
                     }
+                }
+            }
 
-                    // Infrastructure Types.
-                    for (String infrastructureType : ssidReport.infrastructureTypes()) {
-                        tablesService.getNzyme().getDatabase().useHandle(handle ->
-                                handle.createUpdate("INSERT INTO dot11_infrastructure_types(infrastructure_type," +
-                                                " ssid_id) VALUES(:infrastructure_type, :ssid_id)")
-                                        .bind("infrastructure_type", infrastructureType.toLowerCase())
-                                        .bind("ssid_id", ssidDatabaseId)
-                                        .execute()
-                        );
+            writer.finish();
+        }
+    }
+
+    private void writeChannels(Handle handle,
+                               List<Dot11AdvertisedNetworkReport> ssidReports,
+                               List<Long> ssidDatabaseIds) {
+        long rows = 0;
+        for (Dot11AdvertisedNetworkReport ssidReport : ssidReports) {
+            for (Map<String, Dot11ChannelStatisticsReport> frameTypes : ssidReport.channelStatistics().values()) {
+                rows += frameTypes.size();
+            }
+        }
+
+        try (BulkRowWriter writer = BulkLoader.open(handle, bulkCopyThreshold(), rows, "dot11_channels",
+                "ssid_id", "frequency", "frame_type", "stats_bytes", "stats_frames")) {
+            for (int i = 0; i < ssidReports.size(); i++) {
+                long ssidDatabaseId = ssidDatabaseIds.get(i);
+
+                for (Map.Entry<Long, Map<String, Dot11ChannelStatisticsReport>> cs : ssidReports.get(i).channelStatistics().entrySet()) {
+                    long frequency = cs.getKey();
+                    for (Map.Entry<String, Dot11ChannelStatisticsReport> ft : cs.getValue().entrySet()) {
+                        writer.value(ssidDatabaseId)
+                                .value(frequency)
+                                .value(ft.getKey().toLowerCase())
+                                .value(ft.getValue().bytes())
+                                .value(ft.getValue().frames())
+                                .endRow();
+                    }
+                }
+            }
+
+            writer.finish();
+        }
+    }
+
+    private void writeChannelHistograms(Handle handle,
+                                        List<Dot11AdvertisedNetworkReport> ssidReports,
+                                        List<Long> ssidDatabaseIds) {
+        long rows = 0;
+        for (Dot11AdvertisedNetworkReport ssidReport : ssidReports) {
+            for (Map<Long, Long> histogram : ssidReport.signalHistogram().values()) {
+                rows += histogram.size();
+            }
+        }
+
+        try (BulkRowWriter writer = BulkLoader.open(handle, bulkCopyThreshold(), rows, "dot11_channel_histograms",
+                "ssid_id", "frequency", "signal_strength", "frame_count")) {
+            for (int i = 0; i < ssidReports.size(); i++) {
+                long ssidDatabaseId = ssidDatabaseIds.get(i);
+
+                for (Map.Entry<Long, Map<Long, Long>> channel : ssidReports.get(i).signalHistogram().entrySet()) {
+                    long frequency = channel.getKey();
+                    for (Map.Entry<Long, Long> histo : channel.getValue().entrySet()) {
+                        writer.value(ssidDatabaseId)
+                                .value(frequency)
+                                .value(histo.getKey())
+                                .value(histo.getValue())
+                                .endRow();
                     }
+                }
+            }
+
+            writer.finish();
+        }
+    }
+
+    private int bulkCopyThreshold() {
+        return tablesService.getNzyme().getConfiguration().bulkCopyThreshold();
+    }
+
+    private void monitorBSSIDs(Tap tap,
+                               Map<String, Dot11BSSIDReport> bssids,
+                               UUID organizationId,
+                               UUID tenantId) {
+        NzymeNode nzyme = tablesService.getNzyme();
+        Dot11MonitoringSnapshot snapshot = nzyme.getDot11().getMonitoringSnapshot(organizationId, tenantId);
+        Map<String, PreLoadedMonitoredSSID> monitoredSSIDs = snapshot.monitoredSSIDs();
+        BanditFingerprintIndex bandits = snapshot.bandits();
+        SimilarSSIDDetector similarSSIDs = snapshot.similarSSIDs();
+
+        for (Map.Entry<String, Dot11BSSIDReport> entry : bssids.entrySet()) {
+            String bssid = entry.getKey();
+            Dot11BSSIDReport report = entry.getValue();
+
+            for (String fingerprint : report.fingerprints()) {
+                // Is this a known bandit fingerprint?
+                for (Dot11BanditDescription bandit : bandits.findBandits(fingerprint)) {
+                    Map<String, String> attributes = Maps.newHashMap();
+                    attributes.put("fingerprint", fingerprint);
+                    attributes.put("bssid", bssid);
+                    attributes.put("tap_uuid", tap.uuid().toString());
+                    attributes.put("bandit_name", bandit.name());
+                    attributes.put("bandit_description", bandit.description());
+                    attributes.put("bandit_is_custom", String.valueOf(bandit.isCustom()));
+
+                    tablesService.getNzyme().getDetectionAlertService().raiseAlert(
+                            tap.organizationId(),
+                            tap.tenantId(),
+                            null,
+                            tap.uuid(),
+                            DetectionType.DOT11_BANDIT_CONTACT,
+                            Subsystem.DOT11,
+                            "Bandit \"" + bandit.name() + "\" advertising BSSID \"" + bssid + "\" " +
+                                    "detected in range.",
+                            attributes,
+                            new String[]{"bssid", "fingerprint", "bandit_is_custom"},
+                            report.signalStrength().average()
+                    );
+                }
+            }
+
+            for (Map.Entry<String, Dot11AdvertisedNetworkReport> ssidEntry : report.advertisedNetworks().entrySet()) {
+                try {
+                    String ssid = ssidEntry.getKey();
+                    Dot11AdvertisedNetworkReport ssidReport = ssidEntry.getValue();
 
                     /*
-                     * Check if this SSID is similar to any monitored SSIDs or includes a monitored substring. Skip
+                     * Check if this SSID is similar to any monitored SSIDs or includes a restricted substring. Skip
                      * actually monitored SSIDs because they would have 100% similarity.
                      */
-                    for (PreLoadedMonitoredSSID monitoredSSID : monitoredSSIDs.values()) {
-                        if (!monitoredSSIDNames.contains(ssid)) {
-                            if (monitoredSSID.enabledSimilarLookingSSID()
-                                    && monitoredSSID.detectionConfigSimilarLookingSSIDThreshold() != null) {
-                                double similarity = jaroWinkler.similarity(monitoredSSID.ssid(), ssid) * 100.0;
-
-                                if (similarity > monitoredSSID.detectionConfigSimilarLookingSSIDThreshold()) {
-                                    Map<String, String> attributes = Maps.newHashMap();
-                                    attributes.put("similar_ssid", ssid);
-                                    attributes.put("similarity", String.valueOf(similarity));
-                                    attributes.put("similarity_threshold",
-                                            String.valueOf(monitoredSSID.detectionConfigSimilarLookingSSIDThreshold()));
-
-                                    nzyme.getDetectionAlertService().raiseAlert(
-                                            tap.organizationId(),
-                                            tap.tenantId(),
-                                            monitoredSSID.id(),
-                                            tap.uuid(),
-                                            DetectionType.DOT11_MONITOR_SIMILAR_LOOKING_SSID,
-                                            Subsystem.DOT11,
-                                            "SSID \"" + ssid + "\" looking similar to monitored network SSID " +
-                                                    "\"" + monitoredSSID.ssid() + "\"",
-                                            attributes,
-                                            new String[]{"similar_ssid"},
-                                            report.signalStrength().average()
-                                    );
-                                }
-                            }
+                    if (!monitoredSSIDs.containsKey(ssid)) {
+                        for (SimilarSSIDMatch match : similarSSIDs.findSimilar(ssid)) {
+                            PreLoadedMonitoredSSID monitoredSSID = match.monitoredSSID();
+
+                            Map<String, String> attributes = Maps.newHashMap();
+                            attributes.put("similar_ssid", ssid);
+                            attributes.put("similarity", String.valueOf(match.similarity()));
+                            attributes.put("similarity_threshold",
+                                    String.valueOf(monitoredSSID.detectionConfigSimilarLookingSSIDThreshold()));
+
+                            nzyme.getDetectionAlertService().raiseAlert(
+                                    tap.organizationId(),
+                                    tap.tenantId(),
+                                    monitoredSSID.id(),
+                                    tap.uuid(),
+                                    DetectionType.DOT11_MONITOR_SIMILAR_LOOKING_SSID,
+                                    Subsystem.DOT11,
+                                    "SSID \"" + ssid + "\" looking similar to monitored network SSID " +
+                                            "\"" + monitoredSSID.ssid() + "\"",
+                                    attributes,
+                                    new String[]{"similar_ssid"},
+                                    report.signalStrength().average()
+                            );
                         }
 
-                        if (monitoredSSID.enabledSSIDSubstring()
-                                && !Strings.isNullOrEmpty(monitoredSSID.detectionConfigSSIDSubstring())) {
-                            // TODO check
+                        for (RestrictedSubstringMatch match : similarSSIDs.findRestrictedSubstrings(ssid)) {
+                            PreLoadedMonitoredSSID monitoredSSID = match.monitoredSSID();
+
+                            Map<String, String> attributes = Maps.newHashMap();
+                            attributes.put("ssid", ssid);
+                            attributes.put("substring", match.substring());
+
+                            nzyme.getDetectionAlertService().raiseAlert(
+                                    tap.organizationId(),
+                                    tap.tenantId(),
+                                    monitoredSSID.id(),
+                                    tap.uuid(),
+                                    DetectionType.DOT11_MONITOR_SSID_SUBSTRING,
+                                    Subsystem.DOT11,
+                                    "SSID \"" + ssid + "\" includes restricted substring \"" + match.substring() +
+                                            "\" of monitored network SSID \"" + monitoredSSID.ssid() + "\"",
+                                    attributes,
+                                    new String[]{"ssid", "substring"},
+                                    report.signalStrength().average()
+                            );
                         }
                     }
 
@@ -499,46 +710,131 @@ public class Dot11Table implements DataTable {
                         }
                     }
                 } catch(Exception e) {
-                    LOG.error("Could not write SSID.", e);
+                    LOG.error("Could not run monitoring on SSID.", e);
                     continue;
                 }
             }
         }
     }
 
-    private void writeDisco(Tap tap, DateTime timestamp, Dot11DiscoReport disco) {
+    private void writeDisco(Handle handle, Tap tap, DateTime timestamp, Dot11DiscoReport disco) {
+        List<Dot11DiscoTransmitterReport> transmitters = Lists.newArrayList();
+        List<Dot11.DiscoType> transmitterTypes = Lists.newArrayList();
+        PreparedBatch activityBatch = handle.prepareBatch("INSERT INTO dot11_disco_activity(tap_uuid, disco_type, " +
+                "bssid, sent_frames, created_at) VALUES(:tap_uuid, :disco_type, :bssid, :sent_frames, :created_at)");
+
         for (Dot11DiscoTransmitterReport report : disco.deauthentication().values()) {
-            writeDiscoReport(tap, timestamp, Dot11.DiscoType.DEAUTHENTICATION, report);
+            transmitters.add(report);
+            transmitterTypes.add(Dot11.DiscoType.DEAUTHENTICATION);
+            addDiscoActivity(activityBatch, tap, timestamp, Dot11.DiscoType.DEAUTHENTICATION, report);
         }
 
         for (Dot11DiscoTransmitterReport report : disco.disassociation().values()) {
-            writeDiscoReport(tap, timestamp, Dot11.DiscoType.DISASSOCIATION, report);
+            transmitters.add(report);
+            transmitterTypes.add(Dot11.DiscoType.DISASSOCIATION);
+            addDiscoActivity(activityBatch, tap, timestamp, Dot11.DiscoType.DISASSOCIATION, report);
+        }
+
+        List<Long> activityIds = executeReturningIds(activityBatch);
+
+        PreparedBatch receiversBatch = handle.prepareBatch("INSERT INTO dot11_disco_activity_receivers(" +
+                "disco_activity_id, bssid, received_frames) VALUES(:disco_activity_id, :bssid, :received_frames)");
+
+        for (int i = 0; i < transmitters.size(); i++) {
+            long activityId = activityIds.get(i);
+            for (Map.Entry<String, Long> receiver : transmitters.get(i).receivers().entrySet()) {
+                receiversBatch
+                        .bind("disco_activity_id", activityId)
+                        .bind("bssid", receiver.getKey())
+                        .bind("received_frames", receiver.getValue())
+                        .add();
+            }
         }
+
+        execute(receiversBatch);
+
+        writeDiscoRollups(handle, tap, timestamp, transmitters, transmitterTypes);
     }
 
-    private void writeDiscoReport(Tap tap, DateTime timestamp, Dot11.DiscoType discoType, Dot11DiscoTransmitterReport report) {
-        long activityId = tablesService.getNzyme().getDatabase().withHandle(handle ->
-                handle.createQuery("INSERT INTO dot11_disco_activity(tap_uuid, disco_type, bssid, sent_frames, " +
-                                "created_at) VALUES(:tap_uuid, :disco_type, :bssid, :sent_frames, :created_at) " +
-                                "RETURNING id")
-                        .bind("tap_uuid", tap.uuid())
-                        .bind("disco_type", discoType.getNumber())
-                        .bind("bssid", report.bssid())
-                        .bind("sent_frames", report.sentFrames())
-                        .bind("created_at", timestamp)
-                        .mapTo(Long.class)
-                        .one()
-        );
-
-        for (Map.Entry<String, Long> receiver : report.receivers().entrySet()) {
-            tablesService.getNzyme().getDatabase().useHandle(handle ->
-                    handle.createUpdate("INSERT INTO dot11_disco_activity_receivers(disco_activity_id, bssid, " +
-                                    "received_frames) VALUES(:disco_activity_id, :bssid, :received_frames)")
-                            .bind("disco_activity_id", activityId)
-                            .bind("bssid", receiver.getKey())
-                            .bind("received_frames", receiver.getValue())
-                            .execute()
-            );
+    /*
+     * Adds the disconnection frames each BSSID sent and received to dot11_disco_rollups, at every resolution. Like
+     * in writeRollups(), rows are written sorted by their conflict key.
+     */
+    private void writeDiscoRollups(Handle handle,
+                                   Tap tap,
+                                   DateTime timestamp,
+                                   List<Dot11DiscoTransmitterReport> transmitters,
+                                   List<Dot11.DiscoType> transmitterTypes) {
+        // Disco type number -> BSSID -> sent and received frames.
+        Map<Integer, Map<String, long[]>> frames = Maps.newTreeMap();
+        for (int i = 0; i < transmitters.size(); i++) {
+            Dot11DiscoTransmitterReport transmitter = transmitters.get(i);
+            Map<String, long[]> typeFrames = frames.computeIfAbsent(
+                    transmitterTypes.get(i).getNumber(), k -> Maps.newTreeMap());
+
+            typeFrames.computeIfAbsent(transmitter.bssid(), k -> new long[2])[0] += transmitter.sentFrames();
+            for (Map.Entry<String, Long> receiver : transmitter.receivers().entrySet()) {
+                typeFrames.computeIfAbsent(receiver.getKey(), k -> new long[2])[1] += receiver.getValue();
+            }
+        }
+
+        PreparedBatch batch = handle.prepareBatch("INSERT INTO dot11_disco_rollups(resolution, bucket, tap_uuid, " +
+                "disco_type, bssid, sent_frames, received_frames) VALUES(:resolution, :bucket, :tap_uuid, " +
+                ":disco_type, :bssid, :sent_frames, :received_frames) " +
+                "ON CONFLICT (resolution, bucket, tap_uuid, disco_type, bssid) DO UPDATE SET " +
+                "sent_frames = dot11_disco_rollups.sent_frames + EXCLUDED.sent_frames, " +
+                "received_frames = dot11_disco_rollups.received_frames + EXCLUDED.received_frames");
+
+        for (RollupResolution resolution : RollupResolution.values()) {
+            DateTime bucket = resolution.floor(timestamp);
+
+            for (Map.Entry<Integer, Map<String, long[]>> type : frames.entrySet()) {
+                for (Map.Entry<String, long[]> bssid : type.getValue().entrySet()) {
+                    batch.bind("resolution", resolution.getMinutes())
+                            .bind("bucket", bucket)
+                            .bind("tap_uuid", tap.uuid())
+                            .bind("disco_type", type.getKey())
+                            .bind("bssid", bssid.getKey())
+                            .bind("sent_frames", bssid.getValue()[0])
+                            .bind("received_frames", bssid.getValue()[1])
+                            .add();
+                }
+            }
+        }
+
+        execute(batch);
+    }
+
+    private void addDiscoActivity(PreparedBatch batch,
+                                  Tap tap,
+                                  DateTime timestamp,
+                                  Dot11.DiscoType discoType,
+                                  Dot11DiscoTransmitterReport report) {
+        batch.bind("tap_uuid", tap.uuid())
+                .bind("disco_type", discoType.getNumber())
+                .bind("bssid", report.bssid())
+                .bind("sent_frames", report.sentFrames())
+                .bind("created_at", timestamp)
+                .add();
+    }
+
+    /*
+     * Postgres returns generated keys of a batch in the order the rows were added, which allows us to map
+     * parent IDs back to the report entries they were written for.
+     */
+    private static List<Long> executeReturningIds(PreparedBatch batch) {
+        if (batch.size() == 0) {
+            return Collections.emptyList();
+        }
+
+        return batch.executePreparedBatch("id")
+                .mapTo(Long.class)
+                .list();
+    }
+
+    private static void execute(PreparedBatch batch) {
+        if (batch.size() > 0) {
+            batch.execute();
         }
     }
 
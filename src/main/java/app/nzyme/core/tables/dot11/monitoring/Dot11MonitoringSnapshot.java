@@ -0,0 +1,50 @@
+package app.nzyme.core.tables.dot11.monitoring;
+
+import app.nzyme.core.dot11.bandits.BanditFingerprintIndex;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Everything required to run monitoring and bandit detection on 802.11 reports of an organization and tenant.
+ * Built from the database once and shared between reports until monitored networks or bandits change.
+ */
+@AutoValue
+public abstract class Dot11MonitoringSnapshot {
+
+    public abstract long version();
+
+    // Only enabled monitored networks, keyed by SSID.
+    public abstract ImmutableMap<String, PreLoadedMonitoredSSID> monitoredSSIDs();
+
+    // Built-in and custom bandits.
+    public abstract BanditFingerprintIndex bandits();
+
+    public abstract SimilarSSIDDetector similarSSIDs();
+
+    public static Dot11MonitoringSnapshot create(long version, ImmutableMap<String, PreLoadedMonitoredSSID> monitoredSSIDs, BanditFingerprintIndex bandits, SimilarSSIDDetector similarSSIDs) {
+        return builder()
+                .version(version)
+                .monitoredSSIDs(monitoredSSIDs)
+                .bandits(bandits)
+                .similarSSIDs(similarSSIDs)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_Dot11MonitoringSnapshot.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder version(long version);
+
+        public abstract Builder monitoredSSIDs(ImmutableMap<String, PreLoadedMonitoredSSID> monitoredSSIDs);
+
+        public abstract Builder bandits(BanditFingerprintIndex bandits);
+
+        public abstract Builder similarSSIDs(SimilarSSIDDetector similarSSIDs);
+
+        public abstract Dot11MonitoringSnapshot build();
+    }
+
+}
@@ -15,6 +15,7 @@ public abstract class PreLoadedMonitoredSSID {
     public abstract Map<String, PreLoadedMonitoredBSSID> bssids();
     public abstract List<Integer> channels();
     public abstract List<String> securitySuites();
+    public abstract List<String> restrictedSubstrings();
 
     public abstract boolean enabledUnexpectedBSSID();
     public abstract boolean enabledUnexpectedChannel();
@@ -30,13 +31,14 @@ public abstract class PreLoadedMonitoredSSID {
     @Nullable
     public abstract String detectionConfigSSIDSubstring();
 
-    public static PreLoadedMonitoredSSID create(UUID id, String ssid, Map<String, PreLoadedMonitoredBSSID> bssids, List<Integer> channels, List<String> securitySuites, boolean enabledUnexpectedBSSID, boolean enabledUnexpectedChannel, boolean enabledUnexpectedSecuritySuites, boolean enabledUnexpectedFingerprint, boolean enabledUnexpectedSignalTracks, boolean enabledSimilarLookingSSID, boolean enabledSSIDSubstring, Integer detectionConfigSimilarLookingSSIDThreshold, String detectionConfigSSIDSubstring) {
+    public static PreLoadedMonitoredSSID create(UUID id, String ssid, Map<String, PreLoadedMonitoredBSSID> bssids, List<Integer> channels, List<String> securitySuites, List<String> restrictedSubstrings, boolean enabledUnexpectedBSSID, boolean enabledUnexpectedChannel, boolean enabledUnexpectedSecuritySuites, boolean enabledUnexpectedFingerprint, boolean enabledUnexpectedSignalTracks, boolean enabledSimilarLookingSSID, boolean enabledSSIDSubstring, Integer detectionConfigSimilarLookingSSIDThreshold, String detectionConfigSSIDSubstring) {
         return builder()
                 .id(id)
                 .ssid(ssid)
                 .bssids(bssids)
                 .channels(channels)
                 .securitySuites(securitySuites)
+                .restrictedSubstrings(restrictedSubstrings)
                 .enabledUnexpectedBSSID(enabledUnexpectedBSSID)
                 .enabledUnexpectedChannel(enabledUnexpectedChannel)
                 .enabledUnexpectedSecuritySuites(enabledUnexpectedSecuritySuites)
@@ -65,6 +67,8 @@ public abstract class PreLoadedMonitoredSSID {
 
         public abstract Builder securitySuites(List<String> securitySuites);
 
+        public abstract Builder restrictedSubstrings(List<String> restrictedSubstrings);
+
         public abstract Builder enabledUnexpectedBSSID(boolean enabledUnexpectedBSSID);
 
         public abstract Builder enabledUnexpectedChannel(boolean enabledUnexpectedChannel);
@@ -0,0 +1,31 @@
+package app.nzyme.core.tables.dot11.monitoring;
+
+import com.google.auto.value.AutoValue;
+
+@AutoValue
+public abstract class RestrictedSubstringMatch {
+
+    public abstract PreLoadedMonitoredSSID monitoredSSID();
+    public abstract String substring();
+
+    public static RestrictedSubstringMatch create(PreLoadedMonitoredSSID monitoredSSID, String substring) {
+        return builder()
+                .monitoredSSID(monitoredSSID)
+                .substring(substring)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_RestrictedSubstringMatch.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder monitoredSSID(PreLoadedMonitoredSSID monitoredSSID);
+
+        public abstract Builder substring(String substring);
+
+        public abstract RestrictedSubstringMatch build();
+    }
+
+}
@@ -0,0 +1,170 @@
+package app.nzyme.core.tables.dot11.monitoring;
+
+import app.nzyme.core.util.AhoCorasick;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import info.debatty.java.stringsimilarity.JaroWinkler;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Detects SSIDs that look similar to a monitored SSID or include one of its restricted substrings. Built once
+ * per monitoring snapshot and shared by all reports, which allows caching results of SSIDs that are advertised
+ * over and over again.
+ */
+public class SimilarSSIDDetector {
+
+    /*
+     * JaroWinkler adds at most 4 prefix characters * 0.1 scaling of the remaining distance to the Jaro similarity.
+     */
+    private static final double MAX_WINKLER_BOOST = 0.4;
+
+    private static final JaroWinkler JARO_WINKLER = new JaroWinkler();
+
+    private final List<Candidate> similarityCandidates;
+    private final AhoCorasick<RestrictedSubstringMatch> restrictedSubstrings;
+
+    private final Cache<String, ImmutableList<SimilarSSIDMatch>> similarityCache = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    public SimilarSSIDDetector(Collection<PreLoadedMonitoredSSID> monitoredSSIDs) {
+        this.similarityCandidates = Lists.newArrayList();
+        AhoCorasick.Builder<RestrictedSubstringMatch> substrings = AhoCorasick.builder();
+
+        for (PreLoadedMonitoredSSID monitoredSSID : monitoredSSIDs) {
+            if (monitoredSSID.enabledSimilarLookingSSID()
+                    && monitoredSSID.detectionConfigSimilarLookingSSIDThreshold() != null) {
+                similarityCandidates.add(new Candidate(monitoredSSID));
+            }
+
+            if (monitoredSSID.enabledSSIDSubstring()) {
+                for (String substring : monitoredSSID.restrictedSubstrings()) {
+                    substrings.add(
+                            substring.toLowerCase(Locale.ROOT),
+                            RestrictedSubstringMatch.create(monitoredSSID, substring)
+                    );
+                }
+
+                if (!Strings.isNullOrEmpty(monitoredSSID.detectionConfigSSIDSubstring())) {
+                    substrings.add(
+                            monitoredSSID.detectionConfigSSIDSubstring().toLowerCase(Locale.ROOT),
+                            RestrictedSubstringMatch.create(monitoredSSID, monitoredSSID.detectionConfigSSIDSubstring())
+                    );
+                }
+            }
+        }
+
+        this.restrictedSubstrings = substrings.build();
+    }
+
+    /**
+     * @return All monitored SSIDs with similar SSID detection enabled that the given SSID is more similar to than
+     *         their configured threshold.
+     */
+    public ImmutableList<SimilarSSIDMatch> findSimilar(String ssid) {
+        if (similarityCandidates.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        try {
+            return similarityCache.get(ssid, () -> computeSimilar(ssid));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not compute similar SSIDs.", e);
+        }
+    }
+
+    /**
+     * Matching is case-insensitive.
+     *
+     * @return All restricted substrings of monitored SSIDs with restricted substring detection enabled that the
+     *         given SSID includes.
+     */
+    public ImmutableSet<RestrictedSubstringMatch> findRestrictedSubstrings(String ssid) {
+        if (restrictedSubstrings.isEmpty()) {
+            return ImmutableSet.of();
+        }
+
+        return restrictedSubstrings.findAll(ssid.toLowerCase(Locale.ROOT));
+    }
+
+    private ImmutableList<SimilarSSIDMatch> computeSimilar(String ssid) {
+        ImmutableList.Builder<SimilarSSIDMatch> matches = ImmutableList.builder();
+        char[] sortedSSID = sortedCharacters(ssid);
+
+        for (Candidate candidate : similarityCandidates) {
+            double threshold = candidate.monitoredSSID.detectionConfigSimilarLookingSSIDThreshold();
+
+            // Skip the expensive comparison if even a perfect alignment could not exceed the threshold.
+            if (upperBound(candidate.sortedCharacters, sortedSSID) * 100.0 <= threshold) {
+                continue;
+            }
+
+            double similarity = JARO_WINKLER.similarity(candidate.monitoredSSID.ssid(), ssid) * 100.0;
+            if (similarity > threshold) {
+                matches.add(SimilarSSIDMatch.create(candidate.monitoredSSID, similarity));
+            }
+        }
+
+        return matches.build();
+    }
+
+    /*
+     * Jaro similarity is (m/|a| + m/|b| + (m-t)/m) / 3 with m matching characters. m can never be larger than the
+     * number of characters both strings have in common, which is cheap to compute from the sorted characters.
+     */
+    private static double upperBound(char[] a, char[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        if (common == 0) {
+            return 0;
+        }
+
+        double jaro = ((double) common / a.length + (double) common / b.length + 1.0) / 3.0;
+        return jaro + MAX_WINKLER_BOOST * (1.0 - jaro);
+    }
+
+    private static char[] sortedCharacters(String s) {
+        char[] chars = s.toCharArray();
+        Arrays.sort(chars);
+        return chars;
+    }
+
+    private static final class Candidate {
+
+        private final PreLoadedMonitoredSSID monitoredSSID;
+        private final char[] sortedCharacters;
+
+        private Candidate(PreLoadedMonitoredSSID monitoredSSID) {
+            this.monitoredSSID = monitoredSSID;
+            this.sortedCharacters = sortedCharacters(monitoredSSID.ssid());
+        }
+
+    }
+
+}
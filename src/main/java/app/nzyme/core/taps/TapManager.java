@@ -2,6 +2,13 @@ package app.nzyme.core.taps;
 
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.rest.authentication.AuthenticatedUser;
+import app.nzyme.core.util.MetricNames;
+import app.nzyme.plugin.distributed.messaging.ClusterMessage;
+import app.nzyme.plugin.distributed.messaging.MessageType;
+import com.codahale.metrics.Meter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -15,6 +22,7 @@ import app.nzyme.core.taps.metrics.TapMetricsGaugeAggregation;
 import jakarta.annotation.Nullable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.joda.time.DateTime;
 
 import java.util.*;
@@ -27,9 +35,20 @@ public class TapManager {
 
     private final NzymeNode nzyme;
 
+    // Resolved UUIDs of all taps a user can access, by user ID.
+    private final Cache<UUID, ImmutableSet<UUID>> tapScopes;
+    private final Meter tapScopeCacheHits;
+    private final Meter tapScopeCacheMisses;
+
     public TapManager(NzymeNode nzyme) {
         this.nzyme = nzyme;
 
+        this.tapScopes = CacheBuilder.newBuilder()
+                .expireAfterWrite(5, TimeUnit.MINUTES)
+                .build();
+        this.tapScopeCacheHits = nzyme.getMetrics().meter(MetricNames.TAP_SCOPE_CACHE_HITS);
+        this.tapScopeCacheMisses = nzyme.getMetrics().meter(MetricNames.TAP_SCOPE_CACHE_MISSES);
+
         Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder()
                         .setNameFormat("taps-cleaner-%d")
@@ -41,180 +60,107 @@ public class TapManager {
     public void registerTapStatus(StatusReport report, String remoteAddress, UUID tapUUID) {
         LOG.debug("Registering report from tap [{}].", tapUUID);
 
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE taps SET version = :version, clock = :clock, " +
-                                "processed_bytes_total = :processed_bytes_total, " +
-                                "processed_bytes_average = :processed_bytes_average, memory_total = :memory_total, " +
-                                "memory_free = :memory_free, memory_used = :memory_used, cpu_load = :cpu_load, " +
-                                "remote_address = :remote_address, last_report = NOW() WHERE uuid = :uuid")
-                        .bind("version", report.version())
-                        .bind("clock", report.timestamp())
-                        .bind("processed_bytes_total", report.processedBytes().total())
-                        .bind("processed_bytes_average", report.processedBytes().average())
-                        .bind("memory_total", report.systemMetrics().memoryTotal())
-                        .bind("memory_free", report.systemMetrics().memoryFree())
-                        .bind("memory_used", report.systemMetrics().memoryTotal()-report.systemMetrics().memoryFree())
-                        .bind("cpu_load", report.systemMetrics().cpuLoad())
-                        .bind("remote_address", remoteAddress)
-                        .bind("uuid", tapUUID)
-                        .execute()
-        );
-
-        // Register captures.
-        for (CapturesReport capture : report.captures()) {
-            long captureCount = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT COUNT(*) AS count FROM tap_captures " +
-                                    "WHERE interface = :interface AND tap_uuid = :tap_uuid")
-                            .bind("interface", capture.interfaceName())
-                            .bind("tap_uuid",  tapUUID)
-                            .mapTo(Long.class)
-                            .one()
-            );
+        nzyme.getDatabase().useHandle(h -> h.useTransaction(handle -> {
+            handle.createUpdate("UPDATE taps SET version = :version, clock = :clock, " +
+                            "processed_bytes_total = :processed_bytes_total, " +
+                            "processed_bytes_average = :processed_bytes_average, memory_total = :memory_total, " +
+                            "memory_free = :memory_free, memory_used = :memory_used, cpu_load = :cpu_load, " +
+                            "remote_address = :remote_address, last_report = NOW() WHERE uuid = :uuid")
+                    .bind("version", report.version())
+                    .bind("clock", report.timestamp())
+                    .bind("processed_bytes_total", report.processedBytes().total())
+                    .bind("processed_bytes_average", report.processedBytes().average())
+                    .bind("memory_total", report.systemMetrics().memoryTotal())
+                    .bind("memory_free", report.systemMetrics().memoryFree())
+                    .bind("memory_used", report.systemMetrics().memoryTotal()-report.systemMetrics().memoryFree())
+                    .bind("cpu_load", report.systemMetrics().cpuLoad())
+                    .bind("remote_address", remoteAddress)
+                    .bind("uuid", tapUUID)
+                    .execute();
 
-            if (captureCount == 0) {
-                nzyme.getDatabase().withHandle(handle ->
-                    handle.createUpdate("INSERT INTO tap_captures(tap_uuid, interface, capture_type, is_running, " +
-                            "received, dropped_buffer, dropped_interface, updated_at, created_at) VALUES(:tap_uuid, " +
-                            ":interface, :capture_type, :is_running, :received, :dropped_buffer, :dropped_interface, " +
-                            "NOW(), NOW())")
-                            .bind("tap_uuid", tapUUID)
-                            .bind("interface", capture.interfaceName())
-                            .bind("capture_type", capture.captureType())
-                            .bind("is_running", capture.isRunning())
-                            .bind("received", capture.received())
-                            .bind("dropped_buffer", capture.droppedBuffer())
-                            .bind("dropped_interface", capture.droppedInterface())
-                            .execute()
-                );
-            } else {
-                nzyme.getDatabase().withHandle(handle ->
-                        handle.createUpdate("UPDATE tap_captures SET capture_type = :capture_type, " +
-                                "is_running = :is_running, received = :received, dropped_buffer = :dropped_buffer, " +
-                                "dropped_interface = :dropped_interface, updated_at = NOW() " +
-                                "WHERE tap_uuid = :tap_uuid AND interface = :interface")
-                                .bind("capture_type", capture.captureType())
-                                .bind("is_running", capture.isRunning())
-                                .bind("received", capture.received())
-                                .bind("dropped_buffer", capture.droppedBuffer())
-                                .bind("dropped_interface", capture.droppedInterface())
-                                .bind("tap_uuid", tapUUID)
-                                .bind("interface", capture.interfaceName())
-                                .execute()
-                );
+            // Register captures.
+            PreparedBatch captures = handle.prepareBatch("INSERT INTO tap_captures(tap_uuid, interface, " +
+                    "capture_type, is_running, received, dropped_buffer, dropped_interface, updated_at, created_at) " +
+                    "VALUES(:tap_uuid, :interface, :capture_type, :is_running, :received, :dropped_buffer, " +
+                    ":dropped_interface, NOW(), NOW()) ON CONFLICT (tap_uuid, interface) DO UPDATE SET " +
+                    "capture_type = EXCLUDED.capture_type, is_running = EXCLUDED.is_running, " +
+                    "received = EXCLUDED.received, dropped_buffer = EXCLUDED.dropped_buffer, " +
+                    "dropped_interface = EXCLUDED.dropped_interface, updated_at = NOW()");
+            for (CapturesReport capture : report.captures()) {
+                captures.bind("tap_uuid", tapUUID)
+                        .bind("interface", capture.interfaceName())
+                        .bind("capture_type", capture.captureType())
+                        .bind("is_running", capture.isRunning())
+                        .bind("received", capture.received())
+                        .bind("dropped_buffer", capture.droppedBuffer())
+                        .bind("dropped_interface", capture.droppedInterface())
+                        .add();
             }
-        }
-
-        // Register bus.
-        long busCount = nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT COUNT(*) AS count FROM tap_buses WHERE tap_uuid = :tap_uuid")
-                        .bind("tap_uuid", tapUUID)
-                        .mapTo(Long.class)
-                        .one()
-        );
-
-        if (busCount == 0) {
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("INSERT INTO tap_buses(tap_uuid, name, created_at, updated_at) " +
-                            "VALUES(:tap_uuid, :name, NOW(), NOW())")
-                            .bind("tap_uuid", tapUUID)
-                            .bind("name", report.bus().name())
-                            .execute()
-            );
-        } else {
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("UPDATE tap_buses SET updated_at = NOW() WHERE tap_uuid = :tap_uuid AND name = :name")
-                            .bind("tap_uuid", tapUUID)
-                            .bind("name", report.bus().name())
-                            .execute()
-            );
-        }
-
-        Long busId = nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT id FROM tap_buses WHERE tap_uuid = :tap_uuid")
-                        .bind("tap_uuid", tapUUID)
-                        .mapTo(Long.class)
-                        .one()
-        );
-
-        // Register bus channels.
-        for (ChannelReport channel : report.bus().channels()) {
-            long channelCount = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT COUNT(*) AS count FROM bus_channels " +
-                                    "WHERE bus_id = :bus_id AND name = :channel_name")
-                            .bind("bus_id", busId)
-                            .bind("channel_name", channel.name())
-                            .mapTo(Long.class)
-                            .one()
-            );
-
-            if (channelCount == 0) {
-                nzyme.getDatabase().withHandle(handle ->
-                        handle.createUpdate("INSERT INTO bus_channels(name, bus_id, capacity, watermark, errors_total, " +
-                                "errors_average, throughput_bytes_total, throughput_bytes_average, " +
-                                "throughput_messages_total, throughput_messages_average, created_at, updated_at) " +
-                                "VALUES(:name, :bus_id, :capacity, :watermark, :errors_total, :errors_average, " +
-                                ":throughput_bytes_total, :throughput_bytes_average, :throughput_messages_total, " +
-                                ":throughput_messages_average, NOW(), NOW())")
-                                .bind("name", channel.name())
-                                .bind("bus_id", busId)
-                                .bind("capacity", channel.capacity())
-                                .bind("watermark", channel.watermark())
-                                .bind("errors_total", channel.errors().total())
-                                .bind("errors_average", channel.errors().average())
-                                .bind("throughput_bytes_total", channel.throughputBytes().total())
-                                .bind("throughput_bytes_average", channel.throughputBytes().average())
-                                .bind("throughput_messages_total", channel.throughputMessages().total())
-                                .bind("throughput_messages_average", channel.throughputMessages().average())
-                                .execute()
-                );
-            } else {
-                nzyme.getDatabase().withHandle(handle ->
-                        handle.createUpdate("UPDATE bus_channels SET capacity = :capacity, watermark = :watermark, " +
-                                "errors_total = :errors_total, errors_average = :errors_average, " +
-                                "throughput_bytes_total = :throughput_bytes_total, " +
-                                "throughput_bytes_average = :throughput_bytes_average, " +
-                                "throughput_messages_total = :throughput_messages_total, " +
-                                "throughput_messages_average = :throughput_messages_average, " +
-                                "updated_at = NOW() WHERE bus_id = :bus_id AND name = :name")
-                                .bind("name", channel.name())
-                                .bind("bus_id", busId)
-                                .bind("capacity", channel.capacity())
-                                .bind("watermark", channel.watermark())
-                                .bind("errors_total", channel.errors().total())
-                                .bind("errors_average", channel.errors().average())
-                                .bind("throughput_bytes_total", channel.throughputBytes().total())
-                                .bind("throughput_bytes_average", channel.throughputBytes().average())
-                                .bind("throughput_messages_total", channel.throughputMessages().total())
-                                .bind("throughput_messages_average", channel.throughputMessages().average())
-                                .execute()
-                );
+            execute(captures);
+
+            // Register bus.
+            long busId = handle.createQuery("INSERT INTO tap_buses(tap_uuid, name, created_at, updated_at) " +
+                            "VALUES(:tap_uuid, :name, NOW(), NOW()) ON CONFLICT (tap_uuid, name) DO UPDATE SET " +
+                            "updated_at = NOW() RETURNING id")
+                    .bind("tap_uuid", tapUUID)
+                    .bind("name", report.bus().name())
+                    .mapTo(Long.class)
+                    .one();
+
+            // Register bus channels.
+            PreparedBatch channels = handle.prepareBatch("INSERT INTO bus_channels(name, bus_id, capacity, " +
+                    "watermark, errors_total, errors_average, throughput_bytes_total, throughput_bytes_average, " +
+                    "throughput_messages_total, throughput_messages_average, created_at, updated_at) " +
+                    "VALUES(:name, :bus_id, :capacity, :watermark, :errors_total, :errors_average, " +
+                    ":throughput_bytes_total, :throughput_bytes_average, :throughput_messages_total, " +
+                    ":throughput_messages_average, NOW(), NOW()) ON CONFLICT (bus_id, name) DO UPDATE SET " +
+                    "capacity = EXCLUDED.capacity, watermark = EXCLUDED.watermark, " +
+                    "errors_total = EXCLUDED.errors_total, errors_average = EXCLUDED.errors_average, " +
+                    "throughput_bytes_total = EXCLUDED.throughput_bytes_total, " +
+                    "throughput_bytes_average = EXCLUDED.throughput_bytes_average, " +
+                    "throughput_messages_total = EXCLUDED.throughput_messages_total, " +
+                    "throughput_messages_average = EXCLUDED.throughput_messages_average, updated_at = NOW()");
+            for (ChannelReport channel : report.bus().channels()) {
+                channels.bind("name", channel.name())
+                        .bind("bus_id", busId)
+                        .bind("capacity", channel.capacity())
+                        .bind("watermark", channel.watermark())
+                        .bind("errors_total", channel.errors().total())
+                        .bind("errors_average", channel.errors().average())
+                        .bind("throughput_bytes_total", channel.throughputBytes().total())
+                        .bind("throughput_bytes_average", channel.throughputBytes().average())
+                        .bind("throughput_messages_total", channel.throughputMessages().total())
+                        .bind("throughput_messages_average", channel.throughputMessages().average())
+                        .add();
             }
-        }
+            execute(channels);
 
-        // Metrics
-        for (Map.Entry<String, Long> metric : report.gaugesLong().entrySet()) {
-            writeGauge(tapUUID, metric.getKey(), metric.getValue(), report.timestamp());
-        }
-
-        // Additional metrics.
-        writeGauge(tapUUID, "system.captures.throughput_bit_sec", report.processedBytes().average()*8/10, report.timestamp());
-        writeGauge(tapUUID, "os.memory.bytes_used", report.systemMetrics().memoryTotal()-report.systemMetrics().memoryFree(), report.timestamp());
-        writeGauge(tapUUID, "os.cpu.load.percent", report.systemMetrics().cpuLoad(), report.timestamp());
-    }
+            // Metrics
+            PreparedBatch gauges = handle.prepareBatch("INSERT INTO tap_metrics_gauges(tap_uuid, metric_name, " +
+                    "metric_value, created_at) VALUES(:tap_uuid, :metric_name, :metric_value, NOW())");
+            for (Map.Entry<String, Long> metric : report.gaugesLong().entrySet()) {
+                addGauge(gauges, tapUUID, metric.getKey(), metric.getValue().doubleValue());
+            }
 
-    private void writeGauge(UUID tapUUID, String metricName, Long metricValue, DateTime timestamp) {
-        writeGauge(tapUUID, metricName, metricValue.doubleValue(), timestamp);
+            // Additional metrics.
+            addGauge(gauges, tapUUID, "system.captures.throughput_bit_sec", (double) (report.processedBytes().average()*8/10));
+            addGauge(gauges, tapUUID, "os.memory.bytes_used", (double) (report.systemMetrics().memoryTotal()-report.systemMetrics().memoryFree()));
+            addGauge(gauges, tapUUID, "os.cpu.load.percent", report.systemMetrics().cpuLoad());
+            gauges.execute();
+        }));
     }
 
-    private void writeGauge(UUID tapUUID, String metricName, Double metricValue, DateTime timestamp) {
-        nzyme.getDatabase().withHandle(handle ->
-                handle.createUpdate("INSERT INTO tap_metrics_gauges(tap_uuid, metric_name, metric_value, created_at) " +
-                                "VALUES(:tap_uuid, :metric_name, :metric_value, NOW())")
-                .bind("tap_uuid", tapUUID)
+    private static void addGauge(PreparedBatch batch, UUID tapUUID, String metricName, Double metricValue) {
+        batch.bind("tap_uuid", tapUUID)
                 .bind("metric_name", metricName)
                 .bind("metric_value", metricValue)
-                .execute()
-        );
+                .add();
+    }
+
+    private static void execute(PreparedBatch batch) {
+        if (batch.size() > 0) {
+            batch.execute();
+        }
     }
 
     private void retentionCleanMetrics() {
@@ -268,7 +214,43 @@ public class TapManager {
         );
     }
 
+    /*
+     * Returns the UUIDs of all taps a user can access. The result is cached and the returned list is backed by a set,
+     * so contains() checks on it are cheap.
+     */
     public List<UUID> allTapUUIDsAccessibleByUser(AuthenticatedUser user) {
+        ImmutableSet<UUID> cached = tapScopes.getIfPresent(user.getUserId());
+        if (cached != null) {
+            tapScopeCacheHits.mark();
+            return cached.asList();
+        }
+
+        tapScopeCacheMisses.mark();
+        ImmutableSet<UUID> resolved = ImmutableSet.copyOf(resolveTapUUIDsAccessibleByUser(user));
+        tapScopes.put(user.getUserId(), resolved);
+
+        return resolved.asList();
+    }
+
+    public void invalidateTapScopes() {
+        tapScopes.invalidateAll();
+    }
+
+    /*
+     * Invalidates resolved tap scopes on this node and on all other nodes of the cluster. Must be called after
+     * creating or deleting taps or changing tap permissions of users.
+     */
+    public void invalidateTapScopesOfCluster() {
+        invalidateTapScopes();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "tap_scopes"),
+                false
+        ));
+    }
+
+    private List<UUID> resolveTapUUIDsAccessibleByUser(AuthenticatedUser user) {
         List<UUID> allTaps = nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT uuid FROM taps")
                         .mapTo(UUID.class)
@@ -0,0 +1,129 @@
+package app.nzyme.core.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds all patterns occurring in a text in a single pass over the text, no matter how many patterns there are.
+ * Each pattern carries a value that is returned on match. Immutable and thread-safe once built.
+ */
+public class AhoCorasick<T> {
+
+    private final List<Map<Character, Integer>> transitions;
+    private final int[] failures;
+    private final List<List<T>> outputs;
+
+    private AhoCorasick(List<Map<Character, Integer>> transitions, int[] failures, List<List<T>> outputs) {
+        this.transitions = transitions;
+        this.failures = failures;
+        this.outputs = outputs;
+    }
+
+    /**
+     * @return The values of all patterns that occur in the text, in order of first occurrence.
+     */
+    public ImmutableSet<T> findAll(String text) {
+        ImmutableSet.Builder<T> result = ImmutableSet.builder();
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            Integer next = transitions.get(state).get(c);
+            while (next == null && state != 0) {
+                state = failures[state];
+                next = transitions.get(state).get(c);
+            }
+
+            state = next == null ? 0 : next;
+            result.addAll(outputs.get(state));
+        }
+
+        return result.build();
+    }
+
+    public boolean isEmpty() {
+        return transitions.get(0).isEmpty();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public static class Builder<T> {
+
+        private final List<Map<Character, Integer>> transitions = Lists.newArrayList();
+        private final List<List<T>> outputs = Lists.newArrayList();
+
+        private Builder() {
+            // Root.
+            transitions.add(Maps.newHashMap());
+            outputs.add(Lists.newArrayList());
+        }
+
+        /**
+         * Adds a pattern. Empty patterns are ignored because they would match every text.
+         */
+        public Builder<T> add(String pattern, T value) {
+            if (pattern.isEmpty()) {
+                return this;
+            }
+
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                Integer next = transitions.get(state).get(c);
+
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.add(Maps.newHashMap());
+                    outputs.add(Lists.newArrayList());
+                    transitions.get(state).put(c, next);
+                }
+
+                state = next;
+            }
+
+            outputs.get(state).add(value);
+            return this;
+        }
+
+        public AhoCorasick<T> build() {
+            int[] failures = new int[transitions.size()];
+
+            // Breadth-first, so that the failure state of every parent is known before its children.
+            Deque<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+
+                for (Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+                    char c = transition.getKey();
+                    int child = transition.getValue();
+
+                    int failure = failures[state];
+                    while (failure != 0 && !transitions.get(failure).containsKey(c)) {
+                        failure = failures[failure];
+                    }
+
+                    Integer target = transitions.get(failure).get(c);
+                    failures[child] = (target == null || target == child) ? 0 : target;
+
+                    // A match of the failure state is also a match of this state.
+                    outputs.get(child).addAll(outputs.get(failures[child]));
+
+                    queue.add(child);
+                }
+            }
+
+            return new AhoCorasick<>(transitions, failures, outputs);
+        }
+
+    }
+
+}
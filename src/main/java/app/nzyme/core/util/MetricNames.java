@@ -17,13 +17,19 @@
 
 package app.nzyme.core.util;
 
+import app.nzyme.core.cache.QueryResultCache;
 import app.nzyme.core.context.ContextService;
 import app.nzyme.core.crypto.Crypto;
 import app.nzyme.core.database.DatabaseImpl;
+import app.nzyme.core.distributed.tasksqueue.postgres.PostgresTasksQueueImpl;
+import app.nzyme.core.dot11.monitoring.disco.Dot11DiscoMonitor;
+import app.nzyme.core.events.EventActionDispatcher;
 import app.nzyme.core.integrations.geoip.GeoIpService;
 import app.nzyme.core.ouis.OUIManager;
 import app.nzyme.core.rest.interceptors.TapTableSizeInterceptor;
 import app.nzyme.core.security.authentication.PasswordHasher;
+import app.nzyme.core.tables.TablesIngestQueue;
+import app.nzyme.core.taps.TapManager;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
@@ -38,5 +44,24 @@ public class MetricNames {
     public static final String TAP_TABLE_REQUEST_SIZES = name(TapTableSizeInterceptor.class, "request_size");
     public static final String CONTEXT_MAC_CACHE_SIZE = name(ContextService.class, "mac-cache-size");
     public static final String CONTEXT_MAC_LOOKUP_TIMING = name(ContextService.class, "mac-lookup-timing");
+    public static final String TABLES_INGEST_QUEUE_DEPTH = name(TablesIngestQueue.class, "depth");
+    public static final String TABLES_INGEST_QUEUE_WAIT_TIMING = name(TablesIngestQueue.class, "wait-timing");
+    public static final String TABLES_INGEST_QUEUE_DROPPED = name(TablesIngestQueue.class, "dropped");
+    public static final String TABLES_INGEST_PROCESSING_TIMING = name(TablesIngestQueue.class, "processing-timing");
+    public static final String TAP_SCOPE_CACHE_HITS = name(TapManager.class, "scope-cache-hits");
+    public static final String TAP_SCOPE_CACHE_MISSES = name(TapManager.class, "scope-cache-misses");
+    public static final String DOT11_DISCO_MONITOR_RUN_TIMING = name(Dot11DiscoMonitor.class, "run-timing");
+    public static final String DOT11_DISCO_MONITOR_NETWORK_TIMING = name(Dot11DiscoMonitor.class, "network-timing");
+    public static final String QUERY_RESULT_CACHE_HITS = name(QueryResultCache.class, "hits");
+    public static final String QUERY_RESULT_CACHE_MISSES = name(QueryResultCache.class, "misses");
+    public static final String QUERY_RESULT_CACHE_LOAD_TIMING = name(QueryResultCache.class, "load-timing");
+    public static final String QUERY_RESULT_CACHE_SIZE = name(QueryResultCache.class, "size");
+    public static final String TASKS_QUEUE_LAG = name(PostgresTasksQueueImpl.class, "lag");
+    // Prefix. One timer per task type.
+    public static final String TASKS_QUEUE_PROCESSING_TIMING = name(PostgresTasksQueueImpl.class, "processing-timing");
+    public static final String EVENT_ACTIONS_QUEUE_DEPTH = name(EventActionDispatcher.class, "queue-depth");
+    public static final String EVENT_ACTIONS_EXECUTION_TIMING = name(EventActionDispatcher.class, "execution-timing");
+    public static final String EVENT_ACTIONS_RETRIES = name(EventActionDispatcher.class, "retries");
+    public static final String EVENT_ACTIONS_DEAD_LETTERED = name(EventActionDispatcher.class, "dead-lettered");
 
 }
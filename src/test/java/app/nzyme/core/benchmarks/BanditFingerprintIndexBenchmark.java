@@ -0,0 +1,99 @@
+package app.nzyme.core.benchmarks;
+
+import app.nzyme.core.dot11.bandits.BanditFingerprintIndex;
+import app.nzyme.core.dot11.bandits.Dot11BanditDescription;
+import app.nzyme.core.dot11.bandits.Dot11Bandits;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches the fingerprints of a BSSID report against the built-in and a large number of custom bandits, with the
+ * nested loop Dot11Table used before and with BanditFingerprintIndex.
+ *
+ * Run with: mvn test-compile exec:exec -Dbenchmark=BanditFingerprintIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BanditFingerprintIndexBenchmark {
+
+    private static final int FINGERPRINTS_PER_BANDIT = 3;
+
+    // Fingerprints observed in one report. Every fourth is a known bandit fingerprint.
+    private static final int OBSERVED_FINGERPRINTS = 64;
+
+    @Param({"100", "1000", "5000"})
+    public int customBandits;
+
+    private List<Dot11BanditDescription> bandits;
+    private BanditFingerprintIndex index;
+    private String[] observed;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        bandits = Lists.newArrayList(Dot11Bandits.BUILT_IN);
+        for (int i = 0; i < customBandits; i++) {
+            List<String> fingerprints = Lists.newArrayList();
+            for (int f = 0; f < FINGERPRINTS_PER_BANDIT; f++) {
+                fingerprints.add(randomFingerprint(random));
+            }
+
+            bandits.add(Dot11BanditDescription.create(
+                    "custom-" + i, true, "Custom " + i, "Custom bandit " + i, fingerprints
+            ));
+        }
+
+        index = new BanditFingerprintIndex(bandits);
+
+        observed = new String[OBSERVED_FINGERPRINTS];
+        for (int i = 0; i < observed.length; i++) {
+            if (i % 4 == 0) {
+                Dot11BanditDescription bandit = bandits.get(Dot11Bandits.BUILT_IN.size() + random.nextInt(customBandits));
+                observed[i] = bandit.fingerprints().get(random.nextInt(FINGERPRINTS_PER_BANDIT));
+            } else {
+                observed[i] = randomFingerprint(random);
+            }
+        }
+    }
+
+    @Benchmark
+    public void nestedLoop(Blackhole bh) {
+        for (String fingerprint : observed) {
+            for (Dot11BanditDescription bandit : bandits) {
+                if (bandit.fingerprints() != null && bandit.fingerprints().contains(fingerprint)) {
+                    bh.consume(bandit);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void fingerprintIndex(Blackhole bh) {
+        for (String fingerprint : observed) {
+            for (Dot11BanditDescription bandit : index.findBandits(fingerprint)) {
+                bh.consume(bandit);
+            }
+        }
+    }
+
+    private static String randomFingerprint(Random random) {
+        // Fingerprints are hex encoded SHA-256 digests.
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < 64; i++) {
+            sb.append(Character.forDigit(random.nextInt(16), 16));
+        }
+
+        return sb.toString();
+    }
+
+}
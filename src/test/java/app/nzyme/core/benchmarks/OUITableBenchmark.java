@@ -0,0 +1,121 @@
+package app.nzyme.core.benchmarks;
+
+import app.nzyme.core.ouis.OUITable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OUI lookups of tap-reported MAC addresses against a registry of MA-L size. Compares the string keyed map and
+ * key normalization OUIManager used before with OUITable, for single lookups and for the bulk loop of
+ * OUIManager.lookupMacs().
+ *
+ * Run with: mvn test-compile exec:exec -Dbenchmark=OUITableBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OUITableBenchmark {
+
+    // Roughly the number of MA-L assignments in the IEEE registry.
+    private static final int PREFIXES = 36_000;
+
+    private static final int MACS = 1_000;
+
+    private static final String[] VENDORS = {
+            "Cisco Systems, Inc", "Apple, Inc.", "Ruckus Wireless", "Ubiquiti Inc", "Espressif Inc.",
+            "Samsung Electronics Co.,Ltd", "Intel Corporate", "TP-LINK TECHNOLOGIES CO.,LTD."
+    };
+
+    private ImmutableMap<String, String> map;
+    private OUITable table;
+    private String[] macs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        Map<String, String> entries = Maps.newHashMap();
+        OUITable.Builder builder = new OUITable.Builder();
+        int[] prefixes = new int[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            int prefix = random.nextInt(1 << 24);
+            String vendor = VENDORS[random.nextInt(VENDORS.length)];
+
+            prefixes[i] = prefix;
+            entries.put(String.format("%06X", prefix), vendor);
+            builder.addPrefix(prefix, vendor);
+        }
+
+        map = ImmutableMap.copyOf(entries);
+        table = builder.build();
+
+        // Taps report lower case, colon separated MAC addresses. Most of them have a known OUI.
+        macs = new String[MACS];
+        for (int i = 0; i < MACS; i++) {
+            int prefix = random.nextInt(10) < 8 ? prefixes[random.nextInt(PREFIXES)] : random.nextInt(1 << 24);
+            int suffix = random.nextInt(1 << 24);
+
+            macs[i] = String.format("%02x:%02x:%02x:%02x:%02x:%02x",
+                    (prefix >> 16) & 0xFF, (prefix >> 8) & 0xFF, prefix & 0xFF,
+                    (suffix >> 16) & 0xFF, (suffix >> 8) & 0xFF, suffix & 0xFF);
+        }
+    }
+
+    @Benchmark
+    public void mapLookup(Blackhole bh) {
+        for (String mac : macs) {
+            bh.consume(map.get(mac.toUpperCase().substring(0, 8).replace(":", "")));
+        }
+    }
+
+    @Benchmark
+    public void tableLookup(Blackhole bh) {
+        for (String mac : macs) {
+            bh.consume(table.lookup(mac));
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> mapLookupMacs() {
+        Map<String, String> result = Maps.newHashMap();
+        for (String mac : macs) {
+            if (result.containsKey(mac)) {
+                continue;
+            }
+
+            String oui = map.get(mac.toUpperCase().substring(0, 8).replace(":", ""));
+            if (oui != null) {
+                result.put(mac, oui);
+            }
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public Map<String, String> tableLookupMacs() {
+        Map<String, String> result = Maps.newHashMap();
+        for (String mac : macs) {
+            if (result.containsKey(mac)) {
+                continue;
+            }
+
+            String oui = table.lookup(mac);
+            if (oui != null) {
+                result.put(mac, oui);
+            }
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,255 @@
+package app.nzyme.core.benchmarks;
+
+import app.nzyme.core.dot11.db.ChannelHistogramEntry;
+import app.nzyme.core.dot11.tracks.Track;
+import app.nzyme.core.dot11.tracks.TrackDetector;
+import app.nzyme.core.dot11.tracks.db.TrackDetectorConfig;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the signal waterfall of a channel and detects tracks on it, like the BSSID signal waterfall endpoint does.
+ * The histogram has one bucket per minute, with two transmitters at different distances and sparse noise. Compares
+ * the boxed List-of-Lists implementation TrackDetector used before with the dense signal matrix.
+ *
+ * Run with: mvn test-compile exec:exec -Dbenchmark=TrackDetectorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackDetectorBenchmark {
+
+    // One day and one week of minutes.
+    @Param({"1440", "10080"})
+    public int buckets;
+
+    private List<ChannelHistogramEntry> signals;
+
+    private List<List<Long>> legacyZ;
+    private List<DateTime> legacyY;
+    private TrackDetector.TrackDetectorHeatmapData matrix;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        DateTime start = new DateTime(2026, 1, 1, 0, 0);
+
+        signals = Lists.newArrayList();
+        for (int i = 0; i < buckets; i++) {
+            DateTime bucket = start.plusMinutes(i);
+
+            addTransmitter(signals, random, bucket, -45);
+
+            // The second transmitter is only present half of the time.
+            if ((i / 120) % 2 == 0) {
+                addTransmitter(signals, random, bucket, -72);
+            }
+
+            for (int n = 0; n < 3; n++) {
+                signals.add(ChannelHistogramEntry.create(bucket, -100 + random.nextInt(100), 1 + random.nextInt(5)));
+            }
+        }
+
+        LegacyHeatmap legacy = legacyToChartAxisMaps(signals);
+        legacyZ = legacy.z;
+        legacyY = legacy.y;
+        matrix = TrackDetector.toChartAxisMaps(signals);
+    }
+
+    private static void addTransmitter(List<ChannelHistogramEntry> signals, Random random, DateTime bucket, int center) {
+        for (int offset = -4; offset <= 4; offset++) {
+            long frames = Math.max(0, 150 - Math.abs(offset) * 30 + random.nextInt(20));
+            signals.add(ChannelHistogramEntry.create(bucket, center + offset, frames));
+        }
+    }
+
+    @Benchmark
+    public List<Track> legacyWaterfall() {
+        LegacyHeatmap heatmap = legacyToChartAxisMaps(signals);
+        return legacyDetect(heatmap.z, heatmap.y, TrackDetector.DEFAULT_CONFIG);
+    }
+
+    @Benchmark
+    public List<Track> matrixWaterfall() {
+        TrackDetector.TrackDetectorHeatmapData heatmap = TrackDetector.toChartAxisMaps(signals);
+        return new TrackDetector().detect(heatmap.z(), heatmap.y(), TrackDetector.DEFAULT_CONFIG);
+    }
+
+    @Benchmark
+    public List<Track> legacyDetectOnly() {
+        return legacyDetect(legacyZ, legacyY, TrackDetector.DEFAULT_CONFIG);
+    }
+
+    @Benchmark
+    public List<Track> matrixDetectOnly() {
+        return new TrackDetector().detect(matrix.z(), matrix.y(), TrackDetector.DEFAULT_CONFIG);
+    }
+
+    /*
+     * The previous implementation of TrackDetector.toChartAxisMaps(), unchanged.
+     */
+    private static LegacyHeatmap legacyToChartAxisMaps(List<ChannelHistogramEntry> signals) {
+        Map<DateTime, Map<Integer, Long>> aggregated = Maps.newTreeMap();
+        for (ChannelHistogramEntry signal : signals) {
+            if (!aggregated.containsKey(signal.bucket())) {
+                aggregated.put(signal.bucket(), Maps.newHashMap());
+            }
+
+            aggregated.get(signal.bucket()).put(signal.signalStrength(), signal.frameCount());
+        }
+
+        List<List<Long>> z = Lists.newArrayList();
+        List<DateTime> y = Lists.newArrayList();
+
+        for (Map.Entry<DateTime, Map<Integer, Long>> entry : aggregated.entrySet()) {
+            List<Long> bucketSignals = Lists.newArrayList();
+            for(int cnt = -100; cnt < 0; cnt++) {
+                bucketSignals.add(entry.getValue().getOrDefault(cnt, 0L));
+            }
+
+            z.add(bucketSignals);
+            y.add(entry.getKey());
+        }
+
+        return new LegacyHeatmap(z, y);
+    }
+
+    /*
+     * The previous implementation of TrackDetector.detect(), unchanged.
+     */
+    private static List<Track> legacyDetect(List<List<Long>> zValues, List<DateTime> yValues, TrackDetectorConfig config) {
+        int yIdx = 0;
+
+        Map<Integer, List<LegacyPartialTrack>> partialTracks = Maps.newHashMap();
+        for (List<Long> line : zValues) {
+            DateTime y = yValues.get(yIdx);
+            int x = -100;
+            int trackLength = 0;
+            int gapLength = 0;
+            int trackStart = -1;
+
+            for (Long z : line) {
+                if (z > config.frameThreshold() && x != -100) {
+                    if (trackLength == 0) {
+                        trackStart = x;
+                    }
+
+                    trackLength++;
+                } else {
+                    if (trackLength > 0) {
+                        gapLength++;
+
+                        if (gapLength >= config.gapThreshold() || x == 0) {
+                            LegacyPartialTrack partialTrack = new LegacyPartialTrack(y, trackStart, x-config.gapThreshold()+2);
+
+                            if (!partialTracks.containsKey(partialTrack.averageSignal())) {
+                                partialTracks.put(partialTrack.averageSignal(), Lists.newArrayList());
+                            }
+                            partialTracks.get(partialTrack.averageSignal()).add(partialTrack);
+
+                            trackLength = 0;
+                            gapLength = 0;
+                        }
+                    }
+                }
+
+                x++;
+            }
+
+            yIdx++;
+        }
+
+        Map<Integer, List<LegacyPartialTrack>> centerlineAveragedTracks = Maps.newHashMap();
+        for (Map.Entry<Integer, List<LegacyPartialTrack>> partialTrack : partialTracks.entrySet()) {
+            int partialCenterline = partialTrack.getKey();
+
+            Optional<Integer> matchingCenterline = Optional.empty();
+            for (Integer existingCenterline : centerlineAveragedTracks.keySet()) {
+                if (partialCenterline >= existingCenterline-config.signalCenterlineJitter() && partialCenterline <= existingCenterline+ config.signalCenterlineJitter()) {
+                    matchingCenterline = Optional.of(existingCenterline);
+                }
+            }
+
+            if (matchingCenterline.isPresent()) {
+                centerlineAveragedTracks.get(matchingCenterline.get()).addAll(partialTrack.getValue());
+            } else {
+                centerlineAveragedTracks.put(partialCenterline, partialTrack.getValue());
+            }
+        }
+
+        ImmutableList.Builder<Track> tracks = new ImmutableList.Builder<>();
+        for (Map.Entry<Integer, List<LegacyPartialTrack>> aggregated : centerlineAveragedTracks.entrySet()) {
+            LegacyPartialTrack first = aggregated.getValue().get(0);
+
+            DateTime start = first.timestamp;
+            DateTime end = first.timestamp;
+            int minSignal = first.minSignal;
+            int maxSignal = first.maxSignal;
+
+            for (LegacyPartialTrack track : aggregated.getValue()) {
+                if (track.timestamp.isBefore(start)) {
+                    start = track.timestamp;
+                }
+
+                if (track.timestamp.isAfter(end)) {
+                    end = track.timestamp;
+                }
+
+                if (track.minSignal < minSignal) {
+                    minSignal = track.minSignal;
+                }
+
+                if (track.maxSignal > maxSignal) {
+                    maxSignal = track.maxSignal;
+                }
+            }
+
+            tracks.add(Track.create(start, end, aggregated.getKey(), minSignal, maxSignal));
+        }
+
+        return tracks.build();
+    }
+
+    private static final class LegacyHeatmap {
+
+        private final List<List<Long>> z;
+        private final List<DateTime> y;
+
+        LegacyHeatmap(List<List<Long>> z, List<DateTime> y) {
+            this.z = z;
+            this.y = y;
+        }
+
+    }
+
+    private static final class LegacyPartialTrack {
+
+        private final DateTime timestamp;
+        private final int minSignal;
+        private final int maxSignal;
+
+        LegacyPartialTrack(DateTime timestamp, int minSignal, int maxSignal) {
+            this.timestamp = timestamp;
+            this.minSignal = minSignal;
+            this.maxSignal = maxSignal;
+        }
+
+        int averageSignal() {
+            return (minSignal+maxSignal)/2;
+        }
+
+    }
+
+}
@@ -49,6 +49,14 @@ public class NzymeNodeConfigurationLoaderTest extends ResourcesAccessingTest {
         assertTrue(c.fetchOuis());
         assertTrue(c.versionchecksEnabled());
         assertEquals(c.restListenUri(), URI.create("https://127.0.0.1:23900/"));
+
+        // No performance section. Defaults.
+        assertEquals(c.tablesIngestQueueDepth(), 250);
+        assertEquals(c.tablesIngestWorkers(), 4);
+        assertEquals(c.bulkCopyThreshold(), 1000);
+        assertEquals(c.tasksQueueParallelism(), 2);
+        assertEquals(c.registrySecretCacheTtlSeconds(), 300);
+        assertEquals(c.discoMonitorWorkers(), 4);
     }
 
     @Test(expectedExceptions = IncompleteConfigurationException.class)
@@ -182,8 +182,13 @@ public class CryptoPGPTest {
         byte[] value = "IT IS A SECRET.".getBytes();
         byte[] encrypted = crypto.encryptWithClusterKey(value);
 
-        crypto.initialize();
+        /*
+         * Keys are cached after loading. Re-initializing without a private key generates and loads a new pair. The
+         * TLS certificate of the node was encrypted with the old pair and has to be re-generated, too.
+         */
         privatePath.toFile().delete();
+        mockNzyme.getDatabase().useHandle(handle -> handle.execute("DELETE FROM crypto_tls_certificates"));
+        crypto.initialize();
 
         crypto.decryptWithClusterKey(encrypted);
     }
@@ -140,6 +140,55 @@ public class PostgresMessageBusImplTest {
         assertEquals(failureCount, 0);
     }
 
+    @Test
+    public void testPollContinuesAfterHandlerException() {
+        NzymeNode nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
+
+        final AtomicInteger counter = new AtomicInteger(0);
+        nzyme.getMessageBus().onMessageReceived(MessageType.CHECK_RESTART_HTTP_SERVER, new MessageHandler() {
+            @Override
+            public MessageProcessingResult handle(ReceivedMessage message) {
+                if (counter.incrementAndGet() == 1) {
+                    throw new RuntimeException("Handler failed.");
+                }
+
+                return MessageProcessingResult.SUCCESS;
+            }
+
+            @Override
+            public String getName() {
+                return "test";
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            nzyme.getMessageBus().send(Message.create(
+                    nzyme.getNodeManager().getLocalNodeId(),
+                    MessageType.CHECK_RESTART_HTTP_SERVER,
+                    Collections.emptyMap(),
+                    false
+            ));
+        }
+
+        ((PostgresMessageBusImpl) nzyme.getMessageBus()).poll();
+
+        assertEquals(counter.get(), 3);
+
+        long failureCount = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT COUNT(*) FROM message_bus_messages WHERE status = 'PROCESSED_FAILURE'")
+                        .mapTo(Long.class)
+                        .one()
+        );
+        long successCount = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT COUNT(*) FROM message_bus_messages WHERE status = 'PROCESSED_SUCCESS'")
+                        .mapTo(Long.class)
+                        .one()
+        );
+
+        assertEquals(failureCount, 1);
+        assertEquals(successCount, 2);
+    }
+
     @Test
     public void testRetentionCleaning() {
         NzymeNode nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
@@ -271,6 +320,58 @@ public class PostgresMessageBusImplTest {
         assertEquals(counter.get(), 1);
     }
 
+    @Test
+    public void testSendNotifiesListeningNode() throws InterruptedException {
+        // Interval polling is effectively disabled. Only the notification can trigger a poll.
+        NzymeNode nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
+        PostgresMessageBusImpl bus = (PostgresMessageBusImpl) nzyme.getMessageBus();
+
+        final AtomicInteger counter = new AtomicInteger(0);
+        bus.onMessageReceived(MessageType.CHECK_RESTART_HTTP_SERVER, new MessageHandler() {
+            @Override
+            public MessageProcessingResult handle(ReceivedMessage message) {
+                counter.incrementAndGet();
+                return MessageProcessingResult.SUCCESS;
+            }
+
+            @Override
+            public String getName() {
+                return "test";
+            }
+        });
+
+        bus.startListener();
+        try {
+            Thread.sleep(500);
+
+            for (int i = 0; i < 3; i++) {
+                bus.send(Message.create(
+                        nzyme.getNodeManager().getLocalNodeId(),
+                        MessageType.CHECK_RESTART_HTTP_SERVER,
+                        Collections.emptyMap(),
+                        false
+                ));
+            }
+
+            long processedCount = 0;
+            for (int i = 0; i < 50 && processedCount < 3; i++) {
+                Thread.sleep(100);
+
+                processedCount = nzyme.getDatabase().withHandle(handle ->
+                        handle.createQuery("SELECT COUNT(*) FROM message_bus_messages " +
+                                        "WHERE status = 'PROCESSED_SUCCESS' AND processing_time_ms IS NOT NULL")
+                                .mapTo(Long.class)
+                                .one()
+                );
+            }
+
+            assertEquals(processedCount, 3);
+            assertEquals(counter.get(), 3);
+        } finally {
+            bus.stopListener();
+        }
+    }
+
     private long messageBusMessagesTotalCount(Database db) {
         return db.withHandle(handle ->
                 handle.createQuery("SELECT COUNT(*) FROM message_bus_messages")
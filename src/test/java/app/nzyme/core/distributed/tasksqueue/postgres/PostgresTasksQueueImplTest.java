@@ -95,7 +95,7 @@ public class PostgresTasksQueueImplTest {
 
         assertEquals(calls.get(), 0);
         tq.poll();
-        Thread.sleep(100);
+        assertTrue(tq.awaitIdle(5, TimeUnit.SECONDS));
         assertEquals(calls.get(), 1);
 
         long notSuccess = nzyme.getDatabase().withHandle(handle ->
@@ -158,7 +158,7 @@ public class PostgresTasksQueueImplTest {
 
         assertEquals(calls.get(), 0);
         tq.poll();
-        Thread.sleep(100);
+        assertTrue(tq.awaitIdle(5, TimeUnit.SECONDS));
         assertEquals(calls.get(), 1);
 
         long notFailure = nzyme.getDatabase().withHandle(handle ->
@@ -217,7 +217,8 @@ public class PostgresTasksQueueImplTest {
         assertEquals(calls.get(), 0);
         tq.poll();
         tq2.poll();
-        Thread.sleep(100);
+        assertTrue(tq.awaitIdle(5, TimeUnit.SECONDS));
+        assertTrue(tq2.awaitIdle(5, TimeUnit.SECONDS));
         assertEquals(calls.get(), 1);
     }
 
@@ -277,7 +278,8 @@ public class PostgresTasksQueueImplTest {
         assertEquals(calls2.get(), 0);
         tq.poll();
         tq2.poll();
-        Thread.sleep(100);
+        assertTrue(tq.awaitIdle(5, TimeUnit.SECONDS));
+        assertTrue(tq2.awaitIdle(5, TimeUnit.SECONDS));
         assertEquals(calls1.get(), 0);
         assertEquals(calls2.get(), 1);
     }
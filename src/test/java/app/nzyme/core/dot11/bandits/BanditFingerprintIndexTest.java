@@ -0,0 +1,71 @@
+package app.nzyme.core.dot11.bandits;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class BanditFingerprintIndexTest {
+
+    @Test
+    public void testFindBandits() {
+        Dot11BanditDescription a = Dot11BanditDescription.create("a", true, "A", "A", ImmutableList.of("f1", "f2"));
+        Dot11BanditDescription b = Dot11BanditDescription.create("b", true, "B", "B", ImmutableList.of("f2", "f3"));
+        Dot11BanditDescription noFingerprints = Dot11BanditDescription.create("c", false, "C", "C", null);
+
+        BanditFingerprintIndex index = new BanditFingerprintIndex(ImmutableList.of(a, b, noFingerprints));
+
+        assertEquals(index.findBandits("f1"), ImmutableSet.of(a));
+        assertEquals(index.findBandits("f2").asList(), ImmutableList.of(a, b));
+        assertEquals(index.findBandits("f3"), ImmutableSet.of(b));
+        assertTrue(index.findBandits("f4").isEmpty());
+        assertEquals(index.size(), 4);
+    }
+
+    @Test
+    public void testDuplicateFingerprintOfBanditIsMatchedOnce() {
+        Dot11BanditDescription a = Dot11BanditDescription.create("a", true, "A", "A", ImmutableList.of("f1", "f1"));
+
+        BanditFingerprintIndex index = new BanditFingerprintIndex(ImmutableList.of(a));
+
+        assertEquals(index.findBandits("f1").size(), 1);
+    }
+
+    @Test
+    public void testBuiltInBandits() {
+        BanditFingerprintIndex index = new BanditFingerprintIndex(Dot11Bandits.BUILT_IN);
+
+        for (Dot11BanditDescription bandit : Dot11Bandits.BUILT_IN) {
+            if (bandit.fingerprints() == null) {
+                continue;
+            }
+
+            for (String fingerprint : bandit.fingerprints()) {
+                assertTrue(index.findBandits(fingerprint).contains(bandit));
+            }
+        }
+    }
+
+    @Test
+    public void testLargeCustomBanditList() {
+        List<Dot11BanditDescription> bandits = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            List<String> fingerprints = Lists.newArrayList();
+            for (int j = 0; j < 10; j++) {
+                fingerprints.add("fp-" + i + "-" + j);
+            }
+
+            bandits.add(Dot11BanditDescription.create(String.valueOf(i), true, "B" + i, "", fingerprints));
+        }
+
+        BanditFingerprintIndex index = new BanditFingerprintIndex(bandits);
+
+        assertEquals(index.size(), 10000);
+        assertEquals(index.findBandits("fp-742-7"), ImmutableSet.of(bandits.get(742)));
+    }
+
+}
@@ -0,0 +1,73 @@
+package app.nzyme.core.dot11.monitoring.disco.monitormethods.statisticalbaseline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class DiscoBaselineTest {
+
+    @Test
+    public void testQuantileEstimate() {
+        Random random = new Random(1);
+        P2QuantileEstimator median = new P2QuantileEstimator(0.5);
+        P2QuantileEstimator p99 = new P2QuantileEstimator(0.99);
+
+        for (int i = 0; i < 100_000; i++) {
+            double x = random.nextGaussian();
+            median.add(x);
+            p99.add(x);
+        }
+
+        assertEquals(median.estimate(), 0.0, 0.05);
+        assertEquals(p99.estimate(), 2.33, 0.1);
+    }
+
+    @Test
+    public void testQuantileEstimateWithFewSamples() {
+        P2QuantileEstimator estimator = new P2QuantileEstimator(0.5);
+        assertEquals(estimator.estimate(), 0.0);
+
+        estimator.add(5);
+        estimator.add(1);
+        estimator.add(3);
+
+        assertEquals(estimator.estimate(), 3.0);
+    }
+
+    @Test
+    public void testMeanAndDeviation() {
+        DiscoBaseline baseline = new DiscoBaseline(0.99);
+        for (int i = 0; i < 1000; i++) {
+            baseline.update(i % 2 == 0 ? 8 : 12);
+        }
+
+        assertEquals(baseline.getSamples(), 1000);
+        assertEquals(baseline.getMean(), 10.0, 0.1);
+        assertEquals(baseline.getStandardDeviation(), 2.0, 0.1);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ObjectMapper om = new ObjectMapper();
+
+        DiscoBaseline baseline = new DiscoBaseline(0.9);
+        for (int i = 0; i < 3000; i++) {
+            baseline.update(i % 10);
+        }
+
+        DiscoBaseline restored = om.readValue(om.writeValueAsString(baseline), DiscoBaseline.class);
+
+        assertEquals(restored.getSamples(), baseline.getSamples());
+        assertEquals(restored.getMean(), baseline.getMean());
+        assertEquals(restored.getVariance(), baseline.getVariance());
+        assertEquals(restored.getQuantile(), baseline.getQuantile());
+
+        restored.update(5);
+        baseline.update(5);
+        assertEquals(restored.getQuantile(), baseline.getQuantile());
+    }
+
+}
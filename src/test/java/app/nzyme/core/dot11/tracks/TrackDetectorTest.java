@@ -0,0 +1,83 @@
+package app.nzyme.core.dot11.tracks;
+
+import app.nzyme.core.dot11.db.ChannelHistogramEntry;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class TrackDetectorTest {
+
+    private static final DateTime START = new DateTime(2024, 1, 1, 12, 0, DateTimeZone.UTC);
+
+    @Test
+    public void testToChartAxisMaps() {
+        List<ChannelHistogramEntry> signals = Lists.newArrayList(
+                ChannelHistogramEntry.create(START.plusMinutes(1), -50, 10),
+                ChannelHistogramEntry.create(START, -100, 3),
+                ChannelHistogramEntry.create(START.plusMinutes(1), -1, 7),
+                ChannelHistogramEntry.create(START, -60, 5)
+        );
+
+        TrackDetector.TrackDetectorHeatmapData heatmap = TrackDetector.toChartAxisMaps(signals);
+
+        assertEquals(heatmap.y(), Lists.newArrayList(START, START.plusMinutes(1)));
+        assertEquals(heatmap.z().size(), 2);
+        assertEquals(heatmap.z().get(0).length, TrackDetector.SIGNAL_COLUMNS);
+        assertEquals(heatmap.z().get(0)[0], 3);
+        assertEquals(heatmap.z().get(0)[40], 5);
+        assertEquals(heatmap.z().get(1)[50], 10);
+        assertEquals(heatmap.z().get(1)[99], 7);
+        assertEquals(heatmap.z().get(1)[0], 0);
+    }
+
+    @Test
+    public void testDetectMergesCenterlinesWithinJitter() {
+        List<ChannelHistogramEntry> signals = Lists.newArrayList();
+        for (int minute = 0; minute < 10; minute++) {
+            // One track around -70 dBm, drifting slightly, and one around -40 dBm later on.
+            int drift = minute % 3;
+            for (int signal = -72 + drift; signal <= -68 + drift; signal++) {
+                signals.add(ChannelHistogramEntry.create(START.plusMinutes(minute), signal, 100));
+            }
+
+            if (minute >= 5) {
+                for (int signal = -42; signal <= -38; signal++) {
+                    signals.add(ChannelHistogramEntry.create(START.plusMinutes(minute), signal, 100));
+                }
+            }
+        }
+
+        TrackDetector.TrackDetectorHeatmapData heatmap = TrackDetector.toChartAxisMaps(signals);
+        List<Track> tracks = new TrackDetector().detect(heatmap.z(), heatmap.y(), TrackDetector.DEFAULT_CONFIG);
+
+        assertEquals(tracks.size(), 2);
+
+        Track weak = tracks.get(0);
+        assertEquals(weak.centerline(), -69);
+        assertEquals(weak.start(), START);
+        assertEquals(weak.end(), START.plusMinutes(9));
+        assertEquals(weak.minSignal(), -72);
+        assertEquals(weak.maxSignal(), -64);
+
+        Track strong = tracks.get(1);
+        assertEquals(strong.centerline(), -39);
+        assertEquals(strong.start(), START.plusMinutes(5));
+        assertEquals(strong.end(), START.plusMinutes(9));
+        assertEquals(strong.minSignal(), -42);
+        assertEquals(strong.maxSignal(), -36);
+    }
+
+    @Test
+    public void testDetectWithoutSignals() {
+        TrackDetector.TrackDetectorHeatmapData heatmap = TrackDetector.toChartAxisMaps(Lists.newArrayList());
+
+        assertTrue(heatmap.z().isEmpty());
+        assertTrue(new TrackDetector().detect(heatmap.z(), heatmap.y(), TrackDetector.DEFAULT_CONFIG).isEmpty());
+    }
+
+}
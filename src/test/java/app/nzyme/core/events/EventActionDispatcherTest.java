@@ -0,0 +1,150 @@
+package app.nzyme.core.events;
+
+import app.nzyme.core.events.actions.ActionExecutionResult;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.MetricRegistry;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class EventActionDispatcherTest {
+
+    @Test
+    public void testRetriesUntilSuccess() throws InterruptedException {
+        MetricRegistry metrics = new MetricRegistry();
+        EventActionDispatcher dispatcher = new EventActionDispatcher(metrics, 1, 10, 4, 10);
+
+        AtomicInteger calls = new AtomicInteger(0);
+        CountDownLatch succeeded = new CountDownLatch(1);
+        dispatcher.dispatch("test", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new RuntimeException("SMTP server unavailable.");
+            }
+
+            succeeded.countDown();
+            return ActionExecutionResult.SUCCESS;
+        });
+
+        assertTrue(succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals(calls.get(), 3);
+        assertEquals(metrics.meter(MetricNames.EVENT_ACTIONS_RETRIES).getCount(), 2);
+        assertEquals(metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED).getCount(), 0);
+    }
+
+    @Test
+    public void testDeadLettersAfterLastAttempt() throws InterruptedException {
+        MetricRegistry metrics = new MetricRegistry();
+        EventActionDispatcher dispatcher = new EventActionDispatcher(metrics, 1, 10, 3, 10);
+
+        AtomicInteger calls = new AtomicInteger(0);
+        dispatcher.dispatch("test", () -> {
+            calls.incrementAndGet();
+            return ActionExecutionResult.FAILURE;
+        });
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED).getCount() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(calls.get(), 3);
+        assertEquals(metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED).getCount(), 1);
+        assertEquals(dispatcher.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testDoesNotBlockWhenQueueIsFull() throws InterruptedException {
+        MetricRegistry metrics = new MetricRegistry();
+        EventActionDispatcher dispatcher = new EventActionDispatcher(metrics, 1, 1, 1, 10);
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            // First one blocks the only worker, second one is queued, third one does not fit.
+            dispatcher.dispatch("test", () -> {
+                release.await();
+                return ActionExecutionResult.SUCCESS;
+            });
+        }
+
+        assertEquals(metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED).getCount(), 1);
+        release.countDown();
+    }
+
+    @Test
+    public void testShutdownDrainsQueuedExecutions() {
+        MetricRegistry metrics = new MetricRegistry();
+        EventActionDispatcher dispatcher = new EventActionDispatcher(metrics, 1, 10, 1, 10);
+
+        AtomicInteger calls = new AtomicInteger(0);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch("test", () -> {
+                Thread.sleep(20);
+                calls.incrementAndGet();
+                return ActionExecutionResult.SUCCESS;
+            });
+        }
+
+        dispatcher.shutdown(5000);
+
+        assertEquals(calls.get(), 5);
+        assertEquals(metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED).getCount(), 0);
+    }
+
+    @Test
+    public void testShutdownDropsPendingRetriesAndLateExecutions() throws InterruptedException {
+        MetricRegistry metrics = new MetricRegistry();
+        EventActionDispatcher dispatcher = new EventActionDispatcher(metrics, 1, 10, 4, 60_000);
+
+        CountDownLatch failed = new CountDownLatch(1);
+        dispatcher.dispatch("test", () -> {
+            failed.countDown();
+            return ActionExecutionResult.FAILURE;
+        });
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getQueueDepth() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(dispatcher.getQueueDepth(), 1);
+
+        dispatcher.shutdown(5000);
+
+        assertEquals(dispatcher.getQueueDepth(), 0);
+        assertEquals(metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED).getCount(), 1);
+
+        // Not accepted anymore.
+        dispatcher.dispatch("test", () -> ActionExecutionResult.SUCCESS);
+        assertEquals(metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED).getCount(), 2);
+    }
+
+    @Test
+    public void testShutdownDropsExecutionsThatAreNotDrainedInTime() {
+        MetricRegistry metrics = new MetricRegistry();
+        EventActionDispatcher dispatcher = new EventActionDispatcher(metrics, 1, 10, 1, 10);
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            // First one blocks the only worker, the other two stay queued.
+            dispatcher.dispatch("test", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // Interrupted by the shutdown. Don't count this one as a failure.
+                }
+                return ActionExecutionResult.SUCCESS;
+            });
+        }
+
+        dispatcher.shutdown(50);
+        release.countDown();
+
+        assertEquals(metrics.meter(MetricNames.EVENT_ACTIONS_DEAD_LETTERED).getCount(), 2);
+    }
+
+}
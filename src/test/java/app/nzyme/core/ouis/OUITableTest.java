@@ -0,0 +1,90 @@
+package app.nzyme.core.ouis;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class OUITableTest {
+
+    private static final String MAL = "OUI/MA-L                                                    Organization\n" +
+            "company_id                                                  Organization\n" +
+            "                                                            Address\n" +
+            "\n" +
+            "00-00-0C   (hex)\t\tCisco Systems, Inc\n" +
+            "00000C     (base 16)\t\tCisco Systems, Inc\n" +
+            "\t\t\t\t170 WEST TASMAN DRIVE\n" +
+            "\t\t\t\tSAN JOSE  CA  95134-1706\n" +
+            "\t\t\t\tUS\n" +
+            "\n" +
+            "18-7C-0B   (hex)\t\tRuckus Wireless\n" +
+            "187C0B     (base 16)\t\tRuckus Wireless\n" +
+            "\n" +
+            "70-B3-D5   (hex)\t\tIEEE Registration Authority\n" +
+            "70B3D5     (base 16)\t\tIEEE Registration Authority\n" +
+            "\n" +
+            "00-50-C2   (hex)\t\tCisco Systems, Inc\n" +
+            "0050C2     (base 16)\t\tCisco Systems, Inc\n";
+
+    private static final String MAM = "MA-M                                                        Organization\n" +
+            "\n" +
+            "70-B3-D5   (hex)\t\tShinko Technos co.,ltd.\n" +
+            "000000-0FFFFF     (base 16)\t\tShinko Technos co.,ltd.\n";
+
+    private static final String MAS = "OUI-36/MA-S                                                 Organization\n" +
+            "\n" +
+            "70-B3-D5   (hex)\t\tSmall Vendor GmbH\n" +
+            "0F2000-0F2FFF     (base 16)\t\tSmall Vendor GmbH\n";
+
+    private OUITable buildTable() {
+        return new OUITable.Builder()
+                .addRegistry(MAL)
+                .addRegistry(MAM)
+                .addRegistry(MAS)
+                .build();
+    }
+
+    @Test
+    public void testMALLookup() {
+        OUITable table = buildTable();
+
+        assertEquals(table.lookup("00:00:0C:12:34:56"), "Cisco Systems, Inc");
+        assertEquals(table.lookup("18:7c:0b:d7:14:38"), "Ruckus Wireless");
+        assertEquals(table.lookup("18-7C-0B-D7-14-38"), "Ruckus Wireless");
+        assertEquals(table.lookup("187C0BD71438"), "Ruckus Wireless");
+        assertNull(table.lookup("AA:BB:CC:00:00:00"));
+    }
+
+    @Test
+    public void testLongestPrefixMatch() {
+        OUITable table = buildTable();
+
+        assertEquals(table.lookup("70:B3:D5:0F:20:01"), "Small Vendor GmbH");
+        assertEquals(table.lookup("70:B3:D5:0A:00:01"), "Shinko Technos co.,ltd.");
+        assertEquals(table.lookup("70:B3:D5:F0:00:01"), "IEEE Registration Authority");
+    }
+
+    @Test
+    public void testInvalidMacAddresses() {
+        OUITable table = buildTable();
+
+        assertNull(table.lookup(null));
+        assertNull(table.lookup(""));
+        assertNull(table.lookup("00:00"));
+        assertNull(table.lookup("0x:00:0C:12:34:56"));
+    }
+
+    @Test
+    public void testVendorsAreInterned() {
+        OUITable table = buildTable();
+
+        assertSame(table.lookup("00:00:0C:12:34:56"), table.lookup("00:50:C2:12:34:56"));
+        assertEquals(table.size(), 6);
+    }
+
+    @Test
+    public void testEmptyTable() {
+        assertTrue(OUITable.EMPTY.isEmpty());
+        assertNull(OUITable.EMPTY.lookup("00:00:0C:12:34:56"));
+    }
+
+}
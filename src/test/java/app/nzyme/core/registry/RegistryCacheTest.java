@@ -0,0 +1,91 @@
+package app.nzyme.core.registry;
+
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.*;
+
+public class RegistryCacheTest {
+
+    @Test
+    public void testValuesAreLoadedOnce() throws ExecutionException {
+        RegistryCache cache = new RegistryCache(60);
+        AtomicInteger loads = new AtomicInteger(0);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(cache.getValue("foo", () -> {
+                loads.incrementAndGet();
+                return Optional.of("bar");
+            }), Optional.of("bar"));
+        }
+
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void testInvalidateReloads() throws ExecutionException {
+        RegistryCache cache = new RegistryCache(60);
+
+        assertEquals(cache.getValue("foo", () -> Optional.of("bar")), Optional.of("bar"));
+        cache.invalidate("foo");
+        assertEquals(cache.getValue("foo", () -> Optional.of("baz")), Optional.of("baz"));
+    }
+
+    @Test
+    public void testInvalidateDuringLoadDiscardsLoadedValue() throws Exception {
+        assertInvalidateDuringLoadDiscardsLoadedValue(false);
+    }
+
+    @Test
+    public void testInvalidateDuringDecryptedLoadDiscardsLoadedValue() throws Exception {
+        assertInvalidateDuringLoadDiscardsLoadedValue(true);
+    }
+
+    private void assertInvalidateDuringLoadDiscardsLoadedValue(boolean decrypted) throws Exception {
+        RegistryCache cache = new RegistryCache(60);
+        AtomicReference<String> database = new AtomicReference<>("old");
+        AtomicInteger loads = new AtomicInteger(0);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        Callable<Optional<String>> loader = () -> {
+            String value = database.get();
+
+            // Block the first load after it has read the old value until the key was changed and invalidated.
+            if (loads.incrementAndGet() == 1) {
+                loading.countDown();
+                assertTrue(invalidated.await(10, TimeUnit.SECONDS));
+            }
+
+            return Optional.of(value);
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<String>> result = executor.submit(() -> decrypted
+                    ? cache.getDecryptedValue("foo", loader) : cache.getValue("foo", loader));
+
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            database.set("new");
+            cache.invalidate("foo");
+            invalidated.countDown();
+
+            assertEquals(result.get(10, TimeUnit.SECONDS), Optional.of("new"));
+            assertEquals(loads.get(), 2);
+
+            // The new value is cached.
+            Callable<Optional<String>> failingLoader = () -> {
+                throw new IllegalStateException("Value should have been cached.");
+            };
+            assertEquals(decrypted ? cache.getDecryptedValue("foo", failingLoader)
+                    : cache.getValue("foo", failingLoader), Optional.of("new"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
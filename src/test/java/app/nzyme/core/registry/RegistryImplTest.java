@@ -26,6 +26,8 @@ public class RegistryImplTest {
                     .execute();
             handle.createUpdate("DELETE FROM registry_encrypted")
                     .execute();
+            handle.createUpdate("DELETE FROM registry_changes")
+                    .execute();
         });
     }
 
@@ -41,6 +43,23 @@ public class RegistryImplTest {
         assertEquals(r.getValueOrNull("foo"), "bar");
     }
 
+    @Test
+    public void testChangesAreRecorded() {
+        MockNzyme nzyme = new MockNzyme();
+        Registry r = new RegistryImpl(nzyme, "test");
+
+        r.setValue("foo", "bar");
+        r.setValue("foo", "baz");
+        r.deleteValue("foo");
+
+        long changes = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT COUNT(*) FROM registry_changes WHERE key = 'test.foo'")
+                        .mapTo(Long.class)
+                        .one()
+        );
+        assertEquals(changes, 3);
+    }
+
     @Test
     public void testValueEncrypted() throws RegistryCryptoException {
         NzymeNode nzyme = new MockNzyme();
@@ -73,8 +92,13 @@ public class RegistryImplTest {
 
         r.setEncryptedValue("foo", "bar");
 
-        nzyme.getCrypto().initialize();
+        /*
+         * Keys are cached after loading. Re-initializing without a private key generates and loads a new pair. The
+         * TLS certificate of the node was encrypted with the old pair and has to be re-generated, too.
+         */
         privatePath.toFile().delete();
+        nzyme.getDatabase().useHandle(handle -> handle.execute("DELETE FROM crypto_tls_certificates"));
+        nzyme.getCrypto().initialize();
 
         r.getEncryptedValue("foo");
 
@@ -97,6 +121,28 @@ public class RegistryImplTest {
         assertEquals(r.getValueOrNull("foo"), "bar2");
     }
 
+    @Test
+    public void testValueIsCached() {
+        MockNzyme nzyme = new MockNzyme();
+        Registry r = new RegistryImpl(nzyme, "test");
+
+        r.setValue("foo", "bar");
+
+        // Not announced to the change monitor. Readers keep seeing the cached value.
+        nzyme.getDatabase().useHandle(handle ->
+                handle.createUpdate("UPDATE registry SET value = 'other' WHERE key = 'test.foo'")
+                        .execute()
+        );
+        assertEquals(r.getValue("foo").get(), "bar");
+        assertEquals(new RegistryImpl(nzyme, "test").getValue("foo").get(), "bar");
+
+        nzyme.getRegistryCache().invalidate("test.foo");
+        assertEquals(r.getValue("foo").get(), "other");
+
+        r.deleteValue("foo");
+        assertTrue(r.getValue("foo").isEmpty());
+    }
+
     @Test
     public void testUpdatedEncryptedValue() throws RegistryCryptoException {
         NzymeNode nzyme = new MockNzyme();
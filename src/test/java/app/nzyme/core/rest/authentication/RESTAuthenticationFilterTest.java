@@ -33,6 +33,25 @@ public class RESTAuthenticationFilterTest extends RESTAuthenticationFilterTestBa
         assertFalse(ctx.aborted);
     }
 
+    @Test
+    public void testFilterRejectsDeletedCachedSession() throws IOException {
+        NzymeNode nzyme = new MockNzyme();
+        RESTAuthenticationFilter f = new RESTAuthenticationFilter(nzyme);
+
+        UserEntry user = createUser("lennart@example.org", "456456456456");
+        String sessionId = createSession(user.uuid(), true);
+
+        MockHeaderContainerRequest ctx = new MockHeaderContainerRequest("Bearer " + sessionId);
+        f.filter(ctx);
+        assertFalse(ctx.aborted);
+
+        nzyme.getAuthenticationService().deleteAllSessionsOfUser(user.uuid());
+
+        MockHeaderContainerRequest ctx2 = new MockHeaderContainerRequest("Bearer " + sessionId);
+        f.filter(ctx2);
+        assertTrue(ctx2.aborted);
+    }
+
     @Test
     public void testFilterRejectsSessionWithoutPassedMFA() throws IOException {
         NzymeNode nzyme = new MockNzyme();
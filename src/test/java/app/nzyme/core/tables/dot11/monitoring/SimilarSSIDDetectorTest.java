@@ -0,0 +1,110 @@
+package app.nzyme.core.tables.dot11.monitoring;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import info.debatty.java.stringsimilarity.JaroWinkler;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class SimilarSSIDDetectorTest {
+
+    private static PreLoadedMonitoredSSID monitoredSSID(String ssid,
+                                                        Integer similarityThreshold,
+                                                        List<String> restrictedSubstrings) {
+        return PreLoadedMonitoredSSID.create(
+                UUID.randomUUID(),
+                ssid,
+                ImmutableMap.of(),
+                ImmutableList.of(),
+                ImmutableList.of(),
+                restrictedSubstrings,
+                false,
+                false,
+                false,
+                false,
+                false,
+                similarityThreshold != null,
+                !restrictedSubstrings.isEmpty(),
+                similarityThreshold,
+                null
+        );
+    }
+
+    @Test
+    public void testFindSimilarMatchesUnprunedComparison() {
+        List<PreLoadedMonitoredSSID> monitored = ImmutableList.of(
+                monitoredSSID("ACME Corp", 80, ImmutableList.of()),
+                monitoredSSID("ACME Guest", 60, ImmutableList.of()),
+                monitoredSSID("x", 10, ImmutableList.of())
+        );
+
+        SimilarSSIDDetector detector = new SimilarSSIDDetector(monitored);
+        JaroWinkler jaroWinkler = new JaroWinkler();
+
+        List<String> observed = ImmutableList.of("ACME C0rp", "ACME-Corp", "acme corp", "Guest", "ACMEGuest",
+                "xx", "Totally Unrelated Network", "", "ACME Corp 5GHz", "PrettyFlyForAWifi");
+
+        for (String ssid : observed) {
+            ImmutableSet.Builder<UUID> expected = ImmutableSet.builder();
+            for (PreLoadedMonitoredSSID m : monitored) {
+                if (jaroWinkler.similarity(m.ssid(), ssid) * 100.0 > m.detectionConfigSimilarLookingSSIDThreshold()) {
+                    expected.add(m.id());
+                }
+            }
+
+            ImmutableSet.Builder<UUID> actual = ImmutableSet.builder();
+            for (SimilarSSIDMatch match : detector.findSimilar(ssid)) {
+                actual.add(match.monitoredSSID().id());
+            }
+
+            assertEquals(actual.build(), expected.build(), "SSID: " + ssid);
+        }
+    }
+
+    @Test
+    public void testFindSimilarSkipsDisabledNetworks() {
+        SimilarSSIDDetector detector = new SimilarSSIDDetector(ImmutableList.of(
+                monitoredSSID("ACME Corp", null, ImmutableList.of())
+        ));
+
+        assertTrue(detector.findSimilar("ACME C0rp").isEmpty());
+    }
+
+    @Test
+    public void testFindRestrictedSubstrings() {
+        PreLoadedMonitoredSSID a = monitoredSSID("ACME Corp", null, ImmutableList.of("acme", "corp"));
+        PreLoadedMonitoredSSID b = monitoredSSID("Other", null, ImmutableList.of("MECO", "free"));
+
+        SimilarSSIDDetector detector = new SimilarSSIDDetector(ImmutableList.of(a, b));
+
+        assertEquals(detector.findRestrictedSubstrings("ACME-Free-WiFi"), ImmutableSet.of(
+                RestrictedSubstringMatch.create(a, "acme"),
+                RestrictedSubstringMatch.create(b, "free")
+        ));
+        assertEquals(detector.findRestrictedSubstrings("acmecorp"), ImmutableSet.of(
+                RestrictedSubstringMatch.create(a, "acme"),
+                RestrictedSubstringMatch.create(b, "MECO"),
+                RestrictedSubstringMatch.create(a, "corp")
+        ));
+        assertTrue(detector.findRestrictedSubstrings("Coffee Shop").isEmpty());
+        assertTrue(detector.findRestrictedSubstrings("").isEmpty());
+    }
+
+    @Test
+    public void testFindRestrictedSubstringsSkipsDisabledNetworks() {
+        PreLoadedMonitoredSSID disabled = PreLoadedMonitoredSSID.create(
+                UUID.randomUUID(), "ACME Corp", ImmutableMap.of(), ImmutableList.of(), ImmutableList.of(),
+                ImmutableList.of("acme"), false, false, false, false, false, false, false, null, null
+        );
+
+        SimilarSSIDDetector detector = new SimilarSSIDDetector(ImmutableList.of(disabled));
+
+        assertTrue(detector.findRestrictedSubstrings("ACME-Free-WiFi").isEmpty());
+    }
+
+}
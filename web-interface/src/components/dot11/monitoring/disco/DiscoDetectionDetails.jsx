@@ -3,6 +3,7 @@ import Dot11Service from "../../../../services/Dot11Service";
 import LoadingSpinner from "../../../misc/LoadingSpinner";
 import NoOpDetectionMethodDetails from "./details/NoOpDetectionMethodDetails";
 import StaticThresholdDetectionMethodDetails from "./details/StaticThresholdDetectionMethodDetails";
+import StatisticalBaselineDetectionMethodDetails from "./details/StatisticalBaselineDetectionMethodDetails";
 
 const dot11Service = new Dot11Service();
 
@@ -25,6 +26,8 @@ function DiscoDetectionDetails(props) {
       return <NoOpDetectionMethodDetails />
     case "STATIC_THRESHOLD":
       return <StaticThresholdDetectionMethodDetails configuration={configuration.configuration} />
+    case "STATISTICAL_BASELINE":
+      return <StatisticalBaselineDetectionMethodDetails configuration={configuration.configuration} />
     default:
       return <span>Detection method type &quot;{configuration.method_type}&quot; not implemented.</span>
   }
@@ -85,6 +85,7 @@ function ConfigureDiscoDetectionMethodPage() {
                         onChange={(e) => setSelectedMethod(e.target.value)}>
                   <option value="NOOP">Disabled Anomaly Detection</option>
                   <option value="STATIC_THRESHOLD">Static Threshold</option>
+                  <option value="STATISTICAL_BASELINE">Statistical Baseline</option>
                 </select>
 
                 <div className="mt-3">
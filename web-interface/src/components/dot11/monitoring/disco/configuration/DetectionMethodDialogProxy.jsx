@@ -3,6 +3,7 @@ import NoOpDetectionMethodDialog from "./dialogs/NoOpDetectionMethodDialog";
 import Dot11Service from "../../../../../services/Dot11Service";
 import {notify} from "react-notify-toast";
 import StaticThresholdDetectionMethodDialog from "./dialogs/StaticThresholdDetectionMethodDialog";
+import StatisticalBaselineDetectionMethodDialog from "./dialogs/StatisticalBaselineDetectionMethodDialog";
 
 function DetectionMethodDialogProxy(props) {
 
@@ -22,6 +23,10 @@ function DetectionMethodDialogProxy(props) {
       return <StaticThresholdDetectionMethodDialog onSubmit={onSubmit}
                                                    monitoredNetworkId={monitoredNetworkId}
                                                    configuration={configuration} />
+    case "STATISTICAL_BASELINE":
+      return <StatisticalBaselineDetectionMethodDialog onSubmit={onSubmit}
+                                                       monitoredNetworkId={monitoredNetworkId}
+                                                       configuration={configuration} />
     default:
       return <span>Detection method type &quot;{type}&quot; not implemented.</span>
   }
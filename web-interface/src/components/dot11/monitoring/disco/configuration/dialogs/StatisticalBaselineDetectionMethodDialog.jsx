@@ -0,0 +1,97 @@
+import React, {useEffect, useState} from "react";
+import StatisticalBaselineDetectionMethodExplanation
+  from "../../explanations/StatisticalBaselineDetectionMethodExplanation";
+import DiscoDetectionMethodSimulator from "../simulator/DiscoDetectionMethodSimulator";
+import SimulatorButton from "../simulator/SimulatorButton";
+
+function StatisticalBaselineDetectionMethodDialog(props) {
+
+  const configuration = props.configuration;
+  const monitoredNetworkId = props.monitoredNetworkId;
+  const onSubmit = props.onSubmit;
+
+  const [deviation, setDeviation] = useState("");
+  const [quantile, setQuantile] = useState("");
+  const [minimumFrames, setMinimumFrames] = useState("");
+  const [showSimulator, setShowSimulator] = useState(false);
+  const [configObject, setConfigObject] = useState(null);
+
+  const type = "STATISTICAL_BASELINE";
+
+  useEffect(() => {
+    if (configuration && configuration.method_type === type) {
+      setDeviation(configuration.configuration.deviation);
+      setQuantile(configuration.configuration.quantile);
+      setMinimumFrames(configuration.configuration.minimum_frames);
+    } else {
+      setDeviation("3");
+      setQuantile("0.99");
+      setMinimumFrames("10");
+    }
+
+  }, [configuration]);
+
+  useEffect(() => {
+    setShowSimulator(false);
+    setConfigObject({
+      deviation: parseFloat(deviation),
+      quantile: parseFloat(quantile),
+      minimum_frames: parseInt(minimumFrames, 10)
+    })
+  }, [deviation, quantile, minimumFrames]);
+
+  return (
+      <React.Fragment>
+        <StatisticalBaselineDetectionMethodExplanation />
+
+        <h3>Configuration</h3>
+
+        <div className="mb-3">
+          <label htmlFor="deviation" className="form-label">Deviation (Standard Deviations)</label>
+          <input type="number"
+                 className="form-control"
+                 id="deviation"
+                 value={deviation}
+                 min={0}
+                 step={0.5}
+                 onChange={(e) => setDeviation(e.target.value)} />
+        </div>
+
+        <div className="mb-3">
+          <label htmlFor="quantile" className="form-label">Percentile (0 to 1)</label>
+          <input type="number"
+                 className="form-control"
+                 id="quantile"
+                 value={quantile}
+                 min={0}
+                 max={1}
+                 step={0.01}
+                 onChange={(e) => setQuantile(e.target.value)} />
+        </div>
+
+        <div className="mb-3">
+          <label htmlFor="minimum_frames" className="form-label">Minimum Frames</label>
+          <input type="number"
+                 className="form-control"
+                 id="minimum_frames"
+                 value={minimumFrames}
+                 min={0}
+                 onChange={(e) => setMinimumFrames(e.target.value)} />
+        </div>
+
+        <SimulatorButton isToggled={showSimulator} setToggled={setShowSimulator} />{' '}
+
+        <button className="btn btn-primary" onClick={(e) => onSubmit(e, type, configObject)}>
+          Save Configuration
+        </button>
+
+        <DiscoDetectionMethodSimulator show={showSimulator}
+                                       method={type}
+                                       monitoredNetworkId={monitoredNetworkId}
+                                       configuration={configObject} />
+      </React.Fragment>
+  )
+
+}
+
+export default StatisticalBaselineDetectionMethodDialog;
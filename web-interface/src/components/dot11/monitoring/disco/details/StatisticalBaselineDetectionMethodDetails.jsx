@@ -0,0 +1,30 @@
+import React from "react";
+import StatisticalBaselineDetectionMethodExplanation
+  from "../explanations/StatisticalBaselineDetectionMethodExplanation";
+
+function StatisticalBaselineDetectionMethodDetails(props) {
+
+  const configuration = props.configuration;
+
+  return (
+      <React.Fragment>
+        <h4>Method: Statistical Baseline</h4>
+
+        <StatisticalBaselineDetectionMethodExplanation />
+
+        <h4>Configuration</h4>
+
+        <dl>
+          <dt>Deviation</dt>
+          <dd>{configuration.deviation} standard deviations</dd>
+          <dt>Percentile</dt>
+          <dd>{configuration.quantile}</dd>
+          <dt>Minimum Frames</dt>
+          <dd>{configuration.minimum_frames}</dd>
+        </dl>
+      </React.Fragment>
+  )
+
+}
+
+export default StatisticalBaselineDetectionMethodDetails;
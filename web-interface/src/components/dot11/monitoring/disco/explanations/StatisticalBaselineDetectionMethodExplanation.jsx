@@ -0,0 +1,17 @@
+import React from "react";
+
+function StatisticalBaselineDetectionMethodExplanation() {
+
+  return (
+      <p>
+        The <strong>Statistical Baseline Detection</strong> method learns the normal disconnection activity of this
+        network, separately for each tap. It keeps a moving average, the standard deviation and a high percentile of
+        the frames per minute, and activates an alarm if a minute surpasses both the average by the configured number of
+        standard deviations and the percentile. No alarms are raised during the first hour while the baseline is built.
+        Changing the configuration starts a new baseline.
+      </p>
+  )
+
+}
+
+export default StatisticalBaselineDetectionMethodExplanation;